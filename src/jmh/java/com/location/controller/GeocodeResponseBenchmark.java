@@ -0,0 +1,69 @@
+package com.location.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.location.cache.EncodedResponseCache;
+import com.location.cache.EncodedResponseCache.Format;
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the {@link GeocodeController} response map, and the map against the
+ * {@link GeoPoint} record once Jackson has written either to bytes; then the
+ * streaming encoding used by {@link EncodedResponseCache} and a cache hit.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeocodeResponseBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final EncodedResponseCache encodedResponses = new EncodedResponseCache(true, 1000, 3_600_000);
+    private final GeoPoint point = new GeoPoint(6.4302869, 3.4189622,
+            "12 Adeola Odeku St, Victoria Island, Lagos 101241, Lagos, Nigeria", "ROOFTOP", false,
+            "ChIJ4aKfFgOLOxARgVtSpHVbSCs", "12", "Adeola Odeku Street", "Lagos", "Lagos", "Nigeria", "101241");
+
+    @Benchmark
+    public Map<String, Object> buildMap() {
+        return GeocodeController.toResponse(point);
+    }
+
+    @Benchmark
+    public byte[] buildAndWriteMap() throws IOException {
+        return objectMapper.writeValueAsBytes(GeocodeController.toResponse(point));
+    }
+
+    @Benchmark
+    public byte[] writeRecord() throws IOException {
+        return objectMapper.writeValueAsBytes(point);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return encodedResponses.encode(point, Format.JSON);
+    }
+
+    @Benchmark
+    public byte[] encodeCbor() {
+        return encodedResponses.encode(point, Format.CBOR);
+    }
+
+    @Benchmark
+    public byte[] cachedJson() {
+        return encodedResponses.get(point, Format.JSON);
+    }
+}
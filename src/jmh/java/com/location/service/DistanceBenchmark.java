@@ -0,0 +1,94 @@
+package com.location.service;
+
+import com.location.geo.Haversine;
+import com.location.geo.Haversine.PointSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Great-circle distances: one pair at a time, as
+ * {@link GoogleGeocodingService#calculateDistanceKm} does per request, against
+ * one origin to many targets through a scalar loop and through
+ * {@link BulkDistanceService#oneToMany}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceBenchmark {
+
+    @State(Scope.Thread)
+    public static class Pairs {
+        final double[] lats = new double[1024];
+        final double[] lngs = new double[1024];
+        int next;
+
+        @Setup
+        public void setUp() {
+            fill(new SplittableRandom(42), lats, lngs);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Targets {
+        @Param({"1000", "100000"})
+        int size;
+
+        final BulkDistanceService service = new BulkDistanceService();
+        double[] lats;
+        double[] lngs;
+        PointSet points;
+
+        @Setup
+        public void setUp() {
+            lats = new double[size];
+            lngs = new double[size];
+            fill(new SplittableRandom(42), lats, lngs);
+            points = PointSet.ofDegrees(lats, lngs);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double singlePair(Pairs pairs) {
+        // Walk the pairs so the inputs are not constant-folded
+        int i = pairs.next = (pairs.next + 1) & 1023;
+        int j = (i + 512) & 1023;
+        return Haversine.distanceKm(pairs.lats[i], pairs.lngs[i], pairs.lats[j], pairs.lngs[j]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public double[] oneToManyScalarLoop(Targets targets) {
+        double[] out = new double[targets.size];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = Haversine.distanceKm(6.45, 3.39, targets.lats[i], targets.lngs[i]);
+        }
+        return out;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public double[] oneToManyBulk(Targets targets) {
+        return targets.service.oneToMany(6.45, 3.39, targets.points);
+    }
+
+    private static void fill(SplittableRandom random, double[] lats, double[] lngs) {
+        for (int i = 0; i < lats.length; i++) {
+            lats[i] = random.nextDouble(-85, 85);
+            lngs[i] = random.nextDouble(-180, 180);
+        }
+    }
+}
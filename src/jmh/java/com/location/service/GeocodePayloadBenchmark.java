@@ -0,0 +1,108 @@
+package com.location.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.location.dto.GeocodeResponse;
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning a Google geocode response into a {@link GeoPoint}: binding the whole
+ * body into {@link GeocodeResponse} and walking its address components (the
+ * original approach) against {@link GeocodeResponseParser}, which streams the
+ * first result and stops. {@code results} pads the payload with copies of the
+ * result, since reverse geocodes typically return ten or more.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeocodePayloadBenchmark {
+
+    @Param({"1", "10"})
+    int results;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private byte[] payload;
+    private GeocodeResponse.Result bound;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectNode root;
+        try (InputStream in = GeocodePayloadBenchmark.class.getResourceAsStream("/google/geocode-ok.json")) {
+            root = (ObjectNode) objectMapper.readTree(in);
+        }
+        ArrayNode list = (ArrayNode) root.get("results");
+        for (int i = 1; i < results; i++) {
+            list.add(list.get(0).deepCopy());
+        }
+        payload = objectMapper.writeValueAsBytes(root);
+        bound = objectMapper.readValue(payload, GeocodeResponse.class).results.get(0);
+    }
+
+    @Benchmark
+    public GeoPoint bindThenExtract() throws IOException {
+        GeocodeResponse response = objectMapper.readValue(payload, GeocodeResponse.class);
+        return extract(response.results.get(0));
+    }
+
+    @Benchmark
+    public GeoPoint streamFirstResult() throws IOException {
+        return GeocodeResponseParser.parse(payload).first();
+    }
+
+    /**
+     * The address-component loop alone, on an already bound result.
+     */
+    @Benchmark
+    public GeoPoint extractComponents() {
+        return extract(bound);
+    }
+
+    private static GeoPoint extract(GeocodeResponse.Result result) {
+        String streetNumber = null, street = null, city = null, state = null, country = null, postalCode = null;
+        if (result.address_components != null) {
+            for (var comp : result.address_components) {
+                if (comp.types.contains("street_number")) streetNumber = comp.long_name;
+                else if (comp.types.contains("route")) street = comp.long_name;
+                else if (comp.types.contains("locality")) city = comp.long_name;
+                else if (comp.types.contains("administrative_area_level_1")) state = comp.long_name;
+                else if (comp.types.contains("country")) country = comp.long_name;
+                else if (comp.types.contains("postal_code")) postalCode = comp.long_name;
+            }
+        }
+        return new GeoPoint(
+                result.geometry.location.lat,
+                result.geometry.location.lng,
+                result.formatted_address,
+                result.geometry.location_type,
+                result.partial_match,
+                result.place_id,
+                streetNumber,
+                street,
+                city,
+                state,
+                country,
+                postalCode
+        );
+    }
+}
@@ -0,0 +1,330 @@
+package com.location.cache;
+
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Typeahead over every place this service has resolved. Each place is indexed
+ * under its formatted address (with and without a leading street number), its
+ * street and its city, all normalized like cache keys, and ranked by how often
+ * it has been resolved.
+ * <p>
+ * The index is a character trie down to {@value #TRIE_DEPTH} characters. Every
+ * node keeps its own top {@code geocoding.autocomplete.max-suggestions} places,
+ * so a short prefix is answered without visiting the subtree; nodes at the
+ * maximum depth also list the full terms below them, which longer prefixes
+ * filter. Writers take a lock and publish copy-on-write arrays (leaves grow by
+ * doubling), so readers never block. A place's rank is re-evaluated when it is
+ * added and each time its count reaches a power of two; suggestions are sorted
+ * by their live counts.
+ */
+@Component
+public class AutocompleteIndex implements MeterBinder {
+
+    static final int TRIE_DEPTH = 12;
+
+    /**
+     * One suggestion; {@code popularity} is how often the place was resolved.
+     */
+    public record Suggestion(String description, String placeId, double lat, double lng, long popularity) {}
+
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private final int maxEntries;
+    private final int maxSuggestions;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Node root = new Node();
+    private final Object writeLock = new Object();
+    private final LongAdder dropped = new LongAdder();
+
+    public AutocompleteIndex(
+            @Value("${geocoding.autocomplete.max-entries:200000}") int maxEntries,
+            @Value("${geocoding.autocomplete.max-suggestions:10}") int maxSuggestions
+    ) {
+        if (maxSuggestions < 1) {
+            throw new IllegalArgumentException("geocoding.autocomplete.max-suggestions must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxSuggestions = maxSuggestions;
+    }
+
+    private static final class Entry {
+        final GeoPoint point;
+        final String[] terms;
+        final AtomicLong hits = new AtomicLong();
+
+        Entry(GeoPoint point, String[] terms) {
+            this.point = point;
+            this.terms = terms;
+        }
+    }
+
+    /**
+     * An entry with its count read once, so sorting is not disturbed by
+     * concurrent increments.
+     */
+    private record Ranked(Entry entry, long hits) {}
+
+    private static List<Ranked> rank(List<Entry> entries) {
+        List<Ranked> ranked = new ArrayList<>(entries.size());
+        for (Entry e : entries) {
+            ranked.add(new Ranked(e, e.hits.get()));
+        }
+        ranked.sort(Comparator.comparingLong(Ranked::hits).reversed());
+        return ranked;
+    }
+
+    private record Children(char[] keys, Node[] nodes) {}
+
+    /**
+     * The first {@code size} slots of the arrays are published; writers append
+     * into the spare capacity and publish a new Leaf with the larger size, so
+     * the arrays are only copied when they fill up.
+     */
+    private record Leaf(String[] terms, Entry[] entries, int size) {}
+
+    private static final class Node {
+        volatile Children children = new Children(new char[0], new Node[0]);
+        // Sorted by hits (as of the last update), most popular first
+        volatile Entry[] top = NO_ENTRIES;
+        // Only at TRIE_DEPTH: every term passing through this node
+        volatile Leaf leaf;
+
+        Node child(char c) {
+            Children current = children;
+            int at = Arrays.binarySearch(current.keys, c);
+            return at < 0 ? null : current.nodes[at];
+        }
+
+        Node childOrCreate(char c) {
+            Children current = children;
+            int at = Arrays.binarySearch(current.keys, c);
+            if (at >= 0) {
+                return current.nodes[at];
+            }
+            int insert = -at - 1;
+            int n = current.keys.length;
+            char[] keys = new char[n + 1];
+            Node[] nodes = new Node[n + 1];
+            System.arraycopy(current.keys, 0, keys, 0, insert);
+            System.arraycopy(current.nodes, 0, nodes, 0, insert);
+            keys[insert] = c;
+            nodes[insert] = new Node();
+            System.arraycopy(current.keys, insert, keys, insert + 1, n - insert);
+            System.arraycopy(current.nodes, insert, nodes, insert + 1, n - insert);
+            children = new Children(keys, nodes);
+            return nodes[insert];
+        }
+    }
+
+    /**
+     * Counts one resolution of {@code point}, adding it to the index the first
+     * time it is seen. Cheap for known places except when their count reaches a
+     * power of two.
+     */
+    public void record(GeoPoint point) {
+        if (point == null || point.formattedAddress() == null || point.formattedAddress().isBlank()) {
+            return;
+        }
+        String key = point.placeId() != null && !point.placeId().isBlank() ? point.placeId() : point.formattedAddress();
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            synchronized (writeLock) {
+                entry = entries.get(key);
+                if (entry == null) {
+                    if (entries.size() >= maxEntries) {
+                        dropped.increment();
+                        return;
+                    }
+                    entry = new Entry(point, terms(point));
+                    entry.hits.incrementAndGet();
+                    entries.put(key, entry);
+                    insert(entry);
+                    return;
+                }
+            }
+        }
+        long hits = entry.hits.incrementAndGet();
+        if (Long.bitCount(hits) == 1) {
+            synchronized (writeLock) {
+                rerank(entry);
+            }
+        }
+    }
+
+    /**
+     * The most popular places with a term starting with {@code prefix}.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String p = GeocodeCache.normalizeAddress(prefix);
+        if (p.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        Node node = root;
+        int depth = Math.min(p.length(), TRIE_DEPTH);
+        for (int i = 0; i < depth && node != null; i++) {
+            node = node.child(p.charAt(i));
+        }
+        if (node == null) {
+            return List.of();
+        }
+
+        List<Entry> candidates;
+        if (p.length() <= TRIE_DEPTH) {
+            candidates = Arrays.asList(node.top);
+        } else {
+            Leaf leaf = node.leaf;
+            if (leaf == null) {
+                return List.of();
+            }
+            Set<Entry> matching = new LinkedHashSet<>();
+            for (int i = 0; i < leaf.size; i++) {
+                if (leaf.terms[i].startsWith(p)) {
+                    matching.add(leaf.entries[i]);
+                }
+            }
+            candidates = new ArrayList<>(matching);
+        }
+        List<Ranked> ranked = rank(candidates);
+
+        int n = Math.min(Math.min(limit, maxSuggestions), ranked.size());
+        List<Suggestion> suggestions = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            GeoPoint point = ranked.get(i).entry.point;
+            suggestions.add(new Suggestion(point.formattedAddress(), point.placeId(), point.lat(), point.lng(),
+                    ranked.get(i).hits));
+        }
+        return suggestions;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("dropped", dropped.sum());
+        return stats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("autocomplete.entries", entries, Map::size).register(registry);
+        FunctionCounter.builder("autocomplete.dropped", dropped, LongAdder::sum)
+                .description("Places not indexed because the index was full")
+                .register(registry);
+    }
+
+    static String[] terms(GeoPoint point) {
+        Set<String> terms = new LinkedHashSet<>();
+        String formatted = GeocodeCache.normalizeAddress(point.formattedAddress());
+        terms.add(formatted);
+        int space = formatted.indexOf(' ');
+        if (space > 0 && Character.isDigit(formatted.charAt(0))) {
+            // "12 adeola odeku st ..." is also found by typing the street name
+            terms.add(formatted.substring(space + 1));
+        }
+        if (point.street() != null) {
+            terms.add(GeocodeCache.normalizeAddress(point.street()));
+        }
+        if (point.city() != null) {
+            terms.add(GeocodeCache.normalizeAddress(point.city()));
+        }
+        terms.remove("");
+        return terms.toArray(String[]::new);
+    }
+
+    // Callers hold writeLock
+
+    private void insert(Entry entry) {
+        for (String term : entry.terms) {
+            Node node = root;
+            int depth = Math.min(term.length(), TRIE_DEPTH);
+            for (int i = 0; i < depth; i++) {
+                node = node.childOrCreate(term.charAt(i));
+                offer(node, entry);
+            }
+            if (term.length() >= TRIE_DEPTH) {
+                addToLeaf(node, term, entry);
+            }
+        }
+    }
+
+    private void rerank(Entry entry) {
+        for (String term : entry.terms) {
+            Node node = root;
+            int depth = Math.min(term.length(), TRIE_DEPTH);
+            for (int i = 0; i < depth && node != null; i++) {
+                node = node.child(term.charAt(i));
+                if (node != null) {
+                    offer(node, entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts {@code entry} into the node's top list if it ranks there, keeping
+     * the list sorted and at most maxSuggestions long.
+     */
+    private void offer(Node node, Entry entry) {
+        Entry[] top = node.top;
+        List<Entry> updated = new ArrayList<>(top.length + 1);
+        boolean present = false;
+        for (Entry e : top) {
+            updated.add(e);
+            present |= e == entry;
+        }
+        if (!present) {
+            if (top.length >= maxSuggestions && top[top.length - 1].hits.get() >= entry.hits.get()) {
+                return;
+            }
+            updated.add(entry);
+        }
+        List<Ranked> ranked = rank(updated);
+        Entry[] ranks = new Entry[Math.min(ranked.size(), maxSuggestions)];
+        for (int i = 0; i < ranks.length; i++) {
+            ranks[i] = ranked.get(i).entry;
+        }
+        node.top = ranks;
+    }
+
+    private static void addToLeaf(Node node, String term, Entry entry) {
+        Leaf leaf = node.leaf;
+        int n = leaf == null ? 0 : leaf.size;
+        String[] terms;
+        Entry[] entries;
+        if (leaf == null) {
+            terms = new String[4];
+            entries = new Entry[4];
+        } else if (n == leaf.terms.length) {
+            terms = Arrays.copyOf(leaf.terms, n * 2);
+            entries = Arrays.copyOf(leaf.entries, n * 2);
+        } else {
+            terms = leaf.terms;
+            entries = leaf.entries;
+        }
+        terms[n] = term;
+        entries[n] = entry;
+        node.leaf = new Leaf(terms, entries, n + 1);
+    }
+}
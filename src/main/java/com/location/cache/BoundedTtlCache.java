@@ -0,0 +1,221 @@
+package com.location.cache;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded, TTL-expiring cache split into independently locked LRU segments,
+ * so concurrent callers only contend when their keys land in the same segment.
+ * With a stale grace period, expired entries stay available to {@link #lookup}
+ * for that much longer before they are dropped.
+ */
+public class BoundedTtlCache<K, V> {
+
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+    private final long staleGraceNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+
+    public BoundedTtlCache(int maxSize, int concurrencyLevel) {
+        this(maxSize, concurrencyLevel, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    public BoundedTtlCache(int maxSize, int concurrencyLevel, long staleGraceMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(concurrencyLevel, maxSize)));
+        int perSegment = (maxSize + segmentCount - 1) / segmentCount;
+        this.segments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(perSegment, evictions);
+        }
+        this.segmentMask = segmentCount - 1;
+        this.staleGraceNanos = staleGraceMillis * 1_000_000L;
+    }
+
+    /**
+     * Returns the cached value, or {@code null} when the key is absent or expired.
+     */
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        long now = System.nanoTime();
+        synchronized (segment) {
+            Entry<V> entry = segment.get(key);
+            if (entry != null) {
+                if (entry.expiresAtNanos - now > 0) {
+                    hits.increment();
+                    return entry.value;
+                }
+                expireIfPastGrace(segment, key, entry, now);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Fresh value or {@code null}, without counting a hit or a miss; for
+     * callers consulting the cache on the side of their own lookups.
+     */
+    public V peek(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Entry<V> entry = segment.get(key);
+            return entry != null && entry.expiresAtNanos - System.nanoTime() > 0 ? entry.value : null;
+        }
+    }
+
+    /**
+     * Like {@link #get}, but also returns expired entries that are still within
+     * the stale grace period, along with their remaining (or overdue) lifetime.
+     */
+    public CacheHit<V> lookup(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        long now = System.nanoTime();
+        synchronized (segment) {
+            Entry<V> entry = segment.get(key);
+            if (entry != null && !expireIfPastGrace(segment, key, entry, now)) {
+                long remaining = entry.expiresAtNanos - now;
+                (remaining > 0 ? hits : staleHits).increment();
+                return new CacheHit<>(entry.value, remaining / 1_000_000L);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(K key, V value, long ttlMillis) {
+        if (ttlMillis <= 0) {
+            return;
+        }
+        Segment<K, V> segment = segmentFor(key);
+        Entry<V> entry = new Entry<>(value, System.nanoTime() + ttlMillis * 1_000_000L);
+        synchronized (segment) {
+            segment.put(key, entry);
+        }
+    }
+
+    /**
+     * A fresh entry with the time it has left, as returned by {@link #fresh}.
+     */
+    public record Fresh<K, V>(K key, V value, long remainingMillis) {}
+
+    /**
+     * Up to {@code limit} fresh entries, copied out one segment at a time so
+     * callers can act on them without holding any lock.
+     */
+    public List<Fresh<K, V>> fresh(int limit) {
+        List<Fresh<K, V>> fresh = new ArrayList<>();
+        long now = System.nanoTime();
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                for (Map.Entry<K, Entry<V>> e : segment.entrySet()) {
+                    if (fresh.size() >= limit) {
+                        return fresh;
+                    }
+                    long remainingNanos = e.getValue().expiresAtNanos - now;
+                    if (remainingNanos > 0) {
+                        fresh.add(new Fresh<>(e.getKey(), e.getValue().value(), remainingNanos / 1_000_000L));
+                    }
+                }
+            }
+        }
+        return fresh;
+    }
+
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public long expirationCount() {
+        return expirations.sum();
+    }
+
+    public long staleHitCount() {
+        return staleHits.sum();
+    }
+
+    private boolean expireIfPastGrace(Segment<K, V> segment, K key, Entry<V> entry, long now) {
+        if (now - entry.expiresAtNanos < staleGraceNanos) {
+            return false;
+        }
+        segment.remove(key);
+        expirations.increment();
+        return true;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & segmentMask];
+    }
+
+    private record Entry<V>(V value, long expiresAtNanos) {}
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+        private final LongAdder evictions;
+
+        Segment(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
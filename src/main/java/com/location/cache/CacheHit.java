@@ -0,0 +1,13 @@
+package com.location.cache;
+
+/**
+ * A cached value and how long until it expires. Caches built with a stale
+ * grace period keep returning entries for that long after expiry, with a
+ * negative {@code expiresInMillis}, so callers can fall back to them.
+ */
+public record CacheHit<V>(V value, long expiresInMillis) {
+
+    public boolean stale() {
+        return expiresInMillis <= 0;
+    }
+}
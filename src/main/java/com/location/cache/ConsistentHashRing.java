@@ -0,0 +1,94 @@
+package com.location.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Immutable consistent-hash ring over a set of members. Each member is placed
+ * at {@code virtualNodes} points so keys spread evenly, and adding or removing
+ * a member only moves the keys on the arcs it gains or loses, to or from its
+ * neighbours on the ring.
+ */
+public final class ConsistentHashRing {
+
+    private final List<String> members;
+    private final long[] points;
+    private final String[] owners;
+
+    public ConsistentHashRing(Iterable<String> members, int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be positive");
+        }
+        TreeSet<String> sorted = new TreeSet<>();
+        members.forEach(sorted::add);
+        this.members = List.copyOf(sorted);
+        int n = this.members.size() * virtualNodes;
+        long[] hashes = new long[n];
+        String[] byHash = new String[n];
+        int i = 0;
+        for (String member : this.members) {
+            for (int v = 0; v < virtualNodes; v++) {
+                hashes[i] = hash(member + '#' + v);
+                byHash[i] = member;
+                i++;
+            }
+        }
+        // Sort points and owners together; ties (vanishingly rare) go to the smaller member name
+        Integer[] order = new Integer[n];
+        for (int k = 0; k < n; k++) {
+            order[k] = k;
+        }
+        Arrays.sort(order, (a, b) -> hashes[a] != hashes[b]
+                ? Long.compare(hashes[a], hashes[b])
+                : byHash[a].compareTo(byHash[b]));
+        this.points = new long[n];
+        this.owners = new String[n];
+        for (int k = 0; k < n; k++) {
+            points[k] = hashes[order[k]];
+            owners[k] = byHash[order[k]];
+        }
+    }
+
+    public List<String> members() {
+        return members;
+    }
+
+    public boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    /**
+     * The member owning {@code key}: the first point at or after the key's
+     * hash, wrapping around. {@code null} for an empty ring.
+     */
+    public String owner(String key) {
+        if (points.length == 0) {
+            return null;
+        }
+        int at = Arrays.binarySearch(points, hash(key));
+        if (at < 0) {
+            at = -at - 1;
+        }
+        return owners[at == points.length ? 0 : at];
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer
+     * so that similar keys (e.g. "node#1", "node#2") land far apart.
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,201 @@
+package com.location.cache;
+
+import com.location.dto.DistanceResponse.TravelInfo;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Cache of single-mode Distance Matrix answers, keyed by origin, destination
+ * and travel mode. Each end of the route is keyed by what it resolves to, so
+ * different spellings of one place share entries: coordinates rounded to five
+ * decimals, a {@code place_id:} reference, the place id of a fresh geocode cache
+ * entry for the address, or else the normalized address.
+ * <p>
+ * The address case depends on the geocode cache at the time of the call: an
+ * address asked about before it was geocoded (or after its geocode entry
+ * expired) is keyed by its text, and afterwards by its place id. That can
+ * store one route twice but never returns another place's answer, and partial
+ * geocode matches are never used, since their place id is Google's guess at a
+ * nearby place rather than the address asked for.
+ * <p>
+ * Modes listed in {@code distance.cache.symmetric-modes} (e.g. walking,
+ * bicycling) share one entry for A to B and B to A. Driving answers are also
+ * keyed by time-of-day bucket ({@code distance.cache.driving-bucket-minutes}
+ * in {@code distance.cache.zone}), so the morning answer is reused the next
+ * morning but not in the evening, and live for {@code distance.cache.driving-ttl-ms}.
+ * Only OK answers and definitive "no route" element statuses are cached, the
+ * latter for {@code distance.cache.negative-ttl-ms}. Expired answers stay
+ * available to {@link #getStale} for {@code distance.cache.stale-grace-ms}, for
+ * when Google cannot be reached.
+ */
+@Component
+public class DistanceCache implements MeterBinder {
+
+    private static final Pattern COORDINATES =
+            Pattern.compile("\\s*(-?\\d{1,2}(?:\\.\\d+)?)\\s*,\\s*(-?\\d{1,3}(?:\\.\\d+)?)\\s*");
+    private static final String PLACE_ID_PREFIX = "place_id:";
+    private static final Set<String> NEGATIVE_STATUSES = Set.of("NOT_FOUND", "ZERO_RESULTS");
+
+    private final boolean enabled;
+    private final BoundedTtlCache<String, TravelInfo> cache;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final long drivingTtlMillis;
+    private final int drivingBucketMinutes;
+    private final Set<String> symmetricModes;
+    private final GeocodeCache geocodeCache;
+    private final Clock clock;
+
+    @Autowired
+    public DistanceCache(
+            @Value("${distance.cache.enabled:true}") boolean enabled,
+            @Value("${distance.cache.max-size:100000}") int maxSize,
+            @Value("${distance.cache.ttl-ms:86400000}") long ttlMillis,
+            @Value("${distance.cache.negative-ttl-ms:600000}") long negativeTtlMillis,
+            @Value("${distance.cache.driving-ttl-ms:604800000}") long drivingTtlMillis,
+            @Value("${distance.cache.stale-grace-ms:604800000}") long staleGraceMillis,
+            @Value("${distance.cache.driving-bucket-minutes:60}") int drivingBucketMinutes,
+            @Value("${distance.cache.symmetric-modes:}") String symmetricModes,
+            @Value("${distance.cache.zone:UTC}") String zone,
+            GeocodeCache geocodeCache
+    ) {
+        this(enabled, maxSize, ttlMillis, negativeTtlMillis, drivingTtlMillis, staleGraceMillis, drivingBucketMinutes,
+                symmetricModes, geocodeCache, Clock.system(ZoneId.of(zone)));
+    }
+
+    DistanceCache(boolean enabled, int maxSize, long ttlMillis, long negativeTtlMillis, long drivingTtlMillis,
+                  long staleGraceMillis, int drivingBucketMinutes, String symmetricModes, GeocodeCache geocodeCache,
+                  Clock clock) {
+        if (drivingBucketMinutes < 0 || drivingBucketMinutes > 24 * 60) {
+            throw new IllegalArgumentException("distance.cache.driving-bucket-minutes must be between 0 and 1440");
+        }
+        this.enabled = enabled;
+        this.cache = new BoundedTtlCache<>(maxSize, 16, staleGraceMillis);
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.drivingTtlMillis = drivingTtlMillis;
+        this.drivingBucketMinutes = drivingBucketMinutes;
+        this.symmetricModes = Arrays.stream(symmetricModes.split(","))
+                .map(String::trim)
+                .filter(mode -> !mode.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        this.geocodeCache = geocodeCache;
+        this.clock = clock;
+    }
+
+    /**
+     * Both ends of a route in key form; resolve once per request and reuse for every mode.
+     */
+    public record Route(String from, String to) {}
+
+    public Route route(String origin, String destination) {
+        return new Route(placeKey(origin), placeKey(destination));
+    }
+
+    /**
+     * The cached answer for one mode, or {@code null}.
+     */
+    public TravelInfo get(Route route, String mode) {
+        return enabled ? cache.get(key(route, mode)) : null;
+    }
+
+    /**
+     * The answer for one mode even if it expired less than
+     * {@code distance.cache.stale-grace-ms} ago, or {@code null}.
+     */
+    public TravelInfo getStale(Route route, String mode) {
+        if (!enabled) {
+            return null;
+        }
+        CacheHit<TravelInfo> hit = cache.lookup(key(route, mode));
+        return hit == null ? null : hit.value();
+    }
+
+    public void put(Route route, String mode, TravelInfo info) {
+        if (!enabled || info == null || info.status == null) {
+            return;
+        }
+        if ("OK".equals(info.status)) {
+            cache.put(key(route, mode), info, "driving".equals(mode) && drivingBucketMinutes > 0 ? drivingTtlMillis : ttlMillis);
+        } else if (NEGATIVE_STATUSES.contains(info.status)) {
+            cache.put(key(route, mode), info, negativeTtlMillis);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", cache.size());
+        stats.put("hits", cache.hitCount());
+        stats.put("misses", cache.missCount());
+        stats.put("evictions", cache.evictionCount());
+        stats.put("symmetricModes", symmetricModes);
+        return stats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Tags tags = Tags.of("cache", "distance");
+        FunctionCounter.builder("cache.gets", cache, c -> c.hitCount()).tags(tags).tag("result", "hit").register(registry);
+        FunctionCounter.builder("cache.gets", cache, c -> c.missCount()).tags(tags).tag("result", "miss").register(registry);
+        FunctionCounter.builder("cache.evictions", cache, c -> c.evictionCount()).tags(tags).register(registry);
+        Gauge.builder("cache.size", cache, c -> c.size()).tags(tags).register(registry);
+    }
+
+    /**
+     * The cache key for one mode of a route, also used to share answers between replicas.
+     */
+    public String key(Route route, String mode) {
+        String from = route.from();
+        String to = route.to();
+        if (symmetricModes.contains(mode) && from.compareTo(to) > 0) {
+            from = route.to();
+            to = route.from();
+        }
+        StringBuilder key = new StringBuilder(from.length() + to.length() + 16)
+                .append(from).append('|').append(to).append('|').append(mode);
+        if ("driving".equals(mode) && drivingBucketMinutes > 0) {
+            int minuteOfDay = LocalTime.now(clock).toSecondOfDay() / 60;
+            key.append('@').append(minuteOfDay / drivingBucketMinutes);
+        }
+        return key.toString();
+    }
+
+    String placeKey(String place) {
+        Matcher coordinates = COORDINATES.matcher(place);
+        if (coordinates.matches()) {
+            double lat = Double.parseDouble(coordinates.group(1));
+            double lng = Double.parseDouble(coordinates.group(2));
+            if (lat >= -90 && lat <= 90 && lng >= -180 && lng <= 180) {
+                return String.format(Locale.ROOT, "ll:%.5f,%.5f", lat, lng);
+            }
+        }
+        String trimmed = place.trim();
+        if (trimmed.startsWith(PLACE_ID_PREFIX)) {
+            return "p:" + trimmed.substring(PLACE_ID_PREFIX.length());
+        }
+        String placeId = geocodeCache.peekPlaceId(place);
+        if (placeId != null && !placeId.isBlank()) {
+            return "p:" + placeId;
+        }
+        return "a:" + GeocodeCache.normalizeAddress(place);
+    }
+}
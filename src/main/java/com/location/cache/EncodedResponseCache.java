@@ -0,0 +1,186 @@
+package com.location.cache;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Geocode response bodies, encoded once per resolved {@link GeoPoint} and
+ * served as bytes on repeat hits. Cached results are the same GeoPoint values
+ * every time, so keying by the record finds the bytes without building a map
+ * or going through Jackson's reflective serializers. Bodies are written field
+ * by field with a streaming generator, as JSON or, for callers whose Accept
+ * header prefers {@code application/cbor}, as CBOR.
+ */
+@Component
+public class EncodedResponseCache implements MeterBinder {
+
+    public enum Format {
+        JSON(MediaType.APPLICATION_JSON),
+        CBOR(MediaType.parseMediaType("application/cbor"));
+
+        private final MediaType mediaType;
+
+        Format(MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public MediaType mediaType() {
+            return mediaType;
+        }
+
+        /**
+         * The format the Accept header ranks highest, or {@code null} when it
+         * accepts neither (or cannot be parsed). Each format takes the quality
+         * of the most specific range that includes it; ties go to the range
+         * listed first, then to JSON. No header means JSON.
+         */
+        public static Format accepting(String accept) {
+            if (accept == null || accept.isBlank()) {
+                return JSON;
+            }
+            List<MediaType> ranges;
+            try {
+                ranges = MediaType.parseMediaTypes(accept);
+            } catch (InvalidMediaTypeException e) {
+                return null;
+            }
+            Format best = null;
+            double bestQuality = 0;
+            int bestPosition = Integer.MAX_VALUE;
+            for (Format format : values()) {
+                int position = -1;
+                for (int i = 0; i < ranges.size(); i++) {
+                    MediaType range = ranges.get(i);
+                    if (range.includes(format.mediaType)
+                            && (position < 0 || specificity(range) > specificity(ranges.get(position)))) {
+                        position = i;
+                    }
+                }
+                if (position < 0) {
+                    continue;
+                }
+                double quality = ranges.get(position).getQualityValue();
+                if (quality > bestQuality || (quality == bestQuality && quality > 0 && position < bestPosition)) {
+                    best = format;
+                    bestQuality = quality;
+                    bestPosition = position;
+                }
+            }
+            return best;
+        }
+
+        private static int specificity(MediaType range) {
+            return range.isWildcardType() ? 0 : range.isWildcardSubtype() ? 1 : 2;
+        }
+    }
+
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final BoundedTtlCache<GeoPoint, byte[]> json;
+    private final BoundedTtlCache<GeoPoint, byte[]> cbor;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final CBORFactory cborFactory = new CBORFactory();
+
+    public EncodedResponseCache(
+            @Value("${geocoding.response-cache.enabled:true}") boolean enabled,
+            @Value("${geocoding.response-cache.max-size:50000}") int maxSize,
+            @Value("${geocoding.response-cache.ttl-ms:3600000}") long ttlMillis
+    ) {
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+        this.json = new BoundedTtlCache<>(maxSize, 16);
+        this.cbor = new BoundedTtlCache<>(maxSize, 16);
+    }
+
+    /**
+     * The encoded response for {@code point}. The array is shared between
+     * callers and must not be modified.
+     */
+    public byte[] get(GeoPoint point, Format format) {
+        if (!enabled) {
+            return encode(point, format);
+        }
+        BoundedTtlCache<GeoPoint, byte[]> cache = format == Format.CBOR ? cbor : json;
+        byte[] bytes = cache.get(point);
+        if (bytes == null) {
+            bytes = encode(point, format);
+            cache.put(point, bytes, ttlMillis);
+        }
+        return bytes;
+    }
+
+    public byte[] encode(GeoPoint point, Format format) {
+        ByteArrayBuilder out = new ByteArrayBuilder(256);
+        try (JsonGenerator generator = format == Format.CBOR
+                ? cborFactory.createGenerator(out)
+                : jsonFactory.createGenerator(out)) {
+            write(generator, point);
+        } catch (IOException e) {
+            // Writing to memory; only a bug gets here
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("jsonSize", json.size());
+        stats.put("cborSize", cbor.size());
+        stats.put("hits", json.hitCount() + cbor.hitCount());
+        stats.put("misses", json.missCount() + cbor.missCount());
+        return stats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, json, "geocode-response-json");
+        bind(registry, cbor, "geocode-response-cbor");
+    }
+
+    private static void bind(MeterRegistry registry, BoundedTtlCache<GeoPoint, byte[]> cache, String name) {
+        Tags tags = Tags.of("cache", name);
+        FunctionCounter.builder("cache.gets", cache, c -> c.hitCount()).tags(tags).tag("result", "hit").register(registry);
+        FunctionCounter.builder("cache.gets", cache, c -> c.missCount()).tags(tags).tag("result", "miss").register(registry);
+        FunctionCounter.builder("cache.evictions", cache, c -> c.evictionCount()).tags(tags).register(registry);
+        Gauge.builder("cache.size", cache, c -> c.size()).tags(tags).register(registry);
+    }
+
+    /**
+     * Same fields as the map-based response, in a fixed order.
+     */
+    static void write(JsonGenerator g, GeoPoint point) throws IOException {
+        g.writeStartObject();
+        g.writeNumberField("lat", point.lat());
+        g.writeNumberField("lng", point.lng());
+        g.writeStringField("formattedAddress", point.formattedAddress());
+        g.writeStringField("locationType", point.locationType());
+        g.writeBooleanField("partialMatch", point.partialMatch());
+        g.writeStringField("placeId", point.placeId());
+        g.writeStringField("streetNumber", point.streetNumber());
+        g.writeStringField("street", point.street());
+        g.writeStringField("city", point.city());
+        g.writeStringField("state", point.state());
+        g.writeStringField("country", point.country());
+        g.writeStringField("postalCode", point.postalCode());
+        g.writeEndObject();
+    }
+}
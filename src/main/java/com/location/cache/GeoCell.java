@@ -0,0 +1,64 @@
+package com.location.cache;
+
+/**
+ * Geohash-style grid cells packed into a primitive long: latitude and longitude
+ * are bisected alternately (longitude first) and the bits interleaved, giving
+ * {@code 5 * precision} significant bits just like a geohash string of that length.
+ */
+public final class GeoCell {
+
+    public static final int MAX_PRECISION = 12;
+
+    private GeoCell() {
+    }
+
+    public static long encode(double lat, double lng, int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision must be between 1 and " + MAX_PRECISION);
+        }
+        int bits = precision * 5;
+        double minLat = -90, maxLat = 90, minLng = -180, maxLng = 180;
+        long cell = 0;
+        for (int i = 0; i < bits; i++) {
+            cell <<= 1;
+            if ((i & 1) == 0) {
+                double mid = (minLng + maxLng) / 2;
+                if (lng >= mid) {
+                    cell |= 1;
+                    minLng = mid;
+                } else {
+                    maxLng = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (lat >= mid) {
+                    cell |= 1;
+                    minLat = mid;
+                } else {
+                    maxLat = mid;
+                }
+            }
+        }
+        return cell;
+    }
+
+    /**
+     * Cell height and width in degrees for the given precision.
+     */
+    public static double[] size(int precision) {
+        int bits = precision * 5;
+        int lngBits = (bits + 1) / 2;
+        int latBits = bits / 2;
+        return new double[]{180.0 / (1L << latBits), 360.0 / (1L << lngBits)};
+    }
+
+    public static String toGeohash(long cell, int precision) {
+        final String base32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+        char[] chars = new char[precision];
+        for (int i = precision - 1; i >= 0; i--) {
+            chars[i] = base32.charAt((int) (cell & 31));
+            cell >>>= 5;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,91 @@
+package com.location.cache;
+
+import com.location.service.GoogleGeocodingService.GeoPoint;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compact binary form of a {@link GeoPoint}: two doubles, a flag byte and nine
+ * length-prefixed UTF-8 strings (length -1 for null). Decoding uses absolute
+ * reads only, so one buffer can be shared by concurrent readers.
+ */
+public final class GeoPointCodec {
+
+    private GeoPointCodec() {
+    }
+
+    public static byte[] encode(GeoPoint point) {
+        byte[][] strings = {
+                utf8(point.formattedAddress()),
+                utf8(point.locationType()),
+                utf8(point.placeId()),
+                utf8(point.streetNumber()),
+                utf8(point.street()),
+                utf8(point.city()),
+                utf8(point.state()),
+                utf8(point.country()),
+                utf8(point.postalCode())
+        };
+        int size = 8 + 8 + 1;
+        for (byte[] s : strings) {
+            size += 2 + (s == null ? 0 : s.length);
+        }
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.putDouble(point.lat());
+        buf.putDouble(point.lng());
+        buf.put((byte) (point.partialMatch() ? 1 : 0));
+        for (byte[] s : strings) {
+            if (s == null) {
+                buf.putShort((short) -1);
+            } else {
+                buf.putShort((short) s.length);
+                buf.put(s);
+            }
+        }
+        return buf.array();
+    }
+
+    public static GeoPoint decode(ByteBuffer buf, int offset) {
+        double lat = buf.getDouble(offset);
+        double lng = buf.getDouble(offset + 8);
+        boolean partialMatch = buf.get(offset + 16) != 0;
+        int[] pos = {offset + 17};
+        return new GeoPoint(
+                lat,
+                lng,
+                readString(buf, pos),
+                readString(buf, pos),
+                partialMatch,
+                readString(buf, pos),
+                readString(buf, pos),
+                readString(buf, pos),
+                readString(buf, pos),
+                readString(buf, pos),
+                readString(buf, pos),
+                readString(buf, pos)
+        );
+    }
+
+    private static String readString(ByteBuffer buf, int[] pos) {
+        short length = buf.getShort(pos[0]);
+        pos[0] += 2;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buf.get(pos[0], bytes);
+        pos[0] += length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String s) {
+        if (s == null) {
+            return null;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        // Google's fields are far shorter than this; truncate rather than corrupt the record
+        return bytes.length > Short.MAX_VALUE ? Arrays.copyOf(bytes, Short.MAX_VALUE) : bytes;
+    }
+}
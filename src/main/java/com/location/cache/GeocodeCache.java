@@ -0,0 +1,166 @@
+package com.location.cache;
+
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of forward and placeId geocode results. Addresses are keyed by their
+ * normalized form so "12 Main St." and "12  main st" share one entry, and a
+ * forward lookup also fills the placeId entry of the result it resolved to.
+ * "No result" answers are cached too, with their own (shorter) TTL. Expired
+ * entries are kept for {@code geocoding.cache.stale-grace-ms} so they can be
+ * served, flagged as stale, while Google is unavailable.
+ */
+@Component
+public class GeocodeCache implements MeterBinder {
+
+    private static final String ADDRESS_PREFIX = "a:";
+    private static final String PLACE_ID_PREFIX = "p:";
+
+    private final BoundedTtlCache<String, Optional<GeoPoint>> cache;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final LongAdder negativeHits = new LongAdder();
+
+    public GeocodeCache(
+            @Value("${geocoding.cache.max-size:50000}") int maxSize,
+            @Value("${geocoding.cache.ttl-ms:86400000}") long ttlMillis,
+            @Value("${geocoding.cache.negative-ttl-ms:600000}") long negativeTtlMillis,
+            @Value("${geocoding.cache.stale-grace-ms:604800000}") long staleGraceMillis
+    ) {
+        this.cache = new BoundedTtlCache<>(maxSize, 16, staleGraceMillis);
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+    }
+
+    public long ttlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * Fresh or stale entry for an address, or {@code null} when not cached. A
+     * cached "no result" is a hit whose value is an empty Optional.
+     */
+    public CacheHit<Optional<GeoPoint>> lookupAddress(String address) {
+        return lookup(ADDRESS_PREFIX + normalizeAddress(address));
+    }
+
+    /**
+     * Same contract as {@link #lookupAddress(String)}, keyed by Google place id.
+     */
+    public CacheHit<Optional<GeoPoint>> lookupPlaceId(String placeId) {
+        return lookup(PLACE_ID_PREFIX + placeId);
+    }
+
+    /**
+     * Place id of the fresh cached result for an address, or {@code null};
+     * not counted in the cache statistics. Partial matches are Google's guess
+     * at a nearby place, not the address itself, so they give {@code null}.
+     */
+    public String peekPlaceId(String address) {
+        Optional<GeoPoint> cached = cache.peek(ADDRESS_PREFIX + normalizeAddress(address));
+        return cached == null ? null : cached.filter(point -> !point.partialMatch()).map(GeoPoint::placeId).orElse(null);
+    }
+
+    public void putAddress(String address, Optional<GeoPoint> result) {
+        store(ADDRESS_PREFIX + normalizeAddress(address), result);
+        result.ifPresent(this::putPlaceIdOf);
+    }
+
+    public void putPlaceId(String placeId, Optional<GeoPoint> result) {
+        if (placeId != null && !placeId.isBlank()) {
+            store(PLACE_ID_PREFIX + placeId, result);
+        }
+    }
+
+    /**
+     * Caches a result read back from the disk store for no longer than it has
+     * left there, so the memory copy never outlives the stored one.
+     */
+    public void warmAddress(String address, GeoPoint point, long remainingMillis) {
+        cache.put(ADDRESS_PREFIX + normalizeAddress(address), Optional.of(point), Math.min(ttlMillis, remainingMillis));
+    }
+
+    /**
+     * Same as {@link #warmAddress(String, GeoPoint, long)}, keyed by Google place id.
+     */
+    public void warmPlaceId(String placeId, GeoPoint point, long remainingMillis) {
+        cache.put(PLACE_ID_PREFIX + placeId, Optional.of(point), Math.min(ttlMillis, remainingMillis));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", cache.size());
+        stats.put("hits", cache.hitCount());
+        stats.put("negativeHits", negativeHits.sum());
+        stats.put("staleHits", cache.staleHitCount());
+        stats.put("misses", cache.missCount());
+        stats.put("evictions", cache.evictionCount());
+        stats.put("expirations", cache.expirationCount());
+        return stats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Tags tags = Tags.of("cache", "geocode");
+        FunctionCounter.builder("cache.gets", cache, c -> c.hitCount()).tags(tags).tag("result", "hit").register(registry);
+        FunctionCounter.builder("cache.gets", cache, c -> c.missCount()).tags(tags).tag("result", "miss").register(registry);
+        FunctionCounter.builder("cache.gets", cache, c -> c.staleHitCount()).tags(tags).tag("result", "stale").register(registry);
+        FunctionCounter.builder("cache.evictions", cache, c -> c.evictionCount()).tags(tags).register(registry);
+        // A subset of the hits: cached "no result" answers
+        FunctionCounter.builder("cache.negative.hits", negativeHits, LongAdder::sum).tags(tags).register(registry);
+        Gauge.builder("cache.size", cache, c -> c.size()).tags(tags).register(registry);
+    }
+
+    /**
+     * Lower-cases, applies NFKC, turns punctuation into separators and collapses
+     * runs of whitespace, so trivially different spellings map to one key.
+     */
+    public static String normalizeAddress(String address) {
+        String s = Normalizer.normalize(address, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(s.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && sb.length() > 0) {
+                    sb.append(' ');
+                }
+                pendingSpace = false;
+                sb.append(c);
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    private CacheHit<Optional<GeoPoint>> lookup(String key) {
+        CacheHit<Optional<GeoPoint>> hit = cache.lookup(key);
+        if (hit != null && hit.value().isEmpty()) {
+            negativeHits.increment();
+        }
+        return hit;
+    }
+
+    private void store(String key, Optional<GeoPoint> result) {
+        cache.put(key, result, result.isPresent() ? ttlMillis : negativeTtlMillis);
+    }
+
+    private void putPlaceIdOf(GeoPoint point) {
+        putPlaceId(point.placeId(), Optional.of(point));
+    }
+}
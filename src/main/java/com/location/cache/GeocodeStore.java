@@ -0,0 +1,391 @@
+package com.location.cache;
+
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, memory-mapped store of resolved geocodes, so a restarted
+ * instance can answer from disk instead of going back to Google. Keys use the
+ * same namespaces as the in-memory caches ("a:" address, "p:" placeId,
+ * "r8:" reverse cell at geohash precision 8).
+ * <p>
+ * File layout: an 8-byte header (magic, version) followed by records of
+ * {@code [int length][int crc32][long writtenAtMillis][short keyLength][key][GeoPoint]},
+ * where length and crc cover everything after the crc. At startup the file is
+ * scanned to rebuild the key-to-offset index, stopping at the first zero or
+ * corrupt record. Superseded and expired records are dropped by a background
+ * compaction that rewrites the live records to a new file and swaps it in; a
+ * write that finds the file full schedules one rather than compacting on the
+ * caller's thread, which may be a Netty event loop.
+ */
+@Component
+public class GeocodeStore implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeocodeStore.class);
+
+    private static final int MAGIC = 0x47454f53; // "GEOS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_PREFIX = 4 + 4; // length + crc
+    private static final int MAX_KEY_CHARS = 2048;
+
+    private final boolean enabled;
+    private final Path path;
+    private final int capacity;
+    private final long ttlMillis;
+    private final double compactDeadRatio;
+    private final long compactIntervalMs;
+
+    private volatile Segment segment;
+    private final Object writeLock = new Object();
+    private ScheduledExecutorService compactor;
+    private final AtomicBoolean compactionQueued = new AtomicBoolean();
+
+    public GeocodeStore(
+            @Value("${geocoding.store.enabled:false}") boolean enabled,
+            @Value("${geocoding.store.path:data/geocode.store}") String path,
+            @Value("${geocoding.store.capacity-mb:256}") int capacityMb,
+            @Value("${geocoding.store.ttl-ms:2592000000}") long ttlMillis,
+            @Value("${geocoding.store.compact-dead-ratio:0.5}") double compactDeadRatio,
+            @Value("${geocoding.store.compact-interval-ms:600000}") long compactIntervalMs
+    ) {
+        if (capacityMb < 1 || capacityMb > 2047) {
+            throw new IllegalArgumentException("geocoding.store.capacity-mb must be between 1 and 2047");
+        }
+        this.enabled = enabled;
+        this.path = Path.of(path);
+        this.capacity = capacityMb * 1024 * 1024;
+        this.ttlMillis = ttlMillis;
+        this.compactDeadRatio = compactDeadRatio;
+        this.compactIntervalMs = compactIntervalMs;
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        long started = System.nanoTime();
+        segment = Segment.open(path, capacity);
+        segment.rebuildIndex(ttlMillis);
+        logger.info("Geocode store {} loaded {} entries ({} bytes) in {} ms", path, segment.index.size(),
+                segment.tail, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "geocode-store-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        compactor.scheduleWithFixedDelay(this::compactIfNeeded, compactIntervalMs, compactIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * A stored point and how long it has left before {@code geocoding.store.ttl-ms} expires it.
+     */
+    public record Stored(GeoPoint point, long remainingMillis) {}
+
+    /**
+     * Returns the stored point, or {@code null} when absent, expired or the store is disabled.
+     */
+    public GeoPoint get(String key) {
+        Stored stored = lookup(key);
+        return stored == null ? null : stored.point();
+    }
+
+    /**
+     * Same as {@link #get(String)}, with the record's remaining lifetime.
+     */
+    public Stored lookup(String key) {
+        Segment current = segment;
+        if (current == null) {
+            return null;
+        }
+        Long offset = current.index.get(key);
+        if (offset == null) {
+            return null;
+        }
+        long remaining = current.writtenAt(offset.intValue()) + ttlMillis - System.currentTimeMillis();
+        if (remaining <= 0) {
+            return null;
+        }
+        return new Stored(current.decode(offset.intValue()), remaining);
+    }
+
+    public void put(String key, GeoPoint point) {
+        if (segment == null || key.length() > MAX_KEY_CHARS) {
+            return;
+        }
+        byte[] record = encodeRecord(key, point, System.currentTimeMillis());
+        synchronized (writeLock) {
+            if (!segment.hasRoom(record.length)) {
+                if (compactionQueued.compareAndSet(false, true)) {
+                    logger.warn("Geocode store {} is full; compacting in the background", path);
+                    compactor.execute(this::compactNow);
+                }
+                return;
+            }
+            segment.append(key, record);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        Segment current = segment;
+        if (current != null) {
+            stats.put("entries", current.index.size());
+            stats.put("bytesUsed", current.tail);
+            stats.put("deadBytes", current.deadBytes);
+            stats.put("capacityBytes", capacity);
+        }
+        return stats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("geocode.store.entries", this, store -> {
+            Segment current = store.segment;
+            return current == null ? 0 : current.index.size();
+        }).register(registry);
+        Gauge.builder("geocode.store.used", this, store -> {
+            Segment current = store.segment;
+            return current == null ? 0 : current.tail;
+        }).baseUnit("bytes").register(registry);
+    }
+
+    void compactIfNeeded() {
+        Segment current = segment;
+        if (current == null || current.tail <= HEADER_SIZE) {
+            return;
+        }
+        if ((double) current.deadBytes / current.tail >= compactDeadRatio) {
+            synchronized (writeLock) {
+                compact();
+            }
+        }
+    }
+
+    private void compactNow() {
+        try {
+            synchronized (writeLock) {
+                compact();
+            }
+        } finally {
+            compactionQueued.set(false);
+        }
+    }
+
+    /**
+     * Rewrites live, unexpired records into a fresh file and atomically replaces
+     * the current one. Readers keep using the old mapping until they next read
+     * {@link #segment}; the old mapping stays valid until it is garbage collected.
+     */
+    private void compact() {
+        Segment old = segment;
+        Path temp = path.resolveSibling(path.getFileName() + ".compact");
+        try {
+            Files.deleteIfExists(temp);
+            Segment fresh = Segment.open(temp, capacity);
+            long now = System.currentTimeMillis();
+            for (Map.Entry<String, Long> entry : old.index.entrySet()) {
+                int offset = entry.getValue().intValue();
+                if (old.isExpired(offset, now, ttlMillis)) {
+                    continue;
+                }
+                byte[] record = old.copyRecord(offset);
+                if (fresh.hasRoom(record.length)) {
+                    fresh.append(entry.getKey(), record);
+                }
+            }
+            fresh.buffer.force();
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            segment = fresh;
+            old.close();
+            logger.info("Compacted geocode store {}: {} -> {} bytes", path, old.tail, fresh.tail);
+        } catch (IOException e) {
+            logger.error("Geocode store compaction failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+        synchronized (writeLock) {
+            Segment current = segment;
+            if (current != null) {
+                current.buffer.force();
+                current.close();
+            }
+        }
+    }
+
+    static byte[] encodeRecord(String key, GeoPoint point, long writtenAt) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] value = GeoPointCodec.encode(point);
+        int bodyLength = 8 + 2 + keyBytes.length + value.length;
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_PREFIX + bodyLength);
+        buf.putInt(bodyLength);
+        buf.putInt(0); // crc, filled in below
+        buf.putLong(writtenAt);
+        buf.putShort((short) keyBytes.length);
+        buf.put(keyBytes);
+        buf.put(value);
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), RECORD_PREFIX, bodyLength);
+        buf.putInt(4, (int) crc.getValue());
+        return buf.array();
+    }
+
+    private static final class Segment {
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final Map<String, Long> index = new ConcurrentHashMap<>();
+        volatile int tail;
+        volatile long deadBytes;
+
+        private Segment(FileChannel channel, MappedByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment open(Path path, int capacity) throws IOException {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            Segment segment = new Segment(channel, buffer);
+            if (buffer.getInt(0) != MAGIC) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+            } else if (buffer.getInt(4) != VERSION) {
+                channel.close();
+                throw new IOException("Unsupported geocode store version " + buffer.getInt(4) + " in " + path);
+            }
+            segment.tail = HEADER_SIZE;
+            return segment;
+        }
+
+        void rebuildIndex(long ttlMillis) {
+            int pos = HEADER_SIZE;
+            long now = System.currentTimeMillis();
+            CRC32 crc = new CRC32();
+            while (pos + RECORD_PREFIX <= buffer.capacity()) {
+                int length = buffer.getInt(pos);
+                if (length <= 0 || pos + RECORD_PREFIX + length > buffer.capacity()) {
+                    break;
+                }
+                crc.reset();
+                crc.update(buffer.slice(pos + RECORD_PREFIX, length));
+                if ((int) crc.getValue() != buffer.getInt(pos + 4)) {
+                    logger.warn("Geocode store: corrupt record at offset {}, truncating", pos);
+                    break;
+                }
+                String key = readKey(pos);
+                Long previous = index.put(key, (long) pos);
+                if (previous != null) {
+                    deadBytes += recordSize(previous.intValue());
+                }
+                if (isExpired(pos, now, ttlMillis)) {
+                    index.remove(key);
+                    deadBytes += recordSize(pos);
+                }
+                pos += RECORD_PREFIX + length;
+            }
+            tail = pos;
+            // Zero the next length slot so a torn write past the tail is never replayed
+            if (pos + 4 <= buffer.capacity()) {
+                buffer.putInt(pos, 0);
+            }
+        }
+
+        boolean hasRoom(int recordLength) {
+            // Keep 4 bytes for the zero terminator that marks the end of the log
+            return (long) tail + recordLength + 4 <= buffer.capacity();
+        }
+
+        void append(String key, byte[] record) {
+            int pos = tail;
+            buffer.putInt(pos + record.length, 0);
+            // Body first, length last, so a crash mid-write never exposes a half record
+            buffer.put(pos + 4, record, 4, record.length - 4);
+            buffer.putInt(pos, ByteBuffer.wrap(record).getInt(0));
+            tail = pos + record.length;
+            Long previous = index.put(key, (long) pos);
+            if (previous != null) {
+                deadBytes += recordSize(previous.intValue());
+            }
+        }
+
+        GeoPoint decode(int offset) {
+            int keyLength = buffer.getShort(offset + RECORD_PREFIX + 8);
+            return GeoPointCodec.decode(buffer, offset + RECORD_PREFIX + 8 + 2 + keyLength);
+        }
+
+        long writtenAt(int offset) {
+            return buffer.getLong(offset + RECORD_PREFIX);
+        }
+
+        boolean isExpired(int offset, long now, long ttlMillis) {
+            return now - writtenAt(offset) > ttlMillis;
+        }
+
+        byte[] copyRecord(int offset) {
+            byte[] record = new byte[recordSize(offset)];
+            buffer.get(offset, record);
+            return record;
+        }
+
+        int recordSize(int offset) {
+            return RECORD_PREFIX + buffer.getInt(offset);
+        }
+
+        private String readKey(int offset) {
+            int keyLength = buffer.getShort(offset + RECORD_PREFIX + 8);
+            byte[] key = new byte[keyLength];
+            buffer.get(offset + RECORD_PREFIX + 8 + 2, key);
+            return new String(key, StandardCharsets.UTF_8);
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close geocode store channel: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.location.cache;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded, TTL-expiring cache keyed by primitive longs. Each stripe is an
+ * open-addressing table (linear probing, backward-shift deletion) backed by
+ * parallel arrays, so millions of entries cost a few words each instead of a
+ * boxed key plus a map node.
+ * <p>
+ * When a stripe is full, the oldest of a small sample of entries is evicted,
+ * preferring ones that have already expired. With a stale grace period,
+ * expired entries stay available to {@link #lookup} for that much longer.
+ */
+public class LongKeyCache<V> {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int EVICTION_SAMPLE = 8;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final long staleGraceNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+
+    public LongKeyCache(int maxSize, int concurrencyLevel) {
+        this(maxSize, concurrencyLevel, 0);
+    }
+
+    public LongKeyCache(int maxSize, int concurrencyLevel, long staleGraceMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(concurrencyLevel, maxSize)));
+        int perStripe = (maxSize + stripeCount - 1) / stripeCount;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+        this.stripeMask = stripeCount - 1;
+        this.staleGraceNanos = staleGraceMillis * 1_000_000L;
+    }
+
+    /**
+     * Returns the cached value, or {@code null} when the key is absent or expired.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        long hash = mix(key);
+        Stripe stripe = stripes[(int) (hash >>> 40) & stripeMask];
+        long now = System.nanoTime();
+        synchronized (stripe) {
+            int slot = stripe.find(key, hash);
+            if (slot >= 0) {
+                if (stripe.expires[slot] - now > 0) {
+                    hits.increment();
+                    return (V) stripe.values[slot];
+                }
+                expireIfPastGrace(stripe, slot, now);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Like {@link #get}, but also returns expired entries that are still within
+     * the stale grace period, along with their remaining (or overdue) lifetime.
+     */
+    @SuppressWarnings("unchecked")
+    public CacheHit<V> lookup(long key) {
+        long hash = mix(key);
+        Stripe stripe = stripes[(int) (hash >>> 40) & stripeMask];
+        long now = System.nanoTime();
+        synchronized (stripe) {
+            int slot = stripe.find(key, hash);
+            if (slot >= 0 && !expireIfPastGrace(stripe, slot, now)) {
+                long remaining = stripe.expires[slot] - now;
+                (remaining > 0 ? hits : staleHits).increment();
+                return new CacheHit<>((V) stripe.values[slot], remaining / 1_000_000L);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    private boolean expireIfPastGrace(Stripe stripe, int slot, long now) {
+        if (now - stripe.expires[slot] < staleGraceNanos) {
+            return false;
+        }
+        stripe.removeAt(slot);
+        expirations.increment();
+        return true;
+    }
+
+    public void put(long key, V value, long ttlMillis) {
+        if (ttlMillis <= 0) {
+            return;
+        }
+        long hash = mix(key);
+        Stripe stripe = stripes[(int) (hash >>> 40) & stripeMask];
+        long expiresAt = System.nanoTime() + ttlMillis * 1_000_000L;
+        synchronized (stripe) {
+            int slot = stripe.find(key, hash);
+            if (slot >= 0) {
+                stripe.values[slot] = value;
+                stripe.expires[slot] = expiresAt;
+                return;
+            }
+            if (stripe.size >= stripe.maxEntries) {
+                stripe.evictOne();
+                evictions.increment();
+            }
+            stripe.insert(key, hash, value, expiresAt);
+        }
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.reset();
+            }
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public long expirationCount() {
+        return expirations.sum();
+    }
+
+    public long staleHitCount() {
+        return staleHits.sum();
+    }
+
+    private static long mix(long key) {
+        key ^= (key >>> 33);
+        key *= 0xff51afd7ed558ccdL;
+        key ^= (key >>> 33);
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= (key >>> 33);
+        return key;
+    }
+
+    private static final class Stripe {
+        private final int maxEntries;
+        private long[] keys;
+        private Object[] values;
+        private long[] expires;
+        private boolean[] used;
+        private int size;
+        private int hand;
+
+        Stripe(int maxEntries) {
+            this.maxEntries = maxEntries;
+            reset();
+        }
+
+        void reset() {
+            allocate(INITIAL_CAPACITY);
+            size = 0;
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            expires = new long[capacity];
+            used = new boolean[capacity];
+        }
+
+        int find(long key, long hash) {
+            int mask = keys.length - 1;
+            int i = (int) hash & mask;
+            while (used[i]) {
+                if (keys[i] == key) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        void insert(long key, long hash, Object value, long expiresAt) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int i = (int) hash & mask;
+            while (used[i]) {
+                i = (i + 1) & mask;
+            }
+            used[i] = true;
+            keys[i] = key;
+            values[i] = value;
+            expires[i] = expiresAt;
+            size++;
+        }
+
+        void evictOne() {
+            int mask = keys.length - 1;
+            long now = System.nanoTime();
+            int victim = -1;
+            int sampled = 0;
+            for (int probed = 0; probed < keys.length && sampled < EVICTION_SAMPLE; probed++) {
+                int i = (hand + probed) & mask;
+                if (!used[i]) {
+                    continue;
+                }
+                sampled++;
+                if (expires[i] - now <= 0) {
+                    victim = i;
+                    break;
+                }
+                if (victim < 0 || expires[i] - expires[victim] < 0) {
+                    victim = i;
+                }
+            }
+            hand = (victim + 1) & mask;
+            removeAt(victim);
+        }
+
+        void removeAt(int slot) {
+            int mask = keys.length - 1;
+            int hole = slot;
+            int i = (slot + 1) & mask;
+            while (used[i]) {
+                int home = (int) mix(keys[i]) & mask;
+                // Shift the entry back if its home slot is not cyclically in (hole, i]
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    keys[hole] = keys[i];
+                    values[hole] = values[i];
+                    expires[hole] = expires[i];
+                    hole = i;
+                }
+                i = (i + 1) & mask;
+            }
+            used[hole] = false;
+            values[hole] = null;
+            size--;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            long[] oldExpires = expires;
+            boolean[] oldUsed = used;
+            allocate(oldKeys.length * 2);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    insert(oldKeys[i], mix(oldKeys[i]), oldValues[i], oldExpires[i]);
+                }
+            }
+            Arrays.fill(oldValues, null);
+        }
+    }
+}
@@ -0,0 +1,724 @@
+package com.location.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.location.cache.BoundedTtlCache.Fresh;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Geocode and distance results shared between the replicas of this service,
+ * so a place resolved by one replica is not resolved again by the others.
+ * <p>
+ * Every key has an owning replica, chosen by a {@link ConsistentHashRing} over
+ * the replicas that are currently up. Before going to Google a replica asks
+ * the owner ({@code GET /internal/peers/entries}), and after going to Google
+ * it hands the result to the owner ({@code PUT}), which keeps it for
+ * {@code peer.ttl-ms}. Answers from the owner are not copied into the asking
+ * replica's own caches, so the replicas' memory adds up rather than holding
+ * the same entries n times. The exception is hot keys: once a key has been
+ * asked for {@code peer.hot-threshold} times within {@code peer.hot-window-ms},
+ * the owner flags its answers and askers keep a copy in a small near cache for
+ * {@code peer.near-cache.ttl-ms}.
+ * <p>
+ * Peers are the base URLs in {@code peer.peers} plus, with {@code peer.dns-name}
+ * set, one per address that name resolves to, re-read every
+ * {@code peer.refresh-ms}. Each refresh also pings every peer; a peer that
+ * fails a ping, or {@code peer.max-failures} requests in a row, leaves the
+ * ring until it answers a ping again. A failed request also triggers a ping
+ * straight away. A request that times out only counts as a miss, since a slow
+ * owner is not a gone one, and dropping it would move its keys around.
+ * A starting replica announces itself to the others ({@code join}), and the
+ * replicas that lose keys to it hand those entries over. A replica shutting
+ * down hands its entries to their next owners before announcing that it is
+ * leaving. A replica that crashes loses its entries; they are fetched again
+ * from Google.
+ * <p>
+ * Peer calls time out after {@code peer.timeout-ms}, and any failure just
+ * means going to Google as if there were no peers.
+ * <p>
+ * The peer endpoints share the public port, so every call carries
+ * {@code peer.secret} in {@value #SECRET_HEADER} and calls without it are
+ * refused. Only replicas found by discovery may join, and entries handed over
+ * are capped at {@code peer.max-entry-bytes} each and
+ * {@code peer.handoff.max-entries} per request.
+ */
+@Component
+public class PeerCache implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(PeerCache.class);
+
+    public static final String PATH = "/internal/peers";
+    public static final String HOT_HEADER = "X-Peer-Hot";
+    public static final String TTL_HEADER = "X-Peer-Ttl-Ms";
+    public static final String SECRET_HEADER = "X-Peer-Secret";
+
+    /**
+     * An owned entry as served to a peer, flagged when the peer should keep a copy.
+     */
+    public record Served(byte[] value, boolean hot) {}
+
+    private static final class Member {
+        final String url;
+        final AtomicInteger failures = new AtomicInteger();
+        volatile boolean up;
+
+        Member(String url) {
+            this.url = url;
+        }
+    }
+
+    private final boolean enabled;
+    private final String configuredSelf;
+    private final List<String> staticPeers;
+    private final String dnsName;
+    private final int dnsPort;
+    private final long refreshMs;
+    private final Duration timeout;
+    private final int virtualNodes;
+    private final long ttlMillis;
+    private final int hotThreshold;
+    private final long hotWindowMillis;
+    private final long nearTtlMillis;
+    private final int handoffMaxEntries;
+    private final int maxEntryBytes;
+    private final int maxFailures;
+    private final byte[] secret;
+
+    private final BoundedTtlCache<String, byte[]> owned;
+    private final BoundedTtlCache<String, byte[]> near;
+    private final BoundedTtlCache<String, LongAdder> heat;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "peer-cache-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+    private final HttpClient http;
+    private final Map<String, Member> members = new ConcurrentHashMap<>();
+    private final ReentrantLock handOffLock = new ReentrantLock();
+    private final AtomicInteger rebalancing = new AtomicInteger();
+    private volatile String self;
+    private volatile ConsistentHashRing ring;
+    private volatile Set<String> discovered = Set.of();
+
+    private final LongAdder peerHits = new LongAdder();
+    private final LongAdder peerMisses = new LongAdder();
+    private final LongAdder peerErrors = new LongAdder();
+    private final LongAdder peerTimeouts = new LongAdder();
+    private final LongAdder nearHits = new LongAdder();
+    private final LongAdder offered = new LongAdder();
+    private final LongAdder served = new LongAdder();
+    private final LongAdder handedOff = new LongAdder();
+
+    public PeerCache(Environment env) {
+        this.enabled = env.getProperty("peer.enabled", Boolean.class, false);
+        this.configuredSelf = stripTrailingSlash(env.getProperty("peer.self", "").trim());
+        this.staticPeers = Arrays.stream(env.getProperty("peer.peers", "").split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .map(PeerCache::stripTrailingSlash)
+                .distinct()
+                .toList();
+        this.dnsName = env.getProperty("peer.dns-name", "").trim();
+        this.dnsPort = env.getProperty("peer.dns-port", Integer.class, 0);
+        this.refreshMs = env.getProperty("peer.refresh-ms", Long.class, 5_000L);
+        this.timeout = Duration.ofMillis(env.getProperty("peer.timeout-ms", Long.class, 200L));
+        this.virtualNodes = env.getProperty("peer.virtual-nodes", Integer.class, 160);
+        this.ttlMillis = env.getProperty("peer.ttl-ms", Long.class, 3_600_000L);
+        this.hotThreshold = env.getProperty("peer.hot-threshold", Integer.class, 20);
+        this.hotWindowMillis = env.getProperty("peer.hot-window-ms", Long.class, 10_000L);
+        this.nearTtlMillis = env.getProperty("peer.near-cache.ttl-ms", Long.class, 30_000L);
+        this.handoffMaxEntries = env.getProperty("peer.handoff.max-entries", Integer.class, 100_000);
+        this.maxEntryBytes = env.getProperty("peer.max-entry-bytes", Integer.class, 1_048_576);
+        this.maxFailures = Math.max(1, env.getProperty("peer.max-failures", Integer.class, 3));
+        this.secret = env.getProperty("peer.secret", "").getBytes(StandardCharsets.UTF_8);
+        if (enabled && secret.length == 0) {
+            throw new IllegalStateException("peer.secret must be set when peer.enabled is true");
+        }
+        int ownedMaxSize = env.getProperty("peer.owned.max-size", Integer.class, 200_000);
+        int nearMaxSize = env.getProperty("peer.near-cache.max-size", Integer.class, 10_000);
+        this.owned = new BoundedTtlCache<>(ownedMaxSize, 16);
+        this.near = new BoundedTtlCache<>(nearMaxSize, 16);
+        this.heat = new BoundedTtlCache<>(Math.max(nearMaxSize, 1_000), 16);
+        this.ring = new ConsistentHashRing(List.of(), virtualNodes);
+        this.http = enabled
+                ? HttpClient.newBuilder().connectTimeout(timeout).executor(executor).build()
+                : null;
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * True when {@code presented} is this cluster's {@code peer.secret}.
+     */
+    public boolean authorized(String presented) {
+        return enabled && presented != null
+                && MessageDigest.isEqual(secret, presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    /**
+     * Starts discovery once the server is listening: works out this replica's
+     * own URL, announces it to the known peers and schedules the refreshes.
+     */
+    @EventListener
+    public void onServerStarted(WebServerInitializedEvent event) {
+        if (!enabled || event.getApplicationContext().getServerNamespace() != null) {
+            return;
+        }
+        int port = event.getWebServer().getPort();
+        if (!configuredSelf.isEmpty()) {
+            self = configuredSelf;
+        } else if (dnsName.isEmpty()) {
+            self = "http://localhost:" + port;
+        } else {
+            self = selfFromDns(port);
+        }
+        logger.info("Peer cache on {} with static peers {} and DNS name '{}'", self, staticPeers, dnsName);
+        refresh();
+        for (Member member : members.values()) {
+            executor.execute(() -> send(member.url, "POST", PATH + "/join?peer=" + encode(self), null));
+        }
+        refresher.scheduleWithFixedDelay(this::refresh, refreshMs, refreshMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The entry for {@code key} from the owning replica (or the near cache),
+     * or {@code null} when no peer has it, peers are disabled or the owner
+     * could not be reached.
+     */
+    public <T> T get(String namespace, String key, Class<T> type) {
+        if (!enabled) {
+            return null;
+        }
+        String k = namespace + '|' + key;
+        byte[] bytes = near.get(k);
+        if (bytes != null) {
+            nearHits.increment();
+            return decode(bytes, type);
+        }
+        String owner = ring.owner(k);
+        if (owner == null || owner.equals(self)) {
+            bytes = owned.get(k);
+            return bytes == null ? null : decode(bytes, type);
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(owner + PATH + "/entries?key=" + encode(k)))
+                .timeout(timeout)
+                .header(SECRET_HEADER, new String(secret, StandardCharsets.UTF_8))
+                .GET()
+                .build();
+        try {
+            HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            answered(owner);
+            if (response.statusCode() == 404) {
+                peerMisses.increment();
+                return null;
+            }
+            if (response.statusCode() != 200) {
+                peerErrors.increment();
+                return null;
+            }
+            peerHits.increment();
+            if (response.headers().firstValue(HOT_HEADER).isPresent()) {
+                near.put(k, response.body(), nearTtlMillis);
+            }
+            return decode(response.body(), type);
+        } catch (HttpTimeoutException e) {
+            if (e instanceof HttpConnectTimeoutException) {
+                peerErrors.increment();
+                failed(owner, e);
+            } else {
+                peerTimeouts.increment();
+            }
+            return null;
+        } catch (IOException e) {
+            peerErrors.increment();
+            failed(owner, e);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Hands a freshly fetched result to its owner, in the background when that
+     * is another replica.
+     */
+    public void offer(String namespace, String key, Object value) {
+        if (!enabled || value == null) {
+            return;
+        }
+        String k = namespace + '|' + key;
+        byte[] bytes;
+        try {
+            bytes = objectMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        offered.increment();
+        String owner = ring.owner(k);
+        if (owner == null || owner.equals(self)) {
+            owned.put(k, bytes, ttlMillis);
+            return;
+        }
+        executor.execute(() -> {
+            if (!send(owner, "PUT", PATH + "/entries?key=" + encode(k), bytes)) {
+                // The owner is gone; keep it here until the ring settles and a rebalance moves it on
+                owned.put(k, bytes, ttlMillis);
+            }
+        });
+    }
+
+    // Owner side, called by PeerController
+
+    public Served serve(String key) {
+        byte[] value = owned.get(key);
+        if (value == null) {
+            return null;
+        }
+        served.increment();
+        LongAdder count = heat.get(key);
+        if (count == null) {
+            count = new LongAdder();
+            heat.put(key, count, hotWindowMillis);
+        }
+        count.increment();
+        return new Served(value, count.sum() >= hotThreshold);
+    }
+
+    public void accept(String key, byte[] value, long ttlMillis) {
+        if (value.length > maxEntryBytes) {
+            throw new IllegalArgumentException("Peer entries are limited to " + maxEntryBytes + " bytes");
+        }
+        owned.put(key, value, Math.min(ttlMillis, this.ttlMillis));
+    }
+
+    /**
+     * Stores entries handed over in bulk by {@link #writeEntries}, refusing
+     * (after keeping the ones before it) an entry over
+     * {@code peer.max-entry-bytes} or more than {@code peer.handoff.max-entries}
+     * entries.
+     */
+    public int acceptAll(InputStream body) throws IOException {
+        DataInputStream in = new DataInputStream(body);
+        int count = 0;
+        while (true) {
+            String key;
+            try {
+                key = in.readUTF();
+            } catch (EOFException end) {
+                return count;
+            }
+            if (count >= handoffMaxEntries) {
+                throw new IllegalArgumentException("Hand-offs are limited to " + handoffMaxEntries + " entries");
+            }
+            long ttl = in.readLong();
+            int length = in.readInt();
+            if (length < 0 || length > maxEntryBytes) {
+                throw new IllegalArgumentException("Peer entries are limited to " + maxEntryBytes + " bytes");
+            }
+            byte[] value = new byte[length];
+            in.readFully(value);
+            accept(key, value, ttl);
+            count++;
+        }
+    }
+
+    /**
+     * Adds a replica announcing itself, if discovery knows it (after another
+     * DNS lookup when it is not known yet). Returns false for strangers.
+     */
+    public boolean join(String url) {
+        String peer = stripTrailingSlash(url);
+        if (!enabled || peer.equals(self)) {
+            return true;
+        }
+        if (!discovered.contains(peer) && !discover().contains(peer)) {
+            logger.warn("Refused join from {}, which discovery does not know", peer);
+            return false;
+        }
+        logger.info("Peer {} joined", peer);
+        members.computeIfAbsent(peer, Member::new).up = true;
+        membershipChanged();
+        return true;
+    }
+
+    public void leave(String url) {
+        String peer = stripTrailingSlash(url);
+        Member member = members.get(peer);
+        if (member != null && member.up) {
+            logger.info("Peer {} left", peer);
+            member.up = false;
+            membershipChanged();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("self", self);
+        stats.put("ring", ring.members());
+        Map<String, Boolean> peers = new TreeMap<>();
+        members.forEach((url, member) -> peers.put(url, member.up));
+        stats.put("peers", peers);
+        stats.put("rebalancing", rebalancing.get() > 0);
+        stats.put("owned", owned.size());
+        stats.put("near", near.size());
+        stats.put("hits", peerHits.sum());
+        stats.put("misses", peerMisses.sum());
+        stats.put("errors", peerErrors.sum());
+        stats.put("timeouts", peerTimeouts.sum());
+        stats.put("nearHits", nearHits.sum());
+        stats.put("offered", offered.sum());
+        stats.put("served", served.sum());
+        stats.put("handedOff", handedOff.sum());
+        return stats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("peer.requests", peerHits, LongAdder::sum).tag("result", "hit").register(registry);
+        FunctionCounter.builder("peer.requests", peerMisses, LongAdder::sum).tag("result", "miss").register(registry);
+        FunctionCounter.builder("peer.requests", peerErrors, LongAdder::sum).tag("result", "error").register(registry);
+        FunctionCounter.builder("peer.requests", peerTimeouts, LongAdder::sum).tag("result", "timeout").register(registry);
+        FunctionCounter.builder("peer.requests", nearHits, LongAdder::sum).tag("result", "near").register(registry);
+        Gauge.builder("peer.members", this, p -> p.ring.members().size()).register(registry);
+        Tags tags = Tags.of("cache", "peer");
+        FunctionCounter.builder("cache.gets", owned, c -> c.hitCount()).tags(tags).tag("result", "hit").register(registry);
+        FunctionCounter.builder("cache.gets", owned, c -> c.missCount()).tags(tags).tag("result", "miss").register(registry);
+        FunctionCounter.builder("cache.evictions", owned, c -> c.evictionCount()).tags(tags).register(registry);
+        Gauge.builder("cache.size", owned, c -> c.size()).tags(tags).register(registry);
+    }
+
+    /**
+     * Hands every owned entry to its owner in the ring without this replica,
+     * then tells the peers this replica is leaving.
+     */
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+        if (enabled && self != null) {
+            List<String> remaining = upMembers();
+            if (!remaining.isEmpty()) {
+                int moved = handOff(new ConsistentHashRing(remaining, virtualNodes));
+                logger.info("Handed {} peer cache entries to {} on shutdown", moved, remaining);
+                for (String peer : remaining) {
+                    send(peer, "POST", PATH + "/leave?peer=" + encode(self), null);
+                }
+            }
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * The static peers and the current addresses of the DNS name, without
+     * this replica.
+     */
+    private Set<String> discover() {
+        Set<String> found = new LinkedHashSet<>(staticPeers);
+        if (!dnsName.isEmpty()) {
+            found.addAll(resolveDns());
+        }
+        found.remove(self);
+        discovered = found;
+        return found;
+    }
+
+    private void refresh() {
+        try {
+            Set<String> discovered = discover();
+            for (String url : discovered) {
+                members.computeIfAbsent(url, Member::new);
+            }
+            boolean changed = false;
+            for (Member member : members.values()) {
+                boolean up = send(member.url, "GET", PATH + "/ping", null);
+                changed |= up != member.up;
+                member.up = up;
+                member.failures.set(0);
+                if (!up && !discovered.contains(member.url)) {
+                    // Joined on its own and is gone now
+                    members.remove(member.url);
+                }
+            }
+            if (changed || !ring.members().contains(self)) {
+                membershipChanged();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Peer refresh failed: {}", e.getMessage());
+        }
+    }
+
+    private void answered(String url) {
+        Member member = members.get(url);
+        if (member != null) {
+            member.failures.set(0);
+        }
+    }
+
+    /**
+     * Counts a failed request to a peer. The first failure in a row pings it
+     * in the background, and the peer leaves the ring if that ping fails or
+     * the failures reach {@code peer.max-failures}.
+     */
+    private void failed(String url, Exception cause) {
+        Member member = members.get(url);
+        if (member == null || !member.up) {
+            return;
+        }
+        int failures = member.failures.incrementAndGet();
+        if (failures >= maxFailures) {
+            markDown(member, cause);
+        } else if (failures == 1) {
+            executor.execute(() -> {
+                if (!send(url, "GET", PATH + "/ping", null)) {
+                    markDown(member, cause);
+                }
+            });
+        }
+    }
+
+    private void markDown(Member member, Exception cause) {
+        if (member.up) {
+            logger.warn("Peer {} is unreachable, taking it out of the ring: {}", member.url, cause.getMessage());
+            member.up = false;
+            member.failures.set(0);
+            membershipChanged();
+        }
+    }
+
+    private synchronized void membershipChanged() {
+        List<String> ringMembers = upMembers();
+        if (self != null) {
+            ringMembers.add(self);
+        }
+        ConsistentHashRing previous = ring;
+        ring = new ConsistentHashRing(ringMembers, virtualNodes);
+        if (!previous.members().equals(ring.members())) {
+            logger.info("Peer ring is now {}", ring.members());
+            // Entries this replica no longer owns move to their new owners
+            rebalancing.incrementAndGet();
+            executor.execute(() -> {
+                try {
+                    handOff(ring);
+                } finally {
+                    rebalancing.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    private List<String> upMembers() {
+        List<String> up = new ArrayList<>();
+        members.values().forEach(m -> {
+            if (m.up) {
+                up.add(m.url);
+            }
+        });
+        return up;
+    }
+
+    /**
+     * Sends owned entries that {@code target} assigns to another replica to
+     * that replica, and drops the ones it took. Returns how many moved.
+     */
+    private int handOff(ConsistentHashRing target) {
+        // A lock rather than synchronized: hand-offs block on HTTP from virtual threads
+        handOffLock.lock();
+        try {
+            return handOffLocked(target);
+        } finally {
+            handOffLock.unlock();
+        }
+    }
+
+    private int handOffLocked(ConsistentHashRing target) {
+        Map<String, List<Fresh<String, byte[]>>> byOwner = new HashMap<>();
+        for (Fresh<String, byte[]> entry : owned.fresh(handoffMaxEntries)) {
+            String owner = target.owner(entry.key());
+            if (owner != null && !owner.equals(self)) {
+                byOwner.computeIfAbsent(owner, o -> new ArrayList<>()).add(entry);
+            }
+        }
+        int moved = 0;
+        for (Map.Entry<String, List<Fresh<String, byte[]>>> move : byOwner.entrySet()) {
+            if (send(move.getKey(), "POST", PATH + "/entries", writeEntries(move.getValue()))) {
+                move.getValue().forEach(entry -> owned.invalidate(entry.key()));
+                moved += move.getValue().size();
+            }
+        }
+        handedOff.add(moved);
+        return moved;
+    }
+
+    /**
+     * Bulk framing read by {@link #acceptAll}: per entry the key (modified
+     * UTF-8), the remaining lifetime in ms, the value length and the value.
+     */
+    static byte[] writeEntries(List<Fresh<String, byte[]>> entries) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (Fresh<String, byte[]> entry : entries) {
+                out.writeUTF(entry.key());
+                out.writeLong(entry.remainingMillis());
+                out.writeInt(entry.value().length);
+                out.write(entry.value());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * One call to a peer; true on a 2xx answer.
+     */
+    private boolean send(String peer, String method, String pathAndQuery, byte[] body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(peer + pathAndQuery))
+                .timeout(timeout)
+                .header(SECRET_HEADER, new String(secret, StandardCharsets.UTF_8));
+        if (body != null) {
+            request.header("Content-Type", "application/octet-stream")
+                    .header(TTL_HEADER, Long.toString(ttlMillis))
+                    .method(method, HttpRequest.BodyPublishers.ofByteArray(body));
+        } else {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+        try {
+            int status = http.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+            return status >= 200 && status < 300;
+        } catch (IOException e) {
+            logger.debug("Peer call {} {} failed: {}", method, peer + pathAndQuery, e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private <T> T decode(byte[] bytes, Class<T> type) {
+        try {
+            return objectMapper.readValue(bytes, type);
+        } catch (IOException e) {
+            logger.debug("Unreadable peer cache entry: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The other replicas behind {@code peer.dns-name}. Addresses on this host
+     * are left out: they all share this replica's port, so they can only be
+     * this replica under another URL (127.0.0.1 and [::1] for localhost).
+     */
+    private List<String> resolveDns() {
+        int port = dnsPort > 0 ? dnsPort : portOf(self);
+        try {
+            return Arrays.stream(InetAddress.getAllByName(dnsName))
+                    .filter(address -> !isLocal(address))
+                    .map(address -> "http://" + hostOf(address) + ":" + port)
+                    .collect(Collectors.toList());
+        } catch (UnknownHostException e) {
+            logger.warn("Could not resolve peer DNS name {}: {}", dnsName, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * This replica's URL among the addresses of {@code peer.dns-name}: the one
+     * bound to a local interface.
+     */
+    private String selfFromDns(int port) {
+        try {
+            for (InetAddress address : InetAddress.getAllByName(dnsName)) {
+                if (isLocal(address)) {
+                    return "http://" + hostOf(address) + ":" + (dnsPort > 0 ? dnsPort : port);
+                }
+            }
+        } catch (UnknownHostException e) {
+            logger.warn("Could not resolve peer DNS name {}: {}", dnsName, e.getMessage());
+        }
+        return "http://localhost:" + port;
+    }
+
+    private static boolean isLocal(InetAddress address) {
+        try {
+            return address.isLoopbackAddress() || NetworkInterface.getByInetAddress(address) != null;
+        } catch (SocketException e) {
+            return false;
+        }
+    }
+
+    private static String hostOf(InetAddress address) {
+        String host = address.getHostAddress();
+        return host.contains(":") ? "[" + host + "]" : host;
+    }
+
+    private static int portOf(String url) {
+        return url == null ? 80 : URI.create(url).getPort();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,98 @@
+package com.location.cache;
+
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reverse geocode results keyed by the geohash cell a coordinate falls in, so
+ * nearby GPS fixes within one cell share a single upstream answer. The default
+ * precision of 8 gives cells of roughly 38m x 19m at the equator.
+ */
+@Component
+public class ReverseGeocodeCache implements MeterBinder {
+
+    private final LongKeyCache<Optional<GeoPoint>> cache;
+    private final int precision;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+
+    public ReverseGeocodeCache(
+            @Value("${geocoding.reverse-cache.max-size:1000000}") int maxSize,
+            @Value("${geocoding.reverse-cache.precision:8}") int precision,
+            @Value("${geocoding.reverse-cache.ttl-ms:86400000}") long ttlMillis,
+            @Value("${geocoding.reverse-cache.negative-ttl-ms:600000}") long negativeTtlMillis,
+            @Value("${geocoding.reverse-cache.stale-grace-ms:604800000}") long staleGraceMillis
+    ) {
+        GeoCell.encode(0, 0, precision); // validates precision
+        this.cache = new LongKeyCache<>(maxSize, 32, staleGraceMillis);
+        this.precision = precision;
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+    }
+
+    public int precision() {
+        return precision;
+    }
+
+    public long ttlMillis() {
+        return ttlMillis;
+    }
+
+    public long cellOf(double lat, double lng) {
+        return GeoCell.encode(lat, lng, precision);
+    }
+
+    /**
+     * Fresh or stale entry for the cell containing the point, or {@code null} when
+     * not cached. A cached "no result" is a hit whose value is an empty Optional.
+     */
+    public CacheHit<Optional<GeoPoint>> lookup(double lat, double lng) {
+        return cache.lookup(cellOf(lat, lng));
+    }
+
+    public void put(double lat, double lng, Optional<GeoPoint> result) {
+        cache.put(cellOf(lat, lng), result, result.isPresent() ? ttlMillis : negativeTtlMillis);
+    }
+
+    /**
+     * Caches a result read back from the disk store for no longer than it has left there.
+     */
+    public void warm(double lat, double lng, GeoPoint point, long remainingMillis) {
+        cache.put(cellOf(lat, lng), Optional.of(point), Math.min(ttlMillis, remainingMillis));
+    }
+
+    public Map<String, Object> stats() {
+        double[] size = GeoCell.size(precision);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("precision", precision);
+        stats.put("cellHeightDeg", size[0]);
+        stats.put("cellWidthDeg", size[1]);
+        stats.put("size", cache.size());
+        stats.put("hits", cache.hitCount());
+        stats.put("staleHits", cache.staleHitCount());
+        stats.put("misses", cache.missCount());
+        stats.put("evictions", cache.evictionCount());
+        stats.put("expirations", cache.expirationCount());
+        return stats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Tags tags = Tags.of("cache", "reverse");
+        FunctionCounter.builder("cache.gets", cache, c -> c.hitCount()).tags(tags).tag("result", "hit").register(registry);
+        FunctionCounter.builder("cache.gets", cache, c -> c.missCount()).tags(tags).tag("result", "miss").register(registry);
+        FunctionCounter.builder("cache.gets", cache, c -> c.staleHitCount()).tags(tags).tag("result", "stale").register(registry);
+        FunctionCounter.builder("cache.evictions", cache, c -> c.evictionCount()).tags(tags).register(registry);
+        Gauge.builder("cache.size", cache, c -> c.size()).tags(tags).register(registry);
+    }
+}
@@ -0,0 +1,36 @@
+package com.location.controller;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Per-request async timeouts. Every other async response keeps the container
+ * default (or {@code spring.mvc.async.request-timeout}); a handler that streams
+ * for longer, such as bulk geocoding, sets {@link #ATTRIBUTE} to its timeout in
+ * milliseconds on the request, and it is applied as async processing starts.
+ */
+@Component
+public class AsyncTimeouts implements WebMvcConfigurer {
+
+    public static final String ATTRIBUTE = AsyncTimeouts.class.getName() + ".timeoutMs";
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                if (request instanceof AsyncWebRequest async
+                        && request.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Long timeoutMs) {
+                    async.setTimeout(timeoutMs);
+                }
+            }
+        });
+    }
+}
@@ -1,12 +1,21 @@
 package com.location.controller;
 
+import com.location.dto.DistanceMatrixRequest;
+import com.location.dto.DistanceMatrixResponse;
 import com.location.dto.DistanceRequest;
 import com.location.dto.DistanceResponse;
+import com.location.dto.RouteRequest;
+import com.location.dto.RouteResponse;
+import com.location.service.DistanceMatrixService;
 import com.location.service.DistanceService;
+import com.location.service.RouteService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api")
 public class DistanceController {
@@ -14,13 +23,67 @@ public class DistanceController {
     @Autowired
     private DistanceService distanceService;
 
+    @Autowired
+    private DistanceMatrixService distanceMatrixService;
+
+    @Autowired
+    private RouteService routeService;
+
+    @Value("${distance.matrix.max-places:500}")
+    private int maxMatrixPlaces;
+
+    @Value("${distance.route.max-stops:100}")
+    private int maxRouteStops;
+
     @PostMapping("/distance")
     public ResponseEntity<DistanceResponse> getDistances(@RequestBody DistanceRequest request) {
         if (request.origin == null || request.destination == null
                 || request.origin.isBlank() || request.destination.isBlank()) {
             return ResponseEntity.badRequest().build();
         }
-        DistanceResponse response = distanceService.calculateDistances(request.origin, request.destination);
-        return ResponseEntity.ok(response);
+        try {
+            DistanceResponse response = distanceService.calculateDistances(request.origin, request.destination, request.modes);
+            return response.stale
+                    ? ResponseEntity.ok().header(GeocodeController.STALE_HEADER, "true").body(response)
+                    : ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/distance/matrix")
+    public ResponseEntity<DistanceMatrixResponse> getDistanceMatrix(@RequestBody DistanceMatrixRequest request) {
+        if (request.origins == null || request.destinations == null
+                || request.origins.isEmpty() || request.destinations.isEmpty()
+                || request.origins.size() > maxMatrixPlaces || request.destinations.size() > maxMatrixPlaces
+                || request.origins.stream().anyMatch(o -> o == null || o.isBlank())
+                || request.destinations.stream().anyMatch(d -> d == null || d.isBlank())) {
+            return ResponseEntity.badRequest().build();
+        }
+        String mode = request.mode == null || request.mode.isBlank() ? "driving" : DistanceService.supportedMode(request.mode);
+        if (mode == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(distanceMatrixService.calculateMatrix(request.origins, request.destinations, mode));
+    }
+
+    @PostMapping("/distance/route")
+    public ResponseEntity<RouteResponse> optimizeRoute(@RequestBody RouteRequest request) {
+        if (request.start == null || request.start.isBlank()
+                || request.stops == null || request.stops.isEmpty() || request.stops.size() > maxRouteStops
+                || request.stops.stream().anyMatch(s -> s == null || s.isBlank())) {
+            return ResponseEntity.badRequest().build();
+        }
+        String mode = request.mode == null || request.mode.isBlank() ? "driving" : DistanceService.supportedMode(request.mode);
+        if (mode == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(routeService.optimize(request.start, request.stops, mode,
+                Boolean.TRUE.equals(request.roundTrip)));
+    }
+
+    @GetMapping("/distance/stats")
+    public Map<String, Object> stats() {
+        return Map.of("coalescing", distanceService.coalescingStats(), "cache", distanceService.cacheStats());
     }
 }
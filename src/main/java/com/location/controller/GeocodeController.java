@@ -1,11 +1,29 @@
 package com.location.controller;
 
+import com.location.cache.EncodedResponseCache;
+import com.location.cache.EncodedResponseCache.Format;
+import com.location.dto.BulkDistanceRequest;
+import com.location.dto.BulkDistanceResponse;
+import com.location.geo.Haversine.PointSet;
+import com.location.service.BulkDistanceService;
+import com.location.service.BulkGeocodeService;
+import com.location.service.GeofenceService;
 import com.location.service.GoogleGeocodingService;
 import com.location.service.GoogleGeocodingService.GeoPoint;
+import com.location.service.GoogleGeocodingService.Lookup;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @CrossOrigin(origins = "*")
@@ -13,54 +31,75 @@ import java.util.Map;
 @RequestMapping("/api/geocode")
 public class GeocodeController {
 
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+    static final String STALE_HEADER = "X-Stale";
+    static final String LOCALITY = "locality";
+
     private final GoogleGeocodingService geocodingService;
+    private final BulkGeocodeService bulkGeocodeService;
+    private final BulkDistanceService bulkDistanceService;
+    private final GeofenceService geofenceService;
+    private final EncodedResponseCache encodedResponses;
+
+    @Value("${geocoding.bulk.request-timeout-ms:1800000}")
+    private long bulkRequestTimeoutMs;
+
+    @Value("${geocoding.bulk-distance.max-points:1000000}")
+    private int maxBulkDistancePoints;
 
-    public GeocodeController(GoogleGeocodingService geocodingService) {
+    @Value("${geocoding.bulk-distance.max-pairs:10000000}")
+    private long maxBulkDistancePairs;
+
+    public GeocodeController(
+            GoogleGeocodingService geocodingService,
+            BulkGeocodeService bulkGeocodeService,
+            BulkDistanceService bulkDistanceService,
+            GeofenceService geofenceService,
+            EncodedResponseCache encodedResponses
+    ) {
         this.geocodingService = geocodingService;
+        this.bulkGeocodeService = bulkGeocodeService;
+        this.bulkDistanceService = bulkDistanceService;
+        this.geofenceService = geofenceService;
+        this.encodedResponses = encodedResponses;
     }
 
     @GetMapping
-    public ResponseEntity<?> geocode(@RequestParam String address) {
-        return geocodingService.geocode(address)
-                .map(loc -> {
-                    Map<String, Object> response = new HashMap<>();
-                    response.put("lat", loc.lat());
-                    response.put("lng", loc.lng());
-                    response.put("formattedAddress", loc.formattedAddress());
-                    response.put("locationType", loc.locationType());
-                    response.put("partialMatch", loc.partialMatch());
-                    response.put("placeId", loc.placeId());
-                    response.put("streetNumber", loc.streetNumber());
-                    response.put("street", loc.street());
-                    response.put("city", loc.city());
-                    response.put("state", loc.state());
-                    response.put("country", loc.country());
-                    response.put("postalCode", loc.postalCode());
-                    return ResponseEntity.ok(response);
-                })
-                .orElse(ResponseEntity.status(404).body(Map.of("error", "No result found")));
+    public ResponseEntity<?> geocode(
+            @RequestParam String address,
+            @RequestParam(defaultValue = "false") boolean zones,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept
+    ) {
+        Lookup lookup = geocodingService.lookupAddress(address);
+        return found(lookup, zones, accept);
     }
     @GetMapping("/reverse")
-    public ResponseEntity<?> reverseGeocode(@RequestParam double lat, @RequestParam double lng) {
-        return geocodingService.reverseGeocode(lat, lng)
-                .map(loc -> {
-                    Map<String, Object> response = new HashMap<>();
-                    response.put("lat", loc.lat());
-                    response.put("lng", loc.lng());
-                    response.put("formattedAddress", loc.formattedAddress());
-                    response.put("locationType", loc.locationType());
-                    response.put("partialMatch", loc.partialMatch());
-                    response.put("placeId", loc.placeId());
-                    response.put("streetNumber", loc.streetNumber());
-                    response.put("street", loc.street());
-                    response.put("city", loc.city());
-                    response.put("state", loc.state());
-                    response.put("country", loc.country());
-                    response.put("postalCode", loc.postalCode());
-                    return ResponseEntity.ok(response);
-                })
-                .orElse(ResponseEntity.status(404).body(Map.of("error", "No result found")));
+    public ResponseEntity<?> reverseGeocode(
+            @RequestParam double lat, @RequestParam double lng,
+            @RequestParam(name = "result_type", required = false) String resultType,
+            @RequestParam(defaultValue = "false") boolean zones,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept
+    ) {
+        if (resultType != null && !LOCALITY.equals(resultType)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unsupported result_type: " + resultType));
+        }
+        // Callers that only need the city can be answered by the offline gazetteer
+        Lookup lookup = resultType == null
+                ? geocodingService.lookupReverse(lat, lng)
+                : geocodingService.lookupLocality(lat, lng);
+        return found(lookup, zones, accept);
     }
+    /**
+     * Typeahead over places this instance has already resolved; no upstream call.
+     */
+    @GetMapping("/autocomplete")
+    public ResponseEntity<?> autocomplete(@RequestParam String q, @RequestParam(defaultValue = "5") int limit) {
+        if (q.isBlank() || limit < 1) {
+            return ResponseEntity.badRequest().body(Map.of("error", "q must not be blank and limit must be positive"));
+        }
+        return ResponseEntity.ok(geocodingService.autocomplete(q, limit));
+    }
+
     @GetMapping("/distance")
     public Map<String, Object> distance(
             @RequestParam double lat1, @RequestParam double lng1,
@@ -72,26 +111,181 @@ public class GeocodeController {
                 "roundedKm", Math.round(dist * 10.0) / 10.0
         );
     }
+    @PostMapping("/distance/bulk")
+    public ResponseEntity<?> bulkDistance(@RequestBody BulkDistanceRequest request) {
+        if (!validPoints(request.lats, request.lngs)
+                || (request.topK != null && request.topK < 1)
+                || (request.radiusKm != null && !(request.radiusKm >= 0))) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid targets, topK or radiusKm"));
+        }
+        PointSet targets = PointSet.ofDegrees(request.lats, request.lngs);
+        BulkDistanceResponse response = new BulkDistanceResponse();
+        if (request.sourceLats != null || request.sourceLngs != null) {
+            if (request.topK != null || request.radiusKm != null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "topK and radiusKm apply to one-to-many requests only"));
+            }
+            if (!validPoints(request.sourceLats, request.sourceLngs)
+                    || (long) request.sourceLats.length * request.lats.length > maxBulkDistancePairs) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid sources"));
+            }
+            response.distancesKm = bulkDistanceService.manyToMany(
+                    PointSet.ofDegrees(request.sourceLats, request.sourceLngs), targets);
+            return ResponseEntity.ok(response);
+        }
+        if (request.lat == null || request.lng == null || !validPoint(request.lat, request.lng)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Missing or invalid origin"));
+        }
+        BulkDistanceService.Ranked ranked = null;
+        if (request.topK != null) {
+            ranked = bulkDistanceService.nearest(request.lat, request.lng, targets, request.topK);
+        } else if (request.radiusKm != null) {
+            ranked = bulkDistanceService.within(request.lat, request.lng, targets, request.radiusKm);
+        }
+        if (ranked != null) {
+            if (request.topK != null && request.radiusKm != null) {
+                ranked = ranked.limitTo(request.radiusKm);
+            }
+            response.indices = ranked.indices();
+            response.distancesKm = ranked.distancesKm();
+        } else {
+            response.distancesKm = bulkDistanceService.oneToMany(request.lat, request.lng, targets);
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    private boolean validPoints(double[] lats, double[] lngs) {
+        if (lats == null || lngs == null || lats.length != lngs.length || lats.length > maxBulkDistancePoints) {
+            return false;
+        }
+        for (int i = 0; i < lats.length; i++) {
+            if (!validPoint(lats[i], lngs[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static Map<String, Object> toResponse(GeoPoint loc) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("lat", loc.lat());
+        response.put("lng", loc.lng());
+        response.put("formattedAddress", loc.formattedAddress());
+        response.put("locationType", loc.locationType());
+        response.put("partialMatch", loc.partialMatch());
+        response.put("placeId", loc.placeId());
+        response.put("streetNumber", loc.streetNumber());
+        response.put("street", loc.street());
+        response.put("city", loc.city());
+        response.put("state", loc.state());
+        response.put("country", loc.country());
+        response.put("postalCode", loc.postalCode());
+        return response;
+    }
+
+    /**
+     * The geocode response as pre-encoded bytes, in the format the Accept
+     * header prefers (406 when it takes neither JSON nor CBOR), flagged with
+     * {@value #STALE_HEADER} when it was served from an expired cache entry
+     * because Google was unavailable. With zones requested the ids of the
+     * registered zones containing the result are added under "zones", so that
+     * body is built per request.
+     */
+    private ResponseEntity<?> found(Lookup lookup, boolean zones, String accept) {
+        Format format = Format.accepting(accept);
+        if (format == null) {
+            return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        if (lookup.result().isEmpty()) {
+            return ResponseEntity.status(404).body(Map.of("error", "No result found"));
+        }
+        GeoPoint loc = lookup.result().get();
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().contentType(format.mediaType()).varyBy(HttpHeaders.ACCEPT);
+        if (lookup.stale()) {
+            builder.header(STALE_HEADER, "true");
+        }
+        if (zones) {
+            Map<String, Object> response = toResponse(loc);
+            response.put("zones", geofenceService.containing(loc.lat(), loc.lng()));
+            return builder.body(response);
+        }
+        return builder.body(encodedResponses.get(loc, format));
+    }
+
+    static boolean validPoint(double lat, double lng) {
+        return lat >= -90 && lat <= 90 && lng >= -180 && lng <= 180;
+    }
+
     @GetMapping("/placeid")
-    public ResponseEntity<?> geocodeByPlaceId(@RequestParam String placeId) {
-        return geocodingService.geocodeByPlaceId(placeId)
-                .map(loc -> {
-                    Map<String, Object> response = new HashMap<>();
-                    response.put("lat", loc.lat());
-                    response.put("lng", loc.lng());
-                    response.put("formattedAddress", loc.formattedAddress());
-                    response.put("locationType", loc.locationType());
-                    response.put("partialMatch", loc.partialMatch());
-                    response.put("placeId", loc.placeId());
-                    response.put("streetNumber", loc.streetNumber());
-                    response.put("street", loc.street());
-                    response.put("city", loc.city());
-                    response.put("state", loc.state());
-                    response.put("country", loc.country());
-                    response.put("postalCode", loc.postalCode());
-                    return ResponseEntity.ok(response);
-                })
-                .orElse(ResponseEntity.status(404).body(Map.of("error", "No result found")));
+    public ResponseEntity<?> geocodeByPlaceId(
+            @RequestParam String placeId,
+            @RequestParam(defaultValue = "false") boolean zones,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept
+    ) {
+        Lookup lookup = geocodingService.lookupPlaceId(placeId);
+        return found(lookup, zones, accept);
+    }
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE, produces = APPLICATION_NDJSON)
+    public ResponseEntity<StreamingResponseBody> bulkGeocodeJson(
+            HttpServletRequest request,
+            @RequestParam(defaultValue = "input") String order
+    ) {
+        return bulk(request, () -> BulkGeocodeService.jsonArray(request.getInputStream()), order);
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.TEXT_PLAIN_VALUE, produces = APPLICATION_NDJSON)
+    public ResponseEntity<StreamingResponseBody> bulkGeocodeLines(
+            HttpServletRequest request,
+            @RequestParam(defaultValue = "input") String order
+    ) {
+        return bulk(request, () -> BulkGeocodeService.lines(request.getInputStream()), order);
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = APPLICATION_NDJSON)
+    public ResponseEntity<StreamingResponseBody> bulkGeocodeFile(
+            HttpServletRequest request,
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(defaultValue = "input") String order
+    ) {
+        return bulk(request, () -> BulkGeocodeService.lines(file.getInputStream()), order);
+    }
+
+    /**
+     * Opens the input before answering, so input that is not an address list
+     * at all gets a 400 rather than a 200 with an empty body. The stream may
+     * run for up to {@code geocoding.bulk.request-timeout-ms}.
+     */
+    private ResponseEntity<StreamingResponseBody> bulk(HttpServletRequest request, AddressSource source, String order) {
+        if (!"input".equals(order) && !"completion".equals(order)) {
+            return ResponseEntity.badRequest().build();
+        }
+        boolean inputOrder = "input".equals(order);
+        BulkGeocodeService.Addresses addresses;
+        try {
+            addresses = source.open();
+        } catch (IllegalArgumentException | IOException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> {
+            try (addresses) {
+                bulkGeocodeService.geocodeAll(addresses, inputOrder, out);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        request.setAttribute(AsyncTimeouts.ATTRIBUTE, bulkRequestTimeoutMs);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(APPLICATION_NDJSON)).body(body);
+    }
+
+    @FunctionalInterface
+    private interface AddressSource {
+        BulkGeocodeService.Addresses open() throws IOException;
+    }
+
+    @GetMapping("/cache/stats")
+    public Map<String, Object> cacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(geocodingService.cacheStats());
+        stats.put("encodedResponses", encodedResponses.stats());
+        return stats;
     }
 
 
@@ -0,0 +1,120 @@
+package com.location.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.location.dto.GeofenceBatchRequest;
+import com.location.dto.GeofenceBatchResponse;
+import com.location.service.GeofenceService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/geofences")
+public class GeofenceController {
+
+    private final GeofenceService geofenceService;
+
+    @Value("${geofence.batch.max-points:1000000}")
+    private int maxBatchPoints;
+
+    public GeofenceController(GeofenceService geofenceService) {
+        this.geofenceService = geofenceService;
+    }
+
+    @GetMapping
+    public ResponseEntity<?> list() {
+        return ResponseEntity.ok(geofenceService.zones());
+    }
+
+    /**
+     * Registers every feature of a GeoJSON FeatureCollection in one go.
+     */
+    @PostMapping
+    public ResponseEntity<?> putAll(@RequestBody JsonNode featureCollection) {
+        try {
+            return ResponseEntity.ok(geofenceService.putAll(featureCollection));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<?> put(@PathVariable String id, @RequestBody JsonNode geoJson) {
+        try {
+            return ResponseEntity.ok(geofenceService.put(id, geoJson));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> get(@PathVariable String id) {
+        return geofenceService.get(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.status(404).body(Map.of("error", "No such zone")));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> delete(@PathVariable String id) {
+        return geofenceService.remove(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.status(404).body(Map.of("error", "No such zone"));
+    }
+
+    @GetMapping("/contains")
+    public ResponseEntity<?> contains(
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lng,
+            @RequestParam(required = false) String address
+    ) {
+        if (lat != null && lng != null) {
+            if (!GeocodeController.validPoint(lat, lng)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid coordinates"));
+            }
+            return ResponseEntity.ok(result(lat, lng));
+        }
+        if (address == null || address.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Either lat/lng or address is required"));
+        }
+        return geofenceService.locate(address)
+                .<ResponseEntity<?>>map(geo -> {
+                    Map<String, Object> body = result(geo.lat(), geo.lng());
+                    body.put("formattedAddress", geo.formattedAddress());
+                    return ResponseEntity.ok(body);
+                })
+                .orElse(ResponseEntity.status(404).body(Map.of("error", "No result found")));
+    }
+
+    @PostMapping("/contains")
+    public ResponseEntity<?> containsBatch(@RequestBody GeofenceBatchRequest request) {
+        if (request.lats == null || request.lngs == null || request.lats.length != request.lngs.length
+                || request.lats.length > maxBatchPoints) {
+            return ResponseEntity.badRequest().body(Map.of("error", "lats and lngs must be arrays of the same length"));
+        }
+        for (int i = 0; i < request.lats.length; i++) {
+            if (!GeocodeController.validPoint(request.lats[i], request.lngs[i])) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid coordinates at index " + i));
+            }
+        }
+        GeofenceBatchResponse response = new GeofenceBatchResponse();
+        response.zones = geofenceService.containing(request.lats, request.lngs);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        return geofenceService.stats();
+    }
+
+    private Map<String, Object> result(double lat, double lng) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("lat", lat);
+        body.put("lng", lng);
+        body.put("zones", geofenceService.containing(lat, lng));
+        return body;
+    }
+}
@@ -0,0 +1,144 @@
+package com.location.controller;
+
+import com.location.cache.PeerCache;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * The replica-to-replica side of {@link PeerCache}. Answers 404 on every
+ * route while peers are disabled, and 403 to callers without the shared
+ * {@code peer.secret} in {@value PeerCache#SECRET_HEADER}.
+ */
+@RestController
+@RequestMapping(PeerCache.PATH)
+public class PeerController {
+
+    private static final ResponseEntity<?> DISABLED =
+            ResponseEntity.status(404).body(Map.of("error", "Peer cache is disabled"));
+    private static final ResponseEntity<?> FORBIDDEN =
+            ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Missing or wrong peer secret"));
+
+    private final PeerCache peers;
+
+    public PeerController(PeerCache peers) {
+        this.peers = peers;
+    }
+
+    @GetMapping
+    public ResponseEntity<?> stats(@RequestHeader(name = PeerCache.SECRET_HEADER, required = false) String secret) {
+        ResponseEntity<?> refused = refused(secret);
+        return refused != null ? refused : ResponseEntity.ok(peers.stats());
+    }
+
+    @GetMapping("/ping")
+    public ResponseEntity<?> ping(@RequestHeader(name = PeerCache.SECRET_HEADER, required = false) String secret) {
+        ResponseEntity<?> refused = refused(secret);
+        return refused != null ? refused : ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/entries")
+    public ResponseEntity<?> get(
+            @RequestParam String key,
+            @RequestHeader(name = PeerCache.SECRET_HEADER, required = false) String secret
+    ) {
+        ResponseEntity<?> refused = refused(secret);
+        if (refused != null) {
+            return refused;
+        }
+        PeerCache.Served served = peers.serve(key);
+        if (served == null) {
+            return ResponseEntity.status(404).build();
+        }
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (served.hot()) {
+            ok.header(PeerCache.HOT_HEADER, "true");
+        }
+        return ok.body(served.value());
+    }
+
+    /**
+     * One entry from a replica that fetched it; the body is read only up to
+     * {@code peer.max-entry-bytes}.
+     */
+    @PutMapping(value = "/entries", consumes = MediaType.ALL_VALUE)
+    public ResponseEntity<?> put(
+            @RequestParam String key,
+            @RequestHeader(name = PeerCache.TTL_HEADER) long ttlMillis,
+            @RequestHeader(name = PeerCache.SECRET_HEADER, required = false) String secret,
+            HttpServletRequest request
+    ) throws IOException {
+        ResponseEntity<?> refused = refused(secret);
+        if (refused != null) {
+            return refused;
+        }
+        try {
+            peers.accept(key, request.getInputStream().readNBytes(peers.maxEntryBytes() + 1), ttlMillis);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", e.getMessage()));
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Entries handed over in bulk when ownership moves between replicas.
+     */
+    @PostMapping(value = "/entries", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> putAll(
+            @RequestHeader(name = PeerCache.SECRET_HEADER, required = false) String secret,
+            HttpServletRequest request
+    ) throws IOException {
+        ResponseEntity<?> refused = refused(secret);
+        if (refused != null) {
+            return refused;
+        }
+        try {
+            peers.acceptAll(request.getInputStream());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", e.getMessage()));
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/join")
+    public ResponseEntity<?> join(
+            @RequestParam String peer,
+            @RequestHeader(name = PeerCache.SECRET_HEADER, required = false) String secret
+    ) {
+        ResponseEntity<?> refused = refused(secret);
+        if (refused != null) {
+            return refused;
+        }
+        return peers.join(peer)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Unknown peer: " + peer));
+    }
+
+    @PostMapping("/leave")
+    public ResponseEntity<?> leave(
+            @RequestParam String peer,
+            @RequestHeader(name = PeerCache.SECRET_HEADER, required = false) String secret
+    ) {
+        ResponseEntity<?> refused = refused(secret);
+        if (refused != null) {
+            return refused;
+        }
+        peers.leave(peer);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * The response for a call that may not go ahead, or {@code null}.
+     */
+    private ResponseEntity<?> refused(String secret) {
+        if (!peers.isEnabled()) {
+            return DISABLED;
+        }
+        return peers.authorized(secret) ? null : FORBIDDEN;
+    }
+}
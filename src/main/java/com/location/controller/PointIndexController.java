@@ -0,0 +1,99 @@
+package com.location.controller;
+
+import com.location.dto.NamedPointRequest;
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import com.location.service.PointIndexService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.Optional;
+
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/points")
+public class PointIndexController {
+
+    private final PointIndexService pointIndexService;
+
+    public PointIndexController(PointIndexService pointIndexService) {
+        this.pointIndexService = pointIndexService;
+    }
+
+    @PutMapping("/{name}")
+    public ResponseEntity<?> put(@PathVariable String name, @RequestBody NamedPointRequest request) {
+        if (request.lat != null && request.lng != null) {
+            if (!GeocodeController.validPoint(request.lat, request.lng)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid coordinates"));
+            }
+            return ResponseEntity.ok(pointIndexService.put(name, request.lat, request.lng));
+        }
+        if (request.address == null || request.address.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Either lat/lng or address is required"));
+        }
+        return pointIndexService.putAddress(name, request.address)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.status(404).body(Map.of("error", "No result found")));
+    }
+
+    @GetMapping("/{name}")
+    public ResponseEntity<?> get(@PathVariable String name) {
+        return pointIndexService.get(name)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.status(404).body(Map.of("error", "No such point")));
+    }
+
+    @DeleteMapping("/{name}")
+    public ResponseEntity<?> delete(@PathVariable String name) {
+        return pointIndexService.remove(name)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.status(404).body(Map.of("error", "No such point"));
+    }
+
+    @GetMapping("/nearest")
+    public ResponseEntity<?> nearest(
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lng,
+            @RequestParam(required = false) String address,
+            @RequestParam(defaultValue = "5") int k
+    ) {
+        if (k < 1) {
+            return ResponseEntity.badRequest().body(Map.of("error", "k must be positive"));
+        }
+        return resolve(lat, lng, address)
+                .<ResponseEntity<?>>map(at -> ResponseEntity.ok(pointIndexService.nearest(at[0], at[1], k)))
+                .orElseGet(() -> locationError(lat, lng));
+    }
+
+    @GetMapping("/within")
+    public ResponseEntity<?> within(
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lng,
+            @RequestParam(required = false) String address,
+            @RequestParam double radiusKm
+    ) {
+        if (!(radiusKm >= 0)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "radiusKm must not be negative"));
+        }
+        return resolve(lat, lng, address)
+                .<ResponseEntity<?>>map(at -> ResponseEntity.ok(pointIndexService.within(at[0], at[1], radiusKm)))
+                .orElseGet(() -> locationError(lat, lng));
+    }
+
+    private Optional<double[]> resolve(Double lat, Double lng, String address) {
+        if (lat != null && lng != null) {
+            return GeocodeController.validPoint(lat, lng) ? Optional.of(new double[]{lat, lng}) : Optional.empty();
+        }
+        if (address == null || address.isBlank()) {
+            return Optional.empty();
+        }
+        return pointIndexService.locate(address).map((GeoPoint geo) -> new double[]{geo.lat(), geo.lng()});
+    }
+
+    private static ResponseEntity<?> locationError(Double lat, Double lng) {
+        if (lat != null && lng != null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid coordinates"));
+        }
+        return ResponseEntity.status(404).body(Map.of("error", "Missing location or no result found for address"));
+    }
+}
@@ -0,0 +1,102 @@
+package com.location.controller;
+
+import com.location.dto.DistanceRequest;
+import com.location.dto.DistanceResponse;
+import com.location.service.GoogleGeocodingService.Lookup;
+import com.location.service.ReactiveDistanceService;
+import com.location.service.ReactiveGeocodingService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reactive variants of the geocode and distance endpoints. Handlers return
+ * without holding a servlet thread while Google answers, and a client that
+ * disconnects cancels its upstream call.
+ */
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/reactive")
+public class ReactiveController {
+
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private final ReactiveGeocodingService geocodingService;
+    private final ReactiveDistanceService distanceService;
+
+    public ReactiveController(ReactiveGeocodingService geocodingService, ReactiveDistanceService distanceService) {
+        this.geocodingService = geocodingService;
+        this.distanceService = distanceService;
+    }
+
+    @GetMapping("/geocode")
+    public Mono<ResponseEntity<?>> geocode(@RequestParam String address) {
+        return geocodingService.lookupAddress(address).map(ReactiveController::toResponse);
+    }
+
+    @GetMapping("/geocode/reverse")
+    public Mono<ResponseEntity<?>> reverseGeocode(
+            @RequestParam double lat, @RequestParam double lng,
+            @RequestParam(name = "result_type", required = false) String resultType
+    ) {
+        if (resultType != null && !GeocodeController.LOCALITY.equals(resultType)) {
+            return Mono.just(ResponseEntity.badRequest().body(Map.of("error", "Unsupported result_type: " + resultType)));
+        }
+        Mono<Lookup> lookup = resultType == null
+                ? geocodingService.lookupReverse(lat, lng)
+                : geocodingService.lookupLocality(lat, lng);
+        return lookup.map(ReactiveController::toResponse);
+    }
+
+    @GetMapping("/geocode/placeid")
+    public Mono<ResponseEntity<?>> geocodeByPlaceId(@RequestParam String placeId) {
+        return geocodingService.lookupPlaceId(placeId).map(ReactiveController::toResponse);
+    }
+
+    @PostMapping(value = "/geocode/bulk", produces = APPLICATION_NDJSON)
+    public ResponseEntity<Flux<Map<String, Object>>> bulkGeocode(
+            @RequestBody List<String> addresses,
+            @RequestParam(defaultValue = "input") String order
+    ) {
+        if (!"input".equals(order) && !"completion".equals(order)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(geocodingService.geocodeAll(addresses, "input".equals(order)));
+    }
+
+    @PostMapping("/distance")
+    public Mono<ResponseEntity<DistanceResponse>> getDistances(@RequestBody DistanceRequest request) {
+        if (request.origin == null || request.destination == null
+                || request.origin.isBlank() || request.destination.isBlank()) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        try {
+            return distanceService.calculateDistances(request.origin, request.destination, request.modes)
+                    .map(response -> response.stale
+                            ? ResponseEntity.ok().header(GeocodeController.STALE_HEADER, "true").body(response)
+                            : ResponseEntity.ok(response));
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+    }
+
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("geocodeCoalescing", geocodingService.coalescingStats());
+        stats.put("distanceCoalescing", distanceService.coalescingStats());
+        return stats;
+    }
+
+    private static ResponseEntity<?> toResponse(Lookup lookup) {
+        return lookup.result().<ResponseEntity<?>>map(point -> lookup.stale()
+                        ? ResponseEntity.ok().header(GeocodeController.STALE_HEADER, "true").body(point)
+                        : ResponseEntity.ok(point))
+                .orElse(ResponseEntity.status(404).body(Map.of("error", "No result found")));
+    }
+}
@@ -0,0 +1,27 @@
+package com.location.controller;
+
+import com.location.http.UpstreamClients;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/upstream")
+public class UpstreamController {
+
+    private final UpstreamClients upstreamClients;
+
+    public UpstreamController(UpstreamClients upstreamClients) {
+        this.upstreamClients = upstreamClients;
+    }
+
+    /**
+     * Connection pool usage per upstream endpoint type.
+     */
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        return upstreamClients.stats();
+    }
+}
@@ -0,0 +1,12 @@
+package com.location.dto;
+
+public class BulkDistanceRequest {
+    public Double lat;       // Origin, for one-to-many requests
+    public Double lng;
+    public double[] lats;    // Targets
+    public double[] lngs;
+    public double[] sourceLats; // Sources, for many-to-many requests (instead of lat/lng)
+    public double[] sourceLngs;
+    public Integer topK;     // Optional, one-to-many only: only the k nearest targets
+    public Double radiusKm;  // Optional, one-to-many only: only targets within this radius
+}
@@ -0,0 +1,7 @@
+package com.location.dto;
+
+public class BulkDistanceResponse {
+    public int[] indices;          // Target indices, nearest first (topK / radius queries only)
+    public double[] distancesKm;   // Aligned with indices, or with the targets when indices is absent;
+                                   // row-major (source * targets + target) for many-to-many requests
+}
@@ -0,0 +1,9 @@
+package com.location.dto;
+
+import java.util.List;
+
+public class DistanceMatrixRequest {
+    public List<String> origins;
+    public List<String> destinations;
+    public String mode; // Optional, defaults to driving
+}
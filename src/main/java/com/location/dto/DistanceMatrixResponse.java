@@ -0,0 +1,16 @@
+package com.location.dto;
+
+import java.util.Map;
+
+public class DistanceMatrixResponse {
+    public String mode;
+    public int rows;
+    public int cols;
+    public int[] meters;  // Row-major (origin * cols + destination), -1 where there is no route
+    public int[] seconds; // Same layout as meters
+    public Map<String, Integer> statusCounts;
+
+    public int index(int origin, int destination) {
+        return origin * cols + destination;
+    }
+}
@@ -1,6 +1,9 @@
 package com.location.dto;
 
+import java.util.List;
+
 public class DistanceRequest {
     public String origin;
     public String destination;
+    public List<String> modes; // Optional, defaults to driving, walking and bicycling
 }
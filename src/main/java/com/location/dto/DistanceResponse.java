@@ -1,11 +1,16 @@
 package com.location.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.Map;
 
 public class DistanceResponse {
     public Map<String, TravelInfo> travelModes;
+    @JsonIgnore
+    public boolean stale; // Some mode is an expired cache answer served because Google failed; sent as X-Stale
 
     public static class TravelInfo {
+        public String status; // OK, an element status such as NOT_FOUND, TIMEOUT or ERROR
         public String distanceText;
         public long distanceValue;
         public String durationText;
@@ -0,0 +1,6 @@
+package com.location.dto;
+
+public class GeofenceBatchRequest {
+    public double[] lats;
+    public double[] lngs;  // Same length as lats
+}
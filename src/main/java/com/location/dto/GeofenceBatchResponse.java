@@ -0,0 +1,7 @@
+package com.location.dto;
+
+import java.util.List;
+
+public class GeofenceBatchResponse {
+    public List<List<String>> zones;  // Per input point, the ids of the zones containing it
+}
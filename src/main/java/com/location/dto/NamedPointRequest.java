@@ -0,0 +1,7 @@
+package com.location.dto;
+
+public class NamedPointRequest {
+    public Double lat;
+    public Double lng;
+    public String address; // Used instead of lat/lng when they are absent
+}
@@ -0,0 +1,10 @@
+package com.location.dto;
+
+import java.util.List;
+
+public class RouteRequest {
+    public String start;
+    public List<String> stops;
+    public String mode;        // Optional, defaults to driving
+    public Boolean roundTrip;  // Optional: end back at start, defaults to false
+}
@@ -0,0 +1,25 @@
+package com.location.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public class RouteResponse {
+    public String mode;
+    public boolean roundTrip;
+    public List<Integer> order;      // Indices into the request's stops, in visiting order
+    public List<String> stops;       // The stops themselves, in visiting order
+    public long totalSeconds;
+    public long totalMeters;
+    public List<Leg> legs;
+    public int matrixElements;       // Distance Matrix elements fetched for this route
+    public int estimatedLegs;        // Legs whose cost was estimated rather than fetched
+    public Map<String, Object> solver;
+
+    public static class Leg {
+        public String from;
+        public String to;
+        public String status;        // OK, ESTIMATED (haversine-based) or NO_ROUTE
+        public long seconds;
+        public long meters;
+    }
+}
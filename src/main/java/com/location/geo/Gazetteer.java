@@ -0,0 +1,677 @@
+package com.location.geo;
+
+import com.location.cache.GeocodeCache;
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Offline geocoder for coarse queries, loaded from GeoNames dumps: a cities
+ * file ({@code cities15000.txt} or similar), optionally {@code admin1CodesASCII.txt},
+ * {@code countryInfo.txt} and a postal code file. It answers "City",
+ * "City, Country", "City, State[, Country]", a bare postal code (optionally
+ * followed by a country), city-level reverse lookups and its own
+ * {@code geonames:<id>} place ids. Anything else, and any match that is not
+ * clearly better than the alternatives, is left to Google.
+ * <p>
+ * Places live in parallel primitive arrays, with admin and country names
+ * interned into shared tables. Names (including alternate names) are indexed
+ * by a 64-bit hash of their normalized form, sorted for binary search; reverse
+ * lookups scan a 1-degree grid stored as one sorted array plus cell offsets.
+ */
+@Component
+public class Gazetteer implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(Gazetteer.class);
+
+    public static final String PLACE_ID_PREFIX = "geonames:";
+
+    private static final int GRID_COLS = 360;
+    private static final int GRID_ROWS = 180;
+    private static final double KM_PER_DEGREE = Math.toRadians(1) * Haversine.EARTH_RADIUS_KM;
+    // Entries for one postal code further apart than this are different places
+    private static final double POSTAL_SPREAD_KM = 10;
+
+    private final boolean enabled;
+    private final String citiesPath;
+    private final String admin1Path;
+    private final String countriesPath;
+    private final String postalCodesPath;
+    private final int minPopulation;
+    private final double minDominance;
+    private final double reverseMaxKm;
+
+    private volatile Data data;
+
+    private final LongAdder forwardHits = new LongAdder();
+    private final LongAdder forwardMisses = new LongAdder();
+    private final LongAdder reverseHits = new LongAdder();
+    private final LongAdder reverseMisses = new LongAdder();
+
+    public Gazetteer(
+            @Value("${geocoding.gazetteer.enabled:false}") boolean enabled,
+            @Value("${geocoding.gazetteer.cities-path:data/geonames/cities15000.txt}") String citiesPath,
+            @Value("${geocoding.gazetteer.admin1-path:}") String admin1Path,
+            @Value("${geocoding.gazetteer.countries-path:}") String countriesPath,
+            @Value("${geocoding.gazetteer.postal-codes-path:}") String postalCodesPath,
+            @Value("${geocoding.gazetteer.min-population:1000}") int minPopulation,
+            @Value("${geocoding.gazetteer.min-dominance:10}") double minDominance,
+            @Value("${geocoding.gazetteer.reverse-max-km:20}") double reverseMaxKm
+    ) {
+        if (!(reverseMaxKm > 0 && reverseMaxKm <= 500)) {
+            throw new IllegalArgumentException("geocoding.gazetteer.reverse-max-km must be in (0, 500]");
+        }
+        this.enabled = enabled;
+        this.citiesPath = citiesPath;
+        this.admin1Path = admin1Path;
+        this.countriesPath = countriesPath;
+        this.postalCodesPath = postalCodesPath;
+        this.minPopulation = minPopulation;
+        this.minDominance = minDominance;
+        this.reverseMaxKm = reverseMaxKm;
+    }
+
+    @PostConstruct
+    void load() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        Loader loader = new Loader();
+        loader.countries(optionalPath(countriesPath));
+        loader.admin1(optionalPath(admin1Path));
+        loader.cities(Path.of(citiesPath), minPopulation);
+        loader.postalCodes(optionalPath(postalCodesPath));
+        data = loader.build();
+        logger.info("Gazetteer loaded {} places and {} postal codes in {} ms", data.places.size,
+                data.postal.size, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    public boolean isEnabled() {
+        return data != null;
+    }
+
+    /**
+     * Resolves a coarse free-text query, or returns empty when the query is not
+     * coarse or not resolved with confidence.
+     */
+    public Optional<GeoPoint> geocode(String query) {
+        Data current = data;
+        if (current == null || query == null) {
+            return Optional.empty();
+        }
+        Optional<GeoPoint> result = current.geocode(query, minDominance);
+        (result.isPresent() ? forwardHits : forwardMisses).increment();
+        return result;
+    }
+
+    /**
+     * The nearest place within {@code geocoding.gazetteer.reverse-max-km}.
+     */
+    public Optional<GeoPoint> locality(double lat, double lng) {
+        Data current = data;
+        if (current == null) {
+            return Optional.empty();
+        }
+        Optional<GeoPoint> result = current.nearest(lat, lng, reverseMaxKm);
+        (result.isPresent() ? reverseHits : reverseMisses).increment();
+        return result;
+    }
+
+    public static boolean isOwnPlaceId(String placeId) {
+        return placeId != null && placeId.startsWith(PLACE_ID_PREFIX);
+    }
+
+    public Optional<GeoPoint> byPlaceId(String placeId) {
+        Data current = data;
+        if (current == null || !isOwnPlaceId(placeId)) {
+            return Optional.empty();
+        }
+        try {
+            return current.byGeonameId(Integer.parseInt(placeId.substring(PLACE_ID_PREFIX.length())));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Data current = data;
+        stats.put("enabled", current != null);
+        stats.put("places", current == null ? 0 : current.places.size);
+        stats.put("postalCodes", current == null ? 0 : current.postal.size);
+        stats.put("forwardHits", forwardHits.sum());
+        stats.put("forwardMisses", forwardMisses.sum());
+        stats.put("reverseHits", reverseHits.sum());
+        stats.put("reverseMisses", reverseMisses.sum());
+        return stats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("gazetteer.places", this, g -> g.data == null ? 0 : g.data.places.size).register(registry);
+        Gauge.builder("gazetteer.postal.codes", this, g -> g.data == null ? 0 : g.data.postal.size).register(registry);
+        FunctionCounter.builder("gazetteer.lookups", forwardHits, LongAdder::sum)
+                .tags("kind", "address", "result", "hit").register(registry);
+        FunctionCounter.builder("gazetteer.lookups", forwardMisses, LongAdder::sum)
+                .tags("kind", "address", "result", "miss").register(registry);
+        FunctionCounter.builder("gazetteer.lookups", reverseHits, LongAdder::sum)
+                .tags("kind", "reverse", "result", "hit").register(registry);
+        FunctionCounter.builder("gazetteer.lookups", reverseMisses, LongAdder::sum)
+                .tags("kind", "reverse", "result", "miss").register(registry);
+    }
+
+    private static Path optionalPath(String path) {
+        return path == null || path.isBlank() ? null : Path.of(path);
+    }
+
+    /**
+     * 64-bit FNV-1a over the normalized form; with a few million names a
+     * collision is vanishingly unlikely.
+     */
+    static long nameHash(String normalized) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalized.length(); i++) {
+            h ^= normalized.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static String postalKey(String code) {
+        return GeocodeCache.normalizeAddress(code).replace(" ", "");
+    }
+
+    private static int gridCell(double lat, double lng) {
+        int row = Math.min(GRID_ROWS - 1, Math.max(0, (int) Math.floor(lat + 90)));
+        int col = Math.floorMod((int) Math.floor(lng + 180), GRID_COLS);
+        return row * GRID_COLS + col;
+    }
+
+    /**
+     * Places or postal codes in parallel arrays, with a hash index over their
+     * names: {@code keys} sorted, {@code entries[i]} the entry with hash {@code keys[i]}.
+     */
+    private static final class Table {
+        int size;
+        // Microdegrees: exact for GeoNames' coordinates and half the size of doubles
+        int[] lat = new int[1024];
+        int[] lng = new int[1024];
+        int[] population = new int[1024];
+        int[] geonameId = new int[1024];
+        String[] name = new String[1024];
+        String[] code = new String[1024];
+        int[] country = new int[1024];
+        int[] admin1 = new int[1024];
+
+        long[] keys = new long[1024];
+        int[] entries = new int[1024];
+        int keyCount;
+
+        int add(double latitude, double longitude) {
+            if (size == lat.length) {
+                int capacity = size * 2;
+                lat = Arrays.copyOf(lat, capacity);
+                lng = Arrays.copyOf(lng, capacity);
+                population = Arrays.copyOf(population, capacity);
+                geonameId = Arrays.copyOf(geonameId, capacity);
+                name = Arrays.copyOf(name, capacity);
+                code = Arrays.copyOf(code, capacity);
+                country = Arrays.copyOf(country, capacity);
+                admin1 = Arrays.copyOf(admin1, capacity);
+            }
+            lat[size] = (int) Math.round(latitude * 1e6);
+            lng[size] = (int) Math.round(longitude * 1e6);
+            admin1[size] = -1;
+            return size++;
+        }
+
+        void index(long key, int entry) {
+            if (keyCount == keys.length) {
+                keys = Arrays.copyOf(keys, keyCount * 2);
+                entries = Arrays.copyOf(entries, keyCount * 2);
+            }
+            keys[keyCount] = key;
+            entries[keyCount] = entry;
+            keyCount++;
+        }
+
+        /**
+         * Sorts the index by key, keeping each key's entries in insertion order.
+         */
+        void sortIndex() {
+            Integer[] order = new Integer[keyCount];
+            for (int i = 0; i < keyCount; i++) {
+                order[i] = i;
+            }
+            long[] k = keys;
+            // Stable, so entries sharing a key keep their file order
+            Arrays.sort(order, Comparator.comparingLong(i -> k[i]));
+            long[] sortedKeys = new long[keyCount];
+            int[] sortedEntries = new int[keyCount];
+            for (int i = 0; i < keyCount; i++) {
+                sortedKeys[i] = keys[order[i]];
+                sortedEntries[i] = entries[order[i]];
+            }
+            keys = sortedKeys;
+            entries = sortedEntries;
+        }
+
+        double lat(int i) {
+            return lat[i] / 1e6;
+        }
+
+        double lng(int i) {
+            return lng[i] / 1e6;
+        }
+
+        List<Integer> find(long key) {
+            int at = Arrays.binarySearch(keys, 0, keyCount, key);
+            if (at < 0) {
+                return List.of();
+            }
+            while (at > 0 && keys[at - 1] == key) {
+                at--;
+            }
+            List<Integer> found = new ArrayList<>(4);
+            for (int i = at; i < keyCount && keys[i] == key; i++) {
+                found.add(entries[i]);
+            }
+            return found;
+        }
+    }
+
+    private static final class Data {
+        final Table places;
+        final Table postal;
+        final String[] countryCodes;
+        final String[] countryNames;
+        final String[] admin1Names;
+        final String[] admin1Codes;
+        final int[] gridStart;
+        final int[] gridPlaces;
+        final int[] idsSorted;
+        final int[] idOrder;
+
+        Data(Table places, Table postal, String[] countryCodes, String[] countryNames,
+             String[] admin1Names, String[] admin1Codes) {
+            this.places = places;
+            this.postal = postal;
+            this.countryCodes = countryCodes;
+            this.countryNames = countryNames;
+            this.admin1Names = admin1Names;
+            this.admin1Codes = admin1Codes;
+
+            // Counting sort of places by grid cell
+            gridStart = new int[GRID_ROWS * GRID_COLS + 1];
+            int[] cellOf = new int[places.size];
+            for (int i = 0; i < places.size; i++) {
+                cellOf[i] = gridCell(places.lat(i), places.lng(i));
+                gridStart[cellOf[i] + 1]++;
+            }
+            for (int c = 0; c < GRID_ROWS * GRID_COLS; c++) {
+                gridStart[c + 1] += gridStart[c];
+            }
+            gridPlaces = new int[places.size];
+            int[] fill = Arrays.copyOf(gridStart, gridStart.length - 1);
+            for (int i = 0; i < places.size; i++) {
+                gridPlaces[fill[cellOf[i]]++] = i;
+            }
+
+            long[] byId = new long[places.size];
+            for (int i = 0; i < places.size; i++) {
+                byId[i] = ((long) places.geonameId[i] << 32) | i;
+            }
+            Arrays.sort(byId);
+            idsSorted = new int[places.size];
+            idOrder = new int[places.size];
+            for (int i = 0; i < places.size; i++) {
+                idsSorted[i] = (int) (byId[i] >> 32);
+                idOrder[i] = (int) byId[i];
+            }
+        }
+
+        Optional<GeoPoint> geocode(String query, double minDominance) {
+            String[] raw = query.split(",");
+            List<String> parts = new ArrayList<>(raw.length);
+            for (String part : raw) {
+                String normalized = GeocodeCache.normalizeAddress(part);
+                if (!normalized.isEmpty()) {
+                    parts.add(normalized);
+                }
+            }
+            if (parts.isEmpty() || parts.size() > 3) {
+                return Optional.empty();
+            }
+            for (int i = 1; i < parts.size(); i++) {
+                if (hasDigit(parts.get(i))) {
+                    return Optional.empty();
+                }
+            }
+            if (hasDigit(parts.getFirst())) {
+                return parts.size() <= 2 ? postalCode(parts) : Optional.empty();
+            }
+            return place(parts, minDominance);
+        }
+
+        private Optional<GeoPoint> place(List<String> parts, double minDominance) {
+            int best = -1;
+            int runnerUp = -1;
+            for (int candidate : places.find(nameHash(parts.getFirst()))) {
+                if (!qualifiersMatch(places, candidate, parts)) {
+                    continue;
+                }
+                if (best < 0 || places.population[candidate] > places.population[best]) {
+                    runnerUp = best;
+                    best = candidate;
+                } else if (runnerUp < 0 || places.population[candidate] > places.population[runnerUp]) {
+                    runnerUp = candidate;
+                }
+            }
+            if (best < 0) {
+                return Optional.empty();
+            }
+            if (runnerUp >= 0 && places.population[best] < minDominance * Math.max(1, places.population[runnerUp])) {
+                return Optional.empty();
+            }
+            return Optional.of(placePoint(best));
+        }
+
+        private Optional<GeoPoint> postalCode(List<String> parts) {
+            List<Integer> matches = new ArrayList<>();
+            for (int candidate : postal.find(nameHash(postalKey(parts.getFirst())))) {
+                if (qualifiersMatch(postal, candidate, parts)) {
+                    matches.add(candidate);
+                }
+            }
+            if (matches.isEmpty()) {
+                return Optional.empty();
+            }
+            int first = matches.getFirst();
+            for (int other : matches) {
+                if (postal.country[other] != postal.country[first]
+                        || Haversine.distanceKm(postal.lat(first), postal.lng(first), postal.lat(other), postal.lng(other))
+                        > POSTAL_SPREAD_KM) {
+                    return Optional.empty();
+                }
+            }
+            String admin = postal.admin1[first] < 0 ? null : admin1Names[postal.admin1[first]];
+            String countryName = countryNames[postal.country[first]];
+            String code = postal.code[first];
+            String formatted = join(postal.name[first], admin == null ? code : admin + " " + code, countryName);
+            return Optional.of(new GeoPoint(postal.lat(first), postal.lng(first), formatted, "APPROXIMATE", false,
+                    null, null, null, postal.name[first], admin, countryName, code));
+        }
+
+        /**
+         * Every part after the first must name the entry's country (name or
+         * ISO code) or first-level admin area (name or code).
+         */
+        private boolean qualifiersMatch(Table table, int entry, List<String> parts) {
+            for (int i = 1; i < parts.size(); i++) {
+                String part = parts.get(i);
+                int country = table.country[entry];
+                int admin = table.admin1[entry];
+                boolean matches = part.equals(normalize(countryNames[country]))
+                        || part.equals(normalize(countryCodes[country]))
+                        || admin >= 0 && (part.equals(normalize(admin1Names[admin]))
+                        || part.equals(normalize(admin1Codes[admin])));
+                if (!matches) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Optional<GeoPoint> nearest(double lat, double lng, double maxKm) {
+            double latSpan = maxKm / KM_PER_DEGREE;
+            int rowFrom = (int) Math.floor(Math.max(-90, lat - latSpan) + 90);
+            int rowTo = Math.min(GRID_ROWS - 1, (int) Math.floor(Math.min(90, lat + latSpan) + 90));
+            double cos = Math.cos(Math.toRadians(Math.min(89.9, Math.abs(lat) + latSpan)));
+            int colSpan = (int) Math.min(GRID_COLS / 2, Math.ceil(latSpan / cos) + 1);
+            int centre = Math.floorMod((int) Math.floor(lng + 180), GRID_COLS);
+
+            int best = -1;
+            double bestKm = maxKm;
+            for (int row = Math.max(0, rowFrom); row <= rowTo; row++) {
+                for (int dc = -colSpan; dc <= colSpan; dc++) {
+                    if (colSpan == GRID_COLS / 2 && dc == colSpan) {
+                        break;
+                    }
+                    int cell = row * GRID_COLS + Math.floorMod(centre + dc, GRID_COLS);
+                    for (int i = gridStart[cell]; i < gridStart[cell + 1]; i++) {
+                        int place = gridPlaces[i];
+                        double km = Haversine.distanceKm(lat, lng, places.lat(place), places.lng(place));
+                        if (km <= bestKm) {
+                            bestKm = km;
+                            best = place;
+                        }
+                    }
+                }
+            }
+            return best < 0 ? Optional.empty() : Optional.of(placePoint(best));
+        }
+
+        Optional<GeoPoint> byGeonameId(int id) {
+            int at = Arrays.binarySearch(idsSorted, id);
+            return at < 0 ? Optional.empty() : Optional.of(placePoint(idOrder[at]));
+        }
+
+        private GeoPoint placePoint(int i) {
+            String admin = places.admin1[i] < 0 ? null : admin1Names[places.admin1[i]];
+            String countryName = countryNames[places.country[i]];
+            return new GeoPoint(places.lat(i), places.lng(i), join(places.name[i], admin, countryName),
+                    "APPROXIMATE", false, PLACE_ID_PREFIX + places.geonameId[i],
+                    null, null, places.name[i], admin, countryName, null);
+        }
+
+        private static String join(String... parts) {
+            StringBuilder sb = new StringBuilder();
+            String previous = null;
+            for (String part : parts) {
+                if (part == null || part.isEmpty() || part.equals(previous)) {
+                    continue;
+                }
+                if (!sb.isEmpty()) {
+                    sb.append(", ");
+                }
+                sb.append(part);
+                previous = part;
+            }
+            return sb.toString();
+        }
+
+        private static String normalize(String s) {
+            return s == null ? "" : GeocodeCache.normalizeAddress(s);
+        }
+
+        private static boolean hasDigit(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                if (Character.isDigit(s.charAt(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Reads the GeoNames files into tables. Repeated strings (admin and
+     * country names, common place names) share one instance.
+     */
+    private static final class Loader {
+        private final Map<String, String> strings = new HashMap<>();
+        private final Map<String, Integer> countries = new HashMap<>();
+        private final List<String> countryCodes = new ArrayList<>();
+        private final List<String> countryNames = new ArrayList<>();
+        private final Map<String, Integer> admin1 = new HashMap<>();
+        private final List<String> admin1Names = new ArrayList<>();
+        private final List<String> admin1Codes = new ArrayList<>();
+        private final Table places = new Table();
+        private final Table postal = new Table();
+
+        void countries(Path path) throws IOException {
+            if (path == null) {
+                return;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                for (String line; (line = reader.readLine()) != null; ) {
+                    if (line.startsWith("#")) {
+                        continue;
+                    }
+                    String[] f = line.split("\t", -1);
+                    if (f.length > 4 && !f[0].isEmpty()) {
+                        country(f[0], f[4]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * {@code admin1CodesASCII.txt}: {@code CC.code, name, ascii name, geonameid}.
+         */
+        void admin1(Path path) throws IOException {
+            if (path == null) {
+                return;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                for (String line; (line = reader.readLine()) != null; ) {
+                    String[] f = line.split("\t", -1);
+                    int dot = f[0].indexOf('.');
+                    if (f.length > 1 && dot > 0) {
+                        admin1(f[0], f[0].substring(dot + 1), f[1]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Main GeoNames table: geonameid, name, asciiname, alternatenames, latitude,
+         * longitude, feature class, feature code, country code, cc2, admin1 code, ...,
+         * population (column 14).
+         */
+        void cities(Path path, int minPopulation) throws IOException {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                for (String line; (line = reader.readLine()) != null; ) {
+                    String[] f = line.split("\t", -1);
+                    if (f.length < 15 || !"P".equals(f[6])) {
+                        continue;
+                    }
+                    int population = f[14].isEmpty() ? 0 : (int) Math.min(Integer.MAX_VALUE, Long.parseLong(f[14]));
+                    if (population < minPopulation) {
+                        continue;
+                    }
+                    int i = places.add(Double.parseDouble(f[4]), Double.parseDouble(f[5]));
+                    places.geonameId[i] = Integer.parseInt(f[0]);
+                    places.name[i] = intern(f[1]);
+                    places.population[i] = population;
+                    places.country[i] = country(f[8], null);
+                    Integer admin = admin1.get(f[8] + "." + f[10]);
+                    places.admin1[i] = admin == null ? -1 : admin;
+
+                    List<Long> seen = new ArrayList<>(8);
+                    indexName(places, i, f[1], seen);
+                    indexName(places, i, f[2], seen);
+                    if (!f[3].isEmpty()) {
+                        for (String alternate : f[3].split(",")) {
+                            indexName(places, i, alternate, seen);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * GeoNames postal codes: country code, postal code, place name, admin name1,
+         * admin code1, admin name2, admin code2, admin name3, admin code3, latitude, longitude, accuracy.
+         */
+        void postalCodes(Path path) throws IOException {
+            if (path == null) {
+                return;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                for (String line; (line = reader.readLine()) != null; ) {
+                    String[] f = line.split("\t", -1);
+                    if (f.length < 11 || f[1].isEmpty() || f[9].isEmpty() || f[10].isEmpty()) {
+                        continue;
+                    }
+                    int i = postal.add(Double.parseDouble(f[9]), Double.parseDouble(f[10]));
+                    postal.code[i] = intern(f[1]);
+                    postal.name[i] = intern(f[2]);
+                    postal.country[i] = country(f[0], null);
+                    Integer admin = admin1.get(f[0] + "." + f[4]);
+                    if (admin == null && !f[3].isEmpty()) {
+                        admin = admin1(f[0] + "." + f[4], f[4], f[3]);
+                    }
+                    postal.admin1[i] = admin == null ? -1 : admin;
+                    postal.index(nameHash(postalKey(f[1])), i);
+                }
+            }
+        }
+
+        Data build() {
+            places.sortIndex();
+            postal.sortIndex();
+            return new Data(places, postal, countryCodes.toArray(String[]::new), countryNames.toArray(String[]::new),
+                    admin1Names.toArray(String[]::new), admin1Codes.toArray(String[]::new));
+        }
+
+        private void indexName(Table table, int entry, String name, List<Long> seen) {
+            String normalized = GeocodeCache.normalizeAddress(name);
+            if (normalized.isEmpty()) {
+                return;
+            }
+            long hash = nameHash(normalized);
+            if (!seen.contains(hash)) {
+                seen.add(hash);
+                table.index(hash, entry);
+            }
+        }
+
+        private int country(String code, String name) {
+            Integer index = countries.get(code);
+            if (index == null) {
+                index = countryCodes.size();
+                countries.put(code, index);
+                countryCodes.add(intern(code));
+                countryNames.add(intern(name == null ? code : name));
+            }
+            return index;
+        }
+
+        private int admin1(String key, String code, String name) {
+            return admin1.computeIfAbsent(key, k -> {
+                admin1Codes.add(intern(code));
+                admin1Names.add(intern(name));
+                return admin1Names.size() - 1;
+            });
+        }
+
+        private String intern(String s) {
+            return strings.computeIfAbsent(s, k -> k);
+        }
+    }
+}
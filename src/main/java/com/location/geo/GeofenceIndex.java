@@ -0,0 +1,424 @@
+package com.location.geo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Named polygon zones answering "which zones contain this point". Every
+ * polygon of a zone is indexed in an R-tree of bounding boxes, bulk-loaded with
+ * Sort-Tile-Recursive packing, so a lookup only tests the polygons whose box
+ * contains the point. Each polygon keeps its edges in a flat array (lower y,
+ * upper y, x at lower y, dx/dy), bucketed into horizontal bands of its bounding
+ * box, so the even-odd crossing test only visits the edges spanning the
+ * point's band. Holes are just more rings to cross.
+ * <p>
+ * Coordinates are treated as planar lng/lat, so a zone crossing the
+ * antimeridian has to be split into two polygons. The tree is immutable and
+ * rebuilt on every change ({@link #putAll} rebuilds once for many zones);
+ * readers use whichever tree was current when they started and never block.
+ */
+public class GeofenceIndex {
+
+    public record Zone(String id, int polygons, int vertices,
+                       double minLat, double minLng, double maxLat, double maxLng) {}
+
+    static final int CHUNK = 4096;
+    private static final int MAX_BANDS = 1024;
+
+    private final int nodeCapacity;
+    private final int maxZones;
+    private final Map<String, Entry> zones = new HashMap<>();
+    private volatile Node root;
+    private volatile int depth;
+
+    private record Entry(Zone zone, List<Shape> shapes) {}
+
+    public GeofenceIndex(int nodeCapacity) {
+        this(nodeCapacity, Integer.MAX_VALUE);
+    }
+
+    /**
+     * An index refusing (with IllegalArgumentException) any change that would
+     * leave it holding more than {@code maxZones} zones.
+     */
+    public GeofenceIndex(int nodeCapacity, int maxZones) {
+        if (nodeCapacity < 2) {
+            throw new IllegalArgumentException("nodeCapacity must be at least 2");
+        }
+        this.nodeCapacity = nodeCapacity;
+        this.maxZones = maxZones;
+    }
+
+    /**
+     * Adds or replaces a zone. Each polygon is an array of rings (outer ring
+     * first, then holes), each ring a flat {@code [lng0, lat0, lng1, lat1, ...]}
+     * array; the closing vertex may be repeated or left out.
+     */
+    public Zone put(String id, List<double[][]> polygons) {
+        Entry entry = entry(id, polygons);
+        synchronized (zones) {
+            checkCapacity(zones.containsKey(id) ? 0 : 1);
+            zones.put(id, entry);
+            rebuild();
+        }
+        return entry.zone;
+    }
+
+    public List<Zone> putAll(Map<String, List<double[][]>> polygonsById) {
+        List<Entry> entries = new ArrayList<>(polygonsById.size());
+        polygonsById.forEach((id, polygons) -> entries.add(entry(id, polygons)));
+        synchronized (zones) {
+            checkCapacity((int) polygonsById.keySet().stream().filter(id -> !zones.containsKey(id)).count());
+            entries.forEach(e -> zones.put(e.zone.id(), e));
+            rebuild();
+        }
+        return entries.stream().map(Entry::zone).toList();
+    }
+
+    public boolean remove(String id) {
+        synchronized (zones) {
+            if (zones.remove(id) == null) {
+                return false;
+            }
+            rebuild();
+            return true;
+        }
+    }
+
+    public Optional<Zone> get(String id) {
+        synchronized (zones) {
+            Entry entry = zones.get(id);
+            return entry == null ? Optional.empty() : Optional.of(entry.zone);
+        }
+    }
+
+    public List<Zone> zones() {
+        synchronized (zones) {
+            List<Zone> all = new ArrayList<>(zones.size());
+            zones.values().forEach(e -> all.add(e.zone));
+            all.sort(Comparator.comparing(Zone::id));
+            return all;
+        }
+    }
+
+    public int size() {
+        synchronized (zones) {
+            return zones.size();
+        }
+    }
+
+    /**
+     * Ids of the zones containing the point, sorted.
+     */
+    public List<String> containing(double lat, double lng) {
+        return containing(root, lat, lng);
+    }
+
+    /**
+     * {@link #containing(double, double)} for every point; large batches are
+     * split into chunks checked in parallel on the common fork-join pool.
+     */
+    public List<List<String>> containing(double[] lats, double[] lngs) {
+        if (lats.length != lngs.length) {
+            throw new IllegalArgumentException("lats and lngs must have the same length");
+        }
+        Node tree = root;
+        int n = lats.length;
+        List<String>[] out = newResultArray(n);
+        int chunks = (n + CHUNK - 1) / CHUNK;
+        IntStream range = IntStream.range(0, chunks);
+        (chunks > 1 ? range.parallel() : range).forEach(c -> {
+            for (int i = c * CHUNK, to = Math.min(i + CHUNK, n); i < to; i++) {
+                out[i] = containing(tree, lats[i], lngs[i]);
+            }
+        });
+        return List.of(out);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (zones) {
+            stats.put("zones", zones.size());
+            stats.put("polygons", zones.values().stream().mapToInt(e -> e.shapes.size()).sum());
+            stats.put("edges", zones.values().stream().flatMap(e -> e.shapes.stream()).mapToInt(Shape::edgeCount).sum());
+        }
+        stats.put("depth", depth);
+        stats.put("nodeCapacity", nodeCapacity);
+        return stats;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String>[] newResultArray(int n) {
+        return (List<String>[]) new List<?>[n];
+    }
+
+    private static List<String> containing(Node tree, double lat, double lng) {
+        if (tree == null) {
+            return List.of();
+        }
+        List<String> found = new ArrayList<>(2);
+        search(tree, lng, lat, found);
+        if (found.size() > 1) {
+            Collections.sort(found);
+        }
+        return found;
+    }
+
+    private static void search(Node node, double x, double y, List<String> found) {
+        double[] b = node.bounds;
+        for (int i = 0, o = 0; o < b.length; i++, o += 4) {
+            if (x < b[o] || y < b[o + 1] || x > b[o + 2] || y > b[o + 3]) {
+                continue;
+            }
+            if (node.children != null) {
+                search(node.children[i], x, y, found);
+            } else {
+                Shape shape = node.shapes[i];
+                // A zone made of several polygons is reported once
+                if (shape.contains(x, y) && !found.contains(shape.id)) {
+                    found.add(shape.id);
+                }
+            }
+        }
+    }
+
+    private static Entry entry(String id, List<double[][]> polygons) {
+        if (id == null || id.isBlank()) {
+            throw new IllegalArgumentException("Zone id must not be blank");
+        }
+        if (polygons == null || polygons.isEmpty()) {
+            throw new IllegalArgumentException("Zone " + id + " has no polygons");
+        }
+        List<Shape> shapes = new ArrayList<>(polygons.size());
+        int vertices = 0;
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (double[][] rings : polygons) {
+            Shape shape = new Shape(id, rings);
+            shapes.add(shape);
+            for (double[] ring : rings) {
+                vertices += ring.length / 2;
+            }
+            minX = Math.min(minX, shape.minX);
+            minY = Math.min(minY, shape.minY);
+            maxX = Math.max(maxX, shape.maxX);
+            maxY = Math.max(maxY, shape.maxY);
+        }
+        return new Entry(new Zone(id, shapes.size(), vertices, minY, minX, maxY, maxX), List.copyOf(shapes));
+    }
+
+    // Callers hold the zones lock
+
+    private void checkCapacity(int added) {
+        if (added > 0 && zones.size() + added > maxZones) {
+            throw new IllegalArgumentException("At most " + maxZones + " zones can be registered");
+        }
+    }
+    private void rebuild() {
+        List<Shape> shapes = new ArrayList<>();
+        zones.values().forEach(e -> shapes.addAll(e.shapes));
+        if (shapes.isEmpty()) {
+            root = null;
+            depth = 0;
+            return;
+        }
+        List<Node> level = new ArrayList<>();
+        for (List<Shape> group : strGroups(shapes, s -> (s.minX + s.maxX) / 2, s -> (s.minY + s.maxY) / 2)) {
+            level.add(Node.leaf(group));
+        }
+        int levels = 1;
+        while (level.size() > 1) {
+            List<Node> parents = new ArrayList<>();
+            for (List<Node> group : strGroups(level, n -> (n.minX + n.maxX) / 2, n -> (n.minY + n.maxY) / 2)) {
+                parents.add(Node.inner(group));
+            }
+            level = parents;
+            levels++;
+        }
+        root = level.get(0);
+        depth = levels;
+    }
+
+    /**
+     * Sort-Tile-Recursive grouping: sort by x, cut into vertical slices of
+     * whole nodes, sort each slice by y and cut it into nodes.
+     */
+    private <T> List<List<T>> strGroups(List<T> items, ToDoubleFunction<T> x, ToDoubleFunction<T> y) {
+        int nodes = (items.size() + nodeCapacity - 1) / nodeCapacity;
+        int slices = (int) Math.ceil(Math.sqrt(nodes));
+        int perSlice = slices * nodeCapacity;
+        List<T> sorted = new ArrayList<>(items);
+        sorted.sort(Comparator.comparingDouble(x));
+        List<List<T>> groups = new ArrayList<>(nodes);
+        for (int s = 0; s < sorted.size(); s += perSlice) {
+            List<T> slice = new ArrayList<>(sorted.subList(s, Math.min(s + perSlice, sorted.size())));
+            slice.sort(Comparator.comparingDouble(y));
+            for (int g = 0; g < slice.size(); g += nodeCapacity) {
+                groups.add(slice.subList(g, Math.min(g + nodeCapacity, slice.size())));
+            }
+        }
+        return groups;
+    }
+
+    private static final class Node {
+        final double minX, minY, maxX, maxY;
+        // minX, minY, maxX, maxY of each child
+        final double[] bounds;
+        final Node[] children;
+        final Shape[] shapes;
+
+        private Node(double[] bounds, Node[] children, Shape[] shapes) {
+            this.bounds = bounds;
+            this.children = children;
+            this.shapes = shapes;
+            double x0 = Double.MAX_VALUE, y0 = Double.MAX_VALUE, x1 = -Double.MAX_VALUE, y1 = -Double.MAX_VALUE;
+            for (int o = 0; o < bounds.length; o += 4) {
+                x0 = Math.min(x0, bounds[o]);
+                y0 = Math.min(y0, bounds[o + 1]);
+                x1 = Math.max(x1, bounds[o + 2]);
+                y1 = Math.max(y1, bounds[o + 3]);
+            }
+            this.minX = x0;
+            this.minY = y0;
+            this.maxX = x1;
+            this.maxY = y1;
+        }
+
+        static Node leaf(List<Shape> shapes) {
+            double[] bounds = new double[shapes.size() * 4];
+            for (int i = 0; i < shapes.size(); i++) {
+                Shape s = shapes.get(i);
+                bounds[i * 4] = s.minX;
+                bounds[i * 4 + 1] = s.minY;
+                bounds[i * 4 + 2] = s.maxX;
+                bounds[i * 4 + 3] = s.maxY;
+            }
+            return new Node(bounds, null, shapes.toArray(Shape[]::new));
+        }
+
+        static Node inner(List<Node> children) {
+            double[] bounds = new double[children.size() * 4];
+            for (int i = 0; i < children.size(); i++) {
+                Node n = children.get(i);
+                bounds[i * 4] = n.minX;
+                bounds[i * 4 + 1] = n.minY;
+                bounds[i * 4 + 2] = n.maxX;
+                bounds[i * 4 + 3] = n.maxY;
+            }
+            return new Node(bounds, children.toArray(Node[]::new), null);
+        }
+    }
+
+    /**
+     * One polygon with its holes, ready for crossing tests.
+     */
+    static final class Shape {
+        final String id;
+        final double minX, minY, maxX, maxY;
+        // Per non-horizontal edge: lower y, upper y, x at lower y, dx/dy
+        private final double[] edges;
+        // Edges overlapping band b are bandEdges[bandStart[b] .. bandStart[b + 1])
+        private final int[] bandStart;
+        private final int[] bandEdges;
+        private final double bandHeight;
+
+        Shape(String id, double[][] rings) {
+            if (rings == null || rings.length == 0) {
+                throw new IllegalArgumentException("Zone " + id + " has a polygon without rings");
+            }
+            this.id = id;
+            int capacity = 0;
+            for (double[] ring : rings) {
+                if (ring == null || ring.length % 2 != 0 || ring.length < 6) {
+                    throw new IllegalArgumentException("Zone " + id + " has a ring with fewer than three vertices");
+                }
+                capacity += ring.length / 2;
+            }
+            double[] e = new double[capacity * 4];
+            int count = 0;
+            double x0 = Double.MAX_VALUE, y0 = Double.MAX_VALUE, x1 = -Double.MAX_VALUE, y1 = -Double.MAX_VALUE;
+            for (double[] ring : rings) {
+                int m = ring.length / 2;
+                for (int i = 0; i < m; i++) {
+                    double ax = ring[2 * i], ay = ring[2 * i + 1];
+                    int j = (i + 1) % m;
+                    double bx = ring[2 * j], by = ring[2 * j + 1];
+                    if (!(ax >= -180 && ax <= 180 && ay >= -90 && ay <= 90)) {
+                        throw new IllegalArgumentException("Zone " + id + " has a vertex outside lng/lat bounds");
+                    }
+                    x0 = Math.min(x0, ax);
+                    y0 = Math.min(y0, ay);
+                    x1 = Math.max(x1, ax);
+                    y1 = Math.max(y1, ay);
+                    if (ay == by) {
+                        // Horizontal edges (and a repeated closing vertex) never cross a horizontal ray
+                        continue;
+                    }
+                    boolean up = ay < by;
+                    double lowX = up ? ax : bx;
+                    e[count * 4] = Math.min(ay, by);
+                    e[count * 4 + 1] = Math.max(ay, by);
+                    e[count * 4 + 2] = lowX;
+                    e[count * 4 + 3] = (bx - ax) / (by - ay);
+                    count++;
+                }
+            }
+            this.minX = x0;
+            this.minY = y0;
+            this.maxX = x1;
+            this.maxY = y1;
+            this.edges = count * 4 == e.length ? e : Arrays.copyOf(e, count * 4);
+
+            int bands = Math.max(1, Math.min(MAX_BANDS, count / 4));
+            this.bandHeight = y1 > y0 ? (y1 - y0) / bands : 1;
+            this.bandStart = new int[bands + 1];
+            for (int k = 0; k < count; k++) {
+                for (int b = band(edges[k * 4]), last = band(edges[k * 4 + 1]); b <= last; b++) {
+                    bandStart[b + 1]++;
+                }
+            }
+            for (int b = 0; b < bands; b++) {
+                bandStart[b + 1] += bandStart[b];
+            }
+            this.bandEdges = new int[bandStart[bands]];
+            int[] fill = Arrays.copyOf(bandStart, bands);
+            for (int k = 0; k < count; k++) {
+                for (int b = band(edges[k * 4]), last = band(edges[k * 4 + 1]); b <= last; b++) {
+                    bandEdges[fill[b]++] = k;
+                }
+            }
+        }
+
+        int edgeCount() {
+            return edges.length / 4;
+        }
+
+        private int band(double y) {
+            return Math.min(bandStart.length - 2, Math.max(0, (int) ((y - minY) / bandHeight)));
+        }
+
+        boolean contains(double x, double y) {
+            if (x < minX || x > maxX || y < minY || y > maxY) {
+                return false;
+            }
+            boolean inside = false;
+            int b = band(y);
+            for (int k = bandStart[b], end = bandStart[b + 1]; k < end; k++) {
+                int o = bandEdges[k] * 4;
+                // Half-open in y so a ray through a vertex counts it once
+                if (y >= edges[o] && y < edges[o + 1] && x < edges[o + 2] + (y - edges[o]) * edges[o + 3]) {
+                    inside = !inside;
+                }
+            }
+            return inside;
+        }
+    }
+}
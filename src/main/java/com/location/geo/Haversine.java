@@ -0,0 +1,107 @@
+package com.location.geo;
+
+/**
+ * Great-circle distance math shared by the single-pair and bulk code paths.
+ * <p>
+ * The bulk kernels work on {@link PointSet}s, whose radians and cosines are
+ * computed once per point instead of once per pair, and rank candidates by the
+ * haversine term {@code a} (which grows monotonically with distance) so the
+ * costly {@code atan2}/{@code sqrt} only runs for points that are kept.
+ */
+public final class Haversine {
+
+    public static final double EARTH_RADIUS_KM = 6371;
+
+    private Haversine() {
+    }
+
+    public static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                        Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return toKm(a);
+    }
+
+    /**
+     * Converts a haversine term to kilometres.
+     */
+    public static double toKm(double a) {
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_KM * c;
+    }
+
+    /**
+     * The haversine term corresponding to a distance, for radius comparisons.
+     */
+    public static double termForKm(double km) {
+        if (km >= Math.PI * EARTH_RADIUS_KM) {
+            return 1;
+        }
+        double s = Math.sin(km / (2 * EARTH_RADIUS_KM));
+        return s * s;
+    }
+
+    /**
+     * Writes the haversine term between the origin and targets[from, to) into out[from, to).
+     */
+    public static void terms(double latRad, double lngRad, double cosLat, PointSet targets,
+                             double[] out, int from, int to) {
+        double[] lats = targets.latRad;
+        double[] lngs = targets.lngRad;
+        double[] cos = targets.cosLat;
+        for (int i = from; i < to; i++) {
+            double sLat = Math.sin((lats[i] - latRad) * 0.5);
+            double sLng = Math.sin((lngs[i] - lngRad) * 0.5);
+            out[i] = sLat * sLat + cosLat * cos[i] * sLng * sLng;
+        }
+    }
+
+    /**
+     * Points stored as flat primitive arrays of radians with their latitude cosines precomputed.
+     */
+    public static final class PointSet {
+        final double[] latRad;
+        final double[] lngRad;
+        final double[] cosLat;
+
+        private PointSet(double[] latRad, double[] lngRad, double[] cosLat) {
+            this.latRad = latRad;
+            this.lngRad = lngRad;
+            this.cosLat = cosLat;
+        }
+
+        public static PointSet ofDegrees(double[] lats, double[] lngs) {
+            if (lats.length != lngs.length) {
+                throw new IllegalArgumentException("lats and lngs must have the same length");
+            }
+            int n = lats.length;
+            double[] latRad = new double[n];
+            double[] lngRad = new double[n];
+            double[] cosLat = new double[n];
+            for (int i = 0; i < n; i++) {
+                latRad[i] = Math.toRadians(lats[i]);
+                lngRad[i] = Math.toRadians(lngs[i]);
+                cosLat[i] = Math.cos(latRad[i]);
+            }
+            return new PointSet(latRad, lngRad, cosLat);
+        }
+
+        public int size() {
+            return latRad.length;
+        }
+
+        public double latRad(int i) {
+            return latRad[i];
+        }
+
+        public double lngRad(int i) {
+            return lngRad[i];
+        }
+
+        public double cosLat(int i) {
+            return cosLat[i];
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.location.geo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Named points bucketed into a fixed lat/lng grid. Updates and reads only touch
+ * the buckets involved, so writers never block readers elsewhere in the grid.
+ * Radius queries scan the cells overlapping the query's bounding box; k-nearest
+ * queries run radius queries with a doubling radius until k points are found.
+ */
+public class SpatialIndex {
+
+    public record Point(String name, double lat, double lng) {}
+
+    public record Neighbour(String name, double lat, double lng, double distanceKm) {}
+
+    private static final double KM_PER_DEGREE = Math.toRadians(1) * Haversine.EARTH_RADIUS_KM;
+
+    private final double cellSizeDeg;
+    private final int rows;
+    private final int cols;
+    private final Map<String, Entry> byName = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Entry>> cells = new ConcurrentHashMap<>();
+
+    private record Entry(Point point, long cell) {}
+
+    public SpatialIndex(double cellSizeDeg) {
+        if (!(cellSizeDeg > 0 && cellSizeDeg <= 90)) {
+            throw new IllegalArgumentException("cellSizeDeg must be in (0, 90]");
+        }
+        this.cellSizeDeg = cellSizeDeg;
+        this.rows = (int) Math.ceil(180 / cellSizeDeg);
+        this.cols = (int) Math.ceil(360 / cellSizeDeg);
+    }
+
+    public Point put(String name, double lat, double lng) {
+        Point point = new Point(name, lat, lng);
+        Entry entry = new Entry(point, cellOf(lat, lng));
+        byName.compute(name, (key, old) -> {
+            if (old != null) {
+                removeFromCell(old);
+            }
+            cells.compute(entry.cell, (c, bucket) -> {
+                Set<Entry> target = bucket != null ? bucket : ConcurrentHashMap.newKeySet();
+                target.add(entry);
+                return target;
+            });
+            return entry;
+        });
+        return point;
+    }
+
+    public boolean remove(String name) {
+        boolean[] removed = {false};
+        byName.computeIfPresent(name, (key, old) -> {
+            removeFromCell(old);
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    public Optional<Point> get(String name) {
+        Entry entry = byName.get(name);
+        return entry == null ? Optional.empty() : Optional.of(entry.point);
+    }
+
+    public int size() {
+        return byName.size();
+    }
+
+    /**
+     * All points within radiusKm, nearest first.
+     */
+    public List<Neighbour> within(double lat, double lng, double radiusKm) {
+        List<Neighbour> found = new ArrayList<>();
+        for (Entry entry : candidates(lat, lng, radiusKm)) {
+            Point p = entry.point;
+            double d = Haversine.distanceKm(lat, lng, p.lat(), p.lng());
+            if (d <= radiusKm) {
+                found.add(new Neighbour(p.name(), p.lat(), p.lng(), d));
+            }
+        }
+        found.sort(Comparator.comparingDouble(Neighbour::distanceKm));
+        return found;
+    }
+
+    /**
+     * The k points closest to the given location, nearest first.
+     */
+    public List<Neighbour> nearest(double lat, double lng, int k) {
+        double maxKm = Math.PI * Haversine.EARTH_RADIUS_KM;
+        double radius = cellSizeDeg * KM_PER_DEGREE;
+        while (true) {
+            List<Neighbour> found = within(lat, lng, radius);
+            // Everything outside the radius is further than everything inside it
+            if (found.size() >= k || radius >= maxKm) {
+                return found.size() > k ? new ArrayList<>(found.subList(0, k)) : found;
+            }
+            radius = Math.min(radius * 2, maxKm);
+        }
+    }
+
+    private Collection<Entry> candidates(double lat, double lng, double radiusKm) {
+        double latSpan = radiusKm / KM_PER_DEGREE;
+        double minLat = lat - latSpan;
+        double maxLat = lat + latSpan;
+        double lngSpan;
+        double angular = radiusKm / Haversine.EARTH_RADIUS_KM;
+        if (minLat <= -90 || maxLat >= 90 || Math.sin(angular) >= Math.cos(Math.toRadians(lat))) {
+            // The circle covers a pole or wraps all the way around in longitude
+            minLat = Math.max(minLat, -90);
+            maxLat = Math.min(maxLat, 90);
+            lngSpan = 180;
+        } else {
+            lngSpan = Math.toDegrees(Math.asin(Math.sin(angular) / Math.cos(Math.toRadians(lat))));
+        }
+
+        int rowFrom = row(minLat);
+        int rowTo = row(maxLat);
+        int colFrom;
+        int colCount;
+        if (lngSpan >= 180) {
+            colFrom = 0;
+            colCount = cols;
+        } else {
+            colFrom = col(lng - lngSpan);
+            int colTo = col(lng + lngSpan);
+            colCount = Math.floorMod(colTo - colFrom, cols) + 1;
+        }
+
+        long cellCount = (long) (rowTo - rowFrom + 1) * colCount;
+        if (cellCount > Math.max(64, cells.size())) {
+            // Scanning the grid would visit more cells than there are entries
+            List<Entry> all = new ArrayList<>(byName.size());
+            for (Entry e : byName.values()) {
+                all.add(e);
+            }
+            return all;
+        }
+        List<Entry> found = new ArrayList<>();
+        for (int r = rowFrom; r <= rowTo; r++) {
+            for (int i = 0; i < colCount; i++) {
+                Set<Entry> bucket = cells.get(key(r, (colFrom + i) % cols));
+                if (bucket != null) {
+                    found.addAll(bucket);
+                }
+            }
+        }
+        return found;
+    }
+
+    private void removeFromCell(Entry entry) {
+        cells.computeIfPresent(entry.cell, (c, bucket) -> {
+            bucket.remove(entry);
+            return bucket.isEmpty() ? null : bucket;
+        });
+    }
+
+    private long cellOf(double lat, double lng) {
+        return key(row(lat), col(lng));
+    }
+
+    private int row(double lat) {
+        return Math.min(rows - 1, Math.max(0, (int) Math.floor((lat + 90) / cellSizeDeg)));
+    }
+
+    private int col(double lng) {
+        return Math.floorMod((int) Math.floor((lng + 180) / cellSizeDeg), cols);
+    }
+
+    private long key(int row, int col) {
+        return (long) row * cols + col;
+    }
+}
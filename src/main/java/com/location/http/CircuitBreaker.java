@@ -0,0 +1,148 @@
+package com.location.http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count-based circuit breaker. While CLOSED it tracks the outcomes of the last
+ * {@code windowSize} calls; once at least {@code minCalls} are recorded and the
+ * share of failures (drops, quota errors and calls slower than
+ * {@code slowCallMillis}) reaches the threshold, it OPENs and refuses calls for
+ * {@code openMillis}. It then lets {@code halfOpenCalls} trial calls through and
+ * closes only if all of them succeed.
+ * <p>
+ * Every transition starts a new epoch, and results are only counted against the
+ * epoch they were admitted in, so a slow call admitted before the breaker opened
+ * cannot close it again.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final boolean[] window;
+    private final int minCalls;
+    private final int failureRatePercent;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    private State state = State.CLOSED;
+    private long epoch;
+    private long openedAt;
+    private int recorded;
+    private int failures;
+    private int position;
+    private int trialsInFlight;
+    private int trialSuccesses;
+
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder shortCircuited = new LongAdder();
+
+    public CircuitBreaker(String name, int windowSize, int minCalls, int failureRatePercent,
+                          long slowCallMillis, long openMillis, int halfOpenCalls) {
+        if (windowSize < 1 || minCalls < 1 || failureRatePercent < 1 || halfOpenCalls < 1) {
+            throw new IllegalArgumentException("Invalid circuit breaker settings for " + name);
+        }
+        this.name = name;
+        this.window = new boolean[windowSize];
+        this.minCalls = Math.min(minCalls, windowSize);
+        this.failureRatePercent = failureRatePercent;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the epoch to record the call's result against, or -1 when the
+     * call must not be made.
+     */
+    public synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                shortCircuited.increment();
+                return -1;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsInFlight >= halfOpenCalls) {
+                shortCircuited.increment();
+                return -1;
+            }
+            trialsInFlight++;
+        }
+        return epoch;
+    }
+
+    public synchronized void record(long callEpoch, UpstreamLimiter.Outcome outcome, long latencyNanos) {
+        if (callEpoch != epoch) {
+            return;
+        }
+        if (outcome == UpstreamLimiter.Outcome.IGNORED) {
+            if (state == State.HALF_OPEN) {
+                trialsInFlight--;
+            }
+            return;
+        }
+        boolean failure = outcome != UpstreamLimiter.Outcome.SUCCESS || latencyNanos > slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            trialsInFlight--;
+            if (failure) {
+                transition(State.OPEN);
+            } else if (++trialSuccesses >= halfOpenCalls) {
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        if (recorded == window.length) {
+            if (window[position]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[position] = failure;
+        if (failure) {
+            failures++;
+        }
+        position = (position + 1) % window.length;
+        if (recorded >= minCalls && failures * 100 >= failureRatePercent * recorded) {
+            transition(State.OPEN);
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state);
+        stats.put("windowCalls", recorded);
+        stats.put("windowFailures", failures);
+        stats.put("opened", opened.sum());
+        stats.put("shortCircuited", shortCircuited.sum());
+        return stats;
+    }
+
+    private void transition(State next) {
+        state = next;
+        epoch++;
+        recorded = 0;
+        failures = 0;
+        position = 0;
+        trialsInFlight = 0;
+        trialSuccesses = 0;
+        if (next == State.OPEN) {
+            openedAt = System.nanoTime();
+            opened.increment();
+        }
+    }
+}
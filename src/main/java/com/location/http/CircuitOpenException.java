@@ -0,0 +1,21 @@
+package com.location.http;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.Serial;
+
+/**
+ * The API's circuit breaker is open, so the call failed fast instead of
+ * waiting on an upstream that is currently failing.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class CircuitOpenException extends UpstreamRejectedException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(String api) {
+        super(api + " circuit breaker is open");
+    }
+}
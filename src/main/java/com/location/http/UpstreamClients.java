@@ -0,0 +1,363 @@
+package com.location.http;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The one place upstream HTTP clients are built. Every {@link UpstreamEndpoint}
+ * gets a pooled, keep-alive {@link RestTemplate} (Apache HttpClient) and a
+ * {@link WebClient} on its own Reactor Netty connection pool (HTTP/2 when the
+ * server offers it). Connections live for {@code max-life-ms}, so TLS handshakes
+ * are paid once per connection rather than once per request.
+ * <p>
+ * Settings are read from {@code upstream.http.<endpoint>.<setting>}, falling
+ * back to {@code upstream.http.<setting>}: max-connections, connect-timeout-ms,
+ * read-timeout-ms, pool-timeout-ms (longest wait for a free connection),
+ * idle-timeout-ms and max-life-ms.
+ * <p>
+ * Calls are also admitted through one {@link UpstreamLimiter} per Google API,
+ * configured under {@code upstream.limit.<api>.*}: rate-per-second, burst,
+ * initial-concurrency, min-concurrency, max-concurrency, max-queue and max-wait-ms.
+ * Each limiter fronts a {@link CircuitBreaker} configured under
+ * {@code upstream.breaker.<api>.*}: window-size, min-calls, failure-rate-percent,
+ * slow-call-ms, open-ms and half-open-calls.
+ * <p>
+ * Google is reached at {@code upstream.google.base-url}, which load tests
+ * point at a local stand-in so they never spend real quota.
+ * <p>
+ * Pool occupancy and limiter state are exported as gauges, and services time
+ * their calls through {@link #metrics()}.
+ */
+@Component
+public class UpstreamClients {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamClients.class);
+
+    private final Map<UpstreamEndpoint, Pool> pools = new EnumMap<>(UpstreamEndpoint.class);
+    private final Map<String, UpstreamLimiter> limiters = new LinkedHashMap<>();
+    private final UpstreamMetrics metrics;
+    private final String baseUrl;
+    private final ScheduledExecutorService limiterTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "upstream-limiter-timer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public UpstreamClients(Environment env, WebClient.Builder webClientBuilder, MeterRegistry registry) {
+        boolean http2 = env.getProperty("upstream.http.http2", Boolean.class, true);
+        for (UpstreamEndpoint endpoint : UpstreamEndpoint.values()) {
+            Pool pool = new Pool(endpoint, Settings.from(env, endpoint), http2, webClientBuilder);
+            pool.bindTo(registry);
+            pools.put(endpoint, pool);
+            limiters.computeIfAbsent(endpoint.api(), api -> newLimiter(env, api)).bindTo(registry);
+        }
+        this.metrics = new UpstreamMetrics(registry);
+        this.baseUrl = stripTrailingSlash(env.getProperty("upstream.google.base-url", "https://maps.googleapis.com"));
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private UpstreamLimiter newLimiter(Environment env, String api) {
+        String breakerPrefix = "upstream.breaker." + api + ".";
+        CircuitBreaker breaker = new CircuitBreaker(
+                api,
+                env.getProperty(breakerPrefix + "window-size", Integer.class, 50),
+                env.getProperty(breakerPrefix + "min-calls", Integer.class, 20),
+                env.getProperty(breakerPrefix + "failure-rate-percent", Integer.class, 50),
+                env.getProperty(breakerPrefix + "slow-call-ms", Long.class, 5_000L),
+                env.getProperty(breakerPrefix + "open-ms", Long.class, 10_000L),
+                env.getProperty(breakerPrefix + "half-open-calls", Integer.class, 5)
+        );
+        String prefix = "upstream.limit." + api + ".";
+        return new UpstreamLimiter(
+                api,
+                env.getProperty(prefix + "rate-per-second", Double.class, 50.0),
+                env.getProperty(prefix + "burst", Double.class, 50.0),
+                env.getProperty(prefix + "initial-concurrency", Integer.class, 16),
+                env.getProperty(prefix + "min-concurrency", Integer.class, 2),
+                env.getProperty(prefix + "max-concurrency", Integer.class, 200),
+                env.getProperty(prefix + "max-queue", Integer.class, 1000),
+                env.getProperty(prefix + "max-wait-ms", Long.class, 2_000L),
+                limiterTimer,
+                breaker
+        );
+    }
+
+    public RestTemplate restTemplate(UpstreamEndpoint endpoint) {
+        return pools.get(endpoint).restTemplate;
+    }
+
+    public WebClient webClient(UpstreamEndpoint endpoint) {
+        return pools.get(endpoint).webClient;
+    }
+
+    /**
+     * The limiter guarding the Google API behind this endpoint.
+     */
+    public UpstreamLimiter limiter(UpstreamEndpoint endpoint) {
+        return limiters.get(endpoint.api());
+    }
+
+    /**
+     * Scheme, host and optional port of the Google APIs, without a trailing slash.
+     */
+    public String baseUrl() {
+        return baseUrl;
+    }
+
+    public UpstreamMetrics metrics() {
+        return metrics;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> pools = new LinkedHashMap<>();
+        this.pools.forEach((endpoint, pool) -> pools.put(endpoint.id(), pool.stats()));
+        Map<String, Object> limits = new LinkedHashMap<>();
+        limiters.forEach((api, limiter) -> limits.put(api, limiter.stats()));
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pools", pools);
+        stats.put("limiters", limits);
+        return stats;
+    }
+
+    @PreDestroy
+    void close() {
+        limiterTimer.shutdownNow();
+        for (Pool pool : pools.values()) {
+            try {
+                pool.httpClient.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close {} HTTP client: {}", pool.endpoint.id(), e.getMessage());
+            }
+            pool.connectionProvider.dispose();
+        }
+    }
+
+    record Settings(
+            int maxConnections,
+            long connectTimeoutMs,
+            long readTimeoutMs,
+            long poolTimeoutMs,
+            long idleTimeoutMs,
+            long maxLifeMs
+    ) {
+        static Settings from(Environment env, UpstreamEndpoint endpoint) {
+            return new Settings(
+                    (int) setting(env, endpoint, "max-connections", 50),
+                    setting(env, endpoint, "connect-timeout-ms", 2_000),
+                    setting(env, endpoint, "read-timeout-ms", 10_000),
+                    setting(env, endpoint, "pool-timeout-ms", 2_000),
+                    setting(env, endpoint, "idle-timeout-ms", 60_000),
+                    setting(env, endpoint, "max-life-ms", 300_000)
+            );
+        }
+
+        private static long setting(Environment env, UpstreamEndpoint endpoint, String name, long defaultValue) {
+            Long specific = env.getProperty("upstream.http." + endpoint.id() + "." + name, Long.class);
+            return specific != null ? specific : env.getProperty("upstream.http." + name, Long.class, defaultValue);
+        }
+    }
+
+    private static final class Pool {
+        final UpstreamEndpoint endpoint;
+        final Settings settings;
+        final TimedConnectionManager connectionManager;
+        final CloseableHttpClient httpClient;
+        final RestTemplate restTemplate;
+        final ConnectionProvider connectionProvider;
+        final Map<String, ConnectionPoolMetrics> reactiveMetrics = new ConcurrentHashMap<>();
+        final WebClient webClient;
+
+        Pool(UpstreamEndpoint endpoint, Settings settings, boolean http2, WebClient.Builder webClientBuilder) {
+            this.endpoint = endpoint;
+            this.settings = settings;
+
+            connectionManager = new TimedConnectionManager();
+            // Every call goes to the same host, so the per-route limit is the real limit
+            connectionManager.setMaxTotal(settings.maxConnections);
+            connectionManager.setDefaultMaxPerRoute(settings.maxConnections);
+            connectionManager.setDefaultConnectionConfig(ConnectionConfig.custom()
+                    .setConnectTimeout(Timeout.ofMilliseconds(settings.connectTimeoutMs))
+                    .setSocketTimeout(Timeout.ofMilliseconds(settings.readTimeoutMs))
+                    .setTimeToLive(TimeValue.ofMilliseconds(settings.maxLifeMs))
+                    .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                    .build());
+            httpClient = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(RequestConfig.custom()
+                            .setConnectionRequestTimeout(Timeout.ofMilliseconds(settings.poolTimeoutMs))
+                            .setResponseTimeout(Timeout.ofMilliseconds(settings.readTimeoutMs))
+                            .build())
+                    .evictIdleConnections(TimeValue.ofMilliseconds(settings.idleTimeoutMs))
+                    .evictExpiredConnections()
+                    .disableAutomaticRetries()
+                    .build();
+            restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+
+            connectionProvider = ConnectionProvider.builder("upstream-" + endpoint.id())
+                    .maxConnections(settings.maxConnections)
+                    .pendingAcquireTimeout(Duration.ofMillis(settings.poolTimeoutMs))
+                    .maxIdleTime(Duration.ofMillis(settings.idleTimeoutMs))
+                    .maxLifeTime(Duration.ofMillis(settings.maxLifeMs))
+                    .evictInBackground(Duration.ofSeconds(30))
+                    .metrics(true, () -> new ConnectionProvider.MeterRegistrar() {
+                        @Override
+                        public void registerMetrics(String poolName, String id, SocketAddress remote,
+                                                    ConnectionPoolMetrics metrics) {
+                            reactiveMetrics.put(id, metrics);
+                        }
+
+                        @Override
+                        public void deRegisterMetrics(String poolName, String id, SocketAddress remote) {
+                            reactiveMetrics.remove(id);
+                        }
+                    })
+                    .build();
+            HttpClient nettyClient = HttpClient.create(connectionProvider)
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) settings.connectTimeoutMs)
+                    .responseTimeout(Duration.ofMillis(settings.readTimeoutMs))
+                    .protocol(http2
+                            ? new HttpProtocol[]{HttpProtocol.H2, HttpProtocol.HTTP11}
+                            : new HttpProtocol[]{HttpProtocol.HTTP11});
+            webClient = webClientBuilder.clone()
+                    .clientConnector(new ReactorClientHttpConnector(nettyClient))
+                    .build();
+        }
+
+        void bindTo(MeterRegistry registry) {
+            String id = endpoint.id();
+            Gauge.builder("upstream.pool.leased", connectionManager, m -> m.getTotalStats().getLeased())
+                    .tags("endpoint", id, "client", "blocking").register(registry);
+            Gauge.builder("upstream.pool.pending", connectionManager, m -> m.getTotalStats().getPending())
+                    .tags("endpoint", id, "client", "blocking").register(registry);
+            Gauge.builder("upstream.pool.leased", reactiveMetrics,
+                            all -> all.values().stream().mapToInt(ConnectionPoolMetrics::acquiredSize).sum())
+                    .tags("endpoint", id, "client", "reactive").register(registry);
+            Gauge.builder("upstream.pool.pending", reactiveMetrics,
+                            all -> all.values().stream().mapToInt(ConnectionPoolMetrics::pendingAcquireSize).sum())
+                    .tags("endpoint", id, "client", "reactive").register(registry);
+            FunctionCounter.builder("upstream.pool.timeouts", connectionManager.timeouts, LongAdder::sum)
+                    .tags("endpoint", id, "client", "blocking").register(registry);
+        }
+
+        Map<String, Object> stats() {
+            PoolStats total = connectionManager.getTotalStats();
+            Map<String, Object> blocking = new LinkedHashMap<>();
+            blocking.put("leased", total.getLeased());
+            blocking.put("pending", total.getPending());
+            blocking.put("available", total.getAvailable());
+            blocking.put("max", total.getMax());
+            blocking.put("leases", connectionManager.leases.sum());
+            blocking.put("waitAvgMs", connectionManager.averageWaitMillis());
+            blocking.put("waitMaxMs", TimeUnit.NANOSECONDS.toMillis(connectionManager.maxWaitNanos.get()));
+            blocking.put("poolTimeouts", connectionManager.timeouts.sum());
+
+            int acquired = 0, allocated = 0, idle = 0, pending = 0;
+            for (ConnectionPoolMetrics m : reactiveMetrics.values()) {
+                acquired += m.acquiredSize();
+                allocated += m.allocatedSize();
+                idle += m.idleSize();
+                pending += m.pendingAcquireSize();
+            }
+            Map<String, Object> reactive = new LinkedHashMap<>();
+            reactive.put("acquired", acquired);
+            reactive.put("allocated", allocated);
+            reactive.put("idle", idle);
+            reactive.put("pending", pending);
+            reactive.put("max", settings.maxConnections);
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("blocking", blocking);
+            stats.put("reactive", reactive);
+            stats.put("settings", settings);
+            return stats;
+        }
+    }
+
+    /**
+     * Records how long callers wait for a pooled connection, the first place
+     * pool starvation shows up.
+     */
+    static final class TimedConnectionManager extends PoolingHttpClientConnectionManager {
+        final LongAdder leases = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder timeouts = new LongAdder();
+
+        @Override
+        public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+            long started = System.nanoTime();
+            LeaseRequest request = super.lease(id, route, requestTimeout, state);
+            return new LeaseRequest() {
+                @Override
+                public ConnectionEndpoint get(Timeout timeout)
+                        throws InterruptedException, ExecutionException, TimeoutException {
+                    try {
+                        ConnectionEndpoint endpoint = request.get(timeout);
+                        long waited = System.nanoTime() - started;
+                        leases.increment();
+                        waitNanos.add(waited);
+                        maxWaitNanos.accumulate(waited);
+                        return endpoint;
+                    } catch (TimeoutException e) {
+                        timeouts.increment();
+                        throw e;
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return request.cancel();
+                }
+            };
+        }
+
+        double averageWaitMillis() {
+            long count = leases.sum();
+            return count == 0 ? 0 : waitNanos.sum() / 1e6 / count;
+        }
+    }
+}
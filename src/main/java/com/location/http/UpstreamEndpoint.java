@@ -0,0 +1,35 @@
+package com.location.http;
+
+/**
+ * The kinds of Google endpoint we call. Each one gets its own connection pool
+ * and timeouts, so a burst of slow matrix tiles cannot starve geocoding.
+ */
+public enum UpstreamEndpoint {
+
+    GEOCODE("geocode", "geocode"),
+    DISTANCE("distance", "distance-matrix"),
+    DISTANCE_MATRIX("distance-matrix", "distance-matrix");
+
+    private final String id;
+    private final String api;
+
+    UpstreamEndpoint(String id, String api) {
+        this.id = id;
+        this.api = api;
+    }
+
+    /**
+     * Name used in property keys ({@code upstream.http.<id>.*}) and stats.
+     */
+    public String id() {
+        return id;
+    }
+
+    /**
+     * The Google API, and so the quota, behind this endpoint. Single distances
+     * and matrices are both Distance Matrix calls and share one budget.
+     */
+    public String api() {
+        return api;
+    }
+}
@@ -0,0 +1,419 @@
+package com.location.http;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for one Google API: a token bucket caps the request rate
+ * at the quota, and an adaptive concurrency limit (AIMD) finds how many calls
+ * can be in flight before latency degrades. The limit grows by one per window
+ * of fast successes, shrinks by 10% when a call is much slower than the
+ * latency baseline or times out, and halves on a quota error, which also
+ * empties the bucket.
+ * <p>
+ * Callers that cannot be admitted wait in a bounded FIFO queue. A full queue
+ * rejects immediately and a waiter that is not admitted within maxWait fails;
+ * both surface as {@link UpstreamRejectedException} rather than piling more
+ * load onto an API that is already refusing it. Before any of that, the API's
+ * {@link CircuitBreaker} is consulted; while it is open calls fail immediately
+ * with {@link CircuitOpenException}.
+ */
+public class UpstreamLimiter {
+
+    public enum Outcome {
+        /** Answered normally; latency feeds the limit. */
+        SUCCESS,
+        /** Timed out, failed to connect or returned 5xx. */
+        DROPPED,
+        /** Refused for quota. */
+        QUOTA,
+        /** Says nothing about upstream capacity (cancelled, bad request, ...). */
+        IGNORED
+    }
+
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    private final String name;
+    private final double tokensPerNano;
+    private final double burst;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final ScheduledExecutorService timer;
+    private final CircuitBreaker breaker;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+    private double tokens;
+    private long refilledAt;
+    private double limit;
+    private int inFlight;
+    private double latencyBaselineNanos;
+    private boolean drainScheduled;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder quotaErrors = new LongAdder();
+    private final LongAdder drops = new LongAdder();
+
+    public UpstreamLimiter(String name, double ratePerSecond, double burst, int initialLimit, int minLimit,
+                           int maxLimit, int maxQueue, long maxWaitMillis, ScheduledExecutorService timer,
+                           CircuitBreaker breaker) {
+        if (ratePerSecond <= 0 || burst < 1 || minLimit < 1 || maxLimit < minLimit || maxQueue < 0) {
+            throw new IllegalArgumentException("Invalid limiter settings for " + name);
+        }
+        this.name = name;
+        this.tokensPerNano = ratePerSecond / 1e9;
+        this.burst = burst;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.timer = timer;
+        this.breaker = breaker;
+        this.tokens = burst;
+        this.refilledAt = System.nanoTime();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Runs a blocking call once admitted, costing {@code cost} tokens
+     * (for example the element count of a distance matrix request). An HTTP
+     * 429 is rethrown as {@link UpstreamQuotaException}, like a quota status.
+     */
+    public <T> T execute(int cost, Supplier<T> call) {
+        Permit permit = await(acquire(cost));
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            permit.release(classify(e));
+            throw translate(e);
+        } catch (Error e) {
+            permit.release(classify(e));
+            throw e;
+        }
+        permit.release(Outcome.SUCCESS);
+        return result;
+    }
+
+    /**
+     * Subscribes to {@code call} once admitted. Cancelling while queued gives
+     * up the place in the queue; cancelling while running releases the permit.
+     * An HTTP 429 fails it with {@link UpstreamQuotaException}.
+     */
+    public <T> Mono<T> execute(int cost, Mono<T> call) {
+        return Mono.usingWhen(
+                Mono.fromFuture(() -> acquire(cost), false),
+                permit -> call,
+                permit -> Mono.fromRunnable(() -> permit.release(Outcome.SUCCESS)),
+                (permit, e) -> Mono.fromRunnable(() -> permit.release(classify(e))),
+                permit -> Mono.fromRunnable(() -> permit.release(Outcome.IGNORED)))
+                .onErrorMap(RuntimeException.class, this::translate);
+    }
+
+    public CompletableFuture<Permit> acquire(int cost) {
+        long epoch = breaker.tryAcquire();
+        if (epoch < 0) {
+            return CompletableFuture.failedFuture(new CircuitOpenException(name));
+        }
+        double needed = Math.min(Math.max(cost, 1), burst);
+        Waiter waiter;
+        synchronized (lock) {
+            if (queue.isEmpty() && tryAdmit(needed)) {
+                admitted.increment();
+                return CompletableFuture.completedFuture(new Permit(epoch));
+            }
+            if (queue.size() >= maxQueue) {
+                rejected.increment();
+                breaker.record(epoch, Outcome.IGNORED, 0);
+                return CompletableFuture.failedFuture(
+                        new UpstreamRejectedException(name + " limiter queue is full"));
+            }
+            waiter = new Waiter(needed, epoch);
+            queue.add(waiter);
+            queued.increment();
+            if (inFlight < currentLimit()) {
+                // Held back by the rate, not by concurrency: wake up when enough tokens accrue
+                scheduleDrain(needed);
+            }
+        }
+        waiter.timeout = timer.schedule(() -> expire(waiter), maxWaitNanos, TimeUnit.NANOSECONDS);
+        waiter.future.whenComplete((permit, e) -> {
+            if (waiter.future.isCancelled()) {
+                boolean removed;
+                synchronized (lock) {
+                    removed = queue.remove(waiter);
+                }
+                if (removed) {
+                    breaker.record(waiter.epoch, Outcome.IGNORED, 0);
+                }
+            }
+        });
+        return waiter.future;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (lock) {
+            refill();
+            stats.put("limit", currentLimit());
+            stats.put("inFlight", inFlight);
+            stats.put("queued", queue.size());
+            stats.put("tokens", Math.floor(tokens));
+            stats.put("latencyBaselineMs", latencyBaselineNanos / 1e6);
+        }
+        stats.put("admitted", admitted.sum());
+        stats.put("waited", queued.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("expired", expired.sum());
+        stats.put("quotaErrors", quotaErrors.sum());
+        stats.put("drops", drops.sum());
+        stats.put("breaker", breaker.stats());
+        return stats;
+    }
+
+    /**
+     * Registers {@code upstream.limiter.*} gauges and counters and the breaker
+     * state, all tagged with this limiter's API.
+     */
+    void bindTo(MeterRegistry registry) {
+        Gauge.builder("upstream.limiter.limit", this, l -> l.snapshot()[0]).tag("api", name)
+                .description("Current adaptive concurrency limit").register(registry);
+        Gauge.builder("upstream.limiter.in.flight", this, l -> l.snapshot()[1]).tag("api", name)
+                .description("Admitted calls not yet released").register(registry);
+        Gauge.builder("upstream.limiter.queued", this, l -> l.snapshot()[2]).tag("api", name)
+                .description("Callers waiting for admission").register(registry);
+        counter(registry, "admitted", admitted);
+        counter(registry, "rejected", rejected);
+        counter(registry, "expired", expired);
+        counter(registry, "quota.errors", quotaErrors);
+        counter(registry, "drops", drops);
+        Gauge.builder("upstream.breaker.open", breaker, b -> b.state() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .tag("api", name)
+                .description("1 while the circuit breaker is open or half-open").register(registry);
+    }
+
+    private void counter(MeterRegistry registry, String suffix, LongAdder adder) {
+        FunctionCounter.builder("upstream.limiter." + suffix, adder, LongAdder::sum).tag("api", name).register(registry);
+    }
+
+    private double[] snapshot() {
+        synchronized (lock) {
+            return new double[]{currentLimit(), inFlight, queue.size()};
+        }
+    }
+
+    static Outcome classify(Throwable e) {
+        if (e instanceof UpstreamQuotaException) {
+            return Outcome.QUOTA;
+        }
+        if (e instanceof HttpStatusCodeException http) {
+            return classify(http.getStatusCode().value());
+        }
+        if (e instanceof WebClientResponseException http) {
+            return classify(http.getStatusCode().value());
+        }
+        if (e instanceof ResourceAccessException || e instanceof WebClientRequestException
+                || e instanceof TimeoutException) {
+            return Outcome.DROPPED;
+        }
+        return Outcome.IGNORED;
+    }
+
+    /**
+     * Google's HTTP 429 as the exception its OVER_QUERY_LIMIT status raises, so
+     * callers treat both as a quota refusal (503) rather than a failed call.
+     */
+    private RuntimeException translate(RuntimeException e) {
+        if (!(e instanceof UpstreamQuotaException) && classify(e) == Outcome.QUOTA) {
+            return new UpstreamQuotaException(name, "HTTP 429", e);
+        }
+        return e;
+    }
+
+    private static Outcome classify(int status) {
+        if (status == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            return Outcome.QUOTA;
+        }
+        return status >= 500 ? Outcome.DROPPED : Outcome.IGNORED;
+    }
+
+    private Permit await(CompletableFuture<Permit> future) {
+        try {
+            // The timer fails the future at its deadline; the extra second only guards against a stuck timer
+            return future.get(maxWaitNanos + TimeUnit.SECONDS.toNanos(1), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw new UpstreamRejectedException(name + " limiter wait timed out");
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new UpstreamRejectedException("Interrupted while waiting for " + name + " limiter");
+        }
+    }
+
+    private int currentLimit() {
+        return (int) limit;
+    }
+
+    private boolean tryAdmit(double cost) {
+        refill();
+        if (inFlight >= currentLimit() || tokens < cost) {
+            return false;
+        }
+        tokens -= cost;
+        inFlight++;
+        return true;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+    }
+
+    private void scheduleDrain(double cost) {
+        if (drainScheduled) {
+            return;
+        }
+        drainScheduled = true;
+        long delay = Math.max(100_000, (long) ((cost - tokens) / tokensPerNano));
+        timer.schedule(this::drain, delay, TimeUnit.NANOSECONDS);
+    }
+
+    private void drain() {
+        List<Waiter> ready = new ArrayList<>();
+        synchronized (lock) {
+            drainScheduled = false;
+            while (!queue.isEmpty() && tryAdmit(queue.peek().cost)) {
+                ready.add(queue.poll());
+            }
+            if (!queue.isEmpty() && inFlight < currentLimit()) {
+                scheduleDrain(queue.peek().cost);
+            }
+        }
+        for (Waiter waiter : ready) {
+            if (waiter.timeout != null) {
+                waiter.timeout.cancel(false);
+            }
+            Permit permit = new Permit(waiter.epoch);
+            if (waiter.future.complete(permit)) {
+                admitted.increment();
+            } else {
+                // Cancelled while we were admitting it
+                permit.release(Outcome.IGNORED);
+            }
+        }
+    }
+
+    private void expire(Waiter waiter) {
+        synchronized (lock) {
+            if (!queue.remove(waiter)) {
+                return;
+            }
+        }
+        expired.increment();
+        breaker.record(waiter.epoch, Outcome.IGNORED, 0);
+        waiter.future.completeExceptionally(new UpstreamRejectedException(
+                name + " limiter wait exceeded " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + " ms"));
+    }
+
+    private void onRelease(long epoch, Outcome outcome, long latencyNanos) {
+        breaker.record(epoch, outcome, latencyNanos);
+        synchronized (lock) {
+            inFlight--;
+            switch (outcome) {
+                case SUCCESS -> {
+                    if (latencyBaselineNanos == 0) {
+                        latencyBaselineNanos = latencyNanos;
+                    }
+                    if (latencyNanos > latencyBaselineNanos * LATENCY_TOLERANCE) {
+                        limit = Math.max(minLimit, limit * 0.9);
+                    } else if (inFlight + 1 >= currentLimit() / 2) {
+                        // Only grow when the current limit is actually being used
+                        limit = Math.min(maxLimit, limit + 1.0 / limit);
+                    }
+                    // Follow improvements quickly and degradations slowly, so the baseline stays near the floor
+                    double alpha = latencyNanos < latencyBaselineNanos ? 0.2 : 0.01;
+                    latencyBaselineNanos += alpha * (latencyNanos - latencyBaselineNanos);
+                }
+                case DROPPED -> {
+                    drops.increment();
+                    limit = Math.max(minLimit, limit * 0.9);
+                }
+                case QUOTA -> {
+                    quotaErrors.increment();
+                    limit = Math.max(minLimit, limit * 0.5);
+                    tokens = 0;
+                    refilledAt = System.nanoTime();
+                }
+                case IGNORED -> {
+                }
+            }
+        }
+        drain();
+    }
+
+    /**
+     * One admitted call. Release exactly once with the call's outcome; further
+     * releases are ignored.
+     */
+    public final class Permit {
+        private final long epoch;
+        private final long startedAt = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long epoch) {
+            this.epoch = epoch;
+        }
+
+        public void release(Outcome outcome) {
+            if (released.compareAndSet(false, true)) {
+                onRelease(epoch, outcome, System.nanoTime() - startedAt);
+            }
+        }
+    }
+
+    private static final class Waiter {
+        final double cost;
+        final long epoch;
+        final CompletableFuture<Permit> future = new CompletableFuture<>();
+        volatile ScheduledFuture<?> timeout;
+
+        Waiter(double cost, long epoch) {
+            this.cost = cost;
+            this.epoch = epoch;
+        }
+    }
+}
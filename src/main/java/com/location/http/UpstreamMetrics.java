@@ -0,0 +1,118 @@
+package com.location.http;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Timers for upstream calls. {@code upstream.requests} covers one HTTP exchange
+ * (after the limiter admitted it), tagged by endpoint, mode (travel mode or
+ * geocode lookup kind) and the status Google answered with, or a coarse error
+ * class when it did not answer. {@code upstream.parse} covers reading the JSON
+ * body into results. Histogram buckets are switched on through
+ * {@code management.metrics.distribution.percentiles-histogram.*}.
+ */
+public final class UpstreamMetrics {
+
+    /**
+     * A response parser; may throw on malformed or truncated bodies.
+     */
+    @FunctionalInterface
+    public interface Parser<T> {
+        T parse() throws IOException;
+    }
+
+    private final MeterRegistry registry;
+
+    public UpstreamMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public MeterRegistry registry() {
+        return registry;
+    }
+
+    /**
+     * Runs a blocking call, recording its latency with the status
+     * {@code status} derives from the result, or the error class it threw.
+     */
+    public <T> T time(UpstreamEndpoint endpoint, String mode, Supplier<T> call, Function<? super T, String> status) {
+        long started = System.nanoTime();
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            record(endpoint, mode, statusOf(e), started);
+            throw e;
+        }
+        record(endpoint, mode, result == null ? "EMPTY" : status.apply(result), started);
+        return result;
+    }
+
+    /**
+     * Reactive counterpart of {@link #time(UpstreamEndpoint, String, Supplier, Function)};
+     * the clock starts on subscription and a cancelled call is recorded as CANCELLED.
+     */
+    public <T> Mono<T> time(UpstreamEndpoint endpoint, String mode, Mono<T> call, Function<? super T, String> status) {
+        return Mono.defer(() -> {
+            long started = System.nanoTime();
+            return call
+                    .doOnSuccess(result -> record(endpoint, mode, result == null ? "EMPTY" : status.apply(result), started))
+                    .doOnError(e -> record(endpoint, mode, statusOf(e), started))
+                    .doOnCancel(() -> record(endpoint, mode, "CANCELLED", started));
+        });
+    }
+
+    public <T> T parse(UpstreamEndpoint endpoint, Parser<T> parser) throws IOException {
+        long started = System.nanoTime();
+        try {
+            return parser.parse();
+        } finally {
+            Timer.builder("upstream.parse")
+                    .description("Time to read an upstream response body into results")
+                    .tag("endpoint", endpoint.id())
+                    .register(registry)
+                    .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    static String statusOf(Throwable e) {
+        if (e instanceof UpstreamQuotaException quota) {
+            return quota.getStatus();
+        }
+        if (e instanceof HttpStatusCodeException http) {
+            return "HTTP_" + http.getStatusCode().value();
+        }
+        if (e instanceof WebClientResponseException http) {
+            return "HTTP_" + http.getStatusCode().value();
+        }
+        if (e instanceof TimeoutException) {
+            return "TIMEOUT";
+        }
+        if (e instanceof ResourceAccessException || e instanceof WebClientRequestException) {
+            return "IO_ERROR";
+        }
+        return "ERROR";
+    }
+
+    private void record(UpstreamEndpoint endpoint, String mode, String status, long started) {
+        Timer.builder("upstream.requests")
+                .description("Upstream HTTP exchanges by endpoint, mode and Google status")
+                .tag("endpoint", endpoint.id())
+                .tag("api", endpoint.api())
+                .tag("mode", mode == null ? "none" : mode)
+                .tag("status", status == null ? "UNKNOWN" : status)
+                .register(registry)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+}
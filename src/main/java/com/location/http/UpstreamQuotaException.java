@@ -0,0 +1,37 @@
+package com.location.http;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.Serial;
+
+/**
+ * Google refused the call because our quota is exhausted (OVER_QUERY_LIMIT,
+ * OVER_DAILY_LIMIT or HTTP 429). The limiter backs off when it sees this.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class UpstreamQuotaException extends UpstreamRejectedException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String status;
+
+    public UpstreamQuotaException(String api, String status) {
+        super(api + " API quota exceeded: " + status);
+        this.status = status;
+    }
+
+    public UpstreamQuotaException(String api, String status, Throwable cause) {
+        super(api + " API quota exceeded: " + status, cause);
+        this.status = status;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public static boolean isQuotaStatus(String status) {
+        return "OVER_QUERY_LIMIT".equals(status) || "OVER_DAILY_LIMIT".equals(status);
+    }
+}
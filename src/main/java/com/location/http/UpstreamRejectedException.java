@@ -0,0 +1,25 @@
+package com.location.http;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.Serial;
+
+/**
+ * An upstream call was not made because the API's limiter had no capacity:
+ * its wait queue was full or the wait exceeded its deadline.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class UpstreamRejectedException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public UpstreamRejectedException(String message) {
+        super(message);
+    }
+
+    public UpstreamRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
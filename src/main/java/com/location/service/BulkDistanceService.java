@@ -0,0 +1,249 @@
+package com.location.service;
+
+import com.location.geo.Haversine;
+import com.location.geo.Haversine.PointSet;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * One-to-many and many-to-many great-circle distances over flat primitive
+ * arrays. Large inputs are split into fixed-size chunks processed in parallel
+ * on the common fork-join pool; small ones run inline.
+ */
+@Service
+public class BulkDistanceService {
+
+    static final int CHUNK = 8192;
+
+    public record Ranked(int[] indices, double[] distancesKm) {
+
+        /**
+         * Drops the entries further than radiusKm (entries are sorted nearest first).
+         */
+        public Ranked limitTo(double radiusKm) {
+            int n = 0;
+            while (n < distancesKm.length && distancesKm[n] <= radiusKm) {
+                n++;
+            }
+            return new Ranked(Arrays.copyOf(indices, n), Arrays.copyOf(distancesKm, n));
+        }
+    }
+
+    public double[] oneToMany(double lat, double lng, PointSet targets) {
+        double[] out = terms(lat, lng, targets);
+        forEachChunk(out.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                out[i] = Haversine.toKm(out[i]);
+            }
+        });
+        return out;
+    }
+
+    /**
+     * Row-major distances: {@code out[s * targets.size() + t]}.
+     */
+    public double[] manyToMany(PointSet sources, PointSet targets) {
+        int cols = targets.size();
+        double[] out = new double[sources.size() * cols];
+        IntStream.range(0, sources.size()).parallel().forEach(s -> {
+            double[] row = new double[cols];
+            Haversine.terms(sources.latRad(s), sources.lngRad(s), sources.cosLat(s), targets, row, 0, cols);
+            int base = s * cols;
+            for (int t = 0; t < cols; t++) {
+                out[base + t] = Haversine.toKm(row[t]);
+            }
+        });
+        return out;
+    }
+
+    /**
+     * The k targets closest to the origin, nearest first.
+     */
+    public Ranked nearest(double lat, double lng, PointSet targets, int k) {
+        double[] terms = terms(lat, lng, targets);
+        int chunks = (terms.length + CHUNK - 1) / CHUNK;
+        int[][] partial = new int[chunks][];
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int from = c * CHUNK;
+            int to = Math.min(from + CHUNK, terms.length);
+            partial[c] = topK(terms, from, to, k);
+        });
+        int total = 0;
+        for (int[] p : partial) {
+            total += p.length;
+        }
+        int[] candidates = new int[total];
+        int pos = 0;
+        for (int[] p : partial) {
+            System.arraycopy(p, 0, candidates, pos, p.length);
+            pos += p.length;
+        }
+        return rank(terms, selectTopK(terms, candidates, k));
+    }
+
+    /**
+     * Every target within radiusKm of the origin, nearest first.
+     */
+    public Ranked within(double lat, double lng, PointSet targets, double radiusKm) {
+        double[] terms = terms(lat, lng, targets);
+        double limit = Haversine.termForKm(radiusKm);
+        int chunks = (terms.length + CHUNK - 1) / CHUNK;
+        int[][] partial = new int[chunks][];
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int from = c * CHUNK;
+            int to = Math.min(from + CHUNK, terms.length);
+            int[] hits = new int[to - from];
+            int n = 0;
+            for (int i = from; i < to; i++) {
+                if (terms[i] <= limit) {
+                    hits[n++] = i;
+                }
+            }
+            partial[c] = Arrays.copyOf(hits, n);
+        });
+        return rank(terms, Arrays.stream(partial).flatMapToInt(Arrays::stream).toArray());
+    }
+
+    private double[] terms(double lat, double lng, PointSet targets) {
+        double latRad = Math.toRadians(lat);
+        double lngRad = Math.toRadians(lng);
+        double cosLat = Math.cos(latRad);
+        double[] out = new double[targets.size()];
+        forEachChunk(out.length, (from, to) -> Haversine.terms(latRad, lngRad, cosLat, targets, out, from, to));
+        return out;
+    }
+
+    private static void forEachChunk(int n, ChunkTask task) {
+        if (n <= CHUNK) {
+            task.run(0, n);
+            return;
+        }
+        int chunks = (n + CHUNK - 1) / CHUNK;
+        IntStream.range(0, chunks).parallel().forEach(c -> task.run(c * CHUNK, Math.min((c + 1) * CHUNK, n)));
+    }
+
+    private static int[] topK(double[] terms, int from, int to, int k) {
+        int[] indices = new int[to - from];
+        for (int i = from; i < to; i++) {
+            indices[i - from] = i;
+        }
+        return selectTopK(terms, indices, k);
+    }
+
+    /**
+     * Keeps the k smallest terms using a bounded max-heap of indices.
+     */
+    private static int[] selectTopK(double[] terms, int[] candidates, int k) {
+        if (candidates.length <= k) {
+            return candidates;
+        }
+        int[] heap = new int[k];
+        int size = 0;
+        for (int idx : candidates) {
+            if (size < k) {
+                heap[size] = idx;
+                siftUp(terms, heap, size++);
+            } else if (terms[idx] < terms[heap[0]]) {
+                heap[0] = idx;
+                siftDown(terms, heap, k);
+            }
+        }
+        return heap;
+    }
+
+    private static void siftUp(double[] terms, int[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (terms[heap[parent]] >= terms[heap[i]]) {
+                return;
+            }
+            swap(heap, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(double[] terms, int[] heap, int size) {
+        int i = 0;
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int largest = left;
+            int right = left + 1;
+            if (right < size && terms[heap[right]] > terms[heap[left]]) {
+                largest = right;
+            }
+            if (terms[heap[i]] >= terms[heap[largest]]) {
+                return;
+            }
+            swap(heap, i, largest);
+            i = largest;
+        }
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    private static Ranked rank(double[] terms, int[] indices) {
+        int n = indices.length;
+        int[] sortedIndices = indices.clone();
+        double[] keys = new double[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = terms[sortedIndices[i]];
+        }
+        sort(keys, sortedIndices, 0, n - 1);
+        double[] distances = new double[n];
+        for (int i = 0; i < n; i++) {
+            distances[i] = Haversine.toKm(keys[i]);
+        }
+        return new Ranked(sortedIndices, distances);
+    }
+
+    /**
+     * Quicksort of keys carrying their indices along, avoiding boxed comparators.
+     */
+    private static void sort(double[] keys, int[] indices, int lo, int hi) {
+        while (hi - lo > 16) {
+            double pivot = keys[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j) {
+                    swap(keys, indices, i++, j--);
+                }
+            }
+            // Recurse into the smaller half to bound stack depth
+            if (j - lo < hi - i) {
+                sort(keys, indices, lo, j);
+                lo = i;
+            } else {
+                sort(keys, indices, i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            for (int j = i; j > lo && keys[j - 1] > keys[j]; j--) {
+                swap(keys, indices, j - 1, j);
+            }
+        }
+    }
+
+    private static void swap(double[] keys, int[] indices, int i, int j) {
+        double k = keys[i];
+        keys[i] = keys[j];
+        keys[j] = k;
+        swap(indices, i, j);
+    }
+
+    @FunctionalInterface
+    private interface ChunkTask {
+        void run(int from, int to);
+    }
+}
@@ -0,0 +1,307 @@
+package com.location.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.location.cache.GeocodeCache;
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Geocodes arbitrarily long address streams and writes one NDJSON line per
+ * input address. Only a bounded window of addresses is in flight at a time, so
+ * memory does not grow with the batch. Addresses that normalize to one that is
+ * already in flight share its lookup; later repeats are answered by the cache.
+ * Input that turns out to be malformed part way through ends the stream with a
+ * line carrying only {@code status} ERROR and the {@code error}.
+ */
+@Service
+public class BulkGeocodeService {
+
+    private static final byte[] NEWLINE = {'\n'};
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final GoogleGeocodingService geocodingService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final int maxConcurrency;
+    private final int window;
+
+    public BulkGeocodeService(
+            GoogleGeocodingService geocodingService,
+            @Value("${geocoding.bulk.max-concurrency:16}") int maxConcurrency
+    ) {
+        this.geocodingService = geocodingService;
+        this.maxConcurrency = maxConcurrency;
+        this.window = maxConcurrency * 4;
+    }
+
+    /**
+     * A lazily read address source that holds a parser or reader open until closed.
+     */
+    public interface Addresses extends Iterator<String>, Closeable {
+    }
+
+    /**
+     * @param inputOrder when true, lines are written in input order; otherwise
+     *                   each line is written as soon as its lookup completes
+     */
+    public void geocodeAll(Iterator<String> addresses, boolean inputOrder, OutputStream out)
+            throws IOException, InterruptedException {
+        Batch batch = new Batch();
+        Guarded input = new Guarded(addresses);
+        if (inputOrder) {
+            writeInInputOrder(input, batch, out);
+        } else {
+            writeInCompletionOrder(input, batch, out);
+        }
+        if (input.failure != null) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("status", "ERROR");
+            line.put("error", "Malformed input: " + input.failure.getMessage());
+            out.write(objectMapper.writeValueAsBytes(line));
+            out.write(NEWLINE);
+        }
+        out.flush();
+    }
+
+    /**
+     * Lazily reads the strings of a top-level JSON array. Throws
+     * IllegalArgumentException (or a parse IOException) straight away when the
+     * input does not start with one, so callers can reject it before responding.
+     */
+    public static Addresses jsonArray(InputStream in) throws IOException {
+        JsonParser parser = JSON_FACTORY.createParser(in);
+        try {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of addresses");
+            }
+        } catch (IOException | RuntimeException e) {
+            parser.close();
+            throw e;
+        }
+        return new Addresses() {
+            // Read ahead lazily, so every read error surfaces from hasNext() after the previous value was returned
+            private JsonToken next;
+            private boolean consumed;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        if (consumed) {
+                            // Objects or arrays in place of an address are skipped whole
+                            parser.skipChildren();
+                            consumed = false;
+                        }
+                        next = parser.nextToken();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    if (next == null) {
+                        throw new UncheckedIOException(new EOFException("Unexpected end of the address array"));
+                    }
+                }
+                return next != JsonToken.END_ARRAY;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    String value = next == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                    next = null;
+                    consumed = true;
+                    return value;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                parser.close();
+            }
+        };
+    }
+
+    /**
+     * Lazily reads one address per non-empty line.
+     */
+    public static Addresses lines(InputStream in) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Iterator<String> lines = reader.lines().filter(line -> !line.isBlank()).iterator();
+        return new Addresses() {
+            @Override
+            public boolean hasNext() {
+                return lines.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return lines.next();
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    private void writeInInputOrder(Iterator<String> addresses, Batch batch, OutputStream out)
+            throws IOException, InterruptedException {
+        ArrayDeque<Item> pending = new ArrayDeque<>(window);
+        long index = 0;
+        while (addresses.hasNext()) {
+            if (pending.size() >= window) {
+                write(pending.poll(), out);
+            }
+            pending.add(batch.submit(index++, addresses.next()));
+        }
+        while (!pending.isEmpty()) {
+            write(pending.poll(), out);
+        }
+    }
+
+    private void writeInCompletionOrder(Iterator<String> addresses, Batch batch, OutputStream out)
+            throws IOException, InterruptedException {
+        BlockingQueue<Item> completed = new LinkedBlockingQueue<>();
+        long index = 0;
+        int inFlight = 0;
+        while (addresses.hasNext()) {
+            if (inFlight >= window) {
+                write(completed.take(), out);
+                inFlight--;
+            }
+            Item item = batch.submit(index++, addresses.next());
+            item.result.whenComplete((r, e) -> completed.add(item));
+            inFlight++;
+        }
+        for (; inFlight > 0; inFlight--) {
+            write(completed.take(), out);
+        }
+    }
+
+    private void write(Item item, OutputStream out) throws IOException, InterruptedException {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("index", item.index);
+        line.put("address", item.address);
+        try {
+            Optional<GeoPoint> result = item.result.get();
+            if (result.isPresent()) {
+                line.put("status", "OK");
+                line.put("result", result.get());
+            } else {
+                line.put("status", "NOT_FOUND");
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            line.put("status", "ERROR");
+            line.put("error", cause.getMessage());
+        }
+        out.write(objectMapper.writeValueAsBytes(line));
+        out.write(NEWLINE);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private record Item(long index, String address, CompletableFuture<Optional<GeoPoint>> result) {}
+
+    /**
+     * Ends the input at the first read error instead of failing the whole
+     * response, keeping the error for a final line.
+     */
+    private static final class Guarded implements Iterator<String> {
+        private final Iterator<String> source;
+        UncheckedIOException failure;
+
+        Guarded(Iterator<String> source) {
+            this.source = source;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (failure != null) {
+                return false;
+            }
+            try {
+                return source.hasNext();
+            } catch (UncheckedIOException e) {
+                failure = e;
+                return false;
+            }
+        }
+
+        @Override
+        public String next() {
+            return source.next();
+        }
+    }
+
+    private final class Batch {
+        private final Semaphore permits = new Semaphore(maxConcurrency);
+        private final Map<String, CompletableFuture<Optional<GeoPoint>>> inFlight = new ConcurrentHashMap<>();
+
+        Item submit(long index, String address) {
+            if (address == null || address.isBlank()) {
+                return new Item(index, address, CompletableFuture.failedFuture(
+                        new IllegalArgumentException("Address must not be blank")));
+            }
+            String key = GeocodeCache.normalizeAddress(address);
+            CompletableFuture<Optional<GeoPoint>> existing = inFlight.get(key);
+            if (existing != null) {
+                return new Item(index, address, existing);
+            }
+            CompletableFuture<Optional<GeoPoint>> future = new CompletableFuture<>();
+            inFlight.put(key, future);
+            executor.execute(() -> {
+                try {
+                    permits.acquire();
+                    try {
+                        future.complete(geocodingService.geocode(address));
+                    } finally {
+                        permits.release();
+                    }
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, future);
+                }
+            });
+            return new Item(index, address, future);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.location.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming reader for Google Distance Matrix responses. Each element is handed
+ * to a {@link CellSink} as it is read, so callers can write straight into
+ * primitive arrays without building a tree or per-cell objects.
+ */
+public final class DistanceMatrixParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private DistanceMatrixParser() {
+    }
+
+    @FunctionalInterface
+    public interface CellSink {
+        void cell(int row, int col, String status, long meters, long seconds);
+    }
+
+    /**
+     * Reads the response, reporting every element to the sink, and returns the
+     * top-level status.
+     */
+    public static String parse(InputStream in, CellSink sink) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object");
+            }
+            String status = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("status".equals(field)) {
+                    status = parser.getValueAsString();
+                } else if ("rows".equals(field) && value == JsonToken.START_ARRAY) {
+                    readRows(parser, sink);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return status;
+        }
+    }
+
+    private static void readRows(JsonParser parser, CellSink sink) throws IOException {
+        int row = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("elements".equals(field) && value == JsonToken.START_ARRAY) {
+                    int col = 0;
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        readElement(parser, row, col++, sink);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            row++;
+        }
+    }
+
+    private static void readElement(JsonParser parser, int row, int col, CellSink sink) throws IOException {
+        String status = null;
+        long meters = 0, seconds = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("status".equals(field)) {
+                status = parser.getValueAsString();
+            } else if (("distance".equals(field) || "duration".equals(field)) && value == JsonToken.START_OBJECT) {
+                long v = 0;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String inner = parser.currentName();
+                    parser.nextToken();
+                    if ("value".equals(inner)) v = parser.getValueAsLong();
+                    else parser.skipChildren();
+                }
+                if ("distance".equals(field)) meters = v;
+                else seconds = v;
+            } else {
+                parser.skipChildren();
+            }
+        }
+        sink.cell(row, col, status, meters, seconds);
+    }
+}
@@ -0,0 +1,257 @@
+package com.location.service;
+
+import com.location.dto.DistanceMatrixResponse;
+import com.location.http.UpstreamClients;
+import com.location.http.UpstreamEndpoint;
+import com.location.http.UpstreamLimiter;
+import com.location.http.UpstreamMetrics;
+import com.location.http.UpstreamQuotaException;
+import com.location.http.UpstreamRejectedException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * N x M distance matrices. The request is tiled to fit Google's per-request
+ * limits, tiles are fetched concurrently (at most
+ * {@code distance.matrix.max-concurrency} at a time) and each tile is streamed
+ * into its own flat arrays. The waiting thread copies a tile into the matrix
+ * only once it has completed, so a tile that missed the deadline can never
+ * write into a matrix that has already been returned.
+ */
+@Service
+public class DistanceMatrixService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DistanceMatrixService.class);
+
+    @Value("${distance.matrix.google.api-key}")
+    private String apiKey;
+
+    private final int maxOriginsPerRequest;
+    private final int maxDestinationsPerRequest;
+    private final int maxElementsPerRequest;
+    private final long requestTimeoutMs;
+    private final RestTemplate restTemplate;
+    private final UpstreamLimiter limiter;
+    private final UpstreamMetrics metrics;
+    private final String baseUrl;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+
+    public DistanceMatrixService(
+            UpstreamClients upstreamClients,
+            @Value("${distance.matrix.max-concurrency:8}") int maxConcurrency,
+            @Value("${distance.matrix.max-origins-per-request:25}") int maxOriginsPerRequest,
+            @Value("${distance.matrix.max-destinations-per-request:25}") int maxDestinationsPerRequest,
+            @Value("${distance.matrix.max-elements-per-request:100}") int maxElementsPerRequest,
+            @Value("${distance.matrix.request-timeout-ms:30000}") long requestTimeoutMs
+    ) {
+        this.restTemplate = upstreamClients.restTemplate(UpstreamEndpoint.DISTANCE_MATRIX);
+        this.limiter = upstreamClients.limiter(UpstreamEndpoint.DISTANCE_MATRIX);
+        this.metrics = upstreamClients.metrics();
+        this.baseUrl = upstreamClients.baseUrl();
+        this.permits = new Semaphore(maxConcurrency);
+        this.maxOriginsPerRequest = maxOriginsPerRequest;
+        this.maxDestinationsPerRequest = maxDestinationsPerRequest;
+        this.maxElementsPerRequest = maxElementsPerRequest;
+        this.requestTimeoutMs = requestTimeoutMs;
+    }
+
+    public DistanceMatrixResponse calculateMatrix(List<String> origins, List<String> destinations, String mode) {
+        int rows = origins.size();
+        int cols = destinations.size();
+        DistanceMatrixResponse matrix = new DistanceMatrixResponse();
+        matrix.mode = mode;
+        matrix.rows = rows;
+        matrix.cols = cols;
+        matrix.meters = new int[rows * cols];
+        matrix.seconds = new int[rows * cols];
+        Arrays.fill(matrix.meters, -1);
+        Arrays.fill(matrix.seconds, -1);
+
+        int[] tile = tileShape(rows, cols);
+        List<Tile> tiles = new ArrayList<>();
+        for (int r = 0; r < rows; r += tile[0]) {
+            for (int c = 0; c < cols; c += tile[1]) {
+                Tile t = new Tile(r, Math.min(r + tile[0], rows), c, Math.min(c + tile[1], cols));
+                t.future = executor.submit(() -> fetchTile(origins, destinations, mode, t));
+                tiles.add(t);
+            }
+        }
+
+        Map<String, Integer> statusCounts = new HashMap<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(requestTimeoutMs);
+        for (Tile t : tiles) {
+            try {
+                TileResult result = t.future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                t.copyInto(matrix, result);
+                result.statusCounts.forEach((status, count) -> statusCounts.merge(status, count, Integer::sum));
+            } catch (TimeoutException e) {
+                t.future.cancel(true);
+                statusCounts.merge("TIMEOUT", t.cells(), Integer::sum);
+            } catch (ExecutionException e) {
+                logger.warn("Distance matrix tile failed: {}", e.getCause().getMessage());
+                String status = e.getCause() instanceof UpstreamQuotaException quota ? quota.getStatus()
+                        : e.getCause() instanceof UpstreamRejectedException ? "REJECTED" : "ERROR";
+                statusCounts.merge(status, t.cells(), Integer::sum);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                tiles.forEach(other -> other.future.cancel(true));
+                throw new IllegalStateException("Interrupted while waiting for distance matrix tiles", e);
+            }
+        }
+        matrix.statusCounts = statusCounts;
+        return matrix;
+    }
+
+    /**
+     * Picks the tile height and width that cover the matrix in the fewest
+     * requests while respecting the origin, destination and element limits.
+     */
+    int[] tileShape(int rows, int cols) {
+        int bestRows = 1, bestCols = 1;
+        long bestTiles = Long.MAX_VALUE;
+        for (int r = 1; r <= Math.min(rows, maxOriginsPerRequest); r++) {
+            int c = Math.min(Math.min(cols, maxDestinationsPerRequest), maxElementsPerRequest / r);
+            if (c < 1) {
+                break;
+            }
+            long tiles = (long) ((rows + r - 1) / r) * ((cols + c - 1) / c);
+            if (tiles < bestTiles) {
+                bestTiles = tiles;
+                bestRows = r;
+                bestCols = c;
+            }
+        }
+        return new int[]{bestRows, bestCols};
+    }
+
+    private TileResult fetchTile(List<String> origins, List<String> destinations, String mode, Tile t)
+            throws InterruptedException {
+        permits.acquire();
+        try {
+            String url = String.format(
+                    "%s/maps/api/distancematrix/json?origins=%s&destinations=%s&mode=%s&key=%s",
+                    baseUrl,
+                    joinEncoded(origins.subList(t.rowFrom, t.rowTo)),
+                    joinEncoded(destinations.subList(t.colFrom, t.colTo)),
+                    mode,
+                    apiKey
+            );
+            TileResult result = new TileResult(t.rowTo - t.rowFrom, t.colTo - t.colFrom);
+            // URI rather than String: the query is already encoded and must not be expanded again
+            String status = fetch(URI.create(url), mode, t.cells(), (row, col, cellStatus, meters, seconds) -> {
+                if (row >= result.rows || col >= result.cols) {
+                    return;
+                }
+                result.statusCounts.merge(cellStatus == null ? "UNKNOWN" : cellStatus, 1, Integer::sum);
+                if ("OK".equals(cellStatus)) {
+                    int i = row * result.cols + col;
+                    result.meters[i] = (int) meters;
+                    result.seconds[i] = (int) seconds;
+                }
+            });
+            if (UpstreamQuotaException.isQuotaStatus(status)) {
+                throw new UpstreamQuotaException("Distance Matrix", status);
+            }
+            if (!"OK".equals(status)) {
+                throw new UpstreamStatusException("Distance Matrix", status);
+            }
+            return result;
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * One tile from Google, through the limiter at {@code cells} tokens; streams
+     * each element to {@code sink} and returns the top-level status.
+     */
+    String fetch(URI uri, String mode, int cells, DistanceMatrixParser.CellSink sink) {
+        return limiter.execute(cells, () -> metrics.time(UpstreamEndpoint.DISTANCE_MATRIX, mode,
+                () -> restTemplate.execute(uri, HttpMethod.GET, null, response -> metrics.parse(UpstreamEndpoint.DISTANCE_MATRIX,
+                        () -> DistanceMatrixParser.parse(response.getBody(), sink))),
+                tileStatus -> tileStatus));
+    }
+
+    private static String joinEncoded(List<String> places) {
+        StringBuilder sb = new StringBuilder();
+        for (String place : places) {
+            if (sb.length() > 0) {
+                sb.append("%7C");
+            }
+            sb.append(URLEncoder.encode(place, StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * One tile's answers, row-major within the tile. Written only by the thread
+     * fetching the tile.
+     */
+    private static final class TileResult {
+        final int rows, cols;
+        final int[] meters;
+        final int[] seconds;
+        final Map<String, Integer> statusCounts = new HashMap<>();
+
+        TileResult(int rows, int cols) {
+            this.rows = rows;
+            this.cols = cols;
+            this.meters = new int[rows * cols];
+            this.seconds = new int[rows * cols];
+            Arrays.fill(meters, -1);
+            Arrays.fill(seconds, -1);
+        }
+    }
+
+    private static final class Tile {
+        final int rowFrom, rowTo, colFrom, colTo;
+        Future<TileResult> future;
+
+        Tile(int rowFrom, int rowTo, int colFrom, int colTo) {
+            this.rowFrom = rowFrom;
+            this.rowTo = rowTo;
+            this.colFrom = colFrom;
+            this.colTo = colTo;
+        }
+
+        int cells() {
+            return (rowTo - rowFrom) * (colTo - colFrom);
+        }
+
+        void copyInto(DistanceMatrixResponse matrix, TileResult result) {
+            for (int row = 0; row < result.rows; row++) {
+                int from = row * result.cols;
+                int to = matrix.index(rowFrom + row, colFrom);
+                System.arraycopy(result.meters, from, matrix.meters, to, result.cols);
+                System.arraycopy(result.seconds, from, matrix.seconds, to, result.cols);
+            }
+        }
+    }
+}
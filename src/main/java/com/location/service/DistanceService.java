@@ -1,71 +1,350 @@
 package com.location.service;
 
-import com.location.dto.DistanceRequest;
+import com.location.cache.DistanceCache;
+import com.location.cache.DistanceCache.Route;
+import com.location.cache.GeocodeCache;
+import com.location.cache.PeerCache;
 import com.location.dto.DistanceResponse;
+import com.location.http.UpstreamClients;
+import com.location.http.UpstreamEndpoint;
+import com.location.http.UpstreamLimiter;
+import com.location.http.UpstreamMetrics;
+import com.location.http.UpstreamQuotaException;
+import com.location.http.UpstreamRejectedException;
 import com.location.dto.DistanceResponse.TravelInfo;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class DistanceService {
 
+    public static final List<String> DEFAULT_MODES = List.of("driving", "walking", "bicycling");
+    private static final Set<String> SUPPORTED_MODES = Set.of("driving", "walking", "bicycling", "transit");
+    private static final Set<String> FAILED_STATUSES = Set.of("TIMEOUT", "ERROR");
+
+    private static final Logger logger = LoggerFactory.getLogger(DistanceService.class);
+
     @Value("${distance.matrix.google.api-key}")
     private String apiKey;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
+    private final UpstreamLimiter limiter;
+    private final UpstreamMetrics metrics;
+    private final String baseUrl;
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final SingleFlight<String, DistanceResponse> inFlight;
+    private final DistanceCache cache;
+    private final PeerCache peers;
+    private final long modeTimeoutMs;
+
+    public DistanceService(
+            UpstreamClients upstreamClients,
+            DistanceCache cache,
+            PeerCache peers,
+            @Value("${distance.coalescing.timeout-ms:10000}") long coalescingTimeoutMs,
+            @Value("${distance.matrix.mode-timeout-ms:5000}") long modeTimeoutMs
+    ) {
+        this.restTemplate = upstreamClients.restTemplate(UpstreamEndpoint.DISTANCE);
+        this.limiter = upstreamClients.limiter(UpstreamEndpoint.DISTANCE);
+        this.metrics = upstreamClients.metrics();
+        this.baseUrl = upstreamClients.baseUrl();
+        this.inFlight = new SingleFlight<>("Distance Matrix", coalescingTimeoutMs);
+        this.cache = cache;
+        this.peers = peers;
+        this.modeTimeoutMs = modeTimeoutMs;
+        inFlight.bindTo(metrics.registry(), "distance");
+    }
 
     public DistanceResponse calculateDistances(String origin, String destination) {
-        Map<String, TravelInfo> modesMap = new HashMap<>();
-        String[] modes = {"driving", "walking", "bicycling"};
+        return calculateDistances(origin, destination, DEFAULT_MODES);
+    }
+
+    /**
+     * Answers from {@link DistanceCache} when every mode is cached, else fetches
+     * the missing modes concurrently. Modes that have not answered within
+     * {@code distance.matrix.mode-timeout-ms} are cancelled and reported with
+     * status TIMEOUT, so a slow mode never holds back the others. Failed modes
+     * fall back to their last known answer, as in {@link #respond}.
+     */
+    public DistanceResponse calculateDistances(String origin, String destination, List<String> modes) {
+        List<String> selected = validateModes(modes);
+        Route route = cache.route(origin, destination);
+        DistanceResponse cached = cachedResponse(cache, route, selected);
+        if (cached != null) {
+            return cached;
+        }
+        return inFlight.execute(coalescingKey(origin, destination, selected),
+                () -> fetchModes(origin, destination, route, selected));
+    }
+
+    /**
+     * A response built entirely from cache, or {@code null} if any mode is missing.
+     */
+    static DistanceResponse cachedResponse(DistanceCache cache, Route route, List<String> modes) {
+        Map<String, TravelInfo> modesMap = new LinkedHashMap<>();
         for (String mode : modes) {
-            try {
-                String url = String.format(
-                        "https://maps.googleapis.com/maps/api/distancematrix/json?origins=%s&destinations=%s&mode=%s&key=%s",
-                        URLEncoder.encode(origin, StandardCharsets.UTF_8),
-                        URLEncoder.encode(destination, StandardCharsets.UTF_8),
-                        mode,
-                        apiKey
-                );
-                String json = restTemplate.getForObject(url, String.class);
-                JsonNode root = objectMapper.readTree(json);
-                JsonNode element = root.path("rows").get(0).path("elements").get(0);
-                TravelInfo info = new TravelInfo();
-                if ("OK".equals(element.path("status").asText())) {
-                    JsonNode dist = element.path("distance");
-                    JsonNode dur = element.path("duration");
-                    info.distanceText = dist.path("text").asText();
-                    info.distanceValue = dist.path("value").asLong();
-                    info.durationText = dur.path("text").asText();
-                    info.durationValue = dur.path("value").asLong();
-                } else {
-                    info.distanceText = null;
-                    info.distanceValue = 0;
-                    info.durationText = null;
-                    info.durationValue = 0;
+            TravelInfo info = cache.get(route, mode);
+            if (info == null) {
+                return null;
+            }
+            modesMap.put(mode, info);
+        }
+        DistanceResponse response = new DistanceResponse();
+        response.travelModes = modesMap;
+        return response;
+    }
+
+    /**
+     * The response for the requested modes. A mode that failed (TIMEOUT or
+     * ERROR), or was never answered because {@code refusal} cut the request
+     * short, is replaced by its last known answer from the cache, the way
+     * geocoding serves stale results while Google is down. Without one, a
+     * refusal is rethrown, and a request where no mode has an answer fails
+     * (504 when every mode timed out, else 502), so a 0 m, 0 s placeholder is
+     * never all the caller gets.
+     */
+    static DistanceResponse respond(DistanceCache cache, Route route, List<String> modes,
+                                    Map<String, TravelInfo> answers, UpstreamRejectedException refusal) {
+        Map<String, TravelInfo> modesMap = new LinkedHashMap<>();
+        List<String> staleModes = new ArrayList<>();
+        boolean answered = false;
+        boolean timedOut = true;
+        for (String mode : modes) {
+            TravelInfo info = answers.get(mode);
+            if (info == null || FAILED_STATUSES.contains(info.status)) {
+                TravelInfo last = cache.getStale(route, mode);
+                if (last != null) {
+                    info = last;
+                    staleModes.add(mode);
+                } else if (refusal != null) {
+                    throw refusal;
                 }
-                modesMap.put(mode, info);
-            } catch (RestClientException | java.io.IOException e) {
-                TravelInfo info = new TravelInfo();
-                info.distanceText = null;
-                info.distanceValue = 0;
-                info.durationText = null;
-                info.durationValue = 0;
-                modesMap.put(mode, info);
             }
+            if (!FAILED_STATUSES.contains(info.status)) {
+                answered = true;
+            } else if (!"TIMEOUT".equals(info.status)) {
+                timedOut = false;
+            }
+            modesMap.put(mode, info);
+        }
+        if (!answered) {
+            if (timedOut) {
+                throw new UpstreamTimeoutException("Distance Matrix timed out for every travel mode");
+            }
+            throw new UpstreamStatusException("Distance Matrix", "ERROR");
+        }
+        if (!staleModes.isEmpty()) {
+            logger.warn("Serving stale {} for {} -> {}: {}", staleModes, route.from(), route.to(),
+                    refusal != null ? refusal.getMessage() : "Google did not answer");
         }
         DistanceResponse response = new DistanceResponse();
         response.travelModes = modesMap;
+        response.stale = !staleModes.isEmpty();
         return response;
     }
+
+    static String coalescingKey(String origin, String destination, List<String> modes) {
+        return GeocodeCache.normalizeAddress(origin) + '|' + GeocodeCache.normalizeAddress(destination)
+                + '|' + String.join(",", modes);
+    }
+
+    public Map<String, Object> coalescingStats() {
+        return inFlight.stats();
+    }
+
+    public Map<String, Object> cacheStats() {
+        return cache.stats();
+    }
+
+    private DistanceResponse fetchModes(String origin, String destination, Route route, List<String> selected) {
+        Map<String, TravelInfo> cached = new HashMap<>();
+        Map<String, Future<TravelInfo>> pending = new LinkedHashMap<>();
+        for (String mode : selected) {
+            TravelInfo info = cache.get(route, mode);
+            if (info != null) {
+                cached.put(mode, info);
+            } else {
+                pending.put(mode, executor.submit(() -> fetchMode(origin, destination, route, mode)));
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(modeTimeoutMs);
+        Map<String, TravelInfo> modesMap = new HashMap<>();
+        UpstreamRejectedException refusal = null;
+        for (String mode : selected) {
+            Future<TravelInfo> future = pending.get(mode);
+            if (future == null) {
+                modesMap.put(mode, cached.get(mode));
+                continue;
+            }
+            try {
+                modesMap.put(mode, future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                modesMap.put(mode, emptyInfo("TIMEOUT"));
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UpstreamRejectedException rejected) {
+                    // Quota or limiter refusals stop the other modes, and fail the whole request
+                    // unless every mode left has a stale answer
+                    pending.values().forEach(f -> f.cancel(true));
+                    refusal = rejected;
+                    break;
+                }
+                modesMap.put(mode, emptyInfo("ERROR"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pending.values().forEach(f -> f.cancel(true));
+                modesMap.put(mode, emptyInfo("ERROR"));
+            }
+        }
+        return respond(cache, route, selected, modesMap, refusal);
+    }
+
+    private TravelInfo fetchMode(String origin, String destination, Route route, String mode) {
+        String key = cache.key(route, mode);
+        TravelInfo shared = peers.get("distance", key, TravelInfo.class);
+        if (shared != null) {
+            return shared;
+        }
+        try {
+            TravelInfo info = fetch(origin, destination, mode);
+            cache.put(route, mode, info);
+            if ("OK".equals(info.status)) {
+                peers.offer("distance", key, info);
+            }
+            return info;
+        } catch (RestClientException | UncheckedIOException e) {
+            return emptyInfo("ERROR");
+        }
+    }
+
+    /**
+     * One mode from Google, through the limiter.
+     */
+    TravelInfo fetch(String origin, String destination, String mode) {
+        return limiter.execute(1, () -> metrics.time(UpstreamEndpoint.DISTANCE, mode,
+                () -> readTravelInfo(restTemplate.getForObject(modeUri(origin, destination, mode), byte[].class)),
+                i -> i.status));
+    }
+
+    URI modeUri(String origin, String destination, String mode) {
+        return URI.create(String.format(
+                "%s/maps/api/distancematrix/json?origins=%s&destinations=%s&mode=%s&key=%s",
+                baseUrl,
+                URLEncoder.encode(origin, StandardCharsets.UTF_8),
+                URLEncoder.encode(destination, StandardCharsets.UTF_8),
+                mode,
+                apiKey
+        ));
+    }
+
+    /**
+     * Reads the single element of a 1x1 response. A quota status throws so the
+     * limiter can back off and the caller sees it instead of an empty result.
+     */
+    TravelInfo readTravelInfo(byte[] json) {
+        JsonNode root;
+        try {
+            root = metrics.parse(UpstreamEndpoint.DISTANCE, () -> objectMapper.readTree(json));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (UpstreamQuotaException.isQuotaStatus(root.path("status").asText())) {
+            throw new UpstreamQuotaException("Distance Matrix", root.path("status").asText());
+        }
+        JsonNode element = root.path("rows").path(0).path("elements").path(0);
+        String status = element.path("status").asText(root.path("status").asText("ERROR"));
+        if (!"OK".equals(status)) {
+            return emptyInfo(status);
+        }
+        JsonNode dist = element.path("distance");
+        JsonNode dur = element.path("duration");
+        TravelInfo info = new TravelInfo();
+        info.status = status;
+        info.distanceText = dist.path("text").asText();
+        info.distanceValue = dist.path("value").asLong();
+        info.durationText = dur.path("text").asText();
+        info.durationValue = dur.path("value").asLong();
+        return info;
+    }
+
+    long modeTimeoutMs() {
+        return modeTimeoutMs;
+    }
+
+    /**
+     * The canonical (trimmed, lower-case) form of a travel mode, or {@code null}
+     * when it is missing or not supported.
+     */
+    public static String supportedMode(String mode) {
+        if (mode == null) {
+            return null;
+        }
+        String canonical = mode.trim().toLowerCase(Locale.ROOT);
+        return SUPPORTED_MODES.contains(canonical) ? canonical : null;
+    }
+
+    /**
+     * The requested modes in canonical form without duplicates, or the default
+     * modes when none were given. Throws IllegalArgumentException (a 400) for a
+     * null, blank or unsupported entry.
+     */
+    static List<String> validateModes(List<String> modes) {
+        if (modes == null || modes.isEmpty()) {
+            return DEFAULT_MODES;
+        }
+        List<String> selected = new ArrayList<>(modes.size());
+        for (String mode : modes) {
+            String canonical = supportedMode(mode);
+            if (canonical == null) {
+                throw new IllegalArgumentException("Unsupported travel mode: " + mode);
+            }
+            if (!selected.contains(canonical)) {
+                selected.add(canonical);
+            }
+        }
+        return List.copyOf(selected);
+    }
+
+    static TravelInfo emptyInfo(String status) {
+        TravelInfo info = new TravelInfo();
+        info.status = status;
+        info.distanceText = null;
+        info.distanceValue = 0;
+        info.durationText = null;
+        info.durationValue = 0;
+        return info;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
 }
@@ -0,0 +1,171 @@
+package com.location.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.location.service.GoogleGeocodingService.GeoPoint;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming reader for Google Geocoding API responses. Only the fields a
+ * {@link GeoPoint} needs are pulled out of {@code results[0]}; everything else
+ * is skipped without being materialized, and reading stops as soon as the first
+ * result has been read.
+ */
+public final class GeocodeResponseParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final int STREET_NUMBER = 1;
+    private static final int ROUTE = 1 << 1;
+    private static final int LOCALITY = 1 << 2;
+    private static final int ADMIN_AREA_1 = 1 << 3;
+    private static final int COUNTRY = 1 << 4;
+    private static final int POSTAL_CODE = 1 << 5;
+
+    private GeocodeResponseParser() {
+    }
+
+    /**
+     * @param status the top-level Google status ("OK", "ZERO_RESULTS", ...), or
+     *               "OK" when reading stopped after the first result
+     * @param first  the first result, or {@code null} when there were none
+     */
+    public record Parsed(String status, GeoPoint first) {}
+
+    public static Parsed parse(InputStream in) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            return parse(parser);
+        }
+    }
+
+    public static Parsed parse(byte[] json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return parse(parser);
+        }
+    }
+
+    private static Parsed parse(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object");
+        }
+        String status = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("status".equals(field)) {
+                status = parser.getValueAsString();
+            } else if ("results".equals(field) && value == JsonToken.START_ARRAY) {
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    // A non-empty result list implies status OK; no need to read on
+                    return new Parsed("OK", readResult(parser));
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new Parsed(status, null);
+    }
+
+    private static GeoPoint readResult(JsonParser parser) throws IOException {
+        double lat = 0, lng = 0;
+        String formattedAddress = null, locationType = null, placeId = null;
+        boolean partialMatch = false;
+        String streetNumber = null, street = null, city = null, state = null, country = null, postalCode = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "formatted_address" -> formattedAddress = parser.getValueAsString();
+                case "place_id" -> placeId = parser.getValueAsString();
+                case "partial_match" -> partialMatch = parser.getValueAsBoolean();
+                case "geometry" -> {
+                    if (value != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        break;
+                    }
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String geometryField = parser.currentName();
+                        JsonToken geometryValue = parser.nextToken();
+                        if ("location_type".equals(geometryField)) {
+                            locationType = parser.getValueAsString();
+                        } else if ("location".equals(geometryField) && geometryValue == JsonToken.START_OBJECT) {
+                            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                                String axis = parser.currentName();
+                                parser.nextToken();
+                                if ("lat".equals(axis)) lat = parser.getValueAsDouble();
+                                else if ("lng".equals(axis)) lng = parser.getValueAsDouble();
+                                else parser.skipChildren();
+                            }
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+                case "address_components" -> {
+                    if (value != JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                        break;
+                    }
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        String longName = null;
+                        int types = 0;
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String componentField = parser.currentName();
+                            JsonToken componentValue = parser.nextToken();
+                            if ("long_name".equals(componentField)) {
+                                longName = parser.getValueAsString();
+                            } else if ("types".equals(componentField) && componentValue == JsonToken.START_ARRAY) {
+                                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                                    types |= typeBit(parser.getValueAsString());
+                                }
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                        if ((types & STREET_NUMBER) != 0) streetNumber = longName;
+                        else if ((types & ROUTE) != 0) street = longName;
+                        else if ((types & LOCALITY) != 0) city = longName;
+                        else if ((types & ADMIN_AREA_1) != 0) state = longName;
+                        else if ((types & COUNTRY) != 0) country = longName;
+                        else if ((types & POSTAL_CODE) != 0) postalCode = longName;
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+
+        return new GeoPoint(
+                lat,
+                lng,
+                formattedAddress,
+                locationType,
+                partialMatch,
+                placeId,
+                streetNumber,
+                street,
+                city,
+                state,
+                country,
+                postalCode
+        );
+    }
+
+    private static int typeBit(String type) {
+        if (type == null) {
+            return 0;
+        }
+        return switch (type) {
+            case "street_number" -> STREET_NUMBER;
+            case "route" -> ROUTE;
+            case "locality" -> LOCALITY;
+            case "administrative_area_level_1" -> ADMIN_AREA_1;
+            case "country" -> COUNTRY;
+            case "postal_code" -> POSTAL_CODE;
+            default -> 0;
+        };
+    }
+}
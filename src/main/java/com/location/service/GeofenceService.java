@@ -0,0 +1,159 @@
+package com.location.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.location.geo.GeofenceIndex;
+import com.location.geo.GeofenceIndex.Zone;
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Registry of delivery zones (or any other areas) given as GeoJSON polygons,
+ * answering which zones contain a point, an address or a batch of points.
+ */
+@Service
+public class GeofenceService implements MeterBinder {
+
+    // Taken by GeofenceController's own paths under /api/geofences
+    private static final Set<String> RESERVED_IDS = Set.of("stats", "contains");
+
+    private final GoogleGeocodingService geocodingService;
+    private final GeofenceIndex index;
+    private final int maxVertices;
+
+    public GeofenceService(
+            GoogleGeocodingService geocodingService,
+            @Value("${geofence.node-capacity:16}") int nodeCapacity,
+            @Value("${geofence.max-zones:10000}") int maxZones,
+            @Value("${geofence.max-vertices:100000}") int maxVertices
+    ) {
+        this.geocodingService = geocodingService;
+        this.index = new GeofenceIndex(nodeCapacity, maxZones);
+        this.maxVertices = maxVertices;
+    }
+
+    /**
+     * Adds or replaces a zone from a GeoJSON Polygon, MultiPolygon or a Feature
+     * holding one.
+     */
+    public Zone put(String id, JsonNode geoJson) {
+        checkId(id);
+        return index.put(id, polygons(geoJson));
+    }
+
+    /**
+     * Adds or replaces every feature of a GeoJSON FeatureCollection, keyed by
+     * the feature's {@code id} or else its {@code properties.id}.
+     */
+    public List<Zone> putAll(JsonNode featureCollection) {
+        if (!"FeatureCollection".equals(featureCollection.path("type").asText())) {
+            throw new IllegalArgumentException("Expected a GeoJSON FeatureCollection");
+        }
+        Map<String, List<double[][]>> zones = new LinkedHashMap<>();
+        for (JsonNode feature : featureCollection.path("features")) {
+            JsonNode id = feature.hasNonNull("id") ? feature.get("id") : feature.path("properties").path("id");
+            if (!id.isValueNode() || id.asText().isBlank()) {
+                throw new IllegalArgumentException("Every feature needs an id or properties.id");
+            }
+            checkId(id.asText());
+            if (zones.put(id.asText(), polygons(feature)) != null) {
+                throw new IllegalArgumentException("Duplicate zone id: " + id.asText());
+            }
+        }
+        return index.putAll(zones);
+    }
+
+    public boolean remove(String id) {
+        return index.remove(id);
+    }
+
+    public Optional<Zone> get(String id) {
+        return index.get(id);
+    }
+
+    public List<Zone> zones() {
+        return index.zones();
+    }
+
+    public List<String> containing(double lat, double lng) {
+        return index.containing(lat, lng);
+    }
+
+    public List<List<String>> containing(double[] lats, double[] lngs) {
+        return index.containing(lats, lngs);
+    }
+
+    public Optional<GeoPoint> locate(String address) {
+        return geocodingService.geocode(address);
+    }
+
+    public Map<String, Object> stats() {
+        return index.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("geofence.zones", index, GeofenceIndex::size).register(registry);
+    }
+
+    private static void checkId(String id) {
+        if (RESERVED_IDS.contains(id)) {
+            throw new IllegalArgumentException("'" + id + "' is reserved and cannot be used as a zone id");
+        }
+    }
+
+    private List<double[][]> polygons(JsonNode geoJson) {
+        JsonNode geometry = "Feature".equals(geoJson.path("type").asText()) ? geoJson.path("geometry") : geoJson;
+        String type = geometry.path("type").asText();
+        JsonNode coordinates = geometry.path("coordinates");
+        List<double[][]> polygons = new ArrayList<>();
+        switch (type) {
+            case "Polygon" -> polygons.add(rings(coordinates));
+            case "MultiPolygon" -> coordinates.forEach(polygon -> polygons.add(rings(polygon)));
+            default -> throw new IllegalArgumentException("Expected a GeoJSON Polygon or MultiPolygon, got '" + type + "'");
+        }
+        int vertices = 0;
+        for (double[][] rings : polygons) {
+            for (double[] ring : rings) {
+                vertices += ring.length / 2;
+            }
+        }
+        if (vertices > maxVertices) {
+            throw new IllegalArgumentException("A zone may have at most " + maxVertices + " vertices");
+        }
+        return polygons;
+    }
+
+    private static double[][] rings(JsonNode polygon) {
+        if (!polygon.isArray() || polygon.isEmpty()) {
+            throw new IllegalArgumentException("A polygon needs at least one ring");
+        }
+        double[][] rings = new double[polygon.size()][];
+        for (int r = 0; r < rings.length; r++) {
+            JsonNode ring = polygon.get(r);
+            double[] flat = new double[ring.size() * 2];
+            for (int i = 0; i < ring.size(); i++) {
+                JsonNode position = ring.get(i);
+                if (!position.isArray() || position.size() < 2
+                        || !position.get(0).isNumber() || !position.get(1).isNumber()) {
+                    throw new IllegalArgumentException("Positions must be [lng, lat] numbers");
+                }
+                // GeoJSON positions are [lng, lat]
+                flat[2 * i] = position.get(0).asDouble();
+                flat[2 * i + 1] = position.get(1).asDouble();
+            }
+            rings[r] = flat;
+        }
+        return rings;
+    }
+}
@@ -1,24 +1,47 @@
 package com.location.service;
 
-import com.location.dto.GeocodeResponse;
+import com.location.cache.AutocompleteIndex;
+import com.location.cache.CacheHit;
+import com.location.cache.GeocodeCache;
+import com.location.cache.GeocodeStore;
+import com.location.cache.PeerCache;
+import com.location.cache.ReverseGeocodeCache;
+import com.location.geo.Gazetteer;
+import com.location.geo.Haversine;
+import com.location.http.UpstreamClients;
+import com.location.http.UpstreamEndpoint;
+import com.location.http.UpstreamLimiter;
+import com.location.http.UpstreamMetrics;
+import com.location.http.UpstreamQuotaException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriUtils;
 
-import java.io.IOException;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.client.ClientHttpResponse;
-import org.springframework.web.client.ResponseExtractor;
-import org.springframework.web.client.RestClientException;
 
 @Service
 public class GoogleGeocodingService {
@@ -26,180 +49,445 @@ public class GoogleGeocodingService {
     @Value("${geocoding.google.api-key}")
     private String apiKey;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Value("${geocoding.debug.raw-sample-rate:0.0}")
+    private double rawSampleRate;
+
+    private final RestTemplate restTemplate;
+    private final UpstreamLimiter limiter;
+    private final UpstreamMetrics metrics;
+    private final String baseUrl;
+    private final GeocodeCache cache;
+    private final ReverseGeocodeCache reverseCache;
+    private final GeocodeStore store;
+    private final Gazetteer gazetteer;
+    private final AutocompleteIndex autocomplete;
+    private final PeerCache peers;
+    private final SingleFlight<String, Optional<GeoPoint>> inFlight;
+    private final long refreshAheadMillis;
+    private final ExecutorService refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder staleServed = new LongAdder();
 
     private static final Logger logger = LoggerFactory.getLogger(GoogleGeocodingService.class);
 
+    public GoogleGeocodingService(
+            GeocodeCache cache,
+            ReverseGeocodeCache reverseCache,
+            GeocodeStore store,
+            Gazetteer gazetteer,
+            AutocompleteIndex autocomplete,
+            PeerCache peers,
+            UpstreamClients upstreamClients,
+            @Value("${geocoding.coalescing.timeout-ms:10000}") long coalescingTimeoutMs,
+            @Value("${geocoding.cache.refresh-ahead-ms:3600000}") long refreshAheadMillis
+    ) {
+        if (refreshAheadMillis >= cache.ttlMillis() || refreshAheadMillis >= reverseCache.ttlMillis()) {
+            // Every entry would be inside the window from the moment it is cached, so every hit would reload it
+            throw new IllegalArgumentException("geocoding.cache.refresh-ahead-ms must be below geocoding.cache.ttl-ms"
+                    + " and geocoding.reverse-cache.ttl-ms");
+        }
+        this.restTemplate = upstreamClients.restTemplate(UpstreamEndpoint.GEOCODE);
+        this.limiter = upstreamClients.limiter(UpstreamEndpoint.GEOCODE);
+        this.metrics = upstreamClients.metrics();
+        this.baseUrl = upstreamClients.baseUrl();
+        this.cache = cache;
+        this.reverseCache = reverseCache;
+        this.store = store;
+        this.gazetteer = gazetteer;
+        this.autocomplete = autocomplete;
+        this.peers = peers;
+        this.inFlight = new SingleFlight<>("Geocoding", coalescingTimeoutMs);
+        this.refreshAheadMillis = refreshAheadMillis;
+
+        MeterRegistry registry = metrics.registry();
+        inFlight.bindTo(registry, "geocode");
+        FunctionCounter.builder("geocode.stale.served", staleServed, LongAdder::sum).register(registry);
+        FunctionCounter.builder("geocode.refreshes", refreshes, LongAdder::sum).register(registry);
+    }
+
+    /**
+     * A result and whether it was served stale from cache because Google could
+     * not be reached (circuit open, quota, timeout, ...) or answered locally by
+     * the gazetteer.
+     */
+    public record Lookup(Optional<GeoPoint> result, boolean stale, boolean local) {
+
+        public Lookup(Optional<GeoPoint> result, boolean stale) {
+            this(result, stale, false);
+        }
+
+        static Lookup local(Optional<GeoPoint> result) {
+            return new Lookup(result, false, true);
+        }
+    }
+
     public Optional<GeoPoint> geocode(String address) {
-        logger.info("Geocoding address: {}", address);
-        String encoded = UriUtils.encodeQueryParam(address, StandardCharsets.UTF_8);
-        String url = String.format("https://maps.googleapis.com/maps/api/geocode/json?address=%s&key=%s", encoded, apiKey);
-        logger.info("Request URL: {}", url);
+        return lookupAddress(address).result();
+    }
 
-        // Log raw JSON response
-        try {
-            String rawJson = restTemplate.execute(url, HttpMethod.GET, null, new ResponseExtractor<String>() {
-                @Override
-                public String extractData(ClientHttpResponse response) throws IOException {
-                    return new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
-                }
-            });
-            logger.info("Raw JSON response: {}", rawJson);
-        } catch (RestClientException e) {
-            logger.error("Error fetching raw JSON response: {}", e.getMessage(), e);
-        }
-
-        ResponseEntity<GeocodeResponse> response = restTemplate.getForEntity(url, GeocodeResponse.class);
-        logger.info("Raw response: {}", response);
-        GeocodeResponse body = response.getBody();
-        logger.info("Deserialized GeocodeResponse: {}", body);
-
-        if (body != null && body.results != null && !body.results.isEmpty()) {
-            var result = body.results.get(0);
-            var loc = result.geometry.location;
-            // Defensive extraction of address components
-            String streetNumber = null, street = null, city = null, state = null, country = null, postalCode = null;
-            if (result.address_components != null) {
-                for (var comp : result.address_components) {
-                    if (comp.types.contains("street_number")) streetNumber = comp.long_name;
-                    else if (comp.types.contains("route")) street = comp.long_name;
-                    else if (comp.types.contains("locality")) city = comp.long_name;
-                    else if (comp.types.contains("administrative_area_level_1")) state = comp.long_name;
-                    else if (comp.types.contains("country")) country = comp.long_name;
-                    else if (comp.types.contains("postal_code")) postalCode = comp.long_name;
-                }
-            }
-            return Optional.of(new GeoPoint(
-                    loc.lat,
-                    loc.lng,
-                    result.formatted_address,
-                    result.geometry.location_type,
-                    result.partial_match,
-                    result.place_id,
-                    streetNumber,
-                    street,
-                    city,
-                    state,
-                    country,
-                    postalCode
-            ));
-        }
-
-        logger.warn("No geocoding result found for address: {}", address);
-        return Optional.empty();
+    public Lookup lookupAddress(String address) {
+        return resolve(addressQuery(address));
     }
 
     public Optional<GeoPoint> reverseGeocode(double lat, double lng) {
-        logger.info("Reverse geocoding lat: {}, lng: {}", lat, lng);
-        String url = String.format(
-                "https://maps.googleapis.com/maps/api/geocode/json?latlng=%f,%f&key=%s",
-                lat, lng, apiKey
-        );
-        logger.info("Request URL: {}", url);
-
-        // Log raw JSON response
+        return lookupReverse(lat, lng).result();
+    }
+
+    public Lookup lookupReverse(double lat, double lng) {
+        return resolve(reverseQuery(lat, lng));
+    }
+
+    /**
+     * Reverse lookup where the city is all the caller needs: answered from the
+     * gazetteer when a known place is close enough, else a regular reverse lookup.
+     */
+    public Lookup lookupLocality(double lat, double lng) {
+        return resolve(localityQuery(lat, lng));
+    }
+
+    public Optional<GeoPoint> geocodeByPlaceId(String placeId) {
+        return lookupPlaceId(placeId).result();
+    }
+
+    public Lookup lookupPlaceId(String placeId) {
+        return resolve(placeIdQuery(placeId));
+    }
+
+    /**
+     * One kind of lookup ({@code kind} tags its metrics): the coalescing and store key, a local answer
+     * that needs neither cache nor Google (the gazetteer), how to read the memory
+     * cache, how to warm it from the store (cache only, for the record's remaining
+     * lifetime) or remember a fresh answer (cache and
+     * store), and the upstream request. Shared with ReactiveGeocodingService so
+     * both paths read and fill the same cache and store.
+     */
+    record Query(
+            String kind,
+            String key,
+            String description,
+            Supplier<Optional<GeoPoint>> local,
+            Supplier<CacheHit<Optional<GeoPoint>>> cached,
+            ObjLongConsumer<GeoPoint> warm,
+            Supplier<URI> uri,
+            Consumer<Optional<GeoPoint>> remember
+    ) {}
+
+    Query addressQuery(String address) {
+        return new Query(
+                "address",
+                addressKey(address),
+                "address: " + address,
+                () -> gazetteer.geocode(address),
+                () -> cache.lookupAddress(address),
+                (point, remainingMillis) -> cache.warmAddress(address, point, remainingMillis),
+                () -> addressUri(address),
+                result -> {
+                    cache.putAddress(address, result);
+                    result.ifPresent(point -> {
+                        store.put(addressKey(address), point);
+                        persistPlaceId(point);
+                    });
+                });
+    }
+
+    Query reverseQuery(double lat, double lng) {
+        return reverseQuery(lat, lng, Optional::empty);
+    }
+
+    Query localityQuery(double lat, double lng) {
+        return reverseQuery(lat, lng, () -> gazetteer.locality(lat, lng));
+    }
+
+    private Query reverseQuery(double lat, double lng, Supplier<Optional<GeoPoint>> local) {
+        return new Query(
+                "reverse",
+                reverseKey(lat, lng),
+                "lat: " + lat + ", lng: " + lng,
+                local,
+                () -> reverseCache.lookup(lat, lng),
+                (point, remainingMillis) -> reverseCache.warm(lat, lng, point, remainingMillis),
+                () -> reverseUri(lat, lng),
+                result -> {
+                    reverseCache.put(lat, lng, result);
+                    result.ifPresent(point -> {
+                        cache.putPlaceId(point.placeId(), result);
+                        store.put(reverseKey(lat, lng), point);
+                        persistPlaceId(point);
+                    });
+                });
+    }
+
+    Query placeIdQuery(String placeId) {
+        return new Query(
+                "placeid",
+                placeIdKey(placeId),
+                "placeId: " + placeId,
+                () -> gazetteer.byPlaceId(placeId),
+                () -> cache.lookupPlaceId(placeId),
+                (point, remainingMillis) -> cache.warmPlaceId(placeId, point, remainingMillis),
+                () -> placeIdUri(placeId),
+                result -> {
+                    cache.putPlaceId(placeId, result);
+                    result.ifPresent(this::persistPlaceId);
+                });
+    }
+
+    /**
+     * Fresh memory cache entry, else a disk store entry (which warms the
+     * cache until the store record expires), else the stale cache entry if
+     * there is one, else {@code null}.
+     */
+    CacheHit<Optional<GeoPoint>> known(Query query) {
+        CacheHit<Optional<GeoPoint>> hit = query.cached().get();
+        if (hit != null && !hit.stale()) {
+            return hit;
+        }
+        GeocodeStore.Stored stored = store.lookup(query.key());
+        if (stored != null) {
+            query.warm().accept(stored.point(), stored.remainingMillis());
+            CacheHit<Optional<GeoPoint>> warmed = query.cached().get();
+            if (warmed != null) {
+                return warmed;
+            }
+        }
+        return hit;
+    }
+
+    /**
+     * True for stale entries and for fresh results within
+     * {@code geocoding.cache.refresh-ahead-ms} of expiring. Negative entries
+     * live for a shorter TTL than the refresh-ahead window, so they are only
+     * reloaded once stale; otherwise every hit on one would go upstream.
+     */
+    boolean refreshDue(CacheHit<Optional<GeoPoint>> hit) {
+        if (hit.value().isEmpty()) {
+            return hit.stale();
+        }
+        return hit.expiresInMillis() < refreshAheadMillis;
+    }
+
+    /**
+     * Reloads an entry that is about to expire on a background thread, so hot
+     * keys are refreshed before callers ever have to wait for them.
+     */
+    void refreshAhead(Query query) {
+        if (!refreshing.add(query.key())) {
+            return;
+        }
+        refreshExecutor.execute(() -> {
+            try {
+                load(query);
+                refreshes.increment();
+            } catch (RuntimeException e) {
+                logger.debug("Background refresh of {} failed: {}", query.description(), e.getMessage());
+            } finally {
+                refreshing.remove(query.key());
+            }
+        });
+    }
+
+    Lookup serveStale(Query query, CacheHit<Optional<GeoPoint>> hit, Throwable cause) {
+        staleServed.increment();
+        logger.warn("Serving stale result for {} ({} ms past expiry): {}",
+                query.description(), -hit.expiresInMillis(), cause.getMessage());
+        return new Lookup(hit.value(), true);
+    }
+
+    /**
+     * Counts a place served to a caller towards its autocomplete popularity.
+     */
+    void served(Lookup lookup) {
+        lookup.result().ifPresent(autocomplete::record);
+    }
+
+    /**
+     * Counts {@code geocode.results} by lookup kind and outcome; a {@code null}
+     * lookup counts as an error.
+     */
+    void countResult(Query query, Lookup lookup) {
+        String result = lookup == null ? "error"
+                : lookup.local() ? "local"
+                : lookup.stale() ? "stale"
+                : lookup.result().isPresent() ? "found" : "not_found";
+        metrics.registry().counter("geocode.results", "kind", query.kind(), "result", result).increment();
+    }
+
+    private Lookup resolve(Query query) {
+        Lookup lookup;
         try {
-            String rawJson = restTemplate.execute(url, HttpMethod.GET, null, new ResponseExtractor<String>() {
-                @Override
-                public String extractData(ClientHttpResponse response) throws IOException {
-                    return new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
-                }
-            });
-            logger.info("Raw JSON response: {}", rawJson);
-        } catch (RestClientException e) {
-            logger.error("Error fetching raw JSON response: {}", e.getMessage(), e);
-        }
-
-        ResponseEntity<GeocodeResponse> response = restTemplate.getForEntity(url, GeocodeResponse.class);
-        logger.info("Raw response: {}", response);
-        GeocodeResponse body = response.getBody();
-        logger.info("Deserialized GeocodeResponse: {}", body);
-
-        if (body != null && body.results != null && !body.results.isEmpty()) {
-            var result = body.results.get(0);
-            var loc = result.geometry.location;
-            // Defensive extraction of address components
-            String streetNumber = null, street = null, city = null, state = null, country = null, postalCode = null;
-            if (result.address_components != null) {
-                for (var comp : result.address_components) {
-                    if (comp.types.contains("street_number")) streetNumber = comp.long_name;
-                    else if (comp.types.contains("route")) street = comp.long_name;
-                    else if (comp.types.contains("locality")) city = comp.long_name;
-                    else if (comp.types.contains("administrative_area_level_1")) state = comp.long_name;
-                    else if (comp.types.contains("country")) country = comp.long_name;
-                    else if (comp.types.contains("postal_code")) postalCode = comp.long_name;
-                }
+            lookup = cachedOrLoaded(query);
+        } catch (RuntimeException e) {
+            countResult(query, null);
+            throw e;
+        }
+        served(lookup);
+        countResult(query, lookup);
+        return lookup;
+    }
+
+    private Lookup cachedOrLoaded(Query query) {
+        Optional<GeoPoint> local = query.local().get();
+        if (local.isPresent()) {
+            return Lookup.local(local);
+        }
+        CacheHit<Optional<GeoPoint>> hit = known(query);
+        if (hit != null && !hit.stale()) {
+            if (refreshDue(hit)) {
+                refreshAhead(query);
             }
-            return Optional.of(new GeoPoint(
-                    loc.lat,
-                    loc.lng,
-                    result.formatted_address,
-                    result.geometry.location_type,
-                    result.partial_match,
-                    result.place_id,
-                    streetNumber,
-                    street,
-                    city,
-                    state,
-                    country,
-                    postalCode
-            ));
-        }
-
-        logger.warn("No reverse geocoding result found for lat: {}, lng: {}", lat, lng);
-        return Optional.empty();
+            return new Lookup(hit.value(), false);
+        }
+        try {
+            return new Lookup(load(query), false);
+        } catch (RuntimeException e) {
+            if (hit == null) {
+                throw e;
+            }
+            return serveStale(query, hit, e);
+        }
     }
 
-    public Optional<GeoPoint> geocodeByPlaceId(String placeId) {
-        String encoded = UriUtils.encodeQueryParam(placeId, StandardCharsets.UTF_8);
-        String url = String.format("https://maps.googleapis.com/maps/api/geocode/json?place_id=%s&key=%s", encoded, apiKey);
-
-        ResponseEntity<GeocodeResponse> response = restTemplate.getForEntity(url, GeocodeResponse.class);
-        GeocodeResponse body = response.getBody();
-
-        if (body != null && body.results != null && !body.results.isEmpty()) {
-            var result = body.results.get(0);
-            var loc = result.geometry.location;
-            // Defensive extraction of address components
-            String streetNumber = null, street = null, city = null, state = null, country = null, postalCode = null;
-            if (result.address_components != null) {
-                for (var comp : result.address_components) {
-                    if (comp.types.contains("street_number")) streetNumber = comp.long_name;
-                    else if (comp.types.contains("route")) street = comp.long_name;
-                    else if (comp.types.contains("locality")) city = comp.long_name;
-                    else if (comp.types.contains("administrative_area_level_1")) state = comp.long_name;
-                    else if (comp.types.contains("country")) country = comp.long_name;
-                    else if (comp.types.contains("postal_code")) postalCode = comp.long_name;
-                }
+    private Optional<GeoPoint> load(Query query) {
+        return inFlight.execute(query.key(), () -> {
+            CacheHit<Optional<GeoPoint>> raced = query.cached().get();
+            if (raced != null && !refreshDue(raced)) {
+                return raced.value();
+            }
+            // Another replica may own this key and have it; its answer is not
+            // copied into the local cache, so replicas do not all hold the same entries
+            GeoPoint shared = peers.get("geocode", query.key(), GeoPoint.class);
+            if (shared != null) {
+                return Optional.of(shared);
+            }
+            logger.debug("Geocoding {}", query.description());
+            Optional<GeoPoint> result = fetch(query.kind(), query.uri().get());
+            if (result.isEmpty()) {
+                logger.warn("No geocoding result found for {}", query.description());
             }
-            return Optional.of(new GeoPoint(
-                    loc.lat,
-                    loc.lng,
-                    result.formatted_address,
-                    result.geometry.location_type,
-                    result.partial_match,
-                    result.place_id,
-                    streetNumber,
-                    street,
-                    city,
-                    state,
-                    country,
-                    postalCode
-            ));
+            query.remember().accept(result);
+            result.ifPresent(point -> peers.offer("geocode", query.key(), point));
+            return result;
+        });
+    }
+
+    static String addressKey(String address) {
+        return "a:" + GeocodeCache.normalizeAddress(address);
+    }
+
+    /**
+     * Carries the cell precision, so a store written at another precision (or a
+     * peer configured with one) never answers for the wrong cell.
+     */
+    String reverseKey(double lat, double lng) {
+        return "r" + reverseCache.precision() + ":" + reverseCache.cellOf(lat, lng);
+    }
+
+    static String placeIdKey(String placeId) {
+        return "p:" + placeId;
+    }
+
+    URI addressUri(String address) {
+        String encoded = UriUtils.encodeQueryParam(address, StandardCharsets.UTF_8);
+        return URI.create(String.format("%s/maps/api/geocode/json?address=%s&key=%s", baseUrl, encoded, apiKey));
+    }
+
+    URI reverseUri(double lat, double lng) {
+        return URI.create(String.format(
+                Locale.ROOT,
+                "%s/maps/api/geocode/json?latlng=%f,%f&key=%s",
+                baseUrl, lat, lng, apiKey
+        ));
+    }
+
+    URI placeIdUri(String placeId) {
+        String encoded = UriUtils.encodeQueryParam(placeId, StandardCharsets.UTF_8);
+        return URI.create(String.format("%s/maps/api/geocode/json?place_id=%s&key=%s", baseUrl, encoded, apiKey));
+    }
+
+    private void persistPlaceId(GeoPoint point) {
+        if (point.placeId() != null && !point.placeId().isBlank()) {
+            store.put(placeIdKey(point.placeId()), point);
         }
+    }
+
+    /**
+     * Makes a single upstream request and streams the first result out of the body.
+     * When debug logging is on, a sampled fraction of raw payloads is captured
+     * (see {@code geocoding.debug.raw-sample-rate}).
+     */
+    Optional<GeoPoint> fetch(String kind, URI uri) {
+        return limiter.execute(1, () -> toResult(metrics.time(UpstreamEndpoint.GEOCODE, kind,
+                () -> restTemplate.execute(uri, HttpMethod.GET, null, response ->
+                        metrics.parse(UpstreamEndpoint.GEOCODE, () -> {
+                            if (shouldCaptureRawPayload()) {
+                                byte[] raw = response.getBody().readAllBytes();
+                                logger.debug("Raw JSON response: {}", new String(raw, StandardCharsets.UTF_8));
+                                return GeocodeResponseParser.parse(raw);
+                            }
+                            return GeocodeResponseParser.parse(response.getBody());
+                        })),
+                GeocodeResponseParser.Parsed::status)));
+    }
 
+    /**
+     * Only ZERO_RESULTS maps to an empty result; other non-OK statuses throw,
+     * quota statuses as {@link UpstreamQuotaException}.
+     */
+    static Optional<GeoPoint> toResult(GeocodeResponseParser.Parsed parsed) {
+        if (parsed == null) {
+            return Optional.empty();
+        }
+        if (parsed.first() != null) {
+            return Optional.of(parsed.first());
+        }
+        if (UpstreamQuotaException.isQuotaStatus(parsed.status())) {
+            throw new UpstreamQuotaException("Geocoding", parsed.status());
+        }
+        if (!"ZERO_RESULTS".equals(parsed.status())) {
+            logger.warn("Geocoding API returned status {}", parsed.status());
+            throw new UpstreamStatusException("Geocoding", parsed.status());
+        }
         return Optional.empty();
     }
 
+    private boolean shouldCaptureRawPayload() {
+        return rawSampleRate > 0
+                && logger.isDebugEnabled()
+                && ThreadLocalRandom.current().nextDouble() < rawSampleRate;
+    }
+
+    /**
+     * Places already resolved by this instance whose address, street or city
+     * starts with {@code prefix}, most often resolved first. Never calls Google.
+     */
+    public List<AutocompleteIndex.Suggestion> autocomplete(String prefix, int limit) {
+        return autocomplete.suggest(prefix, limit);
+    }
+
+    public Map<String, Object> cacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("geocode", cache.stats());
+        stats.put("reverse", reverseCache.stats());
+        stats.put("store", store.stats());
+        stats.put("gazetteer", gazetteer.stats());
+        stats.put("autocomplete", autocomplete.stats());
+        stats.put("coalescing", inFlight.stats());
+        Map<String, Object> staleWhileRevalidate = new LinkedHashMap<>();
+        staleWhileRevalidate.put("refreshes", refreshes.sum());
+        staleWhileRevalidate.put("refreshing", refreshing.size());
+        staleWhileRevalidate.put("staleServed", staleServed.sum());
+        stats.put("staleWhileRevalidate", staleWhileRevalidate);
+        return stats;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
     public double calculateDistanceKm(double lat1, double lng1, double lat2, double lng2) {
-        final int R = 6371; // Earth radius in km
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLng = Math.toRadians(lng2 - lng1);
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                        Math.sin(dLng / 2) * Math.sin(dLng / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c;
+        return Haversine.distanceKm(lat1, lng1, lat2, lng2);
     }
 
     // Simple geocode method for demonstration
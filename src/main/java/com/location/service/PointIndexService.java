@@ -0,0 +1,65 @@
+package com.location.service;
+
+import com.location.geo.SpatialIndex;
+import com.location.geo.SpatialIndex.Neighbour;
+import com.location.geo.SpatialIndex.Point;
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Registry of named points (depots, stores, drivers, ...) answering k-nearest
+ * and radius queries from an in-memory grid index.
+ */
+@Service
+public class PointIndexService {
+
+    private final GoogleGeocodingService geocodingService;
+    private final SpatialIndex index;
+
+    public PointIndexService(
+            GoogleGeocodingService geocodingService,
+            @Value("${points.index.cell-size-deg:0.05}") double cellSizeDeg
+    ) {
+        this.geocodingService = geocodingService;
+        this.index = new SpatialIndex(cellSizeDeg);
+    }
+
+    public Point put(String name, double lat, double lng) {
+        return index.put(name, lat, lng);
+    }
+
+    /**
+     * Registers the point at the geocoded location of the address, if it resolves.
+     */
+    public Optional<Point> putAddress(String name, String address) {
+        return geocodingService.geocode(address).map(geo -> index.put(name, geo.lat(), geo.lng()));
+    }
+
+    public boolean remove(String name) {
+        return index.remove(name);
+    }
+
+    public Optional<Point> get(String name) {
+        return index.get(name);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public List<Neighbour> nearest(double lat, double lng, int k) {
+        return index.nearest(lat, lng, k);
+    }
+
+    public List<Neighbour> within(double lat, double lng, double radiusKm) {
+        return index.within(lat, lng, radiusKm);
+    }
+
+    public Optional<GeoPoint> locate(String address) {
+        return geocodingService.geocode(address);
+    }
+}
@@ -0,0 +1,111 @@
+package com.location.service;
+
+import com.location.cache.DistanceCache;
+import com.location.cache.DistanceCache.Route;
+import com.location.cache.PeerCache;
+import com.location.dto.DistanceResponse;
+import com.location.dto.DistanceResponse.TravelInfo;
+import com.location.http.UpstreamClients;
+import com.location.http.UpstreamEndpoint;
+import com.location.http.UpstreamLimiter;
+import com.location.http.UpstreamMetrics;
+import com.location.http.UpstreamRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Non-blocking counterpart of {@link DistanceService}, sharing its
+ * {@link DistanceCache}. Every mode missing from the cache is requested
+ * concurrently and each one is bounded by {@code distance.matrix.mode-timeout-ms},
+ * reporting TIMEOUT or ERROR for that mode rather than failing the response.
+ * Failed modes fall back to stale answers as in {@link DistanceService#respond}.
+ * Modes are shared with other replicas through {@link PeerCache} as on the
+ * blocking path, with the blocking peer lookup on the bounded elastic scheduler.
+ */
+@Service
+public class ReactiveDistanceService {
+
+    private final DistanceService distanceService;
+    private final WebClient webClient;
+    private final UpstreamLimiter limiter;
+    private final UpstreamMetrics metrics;
+    private final DistanceCache cache;
+    private final PeerCache peers;
+    private final ReactiveSingleFlight<String, DistanceResponse> inFlight = new ReactiveSingleFlight<>();
+
+    public ReactiveDistanceService(DistanceService distanceService, UpstreamClients upstreamClients,
+                                   DistanceCache cache, PeerCache peers) {
+        this.distanceService = distanceService;
+        this.cache = cache;
+        this.peers = peers;
+        this.webClient = upstreamClients.webClient(UpstreamEndpoint.DISTANCE);
+        this.limiter = upstreamClients.limiter(UpstreamEndpoint.DISTANCE);
+        this.metrics = upstreamClients.metrics();
+        inFlight.bindTo(metrics.registry(), "reactive-distance");
+    }
+
+    public Mono<DistanceResponse> calculateDistances(String origin, String destination, List<String> modes) {
+        List<String> selected = DistanceService.validateModes(modes);
+        Route route = cache.route(origin, destination);
+        DistanceResponse cached = DistanceService.cachedResponse(cache, route, selected);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return inFlight.execute(DistanceService.coalescingKey(origin, destination, selected), () ->
+                Flux.fromIterable(selected)
+                        .flatMapSequential(mode -> Mono.justOrEmpty(cache.get(route, mode))
+                                .switchIfEmpty(fetchMode(origin, destination, route, mode))
+                                .map(info -> Map.entry(mode, info)))
+                        .collect(LinkedHashMap<String, TravelInfo>::new, (map, e) -> map.put(e.getKey(), e.getValue()))
+                        .map(modesMap -> DistanceService.respond(cache, route, selected, modesMap, null))
+                        .onErrorResume(UpstreamRejectedException.class, rejected -> Mono.fromCallable(
+                                () -> DistanceService.respond(cache, route, selected, Map.of(), rejected))));
+    }
+
+    public Map<String, Object> coalescingStats() {
+        return inFlight.stats();
+    }
+
+    private Mono<TravelInfo> fetchMode(String origin, String destination, Route route, String mode) {
+        String key = cache.key(route, mode);
+        return shared(key).switchIfEmpty(Mono.defer(() -> fetch(origin, destination, route, mode, key)));
+    }
+
+    private Mono<TravelInfo> shared(String key) {
+        if (!peers.isEnabled()) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> peers.get("distance", key, TravelInfo.class))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<TravelInfo> fetch(String origin, String destination, Route route, String mode, String key) {
+        Mono<TravelInfo> exchange = webClient.get()
+                .uri(distanceService.modeUri(origin, destination, mode))
+                .retrieve()
+                .bodyToMono(byte[].class)
+                .map(distanceService::readTravelInfo)
+                // Inside the limiter, so queueing does not eat into it and a timeout counts as a drop
+                .timeout(Duration.ofMillis(distanceService.modeTimeoutMs()))
+                .doOnNext(info -> {
+                    cache.put(route, mode, info);
+                    if ("OK".equals(info.status)) {
+                        peers.offer("distance", key, info);
+                    }
+                });
+        return metrics.time(UpstreamEndpoint.DISTANCE, mode, exchange, info -> info.status)
+                .as(call -> limiter.execute(1, call))
+                .onErrorResume(TimeoutException.class, e -> Mono.just(DistanceService.emptyInfo("TIMEOUT")))
+                .onErrorResume(e -> !(e instanceof UpstreamRejectedException),
+                        e -> Mono.just(DistanceService.emptyInfo("ERROR")));
+    }
+}
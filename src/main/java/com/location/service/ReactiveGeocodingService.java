@@ -0,0 +1,218 @@
+package com.location.service;
+
+import com.location.cache.CacheHit;
+import com.location.cache.PeerCache;
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import com.location.service.GoogleGeocodingService.Lookup;
+import com.location.service.GoogleGeocodingService.Query;
+import com.location.http.UpstreamClients;
+import com.location.http.UpstreamEndpoint;
+import com.location.http.UpstreamLimiter;
+import com.location.http.UpstreamMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Non-blocking geocoding on top of {@link WebClient}. Lookups share the memory
+ * cache and disk store with {@link GoogleGeocodingService}, so either path warms
+ * the other, but upstream calls never hold a thread while waiting on Google.
+ * Results are shared with other replicas through {@link PeerCache} as on the
+ * blocking path; the peer lookup itself blocks, so it runs on the bounded
+ * elastic scheduler.
+ * Cancelling the returned publisher cancels the HTTP exchange once no other
+ * subscriber is waiting on the same lookup.
+ */
+@Service
+public class ReactiveGeocodingService {
+
+    private static final int MAX_RESPONSE_BYTES = 2 * 1024 * 1024;
+
+    private final GoogleGeocodingService geocodingService;
+    private final PeerCache peers;
+    private final WebClient webClient;
+    private final UpstreamLimiter limiter;
+    private final UpstreamMetrics metrics;
+    private final Duration timeout;
+    private final int bulkConcurrency;
+    private final ReactiveSingleFlight<String, Optional<GeoPoint>> inFlight = new ReactiveSingleFlight<>();
+
+    public ReactiveGeocodingService(
+            GoogleGeocodingService geocodingService,
+            PeerCache peers,
+            UpstreamClients upstreamClients,
+            @Value("${geocoding.reactive.timeout-ms:10000}") long timeoutMs,
+            @Value("${geocoding.reactive.bulk-concurrency:64}") int bulkConcurrency
+    ) {
+        this.geocodingService = geocodingService;
+        this.peers = peers;
+        this.webClient = upstreamClients.webClient(UpstreamEndpoint.GEOCODE);
+        this.limiter = upstreamClients.limiter(UpstreamEndpoint.GEOCODE);
+        this.metrics = upstreamClients.metrics();
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.bulkConcurrency = bulkConcurrency;
+        inFlight.bindTo(metrics.registry(), "reactive-geocode");
+    }
+
+    public Mono<Optional<GeoPoint>> geocode(String address) {
+        return lookupAddress(address).map(Lookup::result);
+    }
+
+    public Mono<Lookup> lookupAddress(String address) {
+        return lookup(geocodingService.addressQuery(address));
+    }
+
+    public Mono<Lookup> lookupReverse(double lat, double lng) {
+        return lookup(geocodingService.reverseQuery(lat, lng));
+    }
+
+    public Mono<Lookup> lookupLocality(double lat, double lng) {
+        return lookup(geocodingService.localityQuery(lat, lng));
+    }
+
+    public Mono<Lookup> lookupPlaceId(String placeId) {
+        return lookup(geocodingService.placeIdQuery(placeId));
+    }
+
+    /**
+     * One result line per address, in the same shape as the NDJSON lines of
+     * {@link BulkGeocodeService}. At most {@code geocoding.reactive.bulk-concurrency}
+     * lookups are in flight, and further addresses are only started as the
+     * consumer requests more lines.
+     */
+    public Flux<Map<String, Object>> geocodeAll(List<String> addresses, boolean inputOrder) {
+        Flux<Map<String, Object>> indexed = Flux.fromIterable(addresses).index()
+                .map(entry -> line(entry.getT1(), entry.getT2()));
+        if (inputOrder) {
+            return indexed.flatMapSequential(this::resolve, bulkConcurrency);
+        }
+        return indexed.flatMap(this::resolve, bulkConcurrency);
+    }
+
+    public Map<String, Object> coalescingStats() {
+        return inFlight.stats();
+    }
+
+    private Mono<Map<String, Object>> resolve(Map<String, Object> line) {
+        String address = (String) line.get("address");
+        if (address == null || address.isBlank()) {
+            line.put("status", "ERROR");
+            line.put("error", "Address must not be blank");
+            return Mono.just(line);
+        }
+        return geocode(address)
+                .map(result -> {
+                    if (result.isPresent()) {
+                        line.put("status", "OK");
+                        line.put("result", result.get());
+                    } else {
+                        line.put("status", "NOT_FOUND");
+                    }
+                    return line;
+                })
+                .onErrorResume(e -> {
+                    line.put("status", "ERROR");
+                    line.put("error", e.getMessage());
+                    return Mono.just(line);
+                });
+    }
+
+    private static Map<String, Object> line(long index, String address) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("index", index);
+        line.put("address", address);
+        return line;
+    }
+
+    /**
+     * Same gazetteer, cache, refresh-ahead and stale fallback rules as
+     * {@link GoogleGeocodingService}, with the upstream call made through
+     * {@link WebClient}.
+     */
+    private Mono<Lookup> lookup(Query query) {
+        return Mono.defer(() -> {
+            Optional<GeoPoint> local = query.local().get();
+            if (local.isPresent()) {
+                return Mono.just(Lookup.local(local));
+            }
+            CacheHit<Optional<GeoPoint>> hit = geocodingService.known(query);
+            if (hit != null && !hit.stale()) {
+                if (geocodingService.refreshDue(hit)) {
+                    geocodingService.refreshAhead(query);
+                }
+                return Mono.just(new Lookup(hit.value(), false));
+            }
+            Mono<Lookup> loaded = inFlight.execute(query.key(), () -> {
+                CacheHit<Optional<GeoPoint>> raced = query.cached().get();
+                if (raced != null && !geocodingService.refreshDue(raced)) {
+                    return Mono.just(raced.value());
+                }
+                // As in GoogleGeocodingService.load, a peer's answer is not copied into the local cache
+                // remember writes the disk store, which can block on its write lock, so not on the event loop
+                return shared(query).switchIfEmpty(Mono.defer(() -> fetch(query.kind(), query.uri().get())
+                        .publishOn(Schedulers.boundedElastic())
+                        .doOnNext(query.remember())
+                        .doOnNext(result -> result.ifPresent(point -> peers.offer("geocode", query.key(), point)))));
+            }).map(result -> new Lookup(result, false));
+            if (hit == null) {
+                return loaded;
+            }
+            return loaded.onErrorResume(e -> Mono.just(geocodingService.serveStale(query, hit, e)));
+        }).doOnNext(lookup -> {
+            geocodingService.served(lookup);
+            geocodingService.countResult(query, lookup);
+        })
+                .doOnError(e -> geocodingService.countResult(query, null));
+    }
+
+    private Mono<Optional<GeoPoint>> shared(Query query) {
+        if (!peers.isEnabled()) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> peers.get("geocode", query.key(), GeoPoint.class))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(Optional::of);
+    }
+
+    /**
+     * Collects the body into one buffer and streams the first result out of it
+     * with {@link GeocodeResponseParser}.
+     */
+    private Mono<Optional<GeoPoint>> fetch(String kind, URI uri) {
+        Mono<GeocodeResponseParser.Parsed> exchange = webClient.get()
+                .uri(uri)
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .as(body -> DataBufferUtils.join(body, MAX_RESPONSE_BYTES))
+                .map(this::parse)
+                // Inside the limiter, so queueing does not eat into it and a timeout counts as a drop
+                .timeout(timeout);
+        return metrics.time(UpstreamEndpoint.GEOCODE, kind, exchange, GeocodeResponseParser.Parsed::status)
+                .map(GoogleGeocodingService::toResult)
+                .defaultIfEmpty(Optional.empty())
+                .as(call -> limiter.execute(1, call));
+    }
+
+    private GeocodeResponseParser.Parsed parse(DataBuffer buffer) {
+        try (InputStream in = buffer.asInputStream(true)) {
+            return metrics.parse(UpstreamEndpoint.GEOCODE, () -> GeocodeResponseParser.parse(in));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.location.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Reactive counterpart of {@link SingleFlight}: subscribers for a key that is
+ * already in flight join the running upstream call instead of starting another.
+ * The shared call is reference counted, so it is cancelled only once every
+ * subscriber has cancelled; a single disconnecting client never aborts a
+ * lookup that others are still waiting for.
+ */
+public class ReactiveSingleFlight<K, V> {
+
+    private final Map<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> loader) {
+        return Mono.defer(() -> {
+            boolean[] created = {false};
+            Mono<V> shared = inFlight.computeIfAbsent(key, k -> {
+                created[0] = true;
+                return share(k, loader);
+            });
+            (created[0] ? executed : coalesced).increment();
+            return shared;
+        });
+    }
+
+    private Mono<V> share(K key, Supplier<Mono<V>> loader) {
+        AtomicReference<Mono<V>> self = new AtomicReference<>();
+        Mono<V> shared = Mono.defer(loader)
+                .doOnCancel(cancelled::increment)
+                .doFinally(signal -> inFlight.remove(key, self.get()))
+                .flux()
+                .publish()
+                .refCount(1)
+                .singleOrEmpty();
+        self.set(shared);
+        return shared;
+    }
+
+    /**
+     * Exports the counters as {@code coalescing.*} meters tagged {@code name}.
+     */
+    public void bindTo(MeterRegistry registry, String name) {
+        FunctionCounter.builder("coalescing.executed", executed, LongAdder::sum).tag("name", name).register(registry);
+        FunctionCounter.builder("coalescing.coalesced", coalesced, LongAdder::sum).tag("name", name).register(registry);
+        FunctionCounter.builder("coalescing.cancelled", cancelled, LongAdder::sum).tag("name", name).register(registry);
+        Gauge.builder("coalescing.in.flight", inFlight, Map::size).tag("name", name).register(registry);
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("executed", executed.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("cancelled", cancelled.sum());
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+}
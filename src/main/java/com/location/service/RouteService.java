@@ -0,0 +1,436 @@
+package com.location.service;
+
+import com.location.dto.DistanceMatrixResponse;
+import com.location.dto.RouteResponse;
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Orders a list of stops into a short route from a fixed start, optionally
+ * returning to it. Travel times come from the Distance Matrix API, but only for
+ * the pairs worth asking about: once there are more than
+ * {@code distance.route.neighbours} stops, each place is paired with just its
+ * nearest neighbours by straight-line distance, and the places are walked in a
+ * nearest-neighbour chain and cut into blocks of {@code distance.route.block-size}
+ * origins, each fetched as one matrix request against the union of its
+ * neighbours. Stops are only geocoded in that case, and one that cannot be
+ * located has its whole row and column fetched instead. Pairs that were not
+ * fetched are estimated from the straight-line distance and the median speed
+ * and detour seen in the fetched pairs.
+ * <p>
+ * The ordering itself is done by {@link RouteSolver} on a dedicated pool of
+ * platform threads, within {@code distance.route.time-budget-ms}.
+ */
+@Service
+public class RouteService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteService.class);
+
+    private static final Pattern COORDINATES =
+            Pattern.compile("\\s*(-?\\d{1,2}(?:\\.\\d+)?)\\s*,\\s*(-?\\d{1,3}(?:\\.\\d+)?)\\s*");
+    private static final String PLACE_ID_PREFIX = "place_id:";
+    // Element statuses that mean "asked and there is no route", as opposed to a failed request
+    private static final Set<String> ANSWERED_STATUSES =
+            Set.of("OK", "NOT_FOUND", "ZERO_RESULTS", "MAX_ROUTE_LENGTH_EXCEEDED");
+    // Keeps unreachable legs out of the route unless there is no other way
+    static final int UNREACHABLE = 100_000_000;
+
+    private static final Map<String, Double> DEFAULT_SECONDS_PER_KM = Map.of(
+            "driving", 90.0, "walking", 720.0, "bicycling", 240.0, "transit", 150.0);
+    private static final double DEFAULT_METERS_PER_KM = 1300;
+
+    private final DistanceMatrixService matrixService;
+    private final GoogleGeocodingService geocodingService;
+    private final int neighbours;
+    private final int blockSize;
+    private final long timeBudgetMs;
+    private final int parallelism;
+    private final RouteSolver solver;
+    private final ExecutorService solverPool;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public RouteService(
+            DistanceMatrixService matrixService,
+            GoogleGeocodingService geocodingService,
+            @Value("${distance.route.neighbours:12}") int neighbours,
+            @Value("${distance.route.block-size:10}") int blockSize,
+            @Value("${distance.route.time-budget-ms:200}") long timeBudgetMs,
+            @Value("${distance.route.parallelism:4}") int parallelism
+    ) {
+        if (neighbours < 1 || blockSize < 1) {
+            throw new IllegalArgumentException("distance.route.neighbours and block-size must be positive");
+        }
+        this.matrixService = matrixService;
+        this.geocodingService = geocodingService;
+        this.neighbours = neighbours;
+        this.blockSize = blockSize;
+        this.timeBudgetMs = timeBudgetMs;
+        this.parallelism = Math.max(1, parallelism);
+        AtomicInteger threads = new AtomicInteger();
+        this.solverPool = Executors.newFixedThreadPool(this.parallelism, r -> {
+            Thread t = new Thread(r, "route-solver-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.solver = new RouteSolver(solverPool, this.parallelism);
+    }
+
+    /**
+     * Travel costs between every pair of places, row-major; -1 where unknown.
+     */
+    private static final class Costs {
+        final int n;
+        final int[] seconds;
+        final int[] meters;
+        final BitSet answered;  // Asked and answered, with or without a route
+        final BitSet estimated;
+        int elements;
+
+        Costs(int n) {
+            this.n = n;
+            this.seconds = new int[n * n];
+            this.meters = new int[n * n];
+            this.answered = new BitSet(n * n);
+            this.estimated = new BitSet(n * n);
+            Arrays.fill(seconds, -1);
+            Arrays.fill(meters, -1);
+        }
+    }
+
+    private record Block(List<Integer> origins, List<Integer> destinations) {}
+
+    public RouteResponse optimize(String start, List<String> stops, String mode, boolean roundTrip) {
+        List<String> places = new ArrayList<>(stops.size() + 1);
+        places.add(start);
+        places.addAll(stops);
+        int n = places.size();
+
+        double[][] points = coordinates(places);
+        Costs costs = new Costs(n);
+        if (n - 1 <= neighbours) {
+            // Every pair is asked for anyway, so there is nothing to geocode for
+            fetch(places, List.of(new Block(range(n), range(n))), mode, costs);
+        } else {
+            locate(places, points);
+            fetch(places, blocks(points, roundTrip), mode, costs);
+        }
+        estimate(points, mode, costs);
+
+        // Node n is the end of the path: free to reach for a one-way route, the start again for a round trip
+        int size = n + 1;
+        int[] cost = new int[size * size];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                int s = costs.seconds[i * n + j];
+                cost[i * size + j] = i == j ? 0 : s < 0 ? UNREACHABLE : s;
+            }
+            cost[i * size + n] = roundTrip ? cost[i * size] : 0;
+        }
+        Arrays.fill(cost, n * size, size * size, UNREACHABLE);
+
+        long started = System.nanoTime();
+        RouteSolver.Result result = solver.solve(cost, size, timeBudgetMs);
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        RouteResponse response = new RouteResponse();
+        response.mode = mode;
+        response.roundTrip = roundTrip;
+        response.order = new ArrayList<>(n - 1);
+        response.stops = new ArrayList<>(n - 1);
+        for (int k = 1; k < n; k++) {
+            response.order.add(result.tour()[k] - 1);
+            response.stops.add(places.get(result.tour()[k]));
+        }
+        response.legs = new ArrayList<>(n);
+        int last = roundTrip ? n : n - 1;
+        for (int k = 0; k < last; k++) {
+            int from = result.tour()[k];
+            int to = k + 1 < n ? result.tour()[k + 1] : 0;
+            RouteResponse.Leg leg = leg(places, costs, from, to);
+            response.legs.add(leg);
+            if (!"NO_ROUTE".equals(leg.status)) {
+                response.totalSeconds += leg.seconds;
+                response.totalMeters += leg.meters;
+            }
+            if ("ESTIMATED".equals(leg.status)) {
+                response.estimatedLegs++;
+            }
+        }
+        response.matrixElements = costs.elements;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("workers", parallelism);
+        stats.put("budgetMs", timeBudgetMs);
+        stats.put("elapsedMs", elapsedMs);
+        stats.put("improvements", result.improvements());
+        stats.put("kicks", result.kicks());
+        stats.put("estimatedPairs", costs.estimated.cardinality());
+        response.solver = stats;
+        return response;
+    }
+
+    private static RouteResponse.Leg leg(List<String> places, Costs costs, int from, int to) {
+        int i = from * costs.n + to;
+        RouteResponse.Leg leg = new RouteResponse.Leg();
+        leg.from = places.get(from);
+        leg.to = places.get(to);
+        if (from == to) {
+            leg.status = "OK";
+        } else if (costs.seconds[i] < 0) {
+            leg.status = "NO_ROUTE";
+        } else {
+            leg.status = costs.estimated.get(i) ? "ESTIMATED" : "OK";
+            leg.seconds = costs.seconds[i];
+            leg.meters = costs.meters[i];
+        }
+        return leg;
+    }
+
+    /**
+     * Coordinates for the places given as "lat,lng"; {@code null} for the rest.
+     */
+    private static double[][] coordinates(List<String> places) {
+        double[][] points = new double[places.size()][];
+        for (int i = 0; i < places.size(); i++) {
+            Matcher coordinates = COORDINATES.matcher(places.get(i));
+            if (coordinates.matches()) {
+                points[i] = new double[]{Double.parseDouble(coordinates.group(1)), Double.parseDouble(coordinates.group(2))};
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Geocodes, concurrently, every place that has no coordinates yet; those
+     * that cannot be resolved stay {@code null}.
+     */
+    private void locate(List<String> places, double[][] points) {
+        List<Future<Optional<GeoPoint>>> lookups = new ArrayList<>(places.size());
+        for (int i = 0; i < places.size(); i++) {
+            if (points[i] != null) {
+                lookups.add(null);
+                continue;
+            }
+            String trimmed = places.get(i).trim();
+            lookups.add(executor.submit(() -> trimmed.startsWith(PLACE_ID_PREFIX)
+                    ? geocodingService.geocodeByPlaceId(trimmed.substring(PLACE_ID_PREFIX.length()))
+                    : geocodingService.geocode(trimmed)));
+        }
+        for (int i = 0; i < places.size(); i++) {
+            Future<Optional<GeoPoint>> lookup = lookups.get(i);
+            if (lookup == null) {
+                continue;
+            }
+            try {
+                points[i] = lookup.get().map(p -> new double[]{p.lat(), p.lng()}).orElse(null);
+            } catch (ExecutionException e) {
+                logger.warn("Could not locate route stop '{}': {}", places.get(i), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                lookups.forEach(f -> {
+                    if (f != null) {
+                        f.cancel(true);
+                    }
+                });
+                throw new IllegalStateException("Interrupted while locating route stops", e);
+            }
+        }
+    }
+
+    /**
+     * Pairs each located place with its nearest located neighbours (and, for a
+     * round trip, the start), then groups origins that are close to each other
+     * so their neighbour sets overlap and each block stays one small matrix.
+     * Places that could not be located have no neighbours to speak of, so their
+     * whole rows and columns are asked for instead.
+     */
+    private List<Block> blocks(double[][] points, boolean roundTrip) {
+        int n = points.length;
+        List<Integer> located = new ArrayList<>(n);
+        List<Integer> unlocated = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            (points[i] != null ? located : unlocated).add(i);
+        }
+
+        List<List<Integer>> nearest = new ArrayList<>(n);
+        Integer[] others = located.toArray(Integer[]::new);
+        double[] km = new double[n];
+        for (int i = 0; i < n; i++) {
+            if (points[i] == null) {
+                nearest.add(List.of());
+                continue;
+            }
+            for (int j : located) {
+                km[j] = distanceKm(points, i, j);
+            }
+            Arrays.sort(others, (a, b) -> Double.compare(km[a], km[b]));
+            List<Integer> chosen = new ArrayList<>(neighbours + 1);
+            for (int k = 0; k < others.length && chosen.size() < neighbours; k++) {
+                // The start is never a destination on a one-way route
+                if (others[k] != i && others[k] != 0) {
+                    chosen.add(others[k]);
+                }
+            }
+            if (roundTrip && i != 0 && points[0] != null) {
+                chosen.add(0);
+            }
+            nearest.add(chosen);
+        }
+
+        List<Block> blocks = new ArrayList<>();
+        BitSet visited = new BitSet(n);
+        unlocated.forEach(visited::set);
+        int current = located.isEmpty() ? -1 : located.getFirst();
+        List<Integer> origins = new ArrayList<>(blockSize);
+        for (int step = 0; step < located.size(); step++) {
+            visited.set(current);
+            origins.add(current);
+            if (origins.size() == blockSize || step == located.size() - 1) {
+                BitSet destinations = new BitSet(n);
+                origins.forEach(o -> nearest.get(o).forEach(destinations::set));
+                blocks.add(new Block(List.copyOf(origins), destinations.stream().boxed().toList()));
+                origins.clear();
+            }
+            int next = -1;
+            for (int j = visited.nextClearBit(0); j < n; j = visited.nextClearBit(j + 1)) {
+                if (next < 0 || distanceKm(points, current, j) < distanceKm(points, current, next)) {
+                    next = j;
+                }
+            }
+            current = next;
+        }
+
+        if (!unlocated.isEmpty()) {
+            List<Integer> columns = unlocated.stream().filter(j -> roundTrip || j != 0).toList();
+            blocks.add(new Block(unlocated, roundTrip ? range(n) : range(n).subList(1, n)));
+            if (!located.isEmpty() && !columns.isEmpty()) {
+                blocks.add(new Block(located, columns));
+            }
+        }
+        return blocks;
+    }
+
+    private void fetch(List<String> places, List<Block> blocks, String mode, Costs costs) {
+        List<Future<DistanceMatrixResponse>> answers = new ArrayList<>(blocks.size());
+        for (Block block : blocks) {
+            List<String> origins = block.origins().stream().map(places::get).toList();
+            List<String> destinations = block.destinations().stream().map(places::get).toList();
+            answers.add(executor.submit(() -> matrixService.calculateMatrix(origins, destinations, mode)));
+        }
+        int n = costs.n;
+        for (int b = 0; b < blocks.size(); b++) {
+            Block block = blocks.get(b);
+            DistanceMatrixResponse matrix;
+            try {
+                matrix = answers.get(b).get();
+            } catch (ExecutionException e) {
+                logger.warn("Route matrix block failed: {}", e.getCause().getMessage());
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                answers.forEach(f -> f.cancel(true));
+                throw new IllegalStateException("Interrupted while fetching route durations", e);
+            }
+            costs.elements += matrix.rows * matrix.cols;
+            // A cell without a route only counts as "no route" when nothing in its block failed
+            boolean complete = matrix.statusCounts == null
+                    || ANSWERED_STATUSES.containsAll(matrix.statusCounts.keySet());
+            for (int r = 0; r < matrix.rows; r++) {
+                for (int c = 0; c < matrix.cols; c++) {
+                    int i = block.origins().get(r) * n + block.destinations().get(c);
+                    int cell = matrix.index(r, c);
+                    if (matrix.seconds[cell] >= 0) {
+                        costs.seconds[i] = matrix.seconds[cell];
+                        costs.meters[i] = matrix.meters[cell];
+                        costs.answered.set(i);
+                    } else if (complete) {
+                        costs.answered.set(i);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills the pairs nobody asked about from the straight-line distance, using
+     * the median seconds and meters per straight-line km of the answered pairs.
+     */
+    private void estimate(double[][] points, String mode, Costs costs) {
+        int n = costs.n;
+        List<Double> secondsPerKm = new ArrayList<>();
+        List<Double> metersPerKm = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (points[i] == null || points[j] == null) {
+                    continue;
+                }
+                int cell = i * n + j;
+                double km = distanceKm(points, i, j);
+                if (costs.seconds[cell] >= 0 && km > 0.1) {
+                    secondsPerKm.add(costs.seconds[cell] / km);
+                    metersPerKm.add(costs.meters[cell] / km);
+                }
+            }
+        }
+        double speed = secondsPerKm.isEmpty() ? DEFAULT_SECONDS_PER_KM.getOrDefault(mode, 90.0) : median(secondsPerKm);
+        double detour = metersPerKm.isEmpty() ? DEFAULT_METERS_PER_KM : median(metersPerKm);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                int cell = i * n + j;
+                if (i == j || costs.answered.get(cell) || points[i] == null || points[j] == null) {
+                    continue;
+                }
+                double km = distanceKm(points, i, j);
+                costs.seconds[cell] = (int) Math.round(km * speed);
+                costs.meters[cell] = (int) Math.round(km * detour);
+                costs.estimated.set(cell);
+            }
+        }
+    }
+
+    private static double median(List<Double> values) {
+        values.sort(null);
+        return values.get(values.size() / 2);
+    }
+
+    private double distanceKm(double[][] points, int i, int j) {
+        if (points[i] == null || points[j] == null) {
+            return Double.MAX_VALUE;
+        }
+        return geocodingService.calculateDistanceKm(points[i][0], points[i][1], points[j][0], points[j][1]);
+    }
+
+    private static List<Integer> range(int n) {
+        List<Integer> all = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            all.add(i);
+        }
+        return all;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        solverPool.shutdownNow();
+    }
+}
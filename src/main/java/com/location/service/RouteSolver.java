@@ -0,0 +1,270 @@
+package com.location.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Orders the stops of a path with fixed ends over an asymmetric cost matrix
+ * (row-major {@code int[size * size]}, node 0 the start and node
+ * {@code size - 1} the end). Each worker builds a nearest-neighbour tour
+ * (worker 0 greedily, the others picking randomly among the three nearest),
+ * improves it with 2-opt and Or-opt moves until neither helps, then keeps
+ * kicking its best tour with a double-bridge move and improving again until
+ * the time budget runs out. The best tour over all workers wins.
+ * <p>
+ * 2-opt on an asymmetric matrix has to price the reversed segment; forward
+ * and backward prefix sums along the tour make that O(1) per move.
+ */
+final class RouteSolver {
+
+    record Result(int[] tour, long cost, long improvements, long kicks) {}
+
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    RouteSolver(ExecutorService executor, int parallelism) {
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    Result solve(int[] cost, int size, long budgetMillis) {
+        if (size <= 3) {
+            int[] tour = new int[size];
+            for (int i = 0; i < size; i++) {
+                tour[i] = i;
+            }
+            return new Result(tour, tourCost(cost, size, tour), 0, 0);
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        List<Future<Result>> workers = new ArrayList<>(parallelism);
+        for (int w = 0; w < parallelism; w++) {
+            int worker = w;
+            workers.add(executor.submit(() -> new Worker(cost, size, worker, deadline).run()));
+        }
+        Result best = null;
+        long improvements = 0;
+        long kicks = 0;
+        for (Future<Result> future : workers) {
+            Result result;
+            try {
+                result = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                workers.forEach(f -> f.cancel(true));
+                throw new IllegalStateException("Interrupted while ordering stops", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Route solver failed", e.getCause());
+            }
+            improvements += result.improvements();
+            kicks += result.kicks();
+            if (best == null || result.cost() < best.cost()) {
+                best = result;
+            }
+        }
+        return new Result(best.tour(), best.cost(), improvements, kicks);
+    }
+
+    static long tourCost(int[] cost, int size, int[] tour) {
+        long total = 0;
+        for (int i = 0; i + 1 < tour.length; i++) {
+            total += cost[tour[i] * size + tour[i + 1]];
+        }
+        return total;
+    }
+
+    private static final class Worker {
+        private final int[] cost;
+        private final int size;
+        private final long deadline;
+        private final SplittableRandom random;
+        private final boolean greedy;
+        private final long[] fwd;
+        private final long[] bwd;
+        private long improvements;
+        private long kicks;
+
+        Worker(int[] cost, int size, int index, long deadline) {
+            this.cost = cost;
+            this.size = size;
+            this.deadline = deadline;
+            this.random = new SplittableRandom(31L * index + 7);
+            this.greedy = index == 0;
+            this.fwd = new long[size];
+            this.bwd = new long[size];
+        }
+
+        Result run() {
+            int[] best = nearestNeighbour();
+            improve(best);
+            long bestCost = tourCost(cost, size, best);
+            // Double-bridge needs four distinct cut points among the free positions
+            while (size - 2 >= 8 && System.nanoTime() < deadline) {
+                int[] candidate = doubleBridge(best);
+                kicks++;
+                improve(candidate);
+                long candidateCost = tourCost(cost, size, candidate);
+                if (candidateCost < bestCost) {
+                    best = candidate;
+                    bestCost = candidateCost;
+                }
+            }
+            return new Result(best, bestCost, improvements, kicks);
+        }
+
+        private int c(int from, int to) {
+            return cost[from * size + to];
+        }
+
+        private int[] nearestNeighbour() {
+            int[] tour = new int[size];
+            boolean[] visited = new boolean[size];
+            tour[0] = 0;
+            tour[size - 1] = size - 1;
+            visited[0] = true;
+            visited[size - 1] = true;
+            int[] candidates = new int[3];
+            for (int pos = 1; pos < size - 1; pos++) {
+                int from = tour[pos - 1];
+                int found = 0;
+                // Keep the three cheapest unvisited successors, cheapest first
+                for (int next = 1; next < size - 1; next++) {
+                    if (visited[next]) {
+                        continue;
+                    }
+                    int step = c(from, next);
+                    if (found == candidates.length && step >= c(from, candidates[found - 1])) {
+                        continue;
+                    }
+                    int at = found < candidates.length ? found++ : found - 1;
+                    while (at > 0 && step < c(from, candidates[at - 1])) {
+                        candidates[at] = candidates[at - 1];
+                        at--;
+                    }
+                    candidates[at] = next;
+                }
+                int pick = greedy ? candidates[0] : candidates[random.nextInt(found)];
+                tour[pos] = pick;
+                visited[pick] = true;
+            }
+            return tour;
+        }
+
+        private void improve(int[] tour) {
+            boolean improved = true;
+            while (improved && System.nanoTime() < deadline) {
+                improved = twoOpt(tour) || orOpt(tour);
+            }
+        }
+
+        /**
+         * Applies the first improving segment reversal found, if any.
+         */
+        private boolean twoOpt(int[] tour) {
+            fwd[0] = 0;
+            bwd[0] = 0;
+            for (int k = 1; k < size; k++) {
+                fwd[k] = fwd[k - 1] + c(tour[k - 1], tour[k]);
+                bwd[k] = bwd[k - 1] + c(tour[k], tour[k - 1]);
+            }
+            for (int i = 1; i < size - 2; i++) {
+                int before = tour[i - 1];
+                for (int j = i + 1; j < size - 1; j++) {
+                    int after = tour[j + 1];
+                    long current = c(before, tour[i]) + (fwd[j] - fwd[i]) + c(tour[j], after);
+                    long reversed = c(before, tour[j]) + (bwd[j] - bwd[i]) + c(tour[i], after);
+                    if (reversed < current) {
+                        for (int a = i, b = j; a < b; a++, b--) {
+                            int t = tour[a];
+                            tour[a] = tour[b];
+                            tour[b] = t;
+                        }
+                        improvements++;
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Applies the first improving move of a run of one to three stops to
+         * another place in the tour, if any.
+         */
+        private boolean orOpt(int[] tour) {
+            for (int length = 1; length <= 3; length++) {
+                for (int i = 1; i + length - 1 < size - 1; i++) {
+                    int first = tour[i];
+                    int last = tour[i + length - 1];
+                    int before = tour[i - 1];
+                    int after = tour[i + length];
+                    long removed = (long) c(before, first) + c(last, after) - c(before, after);
+                    for (int j = 0; j < size - 1; j++) {
+                        if (j >= i - 1 && j <= i + length - 1) {
+                            continue;
+                        }
+                        long added = (long) c(tour[j], first) + c(last, tour[j + 1]) - c(tour[j], tour[j + 1]);
+                        if (added < removed) {
+                            move(tour, i, length, j);
+                            improvements++;
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Moves {@code tour[from, from + length)} to sit between positions
+         * {@code to} and {@code to + 1} of the original tour.
+         */
+        private static void move(int[] tour, int from, int length, int to) {
+            int[] segment = new int[length];
+            System.arraycopy(tour, from, segment, 0, length);
+            if (to > from) {
+                // Shift the stops in between back, then drop the segment in after them
+                System.arraycopy(tour, from + length, tour, from, to - from - length + 1);
+                System.arraycopy(segment, 0, tour, to - length + 1, length);
+            } else {
+                System.arraycopy(tour, to + 1, tour, to + 1 + length, from - to - 1);
+                System.arraycopy(segment, 0, tour, to + 1, length);
+            }
+        }
+
+        /**
+         * Cuts the free part of the tour into A B C D and reconnects it as A C B D.
+         */
+        private int[] doubleBridge(int[] tour) {
+            int free = size - 2;
+            int[] cuts = new int[3];
+            do {
+                cuts[0] = 1 + random.nextInt(free);
+                cuts[1] = 1 + random.nextInt(free);
+                cuts[2] = 1 + random.nextInt(free);
+                Arrays.sort(cuts);
+            } while (cuts[0] == cuts[1] || cuts[1] == cuts[2] || cuts[0] == 1);
+            int[] next = new int[size];
+            int at = 0;
+            next[at++] = tour[0];
+            for (int k = 1; k < cuts[0]; k++) {
+                next[at++] = tour[k];
+            }
+            for (int k = cuts[1]; k < cuts[2]; k++) {
+                next[at++] = tour[k];
+            }
+            for (int k = cuts[0]; k < cuts[1]; k++) {
+                next[at++] = tour[k];
+            }
+            for (int k = cuts[2]; k < size; k++) {
+                next[at++] = tour[k];
+            }
+            return next;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.location.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collapses concurrent calls for the same key into one: the first caller runs
+ * the loader on its own thread, and callers arriving while it is in flight wait
+ * for and share its result or exception. Waiters give up after the per-call
+ * timeout; the leader is bounded by its own upstream timeouts.
+ */
+public class SingleFlight<K, V> {
+
+    private final String name;
+    private final long defaultTimeoutMillis;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    public SingleFlight(String name, long defaultTimeoutMillis) {
+        this.name = name;
+        this.defaultTimeoutMillis = defaultTimeoutMillis;
+    }
+
+    public V execute(K key, Callable<V> loader) {
+        return execute(key, defaultTimeoutMillis, loader);
+    }
+
+    public V execute(K key, long timeoutMillis, Callable<V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, mine);
+        if (leader == null) {
+            executed.increment();
+            try {
+                V value = loader.call();
+                mine.complete(value);
+                return value;
+            } catch (Throwable e) {
+                mine.completeExceptionally(e);
+                throw propagate(e);
+            } finally {
+                inFlight.remove(key, mine);
+            }
+        }
+
+        coalesced.increment();
+        try {
+            return leader.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw new UpstreamTimeoutException(name + " lookup still in flight after " + timeoutMillis + " ms");
+        } catch (ExecutionException e) {
+            throw propagate(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + name + " lookup", e);
+        }
+    }
+
+    /**
+     * Exports the counters as {@code coalescing.*} meters tagged {@code name}.
+     */
+    public void bindTo(MeterRegistry registry, String name) {
+        FunctionCounter.builder("coalescing.executed", executed, LongAdder::sum).tag("name", name).register(registry);
+        FunctionCounter.builder("coalescing.coalesced", coalesced, LongAdder::sum).tag("name", name).register(registry);
+        FunctionCounter.builder("coalescing.timeouts", timeouts, LongAdder::sum).tag("name", name).register(registry);
+        Gauge.builder("coalescing.in.flight", inFlight, Map::size).tag("name", name).register(registry);
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("executed", executed.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("timeouts", timeouts.sum());
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+
+    private static RuntimeException propagate(Throwable e) {
+        if (e instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (e instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(e);
+    }
+}
@@ -0,0 +1,29 @@
+package com.location.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.Serial;
+
+/**
+ * Google answered, but with a status that is neither a result nor a definite
+ * "no result" (REQUEST_DENIED, INVALID_REQUEST, UNKNOWN_ERROR, ...). Such
+ * answers must not be cached as negative results.
+ */
+@ResponseStatus(HttpStatus.BAD_GATEWAY)
+public class UpstreamStatusException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String status;
+
+    public UpstreamStatusException(String api, String status) {
+        super(api + " API returned status " + status);
+        this.status = status;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+}
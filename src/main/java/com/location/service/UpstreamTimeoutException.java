@@ -0,0 +1,20 @@
+package com.location.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.Serial;
+
+/**
+ * An upstream answer did not arrive in time.
+ */
+@ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+public class UpstreamTimeoutException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public UpstreamTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,83 @@
+package com.location.cache;
+
+import com.location.cache.AutocompleteIndex.Suggestion;
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AutocompleteIndexTests {
+
+    private static GeoPoint point(String placeId, String formatted, String street, String city) {
+        return new GeoPoint(6.43, 3.41, formatted, "ROOFTOP", false, placeId, null, street, city, null, null, null);
+    }
+
+    private final GeoPoint adeola = point("p1", "12 Adeola Odeku St, Victoria Island, Lagos, Nigeria",
+            "Adeola Odeku Street", "Lagos");
+    private final GeoPoint ademola = point("p2", "3 Ademola Adetokunbo Crescent, Wuse II, Abuja, Nigeria",
+            "Ademola Adetokunbo Crescent", "Abuja");
+    private final GeoPoint admiralty = point("p3", "Admiralty Way, Lekki Phase 1, Lagos, Nigeria",
+            "Admiralty Way", "Lagos");
+
+    @Test
+    void ranksMatchesByHowOftenTheyWereResolved() {
+        AutocompleteIndex index = new AutocompleteIndex(100, 10);
+        index.record(adeola);
+        for (int i = 0; i < 5; i++) {
+            index.record(ademola);
+        }
+        for (int i = 0; i < 3; i++) {
+            index.record(admiralty);
+        }
+
+        List<Suggestion> suggestions = index.suggest("Ad", 10);
+        assertEquals(List.of("p2", "p3", "p1"), suggestions.stream().map(Suggestion::placeId).toList());
+        assertEquals(5, suggestions.getFirst().popularity());
+
+        // Street name without the number, city, and a prefix longer than the trie
+        assertEquals("p1", index.suggest("adeola", 5).getFirst().placeId());
+        assertEquals(List.of("p3", "p1"), index.suggest("lagos", 5).stream().map(Suggestion::placeId).toList());
+        assertEquals("p1", index.suggest("12 Adeola Odeku St, Vic", 5).getFirst().placeId());
+        assertTrue(index.suggest("12 Adeola Odeku Rd", 5).isEmpty());
+        assertEquals(1, index.suggest("ad", 1).size());
+    }
+
+    @Test
+    void risingPlacesOvertakeOnesAlreadyInTheTopList() {
+        AutocompleteIndex index = new AutocompleteIndex(100, 1);
+        index.record(adeola);
+        index.record(adeola);
+        index.record(ademola);
+        assertEquals("p1", index.suggest("ade", 5).getFirst().placeId());
+
+        for (int i = 0; i < 3; i++) {
+            index.record(ademola);
+        }
+        assertEquals("p2", index.suggest("ade", 5).getFirst().placeId());
+    }
+
+    @Test
+    void stopsAddingPlacesWhenFull() {
+        AutocompleteIndex index = new AutocompleteIndex(1, 10);
+        index.record(adeola);
+        index.record(ademola);
+        assertEquals(1, index.size());
+        assertEquals(1L, index.stats().get("dropped"));
+    }
+
+    @Test
+    void longPrefixesFindEveryPlaceSharingADeepTrieNode() {
+        AutocompleteIndex index = new AutocompleteIndex(1000, 10);
+        for (int i = 0; i < 300; i++) {
+            index.record(point("b" + i, "Admiralty Way Block " + i + ", Lekki, Lagos", null, null));
+        }
+        index.record(point("b7", "Admiralty Way Block 7, Lekki, Lagos", null, null));
+
+        assertEquals(List.of("b7", "b70", "b71"),
+                index.suggest("Admiralty Way Block 7", 3).stream().map(Suggestion::placeId).toList());
+        assertEquals("b299", index.suggest("admiralty way block 299", 5).getFirst().placeId());
+        assertEquals(10, index.suggest("admiralty way block 2", 20).size());
+    }
+}
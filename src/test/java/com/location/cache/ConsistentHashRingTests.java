@@ -0,0 +1,51 @@
+package com.location.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTests {
+
+    private static final int KEYS = 30_000;
+
+    @Test
+    void spreadsKeysEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(
+                List.of("http://10.0.0.1:2424", "http://10.0.0.2:2424", "http://10.0.0.3:2424", "http://10.0.0.4:2424"), 160);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.owner("geocode|a:" + i + " main street"), 1, Integer::sum);
+        }
+
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(Math.abs(count - KEYS / 4) < KEYS / 4 * 0.2, "count " + count);
+        }
+        assertNull(new ConsistentHashRing(List.of(), 160).owner("anything"));
+    }
+
+    @Test
+    void addingAMemberOnlyMovesKeysToIt() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("a", "b", "c"), 160);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("c", "a", "b", "d"), 160);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "distance|" + i;
+            String was = before.owner(key);
+            String is = after.owner(key);
+            if (!was.equals(is)) {
+                assertEquals("d", is);
+                moved++;
+            }
+        }
+
+        assertTrue(Math.abs(moved - KEYS / 4) < KEYS / 4 * 0.2, "moved " + moved);
+        assertEquals(List.of("a", "b", "c", "d"), after.members());
+    }
+}
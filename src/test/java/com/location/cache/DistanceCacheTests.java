@@ -0,0 +1,89 @@
+package com.location.cache;
+
+import com.location.cache.DistanceCache.Route;
+import com.location.dto.DistanceResponse.TravelInfo;
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceCacheTests {
+
+    private final GeocodeCache geocodeCache = new GeocodeCache(100, 60_000, 60_000, 0);
+
+    private DistanceCache cache(String symmetricModes, Clock clock) {
+        return new DistanceCache(true, 100, 60_000, 60_000, 60_000, 60_000, 60, symmetricModes, geocodeCache, clock);
+    }
+
+    private static Clock at(String instant) {
+        return Clock.fixed(Instant.parse(instant), ZoneOffset.UTC);
+    }
+
+    private static TravelInfo info(String status) {
+        TravelInfo info = new TravelInfo();
+        info.status = status;
+        info.distanceValue = 1200;
+        return info;
+    }
+
+    @Test
+    void differentSpellingsOfOnePlaceShareAnEntry() {
+        DistanceCache cache = cache("", at("2026-01-01T08:30:00Z"));
+        geocodeCache.putAddress("12 Adeola Odeku St, Lagos", Optional.of(new GeoPoint(6.43, 3.41, "12 Adeola Odeku St",
+                "ROOFTOP", false, "ChIJ-adeola", null, null, null, null, null, null)));
+
+        assertEquals(cache.placeKey("place_id:ChIJ-adeola"), cache.placeKey("12 adeola odeku st lagos"));
+        assertEquals("ll:6.43029,3.41896", cache.placeKey(" 6.430291, 3.418962 "));
+        assertEquals("a:lekki phase 1", cache.placeKey("Lekki  Phase 1."));
+
+        // A partial match names some other place, so the address keeps its own key
+        geocodeCache.putAddress("Adeola Odeku Annex", Optional.of(new GeoPoint(6.43, 3.41, "12 Adeola Odeku St",
+                "APPROXIMATE", true, "ChIJ-adeola", null, null, null, null, null, null)));
+        assertEquals("a:adeola odeku annex", cache.placeKey("Adeola Odeku Annex"));
+
+        TravelInfo walking = info("OK");
+        cache.put(cache.route("place_id:ChIJ-adeola", "Lekki Phase 1"), "walking", walking);
+        assertSame(walking, cache.get(cache.route("12 Adeola Odeku St, Lagos", "lekki phase 1"), "walking"));
+    }
+
+    @Test
+    void symmetricModesShareBothDirections() {
+        DistanceCache cache = cache("walking, bicycling", at("2026-01-01T08:30:00Z"));
+        Route there = cache.route("Ikeja", "Yaba");
+        Route back = cache.route("Yaba", "Ikeja");
+        cache.put(there, "walking", info("OK"));
+        cache.put(there, "transit", info("OK"));
+
+        assertNotNull(cache.get(back, "walking"));
+        assertNull(cache.get(back, "transit"));
+    }
+
+    @Test
+    void drivingIsKeyedByTimeOfDayBucket() {
+        Route route = new Route("a:ikeja", "a:yaba");
+        DistanceCache morning = cache("", at("2026-01-01T08:10:00Z"));
+        morning.put(route, "driving", info("OK"));
+
+        assertEquals(morning.key(route, "driving"), cache("", at("2026-01-02T08:50:00Z")).key(route, "driving"));
+        assertNotEquals(morning.key(route, "driving"), cache("", at("2026-01-01T17:10:00Z")).key(route, "driving"));
+        assertEquals("a:ikeja|a:yaba|walking", morning.key(route, "walking"));
+    }
+
+    @Test
+    void cachesOnlyDefinitiveAnswers() {
+        DistanceCache cache = cache("", at("2026-01-01T08:30:00Z"));
+        Route route = new Route("a:ikeja", "a:yaba");
+        cache.put(route, "walking", info("NOT_FOUND"));
+        cache.put(route, "bicycling", info("TIMEOUT"));
+        cache.put(route, "transit", info("ERROR"));
+
+        assertEquals("NOT_FOUND", cache.get(route, "walking").status);
+        assertNull(cache.get(route, "bicycling"));
+        assertNull(cache.get(route, "transit"));
+    }
+}
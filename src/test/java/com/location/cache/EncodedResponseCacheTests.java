@@ -0,0 +1,68 @@
+package com.location.cache;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.location.cache.EncodedResponseCache.Format;
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncodedResponseCacheTests {
+
+    private static final TypeReference<Map<String, Object>> MAP = new TypeReference<>() {};
+
+    private final GeoPoint point = new GeoPoint(6.4302869, 3.4189622,
+            "12 Adeola Odeku St, Victoria Island, Lagos 101241, Lagos, Nigeria", "ROOFTOP", false,
+            "ChIJ4aKfFgOLOxARgVtSpHVbSCs", "12", "Adeola Odeku Street", null, "Lagos", "Nigeria", "101241");
+
+    @Test
+    void encodesTheSameFieldsAsTheResponseMap() throws Exception {
+        EncodedResponseCache cache = new EncodedResponseCache(true, 100, 60_000);
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("lat", 6.4302869);
+        expected.put("lng", 3.4189622);
+        expected.put("formattedAddress", point.formattedAddress());
+        expected.put("locationType", "ROOFTOP");
+        expected.put("partialMatch", false);
+        expected.put("placeId", point.placeId());
+        expected.put("streetNumber", "12");
+        expected.put("street", "Adeola Odeku Street");
+        expected.put("city", null);
+        expected.put("state", "Lagos");
+        expected.put("country", "Nigeria");
+        expected.put("postalCode", "101241");
+
+        assertEquals(expected, new ObjectMapper().readValue(cache.get(point, Format.JSON), MAP));
+        assertEquals(expected, new CBORMapper().readValue(cache.get(point, Format.CBOR), MAP));
+    }
+
+    @Test
+    void repeatHitsShareOneEncoding() {
+        EncodedResponseCache cache = new EncodedResponseCache(true, 100, 60_000);
+        byte[] first = cache.get(point, Format.JSON);
+        GeoPoint same = new GeoPoint(point.lat(), point.lng(), point.formattedAddress(), point.locationType(),
+                point.partialMatch(), point.placeId(), point.streetNumber(), point.street(), point.city(),
+                point.state(), point.country(), point.postalCode());
+
+        assertSame(first, cache.get(same, Format.JSON));
+        assertNotSame(first, cache.get(point, Format.CBOR));
+        assertEquals(Format.CBOR, Format.accepting("application/cbor, application/json;q=0.5"));
+        assertEquals(Format.JSON, Format.accepting("*/*"));
+        assertEquals(Format.JSON, Format.accepting(null));
+
+        // Quality values decide, not where a type appears in the header
+        assertEquals(Format.JSON, Format.accepting("application/cbor;q=0.2, application/json"));
+        assertEquals(Format.CBOR, Format.accepting("application/json;q=0.5, application/cbor;q=0.9"));
+        assertEquals(Format.CBOR, Format.accepting("application/*;q=0.1, application/cbor"));
+        assertEquals(Format.JSON, Format.accepting("application/*"));
+        assertEquals(Format.CBOR, Format.accepting("application/json;q=0, */*"));
+        assertNull(Format.accepting("text/html"));
+        assertNull(Format.accepting("application/json;q=0"));
+        assertNull(Format.accepting("not a media type"));
+    }
+}
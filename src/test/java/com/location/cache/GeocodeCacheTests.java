@@ -0,0 +1,90 @@
+package com.location.cache;
+
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeocodeCacheTests {
+
+    private static GeoPoint point(String placeId) {
+        return new GeoPoint(6.45, 3.39, "1 Main St, Lagos", "ROOFTOP", false, placeId,
+                "1", "Main St", "Lagos", "Lagos", "Nigeria", "100001");
+    }
+
+    @Test
+    void normalizedAddressesShareAnEntry() {
+        GeocodeCache cache = new GeocodeCache(100, 60_000, 60_000, 0);
+        cache.putAddress("1 Main St., Lagos", Optional.of(point("abc")));
+
+        assertEquals("abc", cache.lookupAddress("  1 MAIN st lagos ").value().get().placeId());
+        assertEquals("1 main st lagos", GeocodeCache.normalizeAddress("1  Main-St.,Lagos!"));
+    }
+
+    @Test
+    void forwardGeocodeFillsPlaceIdEntry() {
+        GeocodeCache cache = new GeocodeCache(100, 60_000, 60_000, 0);
+        cache.putAddress("1 Main St", Optional.of(point("abc")));
+
+        assertTrue(cache.lookupPlaceId("abc").value().isPresent());
+        assertNull(cache.lookupPlaceId("other"));
+    }
+
+    @Test
+    void negativeResultsAreCached() {
+        GeocodeCache cache = new GeocodeCache(100, 60_000, 60_000, 0);
+        cache.putAddress("nowhere", Optional.empty());
+
+        CacheHit<Optional<GeoPoint>> cached = cache.lookupAddress("Nowhere");
+        assertNotNull(cached);
+        assertTrue(cached.value().isEmpty());
+        assertFalse(cached.stale());
+        assertEquals(1L, cache.stats().get("negativeHits"));
+    }
+
+    @Test
+    void boundedCacheEvictsLeastRecentlyUsed() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(2, 1);
+        cache.put("a", "1", 60_000);
+        cache.put("b", "2", 60_000);
+        cache.get("a");
+        cache.put("c", "3", 60_000);
+
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    void expiredEntriesStayAvailableAsStaleDuringGrace() throws Exception {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, 1, 60_000);
+        cache.put("a", "1", 1);
+        Thread.sleep(5);
+
+        assertNull(cache.get("a"));
+        CacheHit<String> hit = cache.lookup("a");
+        assertEquals("1", hit.value());
+        assertTrue(hit.stale());
+        assertEquals(1, cache.staleHitCount());
+
+        BoundedTtlCache<String, String> noGrace = new BoundedTtlCache<>(10, 1);
+        noGrace.put("a", "1", 1);
+        Thread.sleep(5);
+        assertNull(noGrace.lookup("a"));
+        assertEquals(0, noGrace.size());
+    }
+
+    @Test
+    void warmedEntriesExpireWithTheirStoreRecord() throws Exception {
+        GeocodeCache cache = new GeocodeCache(100, 60_000, 60_000, 60_000);
+        cache.warmAddress("1 Main St", point("id-1"), 20);
+
+        assertFalse(cache.lookupAddress("1 main st").stale());
+        Thread.sleep(40);
+        CacheHit<Optional<GeoPoint>> hit = cache.lookupAddress("1 main st");
+        assertTrue(hit.stale());
+        assertEquals("id-1", hit.value().orElseThrow().placeId());
+    }
+}
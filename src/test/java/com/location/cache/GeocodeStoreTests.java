@@ -0,0 +1,95 @@
+package com.location.cache;
+
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeocodeStoreTests {
+
+    @TempDir
+    Path dir;
+
+    private GeocodeStore open() throws Exception {
+        GeocodeStore store = new GeocodeStore(true, dir.resolve("geocode.store").toString(), 1, 60_000, 0.5, 60_000);
+        store.open();
+        return store;
+    }
+
+    private static GeoPoint point(String city) {
+        return new GeoPoint(6.45, 3.39, "1 Main St, " + city, "ROOFTOP", true, "id-" + city,
+                "1", "Main St", city, null, "Nigeria", "100001");
+    }
+
+    @Test
+    void entriesSurviveARestart() throws Exception {
+        GeocodeStore store = open();
+        store.put("a:1 main st", point("Lagos"));
+        store.put("p:id-Abuja", point("Abuja"));
+        store.put("a:1 main st", point("Ibadan"));
+        store.close();
+
+        GeocodeStore reopened = open();
+        assertEquals(point("Ibadan"), reopened.get("a:1 main st"));
+        assertEquals(point("Abuja"), reopened.get("p:id-Abuja"));
+        assertNull(reopened.get("a:unknown"));
+        reopened.close();
+    }
+
+    @Test
+    void compactionDropsSupersededRecords() throws Exception {
+        GeocodeStore store = open();
+        for (int i = 0; i < 100; i++) {
+            store.put("a:hot", point("Lagos " + i));
+        }
+        long before = (int) store.stats().get("bytesUsed");
+        store.compactIfNeeded();
+
+        assertTrue((int) store.stats().get("bytesUsed") < before);
+        assertEquals(point("Lagos 99"), store.get("a:hot"));
+        store.close();
+
+        GeocodeStore reopened = open();
+        assertEquals(point("Lagos 99"), reopened.get("a:hot"));
+        reopened.close();
+    }
+
+    @Test
+    void lookupReportsTheRecordsRemainingLifetime() throws Exception {
+        GeocodeStore store = open();
+        store.put("a:1 main st", point("Lagos"));
+
+        GeocodeStore.Stored stored = store.lookup("a:1 main st");
+        assertEquals(point("Lagos"), stored.point());
+        assertTrue(stored.remainingMillis() > 50_000 && stored.remainingMillis() <= 60_000);
+        assertNull(store.lookup("a:unknown"));
+        store.close();
+    }
+
+    @Test
+    void fullStoreCompactsInTheBackground() throws Exception {
+        GeocodeStore store = open();
+        int i = 0;
+        // Stop at the first write that finds the file full; it is dropped and queues a compaction
+        while (point("Lagos " + i).equals(afterPut(store, i))) {
+            i++;
+        }
+        for (int wait = 0; wait < 100 && (int) store.stats().get("bytesUsed") > 1024; wait++) {
+            Thread.sleep(20);
+        }
+
+        assertTrue((int) store.stats().get("bytesUsed") <= 1024);
+        assertEquals(point("Lagos " + (i - 1)), store.get("a:hot"));
+        store.put("a:hot", point("Abuja"));
+        assertEquals(point("Abuja"), store.get("a:hot"));
+        store.close();
+    }
+
+    private static GeoPoint afterPut(GeocodeStore store, int i) {
+        store.put("a:hot", point("Lagos " + i));
+        return store.get("a:hot");
+    }
+}
@@ -0,0 +1,51 @@
+package com.location.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongKeyCacheTests {
+
+    @Test
+    void keepsEveryEntryBelowCapacity() {
+        LongKeyCache<Long> cache = new LongKeyCache<>(20_000, 4);
+        for (long i = 0; i < 10_000; i++) {
+            cache.put(i * 31, i, 60_000);
+        }
+        for (long i = 0; i < 10_000; i++) {
+            assertEquals(i, cache.get(i * 31));
+        }
+        assertEquals(0, cache.evictionCount());
+    }
+
+    @Test
+    void staysBoundedAndFindsSurvivorsAfterEvictions() {
+        LongKeyCache<Long> cache = new LongKeyCache<>(1_000, 1);
+        for (long i = 0; i < 5_000; i++) {
+            cache.put(i, i, 60_000);
+        }
+        assertEquals(1_000, cache.size());
+        assertEquals(4_000, cache.evictionCount());
+
+        int found = 0;
+        for (long i = 0; i < 5_000; i++) {
+            Long value = cache.get(i);
+            if (value != null) {
+                assertEquals(i, value);
+                found++;
+            }
+        }
+        assertEquals(1_000, found);
+    }
+
+    @Test
+    void nearbyPointsShareACell() {
+        long a = GeoCell.encode(6.524379, 3.379206, 8);
+        long b = GeoCell.encode(6.524380, 3.379210, 8);
+        long far = GeoCell.encode(6.534379, 3.379206, 8);
+
+        assertEquals(a, b);
+        assertNotEquals(a, far);
+        assertEquals("s1", GeoCell.toGeohash(GeoCell.encode(6.524379, 3.379206, 2), 2));
+    }
+}
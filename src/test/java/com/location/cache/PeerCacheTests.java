@@ -0,0 +1,387 @@
+package com.location.cache;
+
+import com.location.LocationApplication;
+import com.location.cache.BoundedTtlCache.Fresh;
+import com.location.load.GoogleApiStub;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.server.PortInUseException;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Several replicas on localhost sharing results through {@link PeerCache},
+ * with Google replaced by {@link GoogleApiStub}.
+ */
+class PeerCacheTests {
+
+    private static final int ADDRESSES = 30;
+    private static final String SECRET = "test-secret";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final List<ConfigurableApplicationContext> replicas = new ArrayList<>();
+    private GoogleApiStub stub;
+
+    @AfterEach
+    void shutdown() {
+        replicas.forEach(ConfigurableApplicationContext::close);
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    @Test
+    void replicasGoUpstreamOnceForEachAddressAcrossJoinsAndLeaves() throws Exception {
+        stub = new GoogleApiStub();
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            urls.add("http://localhost:" + freePort());
+        }
+        for (int i = 0; i < 3; i++) {
+            replicas.add(start(urls.get(i), urls));
+        }
+        awaitRing(replicas, 3);
+
+        for (int i = 0; i < ADDRESSES; i++) {
+            assertEquals(200, geocode(urls.get(i % 3), i));
+        }
+        assertEquals(ADDRESSES, stub.calls("geocode"));
+        await(() -> owned(replicas) == ADDRESSES);
+
+        // Every replica now answers every address, mostly from the owners
+        for (int i = 0; i < ADDRESSES; i++) {
+            assertEquals(200, geocode(urls.get((i + 1) % 3), i));
+            assertEquals(200, geocode(urls.get((i + 2) % 3), i));
+        }
+        assertEquals(ADDRESSES, stub.calls("geocode"));
+
+        // The first replica leaves and hands its entries over; a fresh one joins and takes its share
+        replicas.remove(0).close();
+        replicas.add(start(urls.get(3), urls));
+        awaitRing(replicas, 3);
+        await(() -> owned(replicas) == ADDRESSES && owned(replicas.subList(2, 3)) > 0
+                && replicas.stream().noneMatch(r -> (boolean) peers(r).stats().get("rebalancing")));
+
+        for (int i = 0; i < ADDRESSES; i++) {
+            assertEquals(200, geocode(urls.get(3), i));
+        }
+        assertEquals(ADDRESSES, stub.calls("geocode"));
+        assertTrue((long) peers(replicas.get(2)).stats().get("hits") > 0);
+    }
+
+    @Test
+    void slowOwnerCountsAsAMissAndStaysInTheRing() throws Exception {
+        stub = new GoogleApiStub();
+        // Answers pings and hand-offs at once but takes longer than peer.timeout-ms over every lookup
+        HttpServer slow = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        slow.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        slow.createContext(PeerCache.PATH, exchange -> {
+            if (exchange.getRequestMethod().equals("GET") && exchange.getRequestURI().getPath().endsWith("/entries")) {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                exchange.sendResponseHeaders(204, -1);
+            }
+            exchange.close();
+        });
+        slow.start();
+        try {
+            String url = "http://localhost:" + freePort();
+            replicas.add(start(url, List.of(url, "http://localhost:" + slow.getAddress().getPort())));
+            awaitRing(replicas, 2);
+
+            for (int i = 0; i < ADDRESSES; i++) {
+                assertEquals(200, geocode(url, i));
+            }
+            Map<String, Object> stats = peers(replicas.getFirst()).stats();
+            assertEquals(ADDRESSES, stub.calls("geocode"));
+            assertTrue((long) stats.get("timeouts") > 0);
+            assertEquals(0L, stats.get("errors"));
+            assertEquals(2, ((List<?>) stats.get("ring")).size());
+        } finally {
+            slow.stop(0);
+        }
+    }
+
+    @Test
+    void hotKeysAreKeptInTheAskersNearCache() throws Exception {
+        stub = new GoogleApiStub();
+        List<String> urls = List.of("http://localhost:" + freePort(), "http://localhost:" + freePort());
+        for (String url : urls) {
+            replicas.add(start(url, urls, "--peer.hot-threshold=3"));
+        }
+        awaitRing(replicas, 2);
+
+        for (int i = 0; i < ADDRESSES; i++) {
+            assertEquals(200, geocode(urls.get(1), i));
+        }
+        await(() -> owned(replicas) == ADDRESSES);
+        // The first replica never caches the second's answers itself, so it asks the owner every
+        // time until the owner flags the key as hot
+        for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < ADDRESSES; i++) {
+                assertEquals(200, geocode(urls.get(0), i));
+            }
+        }
+
+        Map<String, Object> stats = peers(replicas.getFirst()).stats();
+        long remote = owned(replicas.subList(1, 2));
+        assertEquals(ADDRESSES, stub.calls("geocode"));
+        assertEquals(remote, ((Number) stats.get("near")).longValue());
+        assertEquals(remote, stats.get("nearHits"));
+        assertEquals(remote * 3, stats.get("hits"));
+    }
+
+    @Test
+    void distancesAreSharedLikeGeocodes() throws Exception {
+        stub = new GoogleApiStub();
+        List<String> urls = List.of("http://localhost:" + freePort(), "http://localhost:" + freePort());
+        for (String url : urls) {
+            replicas.add(start(url, urls));
+        }
+        awaitRing(replicas, 2);
+
+        for (int i = 0; i < ADDRESSES; i++) {
+            assertEquals(200, distance(urls.get(0), i));
+        }
+        long calls = stub.calls("distance-matrix");
+        assertEquals(ADDRESSES * 2, calls);
+        await(() -> owned(replicas) == calls);
+
+        for (int i = 0; i < ADDRESSES; i++) {
+            assertEquals(200, distance(urls.get(1), i));
+        }
+        assertEquals(calls, stub.calls("distance-matrix"));
+    }
+
+    @Test
+    void reactiveEndpointsShareResultsWithTheBlockingOnes() throws Exception {
+        stub = new GoogleApiStub();
+        List<String> urls = List.of("http://localhost:" + freePort(), "http://localhost:" + freePort());
+        for (String url : urls) {
+            replicas.add(start(url, urls));
+        }
+        awaitRing(replicas, 2);
+
+        // Fetched on the blocking path, found by the reactive one on the other replica
+        for (int i = 0; i < ADDRESSES; i++) {
+            assertEquals(200, geocode(urls.get(0), i));
+            assertEquals(200, distance(urls.get(0), i));
+        }
+        await(() -> owned(replicas) == ADDRESSES * 3L);
+        for (int i = 0; i < ADDRESSES; i++) {
+            assertEquals(200, geocode(urls.get(1), "/api/reactive/geocode", i));
+            assertEquals(200, distance(urls.get(1), "/api/reactive/distance", i));
+        }
+        assertEquals(ADDRESSES, stub.calls("geocode"));
+        assertEquals(ADDRESSES * 2, stub.calls("distance-matrix"));
+
+        // And the other way round
+        for (int i = ADDRESSES; i < ADDRESSES * 2; i++) {
+            assertEquals(200, geocode(urls.get(1), "/api/reactive/geocode", i));
+            assertEquals(200, distance(urls.get(1), "/api/reactive/distance", i));
+        }
+        await(() -> owned(replicas) == ADDRESSES * 6L);
+        for (int i = ADDRESSES; i < ADDRESSES * 2; i++) {
+            assertEquals(200, geocode(urls.get(0), i));
+            assertEquals(200, distance(urls.get(0), i));
+        }
+        assertEquals(ADDRESSES * 2, stub.calls("geocode"));
+        assertEquals(ADDRESSES * 4, stub.calls("distance-matrix"));
+    }
+
+    @Test
+    void dnsDiscoveryDoesNotCountThisReplicaTwice() throws Exception {
+        stub = new GoogleApiStub();
+        int port = freePort();
+        replicas.add(run(port, "--peer.dns-name=localhost"));
+        PeerCache peers = peers(replicas.getFirst());
+        await(() -> !((List<?>) peers.stats().get("ring")).isEmpty());
+
+        // localhost resolves to 127.0.0.1 and often [::1] too; both are this replica
+        List<?> ring = (List<?>) peers.stats().get("ring");
+        assertEquals(1, ring.size(), ring.toString());
+        assertTrue(((String) ring.getFirst()).endsWith(":" + port), ring.toString());
+        assertEquals(Map.of(), peers.stats().get("peers"));
+
+        for (int i = 0; i < ADDRESSES; i++) {
+            assertEquals(200, geocode("http://localhost:" + port, i));
+        }
+        assertEquals((long) ADDRESSES, peers.stats().get("owned"));
+        assertEquals(0L, peers.stats().get("errors"));
+    }
+
+    @Test
+    void peerEndpointsNeedTheSecretAndOnlyDiscoveredReplicasMayJoin() throws Exception {
+        stub = new GoogleApiStub();
+        String url = "http://localhost:" + freePort();
+        String other = "http://localhost:" + freePort();
+        replicas.add(start(url, List.of(url, other)));
+
+        assertEquals(403, call(url, "GET", "/ping", null));
+        assertEquals(403, call(url, "GET", "/ping", "wrong"));
+        assertEquals(204, call(url, "GET", "/ping", SECRET));
+        assertEquals(403, call(url, "POST", "/join?peer=" + URLEncoder.encode("http://attacker:80", StandardCharsets.UTF_8), SECRET));
+        assertEquals(204, call(url, "POST", "/join?peer=" + URLEncoder.encode(other, StandardCharsets.UTF_8), SECRET));
+        assertEquals(List.of(other), List.copyOf(((Map<?, ?>) peers(replicas.getFirst()).stats().get("peers")).keySet()));
+    }
+
+    @Test
+    void handOffsAreCappedPerEntryAndPerRequest() throws Exception {
+        PeerCache peers = new PeerCache(new MockEnvironment()
+                .withProperty("peer.enabled", "true")
+                .withProperty("peer.secret", SECRET)
+                .withProperty("peer.max-entry-bytes", "8")
+                .withProperty("peer.handoff.max-entries", "2"));
+        try {
+            assertTrue(peers.authorized(SECRET));
+            assertFalse(peers.authorized("test-secreT"));
+            assertFalse(peers.authorized(null));
+
+            byte[] small = new byte[8];
+            assertThrows(IllegalArgumentException.class, () -> peers.accept("big", new byte[9], 1_000));
+            assertThrows(IllegalArgumentException.class, () -> peers.acceptAll(new ByteArrayInputStream(
+                    PeerCache.writeEntries(List.of(new Fresh<>("big", new byte[9], 1_000L))))));
+            assertThrows(IllegalArgumentException.class, () -> peers.acceptAll(new ByteArrayInputStream(
+                    PeerCache.writeEntries(List.of(new Fresh<>("a", small, 1_000L), new Fresh<>("b", small, 1_000L),
+                            new Fresh<>("c", small, 1_000L))))));
+            assertEquals(2L, peers.stats().get("owned"));
+
+            // A length prefix claiming 2 GB is refused before anything is allocated
+            ByteArrayOutputStream forged = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(forged)) {
+                out.writeUTF("forged");
+                out.writeLong(1_000);
+                out.writeInt(Integer.MAX_VALUE);
+            }
+            assertThrows(IllegalArgumentException.class,
+                    () -> peers.acceptAll(new ByteArrayInputStream(forged.toByteArray())));
+        } finally {
+            peers.shutdown();
+        }
+        assertThrows(IllegalStateException.class,
+                () -> new PeerCache(new MockEnvironment().withProperty("peer.enabled", "true")));
+    }
+
+    private ConfigurableApplicationContext start(String self, List<String> urls, String... args) {
+        List<String> all = new ArrayList<>(List.of(args));
+        all.add("--peer.self=" + self);
+        all.add("--peer.peers=" + String.join(",", urls));
+        return run(URI.create(self).getPort(), all.toArray(String[]::new));
+    }
+
+    /**
+     * Starts a replica on {@code port}. The port was free when the test picked
+     * it; if something else took it since, the test is skipped rather than failed.
+     */
+    private ConfigurableApplicationContext run(int port, String... args) {
+        List<String> all = new ArrayList<>(List.of(
+                "--server.port=" + port,
+                "--peer.enabled=true",
+                "--peer.secret=" + SECRET,
+                "--peer.refresh-ms=200",
+                "--upstream.google.base-url=" + stub.baseUrl(),
+                "--geocoding.google.api-key=test-key",
+                "--distance.matrix.google.api-key=test-key",
+                "--geocoding.store.enabled=false"));
+        all.addAll(List.of(args));
+        try {
+            return new SpringApplicationBuilder(LocationApplication.class).run(all.toArray(String[]::new));
+        } catch (RuntimeException e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof PortInUseException) {
+                    Assumptions.abort("Port " + port + " was taken before the replica started");
+                }
+            }
+            throw e;
+        }
+    }
+
+    private int geocode(String url, int i) throws IOException, InterruptedException {
+        return geocode(url, "/api/geocode", i);
+    }
+
+    private int geocode(String url, String path, int i) throws IOException, InterruptedException {
+        String address = URLEncoder.encode(i + " Admiralty Way, Lekki", StandardCharsets.UTF_8);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url + path + "?address=" + address)).build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private int distance(String url, int i) throws IOException, InterruptedException {
+        return distance(url, "/api/distance", i);
+    }
+
+    private int distance(String url, String path, int i) throws IOException, InterruptedException {
+        String body = "{\"origin\":\"" + i + " Admiralty Way, Lekki\",\"destination\":\"Ikeja\","
+                + "\"modes\":[\"driving\",\"walking\"]}";
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private int call(String url, String method, String path, String secret) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url + PeerCache.PATH + path))
+                .method(method, HttpRequest.BodyPublishers.noBody());
+        if (secret != null) {
+            request.header(PeerCache.SECRET_HEADER, secret);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static PeerCache peers(ConfigurableApplicationContext replica) {
+        return replica.getBean(PeerCache.class);
+    }
+
+    private static long owned(List<ConfigurableApplicationContext> replicas) {
+        return replicas.stream().mapToLong(r -> (long) peers(r).stats().get("owned")).sum();
+    }
+
+    private static void awaitRing(List<ConfigurableApplicationContext> replicas, int members) throws InterruptedException {
+        await(() -> replicas.stream().allMatch(r -> ((List<?>) peers(r).stats().get("ring")).size() == members));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting for the replicas to settle");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.location.geo;
+
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GazetteerTests {
+
+    private Gazetteer gazetteer;
+
+    @BeforeEach
+    void load() throws Exception {
+        gazetteer = new Gazetteer(true, resource("cities.txt"), resource("admin1.txt"), resource("countries.txt"),
+                resource("postal.txt"), 1000, 10, 20);
+        gazetteer.load();
+    }
+
+    private static String resource(String name) throws Exception {
+        return Path.of(GazetteerTests.class.getResource("/geonames/" + name).toURI()).toString();
+    }
+
+    @Test
+    void resolvesCoarseQueriesByNameAndQualifier() {
+        GeoPoint lagos = gazetteer.geocode("Lagos").orElseThrow();
+        assertEquals("Lagos, Nigeria", lagos.formattedAddress());
+        assertEquals(6.45407, lagos.lat());
+        assertEquals("geonames:2332459", lagos.placeId());
+        assertEquals("Lagos", lagos.state());
+
+        assertEquals("Portugal", gazetteer.geocode("lagos, PT").orElseThrow().country());
+        assertEquals("Ikeja, Lagos, Nigeria", gazetteer.geocode("Ikeja, Nigeria").orElseThrow().formattedAddress());
+        assertEquals("São Paulo", gazetteer.geocode("sao paulo, brazil").orElseThrow().city());
+        assertEquals("Illinois", gazetteer.geocode("Springfield, IL").orElseThrow().state());
+        assertEquals(lagos, gazetteer.byPlaceId("geonames:2332459").orElseThrow());
+    }
+
+    @Test
+    void leavesAmbiguousAndDetailedQueriesToGoogle() {
+        // Two Springfields of similar size
+        assertTrue(gazetteer.geocode("Springfield").isEmpty());
+        // Street addresses, unknown qualifiers and places below min-population
+        assertTrue(gazetteer.geocode("12 Adeola Odeku St, Lagos").isEmpty());
+        assertTrue(gazetteer.geocode("Adeola Odeku Street, Lagos").isEmpty());
+        assertTrue(gazetteer.geocode("Lagos, Ghana").isEmpty());
+        assertTrue(gazetteer.geocode("Tiny").isEmpty());
+        // One postal code in two countries
+        assertTrue(gazetteer.geocode("10001").isEmpty());
+    }
+
+    @Test
+    void resolvesPostalCodes() {
+        GeoPoint victoriaIsland = gazetteer.geocode("101241").orElseThrow();
+        assertEquals("Victoria Island, Lagos 101241, Nigeria", victoriaIsland.formattedAddress());
+        assertEquals("101241", victoriaIsland.postalCode());
+        assertEquals("New York", gazetteer.geocode("10001, United States").orElseThrow().city());
+    }
+
+    @Test
+    void reverseLookupFindsTheNearestPlaceWithinRange() {
+        assertEquals("Ikeja", gazetteer.locality(6.59, 3.34).orElseThrow().city());
+        assertEquals("Lagos", gazetteer.locality(6.46, 3.40).orElseThrow().city());
+        assertTrue(gazetteer.locality(0, 0).isEmpty());
+    }
+}
@@ -0,0 +1,117 @@
+package com.location.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeofenceIndexTests {
+
+    private static double[] box(double minLng, double minLat, double maxLng, double maxLat) {
+        return new double[]{minLng, minLat, maxLng, minLat, maxLng, maxLat, minLng, maxLat, minLng, minLat};
+    }
+
+    @Test
+    void honoursHolesAndMultiPolygons() {
+        GeofenceIndex index = new GeofenceIndex(4);
+        // Lagos Island with a hole carved out, and a zone made of two separate squares
+        index.put("island", List.<double[][]>of(new double[][]{box(3.38, 6.43, 3.42, 6.47), box(3.395, 6.445, 3.405, 6.455)}));
+        index.put("pair", List.of(new double[][]{box(3.30, 6.50, 3.32, 6.52)}, new double[][]{box(3.40, 6.46, 3.44, 6.50)}));
+
+        assertEquals(List.of("island"), index.containing(6.44, 3.39));
+        assertEquals(List.of(), index.containing(6.45, 3.40));
+        assertEquals(List.of("island", "pair"), index.containing(6.465, 3.415));
+        assertEquals(List.of("pair"), index.containing(6.51, 3.31));
+        assertEquals(List.of(), index.containing(6.51, 3.35));
+
+        GeofenceIndex.Zone pair = index.get("pair").orElseThrow();
+        assertEquals(2, pair.polygons());
+        assertEquals(6.52, pair.maxLat());
+
+        assertTrue(index.remove("island"));
+        assertEquals(List.of("pair"), index.containing(6.465, 3.415));
+        assertFalse(index.remove("island"));
+    }
+
+    @Test
+    void concavePolygonWithVertexOnTheRay() {
+        GeofenceIndex index = new GeofenceIndex(4);
+        // A "U" shape: the notch between the arms is outside
+        double[] u = {0, 0, 3, 0, 3, 3, 2, 3, 2, 1, 1, 1, 1, 3, 0, 3};
+        index.put("u", List.<double[][]>of(new double[][]{u}));
+
+        assertEquals(List.of("u"), index.containing(0.5, 0.5));
+        assertEquals(List.of("u"), index.containing(2, 0.5));
+        assertEquals(List.of(), index.containing(2, 1.5));
+        assertEquals(List.of("u"), index.containing(2, 2.5));
+        // Same latitude as the notch's bottom vertices
+        assertEquals(List.of("u"), index.containing(1, 0.5));
+        assertEquals(List.of(), index.containing(1, 3.5));
+        assertThrows(IllegalArgumentException.class,
+                () -> index.put("bad", List.<double[][]>of(new double[][]{{0, 0, 1, 1}})));
+    }
+
+    @Test
+    void batchMatchesBruteForceOverManyZones() {
+        Random random = new Random(42);
+        Map<String, double[]> boxes = new LinkedHashMap<>();
+        Map<String, List<double[][]>> zones = new LinkedHashMap<>();
+        for (int i = 0; i < 500; i++) {
+            double lng = random.nextDouble() * 10;
+            double lat = random.nextDouble() * 10;
+            double[] b = {lng, lat, lng + random.nextDouble(), lat + random.nextDouble()};
+            String id = "z" + i;
+            boxes.put(id, b);
+            zones.put(id, List.<double[][]>of(new double[][]{box(b[0], b[1], b[2], b[3])}));
+        }
+        GeofenceIndex index = new GeofenceIndex(8);
+        index.putAll(zones);
+
+        int n = GeofenceIndex.CHUNK * 3 + 17;
+        double[] lats = new double[n];
+        double[] lngs = new double[n];
+        for (int i = 0; i < n; i++) {
+            lats[i] = random.nextDouble() * 11;
+            lngs[i] = random.nextDouble() * 11;
+        }
+        List<List<String>> found = index.containing(lats, lngs);
+
+        assertEquals(n, found.size());
+        for (int i = 0; i < n; i++) {
+            List<String> expected = new ArrayList<>();
+            for (Map.Entry<String, double[]> e : boxes.entrySet()) {
+                double[] b = e.getValue();
+                if (lngs[i] > b[0] && lngs[i] < b[2] && lats[i] > b[1] && lats[i] < b[3]) {
+                    expected.add(e.getKey());
+                }
+            }
+            expected.sort(null);
+            assertEquals(expected, found.get(i), "point " + i);
+        }
+        assertTrue((int) index.stats().get("depth") > 1);
+    }
+
+    @Test
+    void refusesZonesBeyondItsCapacityButAllowsReplacing() {
+        GeofenceIndex index = new GeofenceIndex(4, 2);
+        index.put("a", List.<double[][]>of(new double[][]{box(0, 0, 1, 1)}));
+        index.putAll(Map.of("a", List.<double[][]>of(new double[][]{box(0, 0, 2, 2)}),
+                "b", List.<double[][]>of(new double[][]{box(5, 5, 6, 6)})));
+
+        assertThrows(IllegalArgumentException.class, () -> index.put("c", List.<double[][]>of(new double[][]{box(0, 0, 1, 1)})));
+        assertThrows(IllegalArgumentException.class, () -> index.putAll(Map.of(
+                "b", List.<double[][]>of(new double[][]{box(5, 5, 7, 7)}),
+                "c", List.<double[][]>of(new double[][]{box(0, 0, 1, 1)}))));
+        // The refused batch left everything as it was
+        assertEquals(6, index.get("b").orElseThrow().maxLat());
+
+        index.put("b", List.<double[][]>of(new double[][]{box(5, 5, 8, 8)}));
+        assertEquals(2, index.size());
+        assertEquals(List.of("a", "b"), index.zones().stream().map(GeofenceIndex.Zone::id).toList());
+    }
+}
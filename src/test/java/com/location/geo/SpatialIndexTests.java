@@ -0,0 +1,53 @@
+package com.location.geo;
+
+import com.location.geo.SpatialIndex.Neighbour;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialIndexTests {
+
+    @Test
+    void nearestMatchesLinearScan() {
+        SpatialIndex index = new SpatialIndex(0.05);
+        Random random = new Random(7);
+        double[][] points = new double[5_000][];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new double[]{6 + random.nextDouble() * 2, 3 + random.nextDouble() * 2};
+            index.put("p" + i, points[i][0], points[i][1]);
+        }
+
+        List<String> expected = IntStream.range(0, points.length).boxed()
+                .sorted(Comparator.comparingDouble(i -> Haversine.distanceKm(6.6, 3.5, points[i][0], points[i][1])))
+                .limit(10).map(i -> "p" + i).toList();
+        assertEquals(expected, index.nearest(6.6, 3.5, 10).stream().map(Neighbour::name).toList());
+    }
+
+    @Test
+    void findsPointsAcrossTheAntimeridian() {
+        SpatialIndex index = new SpatialIndex(0.5);
+        index.put("east", 0, 179.9);
+        index.put("west", 0, -179.9);
+
+        List<Neighbour> found = index.within(0, 179.95, 50);
+        assertEquals(2, found.size());
+        assertEquals("east", found.get(0).name());
+    }
+
+    @Test
+    void movingAPointUpdatesItsBucket() {
+        SpatialIndex index = new SpatialIndex(0.05);
+        index.put("driver", 6.5, 3.4);
+        index.put("driver", 9.0, 7.5);
+
+        assertTrue(index.within(6.5, 3.4, 1).isEmpty());
+        assertEquals(1, index.within(9.0, 7.5, 1).size());
+        assertTrue(index.remove("driver"));
+        assertEquals(0, index.size());
+    }
+}
@@ -0,0 +1,62 @@
+package com.location.http;
+
+import com.location.http.UpstreamLimiter.Outcome;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTests {
+
+    @Test
+    void opensOnceTheFailureRateIsReached() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 10, 4, 50, 1_000, 60_000, 1);
+        breaker.record(breaker.tryAcquire(), Outcome.SUCCESS, 0);
+        breaker.record(breaker.tryAcquire(), Outcome.DROPPED, 0);
+        breaker.record(breaker.tryAcquire(), Outcome.SUCCESS, 0);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        // Too slow counts as a failure: 2 of 4
+        breaker.record(breaker.tryAcquire(), Outcome.SUCCESS, TimeUnit.SECONDS.toNanos(2));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(-1, breaker.tryAcquire());
+    }
+
+    @Test
+    void halfOpenTrialsDecideWhetherToClose() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 2, 2, 50, 1_000, 20, 2);
+        breaker.record(breaker.tryAcquire(), Outcome.QUOTA, 0);
+        breaker.record(breaker.tryAcquire(), Outcome.QUOTA, 0);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        Thread.sleep(30);
+        long first = breaker.tryAcquire();
+        long second = breaker.tryAcquire();
+        assertTrue(first >= 0 && second >= 0);
+        assertEquals(-1, breaker.tryAcquire(), "only two trial calls while half-open");
+
+        breaker.record(first, Outcome.SUCCESS, 0);
+        breaker.record(second, Outcome.DROPPED, 0);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        Thread.sleep(30);
+        long third = breaker.tryAcquire();
+        long fourth = breaker.tryAcquire();
+        breaker.record(third, Outcome.SUCCESS, 0);
+        breaker.record(fourth, Outcome.SUCCESS, 0);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void resultsFromAnEarlierEpochAreIgnored() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 2, 2, 50, 1_000, 60_000, 1);
+        long before = breaker.tryAcquire();
+        breaker.record(breaker.tryAcquire(), Outcome.DROPPED, 0);
+        breaker.record(breaker.tryAcquire(), Outcome.DROPPED, 0);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        breaker.record(before, Outcome.SUCCESS, 0);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+}
@@ -0,0 +1,104 @@
+package com.location.http;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamClientsTests {
+
+    private HttpServer server;
+    private final Set<InetSocketAddress> clientPorts = ConcurrentHashMap.newKeySet();
+    private UpstreamClients clients;
+
+    @BeforeEach
+    void start() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/ok", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress());
+            byte[] body = "{\"status\":\"OK\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(1_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("upstream.http.max-connections", "4")
+                .withProperty("upstream.http.geocode.read-timeout-ms", "200")
+                .withProperty("upstream.http.http2", "false");
+        clients = new UpstreamClients(env, WebClient.builder(), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void stop() {
+        clients.close();
+        server.stop(0);
+    }
+
+    @Test
+    void blockingClientReusesConnections() {
+        for (int i = 0; i < 5; i++) {
+            String body = clients.restTemplate(UpstreamEndpoint.DISTANCE).getForObject(uri("/ok"), String.class);
+            assertEquals("{\"status\":\"OK\"}", body);
+        }
+        assertEquals(1, clientPorts.size());
+
+        Map<?, ?> blocking = (Map<?, ?>) ((Map<?, ?>) pools().get("distance")).get("blocking");
+        assertEquals(5L, blocking.get("leases"));
+        assertEquals(0, blocking.get("leased"));
+        assertEquals(1, blocking.get("available"));
+    }
+
+    @Test
+    void readTimeoutIsPerEndpointType() {
+        assertThrows(ResourceAccessException.class,
+                () -> clients.restTemplate(UpstreamEndpoint.GEOCODE).getForObject(uri("/slow"), String.class));
+        assertNull(clients.restTemplate(UpstreamEndpoint.DISTANCE).getForObject(uri("/slow"), String.class));
+    }
+
+    @Test
+    void reactiveClientUsesItsPool() {
+        for (int i = 0; i < 10; i++) {
+            String body = clients.webClient(UpstreamEndpoint.GEOCODE).get().uri(uri("/ok"))
+                    .retrieve().bodyToMono(String.class).block();
+            assertEquals("{\"status\":\"OK\"}", body);
+        }
+        // Connections go back to the pool asynchronously, so a request may occasionally open a second one
+        assertTrue(clientPorts.size() < 10);
+
+        Map<?, ?> reactive = (Map<?, ?>) ((Map<?, ?>) pools().get("geocode")).get("reactive");
+        assertEquals(clientPorts.size(), reactive.get("allocated"));
+        assertEquals(0, reactive.get("pending"));
+    }
+
+    private Map<?, ?> pools() {
+        return (Map<?, ?>) clients.stats().get("pools");
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+}
@@ -0,0 +1,132 @@
+package com.location.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamLimiterTests {
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void stop() {
+        timer.shutdownNow();
+    }
+
+    private static CircuitBreaker neverOpens() {
+        return new CircuitBreaker("test", 100, 100, 100, 60_000, 1_000, 1);
+    }
+
+    @Test
+    void openBreakerFailsFastWithoutTakingAPermit() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 2, 2, 50, 60_000, 60_000, 1);
+        UpstreamLimiter limiter = new UpstreamLimiter("test", 1000, 1000, 1, 1, 1, 1, 5_000, timer, breaker);
+        for (int i = 0; i < 2; i++) {
+            assertThrows(UpstreamQuotaException.class, () -> limiter.execute(1, () -> {
+                throw new UpstreamQuotaException("Test", "OVER_QUERY_LIMIT");
+            }));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertThrows(CircuitOpenException.class, () -> limiter.execute(1, () -> "never called"));
+        assertEquals(0, limiter.stats().get("inFlight"));
+    }
+
+    @Test
+    void fullQueueRejectsImmediately() throws Exception {
+        UpstreamLimiter limiter = new UpstreamLimiter("test", 1000, 1000, 1, 1, 1, 1, 5_000, timer, neverOpens());
+        UpstreamLimiter.Permit running = limiter.acquire(1).get();
+        CompletableFuture<UpstreamLimiter.Permit> queued = limiter.acquire(1);
+        assertFalse(queued.isDone());
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> limiter.acquire(1).get());
+        assertInstanceOf(UpstreamRejectedException.class, e.getCause());
+
+        running.release(UpstreamLimiter.Outcome.SUCCESS);
+        queued.get(1, TimeUnit.SECONDS).release(UpstreamLimiter.Outcome.SUCCESS);
+        assertEquals(1L, limiter.stats().get("rejected"));
+    }
+
+    @Test
+    void waiterFailsAtItsDeadline() {
+        UpstreamLimiter limiter = new UpstreamLimiter("test", 1000, 1000, 1, 1, 1, 10, 50, timer, neverOpens());
+        limiter.execute(1, () -> "first");
+        UpstreamLimiter.Permit held = limiter.acquire(1).join();
+
+        long started = System.nanoTime();
+        assertThrows(UpstreamRejectedException.class, () -> limiter.execute(1, () -> "second"));
+        assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(40));
+        assertEquals(1L, limiter.stats().get("expired"));
+        held.release(UpstreamLimiter.Outcome.IGNORED);
+    }
+
+    @Test
+    void tokenBucketPacesCalls() {
+        UpstreamLimiter limiter = new UpstreamLimiter("test", 20, 1, 10, 1, 10, 10, 5_000, timer, neverOpens());
+        long started = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            limiter.execute(1, () -> null);
+        }
+        // One token up front, then four more at 20 per second
+        assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(180));
+    }
+
+    @Test
+    void quotaErrorsHalveTheLimitAndSuccessesGrowIt() throws InterruptedException {
+        UpstreamLimiter limiter = new UpstreamLimiter("test", 1_000_000, 1_000_000, 20, 2, 100, 10, 5_000, timer, neverOpens());
+        assertThrows(UpstreamQuotaException.class, () -> limiter.execute(1, () -> {
+            throw new UpstreamQuotaException("Test", "OVER_QUERY_LIMIT");
+        }));
+        assertEquals(10, limiter.stats().get("limit"));
+        assertEquals(1L, limiter.stats().get("quotaErrors"));
+
+        // Fill the limit so that successes count as using it
+        UpstreamLimiter.Permit[] permits = new UpstreamLimiter.Permit[10];
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < permits.length; i++) {
+                permits[i] = limiter.acquire(1).join();
+            }
+            // Hold them long enough that every call sees about the same latency
+            Thread.sleep(20);
+            for (UpstreamLimiter.Permit permit : permits) {
+                permit.release(UpstreamLimiter.Outcome.SUCCESS);
+            }
+        }
+        assertTrue((int) limiter.stats().get("limit") > 10);
+    }
+
+    @Test
+    void tooManyRequestsIsRethrownAsAQuotaRefusal() {
+        UpstreamLimiter limiter = new UpstreamLimiter("test", 1000, 1000, 1, 1, 1, 1, 5_000, timer, neverOpens());
+        HttpClientErrorException tooMany = HttpClientErrorException.create(
+                HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", HttpHeaders.EMPTY, new byte[0], null);
+        UpstreamQuotaException blocking = assertThrows(UpstreamQuotaException.class,
+                () -> limiter.execute(1, () -> {
+                    throw tooMany;
+                }));
+        assertSame(tooMany, blocking.getCause());
+
+        WebClientResponseException reactive = WebClientResponseException.create(
+                HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", HttpHeaders.EMPTY, new byte[0], null, null);
+        UpstreamQuotaException error = assertThrows(UpstreamQuotaException.class,
+                () -> limiter.execute(1, Mono.error(reactive)).block());
+        assertSame(reactive, error.getCause());
+        assertEquals(2L, limiter.stats().get("quotaErrors"));
+
+        // Other client errors pass through unchanged
+        assertThrows(HttpClientErrorException.NotFound.class, () -> limiter.execute(1, () -> {
+            throw HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", HttpHeaders.EMPTY, new byte[0], null);
+        }));
+    }
+}
@@ -0,0 +1,52 @@
+package com.location.http;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamMetricsTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final UpstreamMetrics metrics = new UpstreamMetrics(registry);
+
+    private long count(String mode, String status) {
+        Timer timer = registry.find("upstream.requests").tags("mode", mode, "status", status).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    @Test
+    void tagsBlockingCallsWithTheUpstreamStatusOrErrorClass() {
+        metrics.time(UpstreamEndpoint.GEOCODE, "address", () -> "ZERO_RESULTS", status -> status);
+        assertThrows(UpstreamQuotaException.class, () -> metrics.time(UpstreamEndpoint.GEOCODE, "address", () -> {
+            throw new UpstreamQuotaException("Geocoding", "OVER_QUERY_LIMIT");
+        }, status -> "OK"));
+        assertThrows(IllegalStateException.class, () -> metrics.time(UpstreamEndpoint.GEOCODE, "address", () -> {
+            throw new IllegalStateException("boom");
+        }, status -> "OK"));
+
+        assertEquals(1, count("address", "ZERO_RESULTS"));
+        assertEquals(1, count("address", "OVER_QUERY_LIMIT"));
+        assertEquals(1, count("address", "ERROR"));
+        assertEquals("geocode", registry.find("upstream.requests").timer().getId().getTag("api"));
+    }
+
+    @Test
+    void recordsReactiveCallsOnCompletionAndCancellation() {
+        StepVerifier.create(metrics.time(UpstreamEndpoint.DISTANCE, "walking", Mono.just("OK"), status -> status))
+                .expectNext("OK")
+                .verifyComplete();
+        StepVerifier.create(metrics.time(UpstreamEndpoint.DISTANCE, "driving", Mono.never(), status -> "OK")
+                        .timeout(Duration.ofMillis(10), Mono.just("TIMEOUT")))
+                .expectNext("TIMEOUT")
+                .verifyComplete();
+
+        assertEquals(1, count("walking", "OK"));
+        assertEquals(1, count("driving", "CANCELLED"));
+    }
+}
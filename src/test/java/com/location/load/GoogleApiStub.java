@@ -0,0 +1,219 @@
+package com.location.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process stand-in for the Google Geocoding and Distance Matrix APIs, so
+ * the service can be driven end to end without spending quota. Answers come
+ * from the recorded payloads under {@code src/test/resources/google}:
+ * geocode lookups whose query contains "nowhere" get ZERO_RESULTS, and
+ * distance matrix answers repeat the recorded element for every requested
+ * origin/destination pair.
+ * <p>
+ * Every call waits {@code latencyMs} plus up to {@code jitterMs}; a share of
+ * calls can be failed with HTTP 500 ({@code errorRate}) or answered with
+ * OVER_QUERY_LIMIT ({@code quotaRate}). Calls are counted per API and outcome.
+ */
+public final class GoogleApiStub implements AutoCloseable {
+
+    static final String GEOCODE_PATH = "/maps/api/geocode/json";
+    static final String DISTANCE_MATRIX_PATH = "/maps/api/distancematrix/json";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final byte[] geocodeOk = resource("geocode-ok.json");
+    private final byte[] geocodeZeroResults = resource("geocode-zero-results.json");
+    private final JsonNode distanceMatrixOk = readTree(resource("distance-matrix-ok.json"));
+    private final byte[] overQueryLimit = "{\"status\":\"OVER_QUERY_LIMIT\",\"results\":[],\"rows\":[]}"
+            .getBytes(StandardCharsets.UTF_8);
+    private final Map<String, LongAdder> calls = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpServer server;
+
+    private volatile long latencyMs;
+    private volatile long jitterMs;
+    private volatile double errorRate;
+    private volatile double quotaRate;
+
+    public GoogleApiStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext(GEOCODE_PATH, exchange -> handle(exchange, "geocode", this::geocode));
+        server.createContext(DISTANCE_MATRIX_PATH, exchange -> handle(exchange, "distance-matrix", this::distanceMatrix));
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Value for {@code upstream.google.base-url}.
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public GoogleApiStub latency(long latencyMs, long jitterMs) {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        return this;
+    }
+
+    public GoogleApiStub errorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    public GoogleApiStub quotaRate(double quotaRate) {
+        this.quotaRate = quotaRate;
+        return this;
+    }
+
+    /**
+     * Calls received so far, keyed {@code api} (all outcomes) and
+     * {@code api.outcome} (ok, http_500, over_query_limit).
+     */
+    public Map<String, Long> calls() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        calls.forEach((key, count) -> snapshot.put(key, count.sum()));
+        return snapshot;
+    }
+
+    public long calls(String api) {
+        LongAdder count = calls.get(api);
+        return count == null ? 0 : count.sum();
+    }
+
+    public void reset() {
+        calls.clear();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private interface Responder {
+        byte[] respond(Map<String, String> query) throws IOException;
+    }
+
+    private void handle(HttpExchange exchange, String api, Responder responder) throws IOException {
+        try (exchange) {
+            count(api);
+            pause();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextDouble() < errorRate) {
+                count(api + ".http_500");
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            byte[] body;
+            if (random.nextDouble() < quotaRate) {
+                count(api + ".over_query_limit");
+                body = overQueryLimit;
+            } else {
+                count(api + ".ok");
+                body = responder.respond(query(exchange.getRequestURI().getRawQuery()));
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    private byte[] geocode(Map<String, String> query) {
+        String lookup = query.getOrDefault("address", query.getOrDefault("place_id", query.get("latlng")));
+        return lookup != null && lookup.toLowerCase().contains("nowhere") ? geocodeZeroResults : geocodeOk;
+    }
+
+    private byte[] distanceMatrix(Map<String, String> query) throws IOException {
+        String[] origins = query.getOrDefault("origins", "").split("\\|");
+        String[] destinations = query.getOrDefault("destinations", "").split("\\|");
+        JsonNode element = distanceMatrixOk.path("rows").path(0).path("elements").path(0);
+
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode originAddresses = response.putArray("origin_addresses");
+        for (String origin : origins) {
+            originAddresses.add(origin);
+        }
+        ArrayNode destinationAddresses = response.putArray("destination_addresses");
+        for (String destination : destinations) {
+            destinationAddresses.add(destination);
+        }
+        ArrayNode rows = response.putArray("rows");
+        for (int r = 0; r < origins.length; r++) {
+            ArrayNode elements = rows.addObject().putArray("elements");
+            for (int c = 0; c < destinations.length; c++) {
+                elements.add(element);
+            }
+        }
+        response.put("status", "OK");
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    private void count(String key) {
+        calls.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+
+    private void pause() {
+        long delay = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private JsonNode readTree(byte[] json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] resource(String name) {
+        try (InputStream in = GoogleApiStub.class.getResourceAsStream("/google/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing recorded payload google/" + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
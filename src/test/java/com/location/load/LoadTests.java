@@ -0,0 +1,249 @@
+package com.location.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end load run against {@link GoogleApiStub}. Each endpoint is driven in
+ * turn by a closed loop of {@code load.concurrency} clients sending
+ * {@code load.requests} requests over {@code load.keys} distinct inputs, so the
+ * caches and request coalescing see a realistic mix of hits and misses. The
+ * report (throughput, latency percentiles, response statuses and upstream calls
+ * per endpoint) is printed and written to {@code target/load-test/}.
+ * <p>
+ * Excluded from the default build; run with {@code mvn -Pload-test test}, e.g.
+ * {@code mvn -Pload-test test -Dload.requests=20000 -Dload.latency-ms=80}.
+ * Application settings can be overridden the same way, e.g.
+ * {@code -Dupstream.limit.geocode.rate-per-second=500}.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class LoadTests {
+
+    private static final int REQUESTS = Integer.getInteger("load.requests", 2_000);
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 32);
+    private static final int KEYS = Integer.getInteger("load.keys", 100);
+    private static final int MATRIX_SIZE = Integer.getInteger("load.matrix-size", 10);
+    private static final Map<String, Double> PERCENTILES = Map.of("p50", 0.5, "p90", 0.9, "p99", 0.99, "p99.9", 0.999);
+
+    private static final GoogleApiStub stub = startStub();
+    private static final Map<String, Map<String, Object>> report = new LinkedHashMap<>();
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    @LocalServerPort
+    private int port;
+
+    private static GoogleApiStub startStub() {
+        try {
+            return new GoogleApiStub()
+                    .latency(Long.getLong("load.latency-ms", 20), Long.getLong("load.jitter-ms", 20))
+                    .errorRate(Double.parseDouble(System.getProperty("load.error-rate", "0")))
+                    .quotaRate(Double.parseDouble(System.getProperty("load.quota-rate", "0")));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void upstream(DynamicPropertyRegistry registry) {
+        registry.add("upstream.google.base-url", stub::baseUrl);
+    }
+
+    @AfterAll
+    static void writeReport() throws IOException {
+        stub.close();
+        Path dir = Path.of("target", "load-test");
+        Files.createDirectories(dir);
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(dir.resolve("report.json").toFile(), report);
+        String table = table();
+        Files.writeString(dir.resolve("report.txt"), table);
+        System.out.println(table);
+    }
+
+    @Test
+    void geocode() {
+        run("GET /api/geocode", i -> get("/api/geocode?address=" + encode(address("load", i))));
+    }
+
+    @Test
+    void reverseGeocode() {
+        run("GET /api/geocode/reverse", i -> get(String.format(Locale.ROOT,
+                "/api/geocode/reverse?lat=%.5f&lng=%.5f", 6.4 + (i % KEYS) * 0.001, 3.4 + (i % KEYS) * 0.001)));
+    }
+
+    @Test
+    void reactiveGeocode() {
+        run("GET /api/reactive/geocode", i -> get("/api/reactive/geocode?address=" + encode(address("reactive", i))));
+    }
+
+    @Test
+    void distance() {
+        run("POST /api/distance", i -> post("/api/distance", Map.of(
+                "origin", "origin " + i % KEYS,
+                "destination", "destination " + i % KEYS)));
+    }
+
+    @Test
+    void distanceMatrix() {
+        run("POST /api/distance/matrix", i -> {
+            List<String> places = new ArrayList<>();
+            for (int p = 0; p < MATRIX_SIZE; p++) {
+                places.add("place " + (i % KEYS) + "-" + p);
+            }
+            return post("/api/distance/matrix", Map.of("origins", places, "destinations", places, "mode", "driving"));
+        });
+    }
+
+    /**
+     * One address in twenty has no match upstream, so negative caching is
+     * part of the mix.
+     */
+    private static String address(String prefix, int i) {
+        int key = i % KEYS;
+        return key % 20 == 19 ? prefix + " nowhere " + key : prefix + " street " + key;
+    }
+
+    private void run(String endpoint, IntFunction<HttpRequest> request) {
+        stub.reset();
+        long[] latencies = new long[REQUESTS];
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        LongAdder failures = new LongAdder();
+        AtomicInteger next = new AtomicInteger();
+
+        long started = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < CONCURRENCY; c++) {
+                clients.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < REQUESTS; i = next.getAndIncrement()) {
+                        long sent = System.nanoTime();
+                        try {
+                            int status = client.send(request.apply(i), HttpResponse.BodyHandlers.discarding()).statusCode();
+                            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+                        } catch (IOException e) {
+                            failures.increment();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        latencies[i] = System.nanoTime() - sent;
+                    }
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+
+        Map<String, Object> result = summarize(latencies, elapsed);
+        Map<String, Long> statusCounts = new TreeMap<>();
+        statuses.forEach((status, count) -> statusCounts.put(String.valueOf(status), count.sum()));
+        result.put("statuses", statusCounts);
+        result.put("transportFailures", failures.sum());
+        result.put("upstreamCalls", stub.calls());
+        report.put(endpoint, result);
+
+        assertEquals(0, failures.sum(), endpoint + ": requests failed without a response");
+        assertEquals(REQUESTS, statusCounts.values().stream().mapToLong(Long::longValue).sum());
+        assertTrue(stub.calls().values().stream().anyMatch(calls -> calls > 0), endpoint + ": no upstream calls");
+    }
+
+    private static Map<String, Object> summarize(long[] latencies, long elapsedNanos) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", sorted.length);
+        summary.put("concurrency", CONCURRENCY);
+        summary.put("seconds", round(elapsedNanos / 1e9));
+        summary.put("throughputPerSecond", round(sorted.length / (elapsedNanos / 1e9)));
+        Map<String, Double> millis = new TreeMap<>();
+        PERCENTILES.forEach((label, p) -> {
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            millis.put(label, round(sorted[Math.max(0, index)] / 1e6));
+        });
+        millis.put("max", round(sorted[sorted.length - 1] / 1e6));
+        summary.put("latencyMs", millis);
+        return summary;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String table() {
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                "%nLoad test: %d requests/endpoint, %d clients, %d keys%n%-28s %10s %9s %9s %9s %9s %9s  %s%n",
+                REQUESTS, CONCURRENCY, KEYS, "endpoint", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms",
+                "upstream", "statuses"));
+        report.forEach((endpoint, result) -> {
+            Map<String, Double> ms = (Map<String, Double>) result.get("latencyMs");
+            Map<String, Long> upstream = (Map<String, Long>) result.get("upstreamCalls");
+            long upstreamTotal = upstream.entrySet().stream()
+                    .filter(e -> !e.getKey().contains("."))
+                    .mapToLong(Map.Entry::getValue)
+                    .sum();
+            sb.append(String.format(Locale.ROOT, "%-28s %10.1f %9.2f %9.2f %9.2f %9.2f %9d  %s%n",
+                    endpoint, result.get("throughputPerSecond"), ms.get("p50"), ms.get("p90"), ms.get("p99"),
+                    ms.get("max"), upstreamTotal, result.get("statuses")));
+        });
+        return sb.toString();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String path, Object body) {
+        try {
+            return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(new ObjectMapper().writeValueAsBytes(body)))
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
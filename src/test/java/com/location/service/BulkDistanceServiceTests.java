@@ -0,0 +1,52 @@
+package com.location.service;
+
+import com.location.geo.Haversine;
+import com.location.geo.Haversine.PointSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkDistanceServiceTests {
+
+    private final BulkDistanceService service = new BulkDistanceService();
+    private final double[] lats = new double[50_000];
+    private final double[] lngs = new double[50_000];
+
+    BulkDistanceServiceTests() {
+        Random random = new Random(42);
+        for (int i = 0; i < lats.length; i++) {
+            lats[i] = 6 + random.nextDouble();
+            lngs[i] = 3 + random.nextDouble();
+        }
+    }
+
+    @Test
+    void oneToManyMatchesSinglePairMath() {
+        double[] distances = service.oneToMany(6.5, 3.4, PointSet.ofDegrees(lats, lngs));
+        for (int i = 0; i < lats.length; i += 997) {
+            assertEquals(Haversine.distanceKm(6.5, 3.4, lats[i], lngs[i]), distances[i], 1e-9);
+        }
+    }
+
+    @Test
+    void nearestAndWithinAgreeWithBruteForce() {
+        PointSet targets = PointSet.ofDegrees(lats, lngs);
+        double[] all = service.oneToMany(6.5, 3.4, targets);
+        int[] byDistance = IntStream.range(0, all.length).boxed()
+                .sorted((a, b) -> Double.compare(all[a], all[b])).mapToInt(Integer::intValue).toArray();
+
+        BulkDistanceService.Ranked nearest = service.nearest(6.5, 3.4, targets, 25);
+        assertArrayEquals(Arrays.copyOf(byDistance, 25), nearest.indices());
+
+        BulkDistanceService.Ranked within = service.within(6.5, 3.4, targets, 5.0);
+        long expected = Arrays.stream(all).filter(d -> d <= 5.0).count();
+        assertEquals(expected, within.indices().length);
+        for (int i = 1; i < within.distancesKm().length; i++) {
+            assertTrue(within.distancesKm()[i - 1] <= within.distancesKm()[i]);
+        }
+    }
+}
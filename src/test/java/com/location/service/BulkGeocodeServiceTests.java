@@ -0,0 +1,102 @@
+package com.location.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkGeocodeServiceTests {
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    private final GoogleGeocodingService geocodingService = GeocodingFixture.service((kind, uri) -> {
+        upstreamCalls.incrementAndGet();
+        String address = GeocodingFixture.address(uri);
+        if (address.contains("fail")) {
+            throw new IllegalStateException("boom");
+        }
+        if (address.contains("nowhere")) {
+            return Optional.empty();
+        }
+        return Optional.of(GeocodingFixture.point(1, 2, address, "id-" + address));
+    });
+
+    private List<String> run(String json, boolean inputOrder) throws Exception {
+        BulkGeocodeService service = new BulkGeocodeService(geocodingService, 2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BulkGeocodeService.Addresses addresses = BulkGeocodeService.jsonArray(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+            service.geocodeAll(addresses, inputOrder, out);
+        } finally {
+            service.shutdown();
+        }
+        return out.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    @Test
+    void writesOneLinePerAddressInInputOrder() throws Exception {
+        List<String> lines = run("[\"a\", \"nowhere\", \"fail\", \"b\", \"\"]", true);
+
+        assertEquals(5, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"index\":0,\"address\":\"a\",\"status\":\"OK\""));
+        assertTrue(lines.get(1).contains("\"status\":\"NOT_FOUND\""));
+        assertTrue(lines.get(2).contains("\"status\":\"ERROR\",\"error\":\"boom\""));
+        assertTrue(lines.get(3).startsWith("{\"index\":3"));
+        assertTrue(lines.get(4).contains("\"status\":\"ERROR\""));
+        // The blank address never goes upstream
+        assertEquals(4, upstreamCalls.get());
+    }
+
+    @Test
+    void repeatsAndRespellingsOfAnAddressGoUpstreamOnce() throws Exception {
+        List<String> lines = run("[\"12 Main St\", \"12 main st.\", \"Other Rd\", \"12  MAIN  ST\", \"other rd\", \"12 Main St\"]", true);
+
+        assertEquals(6, lines.size());
+        assertTrue(lines.stream().allMatch(l -> l.contains("\"status\":\"OK\"")));
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void inputThatIsNotAnArrayIsRejectedBeforeAnythingIsWritten() {
+        assertThrows(IllegalArgumentException.class, () -> BulkGeocodeService.jsonArray(
+                new ByteArrayInputStream("{\"addresses\": []}".getBytes(StandardCharsets.UTF_8))));
+        assertThrows(IOException.class, () -> BulkGeocodeService.jsonArray(
+                new ByteArrayInputStream("not json".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void malformedInputPartWayThroughEndsWithAnErrorLine() throws Exception {
+        List<String> lines = run("[\"a\", \"b\", ]]", true);
+
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(1).startsWith("{\"index\":1,\"address\":\"b\",\"status\":\"OK\""));
+        assertTrue(lines.get(2).startsWith("{\"status\":\"ERROR\",\"error\":\"Malformed input"));
+
+        lines = run("[\"a\", \"b\"", false);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(2).startsWith("{\"status\":\"ERROR\",\"error\":\"Malformed input"));
+    }
+
+    @Test
+    void completionOrderStillCoversEveryAddress() throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 100; i++) {
+            json.append(i == 0 ? "" : ",").append("\"addr ").append(i).append('"');
+        }
+        List<String> lines = run(json.append(']').toString(), false);
+
+        assertEquals(100, lines.size());
+        assertEquals(100, upstreamCalls.get());
+        for (int i = 0; i < 100; i++) {
+            String index = "\"index\":" + i + ",";
+            assertEquals(1, lines.stream().filter(l -> l.contains(index)).count());
+        }
+    }
+}
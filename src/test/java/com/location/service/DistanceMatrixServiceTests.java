@@ -0,0 +1,120 @@
+package com.location.service;
+
+import com.location.dto.DistanceMatrixResponse;
+import com.location.http.UpstreamClients;
+import com.location.http.UpstreamRejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceMatrixServiceTests {
+
+    private final CountDownLatch lateTileWritten = new CountDownLatch(1);
+
+    /**
+     * One origin per tile. Each origin's name picks how its tile behaves; "ok"
+     * tiles answer every cell with 1000 m per destination index.
+     */
+    private final DistanceMatrixService service = new DistanceMatrixService(
+            new UpstreamClients(new MockEnvironment(), WebClient.builder(), new SimpleMeterRegistry()),
+            8, 1, 25, 100, 300) {
+        @Override
+        String fetch(URI uri, String mode, int cells, DistanceMatrixParser.CellSink sink) {
+            String query = uri.getQuery();
+            String origin = query.substring(query.indexOf("origins=") + 8, query.indexOf('&'));
+            switch (origin) {
+                case "slow" -> {
+                    // Ignores the cancellation and answers after the deadline
+                    long until = System.currentTimeMillis() + 600;
+                    while (System.currentTimeMillis() < until) {
+                        try {
+                            Thread.sleep(until - System.currentTimeMillis());
+                        } catch (InterruptedException ignored) {
+                            // keep going, as a parser that never checks the flag would
+                        }
+                    }
+                    for (int col = 0; col < cells; col++) {
+                        sink.cell(0, col, "OK", 5, 5);
+                    }
+                    lateTileWritten.countDown();
+                    return "OK";
+                }
+                case "quota" -> {
+                    return "OVER_QUERY_LIMIT";
+                }
+                case "rejected" -> throw new UpstreamRejectedException("Distance Matrix limiter queue is full");
+                default -> {
+                    for (int col = 0; col < cells; col++) {
+                        sink.cell(0, col, col == 1 ? "ZERO_RESULTS" : "OK", 1000L * (col + 1), 60L * (col + 1));
+                    }
+                    return "OK";
+                }
+            }
+        }
+    };
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    @Test
+    void tileShapeCoversTheMatrixInTheFewestRequestsWithinLimits() {
+        DistanceMatrixService limits = new DistanceMatrixService(
+                new UpstreamClients(new MockEnvironment(), WebClient.builder(), new SimpleMeterRegistry()),
+                1, 25, 25, 100, 1000);
+        try {
+            assertArrayEquals(new int[]{10, 10}, limits.tileShape(10, 10));
+            assertArrayEquals(new int[]{4, 25}, limits.tileShape(100, 100));
+            assertArrayEquals(new int[]{1, 25}, limits.tileShape(1, 500));
+            assertArrayEquals(new int[]{25, 2}, limits.tileShape(50, 2));
+            for (int rows = 1; rows <= 60; rows += 7) {
+                for (int cols = 1; cols <= 60; cols += 5) {
+                    int[] tile = limits.tileShape(rows, cols);
+                    assertTrue(tile[0] >= 1 && tile[0] <= 25 && tile[1] >= 1 && tile[1] <= 25);
+                    assertTrue(tile[0] * tile[1] <= 100, rows + "x" + cols);
+                }
+            }
+        } finally {
+            limits.shutdown();
+        }
+    }
+
+    @Test
+    void timedOutTileIsReportedAndNeverWritesIntoTheReturnedMatrix() throws Exception {
+        DistanceMatrixResponse matrix = service.calculateMatrix(
+                List.of("ikeja", "slow", "lekki"), List.of("a", "b", "c"), "driving");
+
+        assertEquals(Map.of("OK", 4, "ZERO_RESULTS", 2, "TIMEOUT", 3), matrix.statusCounts);
+        assertEquals(1000, matrix.meters[matrix.index(0, 0)]);
+        assertEquals(-1, matrix.meters[matrix.index(0, 1)]);
+        assertEquals(180, matrix.seconds[matrix.index(2, 2)]);
+
+        assertTrue(lateTileWritten.await(2, TimeUnit.SECONDS));
+        for (int col = 0; col < 3; col++) {
+            assertEquals(-1, matrix.meters[matrix.index(1, col)]);
+            assertEquals(-1, matrix.seconds[matrix.index(1, col)]);
+        }
+    }
+
+    @Test
+    void quotaAndRejectedTilesAreCountedAndLeftEmpty() {
+        DistanceMatrixResponse matrix = service.calculateMatrix(
+                List.of("quota", "ikeja", "rejected"), List.of("a", "b"), "driving");
+
+        assertEquals(Map.of("OVER_QUERY_LIMIT", 2, "OK", 1, "ZERO_RESULTS", 1, "REJECTED", 2), matrix.statusCounts);
+        assertEquals(-1, matrix.meters[matrix.index(0, 0)]);
+        assertEquals(1000, matrix.meters[matrix.index(1, 0)]);
+        assertEquals(-1, matrix.meters[matrix.index(2, 1)]);
+    }
+}
@@ -0,0 +1,166 @@
+package com.location.service;
+
+import com.location.cache.DistanceCache;
+import com.location.cache.GeocodeCache;
+import com.location.cache.PeerCache;
+import com.location.dto.DistanceResponse;
+import com.location.dto.DistanceResponse.TravelInfo;
+import com.location.http.CircuitOpenException;
+import com.location.http.UpstreamClients;
+import com.location.http.UpstreamQuotaException;
+import com.location.http.UpstreamRejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceServiceTests {
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final CountDownLatch slowModeStarted = new CountDownLatch(1);
+    private final CountDownLatch slowModeInterrupted = new CountDownLatch(1);
+    private final Map<String, String> behaviour = new ConcurrentHashMap<>();
+
+    private final DistanceService service = service(60_000);
+
+    private DistanceService service(long ttlMs) {
+        return new DistanceService(
+                new UpstreamClients(new MockEnvironment(), WebClient.builder(), new SimpleMeterRegistry()),
+                new DistanceCache(true, 100, ttlMs, ttlMs, ttlMs, 60_000, 0, "", "UTC", new GeocodeCache(100, 60_000, 60_000, 0)),
+                new PeerCache(new MockEnvironment()), 10_000, 200) {
+            @Override
+            TravelInfo fetch(String origin, String destination, String mode) {
+                upstreamCalls.incrementAndGet();
+                switch (behaviour.getOrDefault(mode, "ok")) {
+                    case "hang" -> {
+                        slowModeStarted.countDown();
+                        try {
+                            Thread.sleep(10_000);
+                        } catch (InterruptedException e) {
+                            slowModeInterrupted.countDown();
+                        }
+                        throw new ResourceAccessException("interrupted");
+                    }
+                    case "quota" -> {
+                        try {
+                            slowModeStarted.await(2, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        throw new UpstreamQuotaException("Distance Matrix", "OVER_QUERY_LIMIT");
+                    }
+                    case "fail" -> throw new ResourceAccessException("connection reset");
+                    case "open" -> throw new CircuitOpenException("distance-matrix");
+                    default -> {
+                        TravelInfo info = emptyInfo("OK");
+                        info.distanceValue = 1200;
+                        return info;
+                    }
+                }
+            }
+        };
+    }
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    @Test
+    void modesAreCanonicalizedAndBadOnesRejected() {
+        assertEquals(DistanceService.DEFAULT_MODES, DistanceService.validateModes(null));
+        assertEquals(DistanceService.DEFAULT_MODES, DistanceService.validateModes(List.of()));
+        assertEquals(List.of("driving", "walking"), DistanceService.validateModes(List.of(" Driving", "WALKING", "driving")));
+        assertThrows(IllegalArgumentException.class, () -> DistanceService.validateModes(Arrays.asList("driving", null)));
+        assertThrows(IllegalArgumentException.class, () -> DistanceService.validateModes(List.of("")));
+        assertThrows(IllegalArgumentException.class, () -> DistanceService.validateModes(List.of("flying")));
+    }
+
+    @Test
+    void slowModeTimesOutAndIsCancelledWithoutHoldingBackTheOthers() throws Exception {
+        behaviour.put("walking", "hang");
+        behaviour.put("bicycling", "fail");
+
+        long start = System.nanoTime();
+        DistanceResponse response = service.calculateDistances("Ikeja", "Lekki");
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("OK", response.travelModes.get("driving").status);
+        assertEquals("TIMEOUT", response.travelModes.get("walking").status);
+        assertEquals("ERROR", response.travelModes.get("bicycling").status);
+        assertTrue(elapsedMs < 2_000, "took " + elapsedMs + "ms");
+        assertTrue(slowModeInterrupted.await(2, TimeUnit.SECONDS));
+
+        // Only the answered mode was cached; the others are fetched again
+        behaviour.clear();
+        upstreamCalls.set(0);
+        response = service.calculateDistances("Ikeja", "Lekki");
+        assertEquals(2, upstreamCalls.get());
+        assertEquals("OK", response.travelModes.get("walking").status);
+    }
+
+    @Test
+    void quotaRefusalFailsTheWholeRequestAndCancelsTheRest() throws Exception {
+        behaviour.put("driving", "hang");
+        behaviour.put("walking", "quota");
+
+        assertThrows(UpstreamRejectedException.class,
+                () -> service.calculateDistances("Ikeja", "Lekki", List.of("walking", "driving")));
+        assertTrue(slowModeInterrupted.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failedModesFallBackToStaleAnswers() throws Exception {
+        DistanceService shortLived = service(1);
+        try {
+            List<String> modes = List.of("driving", "walking");
+            shortLived.calculateDistances("Ikeja", "Lekki", modes);
+            Thread.sleep(5);
+
+            behaviour.put("driving", "fail");
+            DistanceResponse response = shortLived.calculateDistances("Ikeja", "Lekki", modes);
+            assertTrue(response.stale);
+            assertEquals("OK", response.travelModes.get("driving").status);
+            assertEquals(1200, response.travelModes.get("driving").distanceValue);
+
+            // A refusal is answered from stale entries too, when every mode has one
+            behaviour.put("walking", "open");
+            response = shortLived.calculateDistances("Ikeja", "Lekki", modes);
+            assertTrue(response.stale);
+            assertEquals(List.of("OK", "OK"), response.travelModes.values().stream().map(i -> i.status).toList());
+            assertThrows(CircuitOpenException.class, () -> shortLived.calculateDistances("Yaba", "Lekki", modes));
+        } finally {
+            shortLived.shutdown();
+        }
+    }
+
+    @Test
+    void requestWithNoAnsweredModeFailsInsteadOfReportingZeroDistance() {
+        behaviour.put("driving", "fail");
+        behaviour.put("walking", "fail");
+        assertThrows(UpstreamStatusException.class,
+                () -> service.calculateDistances("Ikeja", "Lekki", List.of("driving", "walking")));
+
+        behaviour.put("driving", "hang");
+        assertThrows(UpstreamTimeoutException.class,
+                () -> service.calculateDistances("Ikeja", "Lekki", List.of("driving")));
+
+        // One answered mode is enough for a response
+        DistanceResponse response = service.calculateDistances("Ikeja", "Lekki", List.of("walking", "bicycling"));
+        assertFalse(response.stale);
+        assertEquals("ERROR", response.travelModes.get("walking").status);
+        assertEquals("OK", response.travelModes.get("bicycling").status);
+    }
+}
@@ -0,0 +1,46 @@
+package com.location.service;
+
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeocodeResponseParserTests {
+
+    private static GeocodeResponseParser.Parsed parse(String resource) throws IOException {
+        try (InputStream in = GeocodeResponseParserTests.class.getResourceAsStream("/google/" + resource)) {
+            return GeocodeResponseParser.parse(in);
+        }
+    }
+
+    @Test
+    void extractsFirstResult() throws IOException {
+        GeocodeResponseParser.Parsed parsed = parse("geocode-ok.json");
+        GeoPoint point = parsed.first();
+
+        assertEquals("OK", parsed.status());
+        assertEquals(6.4302869, point.lat());
+        assertEquals(3.4189622, point.lng());
+        assertEquals("12 Adeola Odeku St, Victoria Island, Lagos 101241, Lagos, Nigeria", point.formattedAddress());
+        assertEquals("ROOFTOP", point.locationType());
+        assertTrue(point.partialMatch());
+        assertEquals("ChIJ4aKfFgOLOxARgVtSpHVbSCs", point.placeId());
+        assertEquals("12", point.streetNumber());
+        assertEquals("Adeola Odeku Street", point.street());
+        assertEquals("Lagos", point.city());
+        assertEquals("Lagos", point.state());
+        assertEquals("Nigeria", point.country());
+        assertEquals("101241", point.postalCode());
+    }
+
+    @Test
+    void reportsStatusWhenThereAreNoResults() throws IOException {
+        GeocodeResponseParser.Parsed parsed = parse("geocode-zero-results.json");
+
+        assertEquals("ZERO_RESULTS", parsed.status());
+        assertNull(parsed.first());
+    }
+}
@@ -0,0 +1,73 @@
+package com.location.service;
+
+import com.location.cache.AutocompleteIndex;
+import com.location.cache.GeocodeCache;
+import com.location.cache.GeocodeStore;
+import com.location.cache.PeerCache;
+import com.location.cache.ReverseGeocodeCache;
+import com.location.geo.Gazetteer;
+import com.location.http.UpstreamClients;
+import com.location.service.GoogleGeocodingService.GeoPoint;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Builds a {@link GoogleGeocodingService} for unit tests: in-memory caches,
+ * no disk store, gazetteer or peers, and Google replaced by an {@link Upstream}.
+ * Tests go through here so a new collaborator only changes this class.
+ */
+final class GeocodingFixture {
+
+    /**
+     * Stands in for {@code GoogleGeocodingService.fetch}.
+     */
+    @FunctionalInterface
+    interface Upstream {
+        Optional<GeoPoint> fetch(String kind, URI uri);
+    }
+
+    private GeocodingFixture() {
+    }
+
+    /**
+     * No refresh-ahead, so a cache hit never goes upstream in the background.
+     */
+    static GoogleGeocodingService service(Upstream upstream) {
+        return service(60_000, 60_000, 0, upstream);
+    }
+
+    static GoogleGeocodingService service(long ttlMs, long negativeTtlMs, long refreshAheadMs, Upstream upstream) {
+        return new GoogleGeocodingService(
+                new GeocodeCache(100, ttlMs, negativeTtlMs, 60_000),
+                new ReverseGeocodeCache(100, 8, ttlMs, negativeTtlMs, 60_000),
+                new GeocodeStore(false, "unused", 1, 60_000, 0.5, 60_000),
+                new Gazetteer(false, "unused", "", "", "", 0, 10, 20),
+                new AutocompleteIndex(1000, 10),
+                new PeerCache(new MockEnvironment()),
+                new UpstreamClients(new MockEnvironment(), WebClient.builder(), new SimpleMeterRegistry()),
+                10_000, refreshAheadMs) {
+            @Override
+            Optional<GeoPoint> fetch(String kind, URI uri) {
+                return upstream.fetch(kind, uri);
+            }
+        };
+    }
+
+    /**
+     * The decoded {@code address} parameter of a geocode request.
+     */
+    static String address(URI uri) {
+        String query = URLDecoder.decode(uri.getRawQuery(), StandardCharsets.UTF_8);
+        return query.substring(query.indexOf("address=") + 8, query.indexOf("&key="));
+    }
+
+    static GeoPoint point(double lat, double lng, String formattedAddress, String placeId) {
+        return new GeoPoint(lat, lng, formattedAddress, "ROOFTOP", false, placeId, null, null, null, null, null, null);
+    }
+}
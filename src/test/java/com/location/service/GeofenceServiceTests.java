@@ -0,0 +1,40 @@
+package com.location.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeofenceServiceTests {
+
+    private static final String SQUARE = "{\"type\":\"Polygon\",\"coordinates\":[[[3.3,6.4],[3.4,6.4],[3.4,6.5],[3.3,6.5]]]}";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final GeofenceService service = new GeofenceService(null, 16, 2, 1000);
+
+    private JsonNode json(String json) throws Exception {
+        return mapper.readTree(json);
+    }
+
+    @Test
+    void idsTakenByTheApiPathsAreRejected() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> service.put("stats", json(SQUARE)));
+        assertThrows(IllegalArgumentException.class, () -> service.putAll(json(
+                "{\"type\":\"FeatureCollection\",\"features\":[{\"type\":\"Feature\",\"id\":\"contains\",\"geometry\":"
+                        + SQUARE + "}]}")));
+        assertTrue(service.zones().isEmpty());
+    }
+
+    @Test
+    void capacityCountsOnlyNewZones() throws Exception {
+        service.put("ikeja", json(SQUARE));
+        service.put("lekki", json(SQUARE));
+        service.put("lekki", json(SQUARE));
+
+        IllegalArgumentException full = assertThrows(IllegalArgumentException.class,
+                () -> service.put("yaba", json(SQUARE)));
+        assertEquals("At most 2 zones can be registered", full.getMessage());
+        assertEquals(2, service.zones().size());
+    }
+}
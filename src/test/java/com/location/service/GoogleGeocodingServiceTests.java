@@ -0,0 +1,81 @@
+package com.location.service;
+
+import com.location.http.CircuitOpenException;
+import com.location.service.GoogleGeocodingService.Lookup;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoogleGeocodingServiceTests {
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final AtomicBoolean upstreamDown = new AtomicBoolean();
+
+    private GoogleGeocodingService service(long ttlMs, long refreshAheadMs) {
+        return service(ttlMs, ttlMs, refreshAheadMs);
+    }
+
+    private GoogleGeocodingService service(long ttlMs, long negativeTtlMs, long refreshAheadMs) {
+        return GeocodingFixture.service(ttlMs, negativeTtlMs, refreshAheadMs, (kind, uri) -> {
+            upstreamCalls.incrementAndGet();
+            if (upstreamDown.get()) {
+                throw new CircuitOpenException("geocode");
+            }
+            if (uri.getQuery().contains("nowhere")) {
+                return Optional.empty();
+            }
+            return Optional.of(GeocodingFixture.point(1, 2, "Main St", "id-" + upstreamCalls.get()));
+        });
+    }
+
+    @Test
+    void servesExpiredEntryAsStaleWhileUpstreamIsDown() throws Exception {
+        GoogleGeocodingService service = service(1, 0);
+        assertFalse(service.lookupAddress("main st").stale());
+        Thread.sleep(5);
+
+        upstreamDown.set(true);
+        Lookup lookup = service.lookupAddress("main st");
+
+        assertTrue(lookup.stale());
+        assertEquals("id-1", lookup.result().orElseThrow().placeId());
+        assertThrows(CircuitOpenException.class, () -> service.lookupAddress("elsewhere"));
+    }
+
+    @Test
+    void refreshesEntriesCloseToExpiryInTheBackground() throws Exception {
+        GoogleGeocodingService service = service(200, 150);
+        service.geocode("main st");
+        assertThrows(IllegalArgumentException.class, () -> service(60_000, 60_000));
+
+        // Past 50 ms the entry is inside the refresh-ahead window, so a hit schedules a reload
+        Thread.sleep(80);
+        Lookup lookup = service.lookupAddress("main st");
+        assertEquals("id-1", lookup.result().orElseThrow().placeId());
+        for (int i = 0; i < 100 && upstreamCalls.get() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, upstreamCalls.get());
+        service.shutdown();
+    }
+
+    @Test
+    void negativeEntriesAreOnlyRefreshedOnceStale() throws Exception {
+        // Results outlive the refresh-ahead window; "not found" answers expire well inside it
+        GoogleGeocodingService service = service(3_600_000, 60_000, 120_000);
+        assertTrue(service.geocode("nowhere").isEmpty());
+        assertTrue(service.geocode("main st").isPresent());
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(service.lookupAddress("nowhere").result().isEmpty());
+            assertTrue(service.lookupAddress("main st").result().isPresent());
+        }
+        Thread.sleep(100);
+        assertEquals(2, upstreamCalls.get());
+        service.shutdown();
+    }
+}
@@ -0,0 +1,89 @@
+package com.location.service;
+
+import com.location.cache.DistanceCache;
+import com.location.cache.GeocodeCache;
+import com.location.cache.PeerCache;
+import com.location.dto.DistanceResponse;
+import com.location.http.UpstreamClients;
+import com.location.http.UpstreamEndpoint;
+import com.location.load.GoogleApiStub;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Mode timeouts against {@link GoogleApiStub}, with the Distance Matrix
+ * limiter pinned to one call at a time.
+ */
+class ReactiveDistanceServiceTests {
+
+    private static final List<String> MODES = List.of("driving", "walking", "bicycling", "transit");
+
+    private GoogleApiStub stub;
+    private UpstreamClients clients;
+    private DistanceService distanceService;
+    private ReactiveDistanceService service;
+
+    @BeforeEach
+    void start() throws Exception {
+        stub = new GoogleApiStub();
+        clients = new UpstreamClients(new MockEnvironment()
+                .withProperty("upstream.google.base-url", stub.baseUrl())
+                .withProperty("upstream.limit.distance-matrix.initial-concurrency", "1")
+                .withProperty("upstream.limit.distance-matrix.min-concurrency", "1")
+                .withProperty("upstream.limit.distance-matrix.max-concurrency", "1")
+                .withProperty("upstream.limit.distance-matrix.max-wait-ms", "10000"),
+                WebClient.builder(), new SimpleMeterRegistry());
+        DistanceCache cache = new DistanceCache(true, 100, 60_000, 60_000, 60_000, 60_000, 0, "", "UTC",
+                new GeocodeCache(100, 60_000, 60_000, 0));
+        PeerCache peers = new PeerCache(new MockEnvironment());
+        distanceService = new DistanceService(clients, cache, peers, 10_000, 1_000);
+        service = new ReactiveDistanceService(distanceService, clients, cache, peers);
+    }
+
+    @AfterEach
+    void shutdown() {
+        distanceService.shutdown();
+        stub.close();
+    }
+
+    @Test
+    void timeQueuedBehindOtherModesDoesNotCountAgainstTheModeTimeout() {
+        // Warm up the client so the first mode is not paying for class loading and the handshake
+        service.calculateDistances("Yaba", "Surulere", List.of("driving")).block(Duration.ofSeconds(10));
+        long drops = (long) limiterStats().get("drops");
+        stub.reset();
+        stub.latency(400, 0);
+
+        DistanceResponse response = service.calculateDistances("Ikeja", "Lekki", MODES).block(Duration.ofSeconds(10));
+
+        MODES.forEach(mode -> assertEquals("OK", response.travelModes.get(mode).status, mode));
+        assertEquals(4, stub.calls("distance-matrix"));
+        assertEquals(drops, limiterStats().get("drops"));
+    }
+
+    @Test
+    void hangingUpstreamTimesOutAndCountsAsADrop() {
+        stub.latency(3_000, 0);
+
+        // Every mode timed out, so there is no answer to report
+        assertThrows(UpstreamTimeoutException.class,
+                () -> service.calculateDistances("Ikeja", "Lekki", MODES).block(Duration.ofSeconds(10)));
+
+        assertEquals(4L, limiterStats().get("drops"));
+        assertEquals(0, limiterStats().get("inFlight"));
+    }
+
+    private Map<String, Object> limiterStats() {
+        return clients.limiter(UpstreamEndpoint.DISTANCE).stats();
+    }
+}
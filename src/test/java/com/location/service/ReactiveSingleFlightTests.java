@@ -0,0 +1,57 @@
+package com.location.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactiveSingleFlightTests {
+
+    @Test
+    void subscribersShareOneUpstreamCall() {
+        ReactiveSingleFlight<String, String> flight = new ReactiveSingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        Sinks.One<String> upstream = Sinks.one();
+
+        Mono<String> first = flight.execute("k", () -> {
+            calls.incrementAndGet();
+            return upstream.asMono();
+        });
+        Mono<String> second = flight.execute("k", () -> {
+            calls.incrementAndGet();
+            return Mono.just("other");
+        });
+
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> upstream.tryEmitValue("v"))
+                .assertNext(pair -> {
+                    assertEquals("v", pair.getT1());
+                    assertEquals("v", pair.getT2());
+                })
+                .verifyComplete();
+        assertEquals(1, calls.get());
+        assertEquals(0, flight.inFlightCount());
+    }
+
+    @Test
+    void upstreamIsCancelledOnlyWhenEverySubscriberCancels() {
+        ReactiveSingleFlight<String, String> flight = new ReactiveSingleFlight<>();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Mono<String> upstream = Mono.<String>never().doOnCancel(() -> cancelled.set(true));
+
+        Disposable a = flight.execute("k", () -> upstream).subscribe();
+        Disposable b = flight.execute("k", () -> upstream).subscribe();
+
+        a.dispose();
+        assertFalse(cancelled.get());
+        b.dispose();
+        assertTrue(cancelled.get());
+        assertEquals(0, flight.inFlightCount());
+    }
+}
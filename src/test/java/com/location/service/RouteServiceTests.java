@@ -0,0 +1,186 @@
+package com.location.service;
+
+import com.location.dto.DistanceMatrixResponse;
+import com.location.dto.RouteResponse;
+import com.location.http.UpstreamClients;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stops along a road heading east. The matrix stand-in knows where every place
+ * is and answers 100 s and 1300 m per straight-line km; the geocoder only knows
+ * the places in {@link #geocodable}.
+ */
+class RouteServiceTests {
+
+    private static final double SECONDS_PER_KM = 100;
+
+    private final Map<String, double[]> everywhere = new HashMap<>();
+    private final Map<String, double[]> geocodable = new HashMap<>();
+    private final AtomicInteger geocodes = new AtomicInteger();
+    private final AtomicInteger matrixRequests = new AtomicInteger();
+    private final Set<String> requestedPairs = ConcurrentHashMap.newKeySet();
+
+    private final GoogleGeocodingService geocodingService = GeocodingFixture.service((kind, uri) -> {
+        geocodes.incrementAndGet();
+        String address = GeocodingFixture.address(uri);
+        return Optional.ofNullable(geocodable.get(address))
+                .map(p -> GeocodingFixture.point(p[0], p[1], address, "id-" + address));
+    });
+
+    private final DistanceMatrixService matrixService = new DistanceMatrixService(
+            new UpstreamClients(new MockEnvironment(), WebClient.builder(), new SimpleMeterRegistry()),
+            4, 25, 25, 100, 1000) {
+        @Override
+        public DistanceMatrixResponse calculateMatrix(List<String> origins, List<String> destinations, String mode) {
+            matrixRequests.incrementAndGet();
+            DistanceMatrixResponse matrix = new DistanceMatrixResponse();
+            matrix.mode = mode;
+            matrix.rows = origins.size();
+            matrix.cols = destinations.size();
+            matrix.meters = new int[matrix.rows * matrix.cols];
+            matrix.seconds = new int[matrix.rows * matrix.cols];
+            for (int r = 0; r < matrix.rows; r++) {
+                for (int c = 0; c < matrix.cols; c++) {
+                    requestedPairs.add(origins.get(r) + "|" + destinations.get(c));
+                    double km = km(everywhere.get(origins.get(r)), everywhere.get(destinations.get(c)));
+                    matrix.seconds[matrix.index(r, c)] = (int) Math.round(km * SECONDS_PER_KM);
+                    matrix.meters[matrix.index(r, c)] = (int) Math.round(km * 1300);
+                }
+            }
+            matrix.statusCounts = Map.of("OK", matrix.rows * matrix.cols);
+            return matrix;
+        }
+    };
+
+    private RouteService routeService;
+
+    @AfterEach
+    void shutdown() {
+        routeService.shutdown();
+        matrixService.shutdown();
+        geocodingService.shutdown();
+    }
+
+    private RouteService routeService(int neighbours, int blockSize) {
+        routeService = new RouteService(matrixService, geocodingService, neighbours, blockSize, 200, 2);
+        return routeService;
+    }
+
+    /**
+     * A place about 1.1 km east of the start per step, known to the geocoder
+     * unless it is given as coordinates.
+     */
+    private String place(String name, double step, boolean asCoordinates) {
+        double[] point = {6.45, 3.30 + step * 0.01};
+        String place = asCoordinates ? String.format(Locale.ROOT, "%.5f,%.5f", point[0], point[1]) : name;
+        everywhere.put(place, point);
+        if (!asCoordinates) {
+            geocodable.put(place, point);
+        }
+        return place;
+    }
+
+    private double km(double[] from, double[] to) {
+        return geocodingService.calculateDistanceKm(from[0], from[1], to[0], to[1]);
+    }
+
+    @Test
+    void shortRouteIsOneFullMatrixWithoutGeocoding() {
+        String depot = place("Depot", 0, false);
+        List<String> stops = List.of(place("Far", 3, false), place("Near", 1, false), place("Middle", 2, false));
+
+        RouteResponse route = routeService(12, 10).optimize(depot, stops, "driving", false);
+
+        assertEquals(0, geocodes.get());
+        assertEquals(1, matrixRequests.get());
+        assertEquals(16, route.matrixElements);
+        assertEquals(List.of(1, 2, 0), route.order);
+        assertEquals(List.of("Near", "Middle", "Far"), route.stops);
+
+        // Legs run start -> Near -> Middle -> Far with no leg back to the start
+        assertEquals(3, route.legs.size());
+        assertEquals(List.of("Depot", "Near", "Middle"), route.legs.stream().map(l -> l.from).toList());
+        assertEquals(List.of("Near", "Middle", "Far"), route.legs.stream().map(l -> l.to).toList());
+        assertTrue(route.legs.stream().allMatch(l -> "OK".equals(l.status)));
+        assertEquals(route.legs.stream().mapToLong(l -> l.seconds).sum(), route.totalSeconds);
+        assertEquals(route.legs.stream().mapToLong(l -> l.meters).sum(), route.totalMeters);
+        assertEquals(0, route.estimatedLegs);
+
+        RouteResponse roundTrip = routeService.optimize(depot, stops, "driving", true);
+        assertEquals(4, roundTrip.legs.size());
+        assertEquals("Depot", roundTrip.legs.getLast().to);
+    }
+
+    @Test
+    void longRouteAsksForNeighboursOnlyAndWholeRowsForStopsItCannotLocate() {
+        String start = place("start", 0, true);
+        List<String> stops = new ArrayList<>();
+        for (int k = 1; k <= 10; k++) {
+            stops.add(place("stop " + k, k, true));
+        }
+        // Known to Google's matrix but not to the geocoder, halfway along
+        String mystery = "Mystery Place";
+        everywhere.put(mystery, new double[]{6.45, 3.355});
+        stops.add(mystery);
+
+        RouteResponse route = routeService(3, 4).optimize(start, stops, "driving", false);
+
+        // Only the one place without coordinates was geocoded
+        assertEquals(1, geocodes.get());
+        int n = stops.size() + 1;
+        assertTrue(route.matrixElements < n * n, "fetched " + route.matrixElements);
+        assertFalse(requestedPairs.contains(stops.get(0) + "|" + stops.get(9)));
+        for (String stop : stops) {
+            assertTrue(requestedPairs.contains(stop + "|" + mystery), stop);
+            if (!stop.equals(mystery)) {
+                assertTrue(requestedPairs.contains(mystery + "|" + stop), stop);
+            }
+        }
+        assertTrue(requestedPairs.contains(start + "|" + mystery));
+        assertFalse(requestedPairs.contains(mystery + "|" + start));
+
+        List<String> expected = new ArrayList<>(stops.subList(0, 5));
+        expected.add(mystery);
+        expected.addAll(stops.subList(5, 10));
+        assertEquals(expected, route.stops);
+        assertTrue(route.legs.stream().noneMatch(l -> "NO_ROUTE".equals(l.status)));
+        assertTrue((int) route.solver.get("estimatedPairs") > 0);
+    }
+
+    @Test
+    void pairsNotFetchedAreEstimatedFromTheSpeedOfTheFetchedOnes() {
+        String start = place("start", 0, true);
+        List<String> stops = new ArrayList<>();
+        for (int k = 1; k <= 6; k++) {
+            // Every other stop is out of order, so the best tour uses pairs beyond the neighbour sets
+            stops.add(place("stop " + k, k % 2 == 0 ? k : k + 10, true));
+        }
+        stops.add("Mystery Place");
+        everywhere.put("Mystery Place", new double[]{6.45, 3.50});
+
+        RouteResponse route = routeService(1, 2).optimize(start, stops, "driving", true);
+
+        assertTrue(route.estimatedLegs > 0);
+        for (RouteResponse.Leg leg : route.legs) {
+            double expected = km(everywhere.get(leg.from), everywhere.get(leg.to)) * SECONDS_PER_KM;
+            // The unlocated stop must not drag the sampled speed towards zero
+            assertEquals(expected, leg.seconds, expected * 0.02 + 1, leg.from + " -> " + leg.to + " " + leg.status);
+        }
+    }
+}
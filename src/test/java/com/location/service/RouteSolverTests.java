@@ -0,0 +1,94 @@
+package com.location.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteSolverTests {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final RouteSolver solver = new RouteSolver(executor, 2);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void visitsStopsAlongALineInOrder() {
+        // Start at 0, stops scattered along a road, free end
+        int[] position = {0, 70, 20, 110, 50, 10, 90, 30, 130, 60, 40, 100, 80, 120};
+        int n = position.length;
+        int size = n + 1;
+        int[] cost = new int[size * size];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                cost[i * size + j] = Math.abs(position[i] - position[j]);
+            }
+        }
+
+        RouteSolver.Result result = solver.solve(cost, size, 100);
+
+        assertEquals(130, result.cost());
+        int[] visited = new int[n - 1];
+        for (int k = 1; k < n; k++) {
+            visited[k - 1] = position[result.tour()[k]];
+        }
+        int[] sorted = visited.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(sorted, visited);
+        assertEquals(n, result.tour()[n]);
+    }
+
+    @Test
+    void roundTripGoesAroundTheRing() {
+        // Stops on a circle, listed out of order; the best round trip follows the circle
+        int n = 16;
+        int size = n + 1;
+        double[][] points = new double[n][];
+        for (int i = 0; i < n; i++) {
+            double angle = 2 * Math.PI * ((i * 7) % n) / n;
+            points[i] = new double[]{1000 * Math.cos(angle), 1000 * Math.sin(angle)};
+        }
+        int[] cost = new int[size * size];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                cost[i * size + j] = (int) Math.round(Math.hypot(points[i][0] - points[j][0], points[i][1] - points[j][1]));
+            }
+            cost[i * size + n] = cost[i * size];
+        }
+        int chord = cost[size * 0 + 7];
+
+        RouteSolver.Result result = solver.solve(cost, size, 100);
+
+        assertEquals(0, result.tour()[0]);
+        assertEquals(n, result.tour()[n]);
+        assertEquals(RouteSolver.tourCost(cost, size, result.tour()), result.cost());
+        // Every hop is to a neighbour on the ring
+        assertTrue(result.cost() <= (long) n * chord, "cost " + result.cost());
+    }
+
+    @Test
+    void keepsBothEndsFixedOnAsymmetricCosts() {
+        int size = 12;
+        int[] cost = new int[size * size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                // Cheap to step forward by one, expensive otherwise
+                cost[i * size + j] = j == i + 1 ? 1 : 50 + (i * 31 + j * 17) % 40;
+            }
+        }
+
+        RouteSolver.Result result = solver.solve(cost, size, 50);
+
+        int[] expected = new int[size];
+        Arrays.setAll(expected, i -> i);
+        assertArrayEquals(expected, result.tour());
+        assertEquals(size - 1, result.cost());
+    }
+}
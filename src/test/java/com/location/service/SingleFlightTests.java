@@ -0,0 +1,94 @@
+package com.location.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTests {
+
+    @Test
+    void concurrentCallersShareOneExecution() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("test", 5_000);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                results.add(executor.submit(() -> flight.execute("k", () -> {
+                    calls.incrementAndGet();
+                    release.await();
+                    return "v";
+                })));
+            }
+            while (flight.inFlightCount() == 0 || (long) flight.stats().get("coalesced") < 19) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("v", result.get());
+            }
+        }
+        assertEquals(1, calls.get());
+        assertEquals(0, flight.inFlightCount());
+    }
+
+    @Test
+    void waiterTimesOutWhileTheLeaderIsStuck() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("test", 50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> leader = executor.submit(() -> flight.execute("k", () -> {
+                started.countDown();
+                release.await();
+                throw new IllegalStateException("upstream down");
+            }));
+            started.await();
+            assertThrows(UpstreamTimeoutException.class, () -> flight.execute("k", () -> "unused"));
+            release.countDown();
+            Exception e = assertThrows(Exception.class, leader::get);
+            assertEquals("upstream down", e.getCause().getMessage());
+        }
+        assertEquals("fresh", flight.execute("k", () -> "fresh"));
+    }
+
+    @Test
+    void waitersSeeTheLeadersError() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("test", 5_000);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("upstream down");
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                results.add(executor.submit(() -> flight.execute("k", () -> {
+                    calls.incrementAndGet();
+                    release.await();
+                    throw failure;
+                })));
+            }
+            while ((long) flight.stats().get("coalesced") < 4) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<String> result : results) {
+                ExecutionException e = assertThrows(ExecutionException.class, result::get);
+                assertSame(failure, e.getCause());
+            }
+        }
+        assertEquals(1, calls.get());
+        assertEquals(0L, flight.stats().get("timeouts"));
+    }
+}